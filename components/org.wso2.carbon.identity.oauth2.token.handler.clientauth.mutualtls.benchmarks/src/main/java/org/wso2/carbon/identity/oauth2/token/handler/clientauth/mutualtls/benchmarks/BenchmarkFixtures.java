@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSKeySet;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateDecoder;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.lang.reflect.Proxy;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Requests, certificates and JWK sets shared by the Mutual TLS benchmarks.
+ */
+final class BenchmarkFixtures {
+
+    static final String CLIENT_ID = "benchmark-client";
+    static final String CERTIFICATE_HEADER = "x-wso2-mutual-auth-cert";
+    static final String JWKS_URI = "https://localhost:9443/oauth2/jwks/benchmark-client";
+
+    static final String CERTIFICATE_CONTENT =
+            "MIIDmzCCAoOgAwIBAgIJAJuzH6NrV5s5MA0GCSqGSIb3DQEBCwUAMGQxCzAJBgNV\n" +
+                    "BAYTAlNMMQswCQYDVQQIDAJXUDEQMA4GA1UEBwwHQ29sb21ibzENMAsGA1UECgwE\n" +
+                    "d3NvMjENMAsGA1UECwwEd3NvMjEYMBYGA1UEAwwPdHJhdmVsb2NpdHkuY29tMB4X\n" +
+                    "DTE4MDIwNjEwNTk1N1oXDTE5MDIwNjEwNTk1N1owZDELMAkGA1UEBhMCU0wxCzAJ\n" +
+                    "BgNVBAgMAldQMRAwDgYDVQQHDAdDb2xvbWJvMQ0wCwYDVQQKDAR3c28yMQ0wCwYD\n" +
+                    "VQQLDAR3c28yMRgwFgYDVQQDDA90cmF2ZWxvY2l0eS5jb20wggEiMA0GCSqGSIb3\n" +
+                    "DQEBAQUAA4IBDwAwggEKAoIBAQDlKn3dmaLW7iBOKdlWY8Go8Q7kR6HNY/8j0arv\n" +
+                    "EcZYqMrihcSX5i5Mz57t6Z3xpaGay2jPWND7dDA/RocircleBKQk0X2OxoEYba3W\n" +
+                    "t477EpN9RWGAZuuANUSVKjC8FsNYhEp9y59IuxK+IgDAEfR8O2RNLYA6O3UjBC/R\n" +
+                    "f443CwOE4jFm3eVAeLIBudn/viC56rPBozVX4DxPaHIzxocfK6EpDljEG4lJ7otS\n" +
+                    "SbIpPlmAO/0f8F1Q6syv+sCkPRGn/OjTXWtUg6QXAclguOCl3MI+pLMThQUATcKb\n" +
+                    "2QkPl8r8/b/S8qMRKzSVYyjNP+CsDRO/MdlC50QZSJBaNYqdAgMBAAGjUDBOMB0G\n" +
+                    "A1UdDgQWBBSIXyhWV6Ac+FiqdXEeQwqzJfFLhDAfBgNVHSMEGDAWgBSIXyhWV6Ac\n" +
+                    "+FiqdXEeQwqzJfFLhDAMBgNVHRMEBTADAQH/MA0GCSqGSIb3DQEBCwUAA4IBAQBQ\n" +
+                    "S2jmfzF8x1iwmRqXILZ6qkF5ABAlNa3Z3bMFB7uErw2BxASMOLWfjZdEcyICDGIf\n" +
+                    "ZeYchqEPTvv/RIqDlu8xda3N2kRp1un5Hfffavm6ZWR3J8LdsnSjrehZ/afxuy8a\n" +
+                    "OFKiRtj9tqpG3C/s/NBJ9Gl4u5YhihOSJG9ELihJSxWDYI641AOalWnUQ/SxfeCO\n" +
+                    "TY75aViCAD6QDmBxe/opQYExBdgNOCQ6HdP5WWBT6EEggBe/mqOM/dchj57rpPtw\n" +
+                    "IOQjy9UCaY7tq4SmhAJyab0mxjcFoRBpzOJIDh+N8ozSDK+MepyFSwtW5zVacOiG\n" +
+                    "OQUrBTGXQFZOGKje8sbS";
+
+    static final String CERTIFICATE_PEM =
+            CommonConstants.BEGIN_CERT + "\n" + CERTIFICATE_CONTENT + "\n" + CommonConstants.END_CERT;
+
+    private static final String CARBON_HOME = "carbon.home";
+    private static final String COMPONENT_TEST_RESOURCES = Paths.get("..",
+            "org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls", "src", "test", "resources")
+            .toAbsolutePath().normalize().toString();
+
+    private BenchmarkFixtures() {
+
+    }
+
+    /**
+     * Point carbon.home to the test resources of the Mutual TLS component, unless it is already set, and start a
+     * super tenant flow on the calling thread so that the Carbon caches can be used outside of a Carbon server.
+     */
+    static void startTenantFlow() {
+
+        if (System.getProperty(CARBON_HOME) == null) {
+            System.setProperty(CARBON_HOME, COMPONENT_TEST_RESOURCES);
+        }
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        carbonContext.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        carbonContext.setTenantId(MultitenantConstants.SUPER_TENANT_ID);
+    }
+
+    static void endTenantFlow() {
+
+        PrivilegedCarbonContext.endTenantFlow();
+    }
+
+    static X509Certificate getCertificate() throws CertificateException {
+
+        return CertificateDecoder.decode(CERTIFICATE_CONTENT);
+    }
+
+    static URL getJwksUri() throws MalformedURLException {
+
+        return new URL(JWKS_URI);
+    }
+
+    /**
+     * Build a JWK set of the given size, where only the last key holds the benchmark certificate in its x5c
+     * attribute and every other key carries an unrelated x5t thumbprint.
+     *
+     * @param size Number of keys in the set.
+     * @return Indexed JWK set.
+     */
+    static JWKSKeySet getKeySet(int size) throws CertificateException {
+
+        return JWKSKeySet.fromKeys(getKeys(size));
+    }
+
+    /**
+     * @param size Number of keys in the set.
+     * @return JWK set document with the keys of {@link #getKeySet(int)}, as served by a JWKS endpoint.
+     */
+    static String getJWKSContent(int size) {
+
+        JsonObject jwks = new JsonObject();
+        jwks.add(CommonConstants.KEYS, getKeys(size));
+        return jwks.toString();
+    }
+
+    private static JsonArray getKeys(int size) {
+
+        JsonArray keys = new JsonArray();
+        for (int i = 1; i < size; i++) {
+            JsonObject key = newKey("key-" + i);
+            byte[] digest = ByteBuffer.allocate(32).putInt(i).array();
+            key.addProperty(CommonConstants.X5T, CertificateThumbprint.toHexBase64URL(digest));
+            keys.add(key);
+        }
+        JsonArray x5c = new JsonArray();
+        x5c.add(CERTIFICATE_CONTENT.replace("\n", ""));
+        JsonObject key = newKey("key-" + size);
+        key.add(CommonConstants.X5C, x5c);
+        keys.add(key);
+        return keys;
+    }
+
+    /**
+     * @return Body parameters of a token request of the benchmark client.
+     */
+    static Map<String, List> getBodyParams() {
+
+        List<String> clientId = new ArrayList<>();
+        clientId.add(CLIENT_ID);
+        Map<String, List> bodyParams = new HashMap<>();
+        bodyParams.put("client_id", clientId);
+        bodyParams.put("grant_type", Collections.singletonList("client_credentials"));
+        return bodyParams;
+    }
+
+    /**
+     * Build a request which only answers the request attributes and headers read by Mutual TLS authentication.
+     *
+     * @param certificates Certificate chain of the TLS session, or null if TLS is terminated before the server.
+     * @param header       Certificate sent in the Mutual TLS header, or null if the header is not sent.
+     * @return Request.
+     */
+    static HttpServletRequest newRequest(X509Certificate[] certificates, String header) {
+
+        Map<String, Object> attributes = new HashMap<>();
+        if (certificates != null) {
+            attributes.put(MutualTLSUtil.JAVAX_SERVLET_REQUEST_CERTIFICATE, certificates);
+        }
+        Map<String, String> headers = new HashMap<>();
+        if (header != null) {
+            headers.put(CERTIFICATE_HEADER, header);
+        }
+        return (HttpServletRequest) Proxy.newProxyInstance(BenchmarkFixtures.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAttribute":
+                            return attributes.get((String) args[0]);
+                        case "getHeader":
+                            return headers.get((String) args[0]);
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "BenchmarkRequest";
+                        default:
+                            return getDefaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static JsonObject newKey(String kid) {
+
+        JsonObject key = new JsonObject();
+        key.addProperty("kty", "RSA");
+        key.addProperty("kid", kid);
+        key.addProperty("use", "sig");
+        return key;
+    }
+
+    private static Object getDefaultValue(Class<?> type) {
+
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateDecoder;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of parsing the certificate sent in the Mutual TLS header, which is what the parseCertificate methods of
+ * the authenticator and the token binding grant handlers delegate to, for each content format a proxy may send.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CertificateDecoderBenchmark {
+
+    /**
+     * Format of the certificate sent in the Mutual TLS header.
+     */
+    public enum ContentFormat {
+        BASE64,
+        PEM,
+        URL_ENCODED_PEM
+    }
+
+    @Param({"BASE64", "PEM", "URL_ENCODED_PEM"})
+    public ContentFormat contentFormat;
+
+    private String content;
+
+    @Setup
+    public void setUp() {
+
+        switch (contentFormat) {
+            case BASE64:
+                content = BenchmarkFixtures.CERTIFICATE_CONTENT;
+                break;
+            case PEM:
+                content = BenchmarkFixtures.CERTIFICATE_PEM;
+                break;
+            default:
+                content = URLEncoder.encode(BenchmarkFixtures.CERTIFICATE_PEM, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public X509Certificate parseCertificate() throws CertificateException {
+
+        return CertificateDecoder.decode(content);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the certificate thumbprints computed for every authenticated request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CertificateThumbprintBenchmark {
+
+    private X509Certificate certificate;
+
+    @Setup
+    public void setUp() throws CertificateException {
+
+        certificate = BenchmarkFixtures.getCertificate();
+    }
+
+    /**
+     * SHA-256 thumbprint in the format of the OAuth2 component, as used for JWKS lookups.
+     */
+    @Benchmark
+    public String getThumbPrint() throws CertificateEncodingException {
+
+        return MutualTLSUtil.getThumbPrint(certificate, null);
+    }
+
+    /**
+     * Legacy SHA-1 thumbprint.
+     */
+    @Benchmark
+    public String getSha1ThumbPrint() throws CertificateEncodingException, NoSuchAlgorithmException {
+
+        return MutualTLSUtil.getThumbPrint(certificate);
+    }
+
+    /**
+     * SHA-1 and SHA-256 digests from a single encoding of the certificate.
+     */
+    @Benchmark
+    public CertificateThumbprint certificateThumbprint() throws CertificateEncodingException {
+
+        return CertificateThumbprint.of(certificate);
+    }
+}
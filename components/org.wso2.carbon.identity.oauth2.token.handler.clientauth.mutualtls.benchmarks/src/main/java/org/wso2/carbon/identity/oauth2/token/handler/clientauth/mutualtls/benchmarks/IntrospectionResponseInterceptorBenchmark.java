@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2IntrospectionResponseDTO;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationRequestDTO;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.introspection.IntrospectionResponseInterceptor;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of moving the certificate thumbprint scope of a certificate bound token to the cnf claim of the
+ * introspection response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntrospectionResponseInterceptorBenchmark {
+
+    /**
+     * Whether the introspected token is bound to a certificate.
+     */
+    public enum Binding {
+        BOUND,
+        UNBOUND
+    }
+
+    @Param({"BOUND", "UNBOUND"})
+    public Binding binding;
+
+    private final IntrospectionResponseInterceptor interceptor = new IntrospectionResponseInterceptor();
+    private final OAuth2TokenValidationRequestDTO validationRequest = new OAuth2TokenValidationRequestDTO();
+    private final Map<String, Object> params = Collections.emptyMap();
+    private String scope;
+
+    @Setup
+    public void setUp() throws Exception {
+
+        scope = "openid profile email";
+        if (binding == Binding.BOUND) {
+            scope += " " + CommonConstants.CERT_THUMBPRINT + CommonConstants.SEPARATOR +
+                    CommonConstants.SHA256_DIGEST_ALGORITHM + CommonConstants.CERT_THUMBPRINT_SEPARATOR +
+                    CertificateThumbprint.of(BenchmarkFixtures.getCertificate()).getX5tS256();
+        }
+    }
+
+    @Benchmark
+    public OAuth2IntrospectionResponseDTO onPostTokenValidation() {
+
+        OAuth2IntrospectionResponseDTO introspectionResponse = new OAuth2IntrospectionResponseDTO();
+        introspectionResponse.setActive(true);
+        introspectionResponse.setScope(scope);
+        interceptor.onPostTokenValidation(validationRequest, introspectionResponse, params);
+        return introspectionResponse;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.benchmarks;
+
+import com.google.gson.JsonArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSCertificateMatcher;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSKeySet;
+
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of matching the request certificate against JWK sets of different sizes, where the matching key is the
+ * last key of the set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JWKSMatchingBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int keys;
+
+    private X509Certificate certificate;
+    private JWKSKeySet keySet;
+    private JWKSCertificateMatcher matcher;
+
+    @Setup
+    public void setUp() throws CertificateException {
+
+        certificate = BenchmarkFixtures.getCertificate();
+        keySet = BenchmarkFixtures.getKeySet(keys);
+        matcher = JWKSCertificateMatcher.forCertificate(certificate);
+    }
+
+    /**
+     * Digest the request certificate and look it up, as done when the digest is not yet known for the request.
+     */
+    @Benchmark
+    public JWKSCertificateMatcher.Match match() throws CertificateException {
+
+        return JWKSCertificateMatcher.forCertificate(certificate).match(keySet);
+    }
+
+    /**
+     * Look up a certificate digest which is already computed for the request.
+     */
+    @Benchmark
+    public JWKSCertificateMatcher.Match matchDigest() {
+
+        return matcher.match(keySet);
+    }
+
+    /**
+     * Read the keys of the cached set, as done by getResourceContent on every JWKS cache hit.
+     */
+    @Benchmark
+    public JsonArray readKeys() {
+
+        return keySet.getKeys();
+    }
+
+    /**
+     * Copy the keys of the cached set, which is what getResourceContent did on every JWKS cache hit before the keys
+     * were shared. Kept as the baseline of {@link #readKeys()}.
+     */
+    @Benchmark
+    public JsonArray copyKeys() {
+
+        return keySet.getKeys().deepCopy();
+    }
+
+    /**
+     * Parse and index the JWK set, as done when the JWKS endpoint is fetched.
+     */
+    @Benchmark
+    public JWKSKeySet indexKeySet() throws CertificateException {
+
+        return JWKSKeySet.fromKeys(keySet.getKeys());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.bean.OAuthClientAuthnContext;
+import org.wso2.carbon.identity.oauth2.client.authentication.OAuthClientAuthnException;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.MutualTLSClientAuthenticator;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientCertificateCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientProfileCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSKeySet;
+
+import java.net.URL;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Benchmarks of MutualTLSClientAuthenticator for a client authenticated against its registered certificate and for
+ * a client authenticated against the certificates of its JWKS endpoint, with the certificate taken from the TLS
+ * session or from the Mutual TLS header.
+ * <p>
+ * The JWK set is served from memory, so the JWKS mode measures the lookup in the indexed key set and not the
+ * retrieval of the JWKS endpoint.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MutualTLSClientAuthenticatorBenchmark {
+
+    /**
+     * How the benchmark client is authenticated.
+     */
+    public enum AuthMode {
+        CERTIFICATE,
+        JWKS
+    }
+
+    /**
+     * Where the certificate of the benchmark client is taken from.
+     */
+    public enum CertificateSource {
+        ATTRIBUTE,
+        HEADER
+    }
+
+    private static final int JWKS_SIZE = 10;
+
+    @Param({"CERTIFICATE", "JWKS"})
+    public AuthMode authMode;
+
+    @Param({"ATTRIBUTE", "HEADER"})
+    public CertificateSource certificateSource;
+
+    private StaticStandIns standIns;
+    private MutualTLSClientAuthenticator authenticator;
+    private HttpServletRequest request;
+    private Map<String, List> bodyParams;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        BenchmarkFixtures.startTenantFlow();
+        X509Certificate certificate = BenchmarkFixtures.getCertificate();
+        standIns = authMode == AuthMode.JWKS ? StaticStandIns.forJWKS(BenchmarkFixtures.JWKS_URI) :
+                StaticStandIns.forCertificate(certificate);
+
+        JWKSKeySet keySet = BenchmarkFixtures.getKeySet(JWKS_SIZE);
+        authenticator = new MutualTLSClientAuthenticator() {
+
+            @Override
+            public JWKSKeySet getJWKSKeySet(URL jwksUri) {
+
+                return keySet;
+            }
+        };
+        request = certificateSource == CertificateSource.ATTRIBUTE ?
+                BenchmarkFixtures.newRequest(new X509Certificate[]{certificate}, null) :
+                BenchmarkFixtures.newRequest(null, BenchmarkFixtures.CERTIFICATE_PEM);
+        bodyParams = BenchmarkFixtures.getBodyParams();
+
+        MutualTLSClientProfileCache.getInstance().clearCacheEntry(BenchmarkFixtures.CLIENT_ID);
+        MutualTLSClientCertificateCache.getInstance().clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        MutualTLSClientProfileCache.getInstance().clearCacheEntry(BenchmarkFixtures.CLIENT_ID);
+        MutualTLSClientCertificateCache.getInstance().clear();
+        standIns.close();
+        BenchmarkFixtures.endTenantFlow();
+    }
+
+    @Benchmark
+    public boolean canAuthenticate() {
+
+        return authenticator.canAuthenticate(request, bodyParams, new OAuthClientAuthnContext());
+    }
+
+    @Benchmark
+    public boolean authenticateClient() throws OAuthClientAuthnException {
+
+        return authenticator.authenticateClient(request, bodyParams, new OAuthClientAuthnContext());
+    }
+
+    /**
+     * Both calls the OAuth2 component makes for a token request, sharing the client authentication context.
+     */
+    @Benchmark
+    public boolean canAuthenticateAndAuthenticateClient() throws OAuthClientAuthnException {
+
+        OAuthClientAuthnContext oAuthClientAuthnContext = new OAuthClientAuthnContext();
+        return authenticator.canAuthenticate(request, bodyParams, oAuthClientAuthnContext) &&
+                authenticator.authenticateClient(request, bodyParams, oAuthClientAuthnContext);
+    }
+
+    /**
+     * Authentication right after the cached client profile was cleared, as happens when the application is updated.
+     * The measured time includes clearing the cache entry.
+     */
+    @Benchmark
+    public boolean authenticateClientOnProfileCacheMiss() throws OAuthClientAuthnException {
+
+        MutualTLSClientProfileCache.getInstance().clearCacheEntry(BenchmarkFixtures.CLIENT_ID);
+        return authenticator.authenticateClient(request, bodyParams, new OAuthClientAuthnContext());
+    }
+}
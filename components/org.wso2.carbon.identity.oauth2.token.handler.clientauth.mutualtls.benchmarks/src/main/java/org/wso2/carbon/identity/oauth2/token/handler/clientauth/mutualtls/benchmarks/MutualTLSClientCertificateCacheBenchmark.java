@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientCertificateCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientCertificateCacheEntry;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateDecoder;
+
+import java.security.cert.CertificateException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of resolving the certificate sent in the Mutual TLS header through the client certificate cache, on a
+ * hit and on a miss that falls back to parsing the certificate, from a single thread and from several threads
+ * sharing the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MutualTLSClientCertificateCacheBenchmark {
+
+    @Param({"100", "10000"})
+    public int cachedCertificates;
+
+    private MutualTLSClientCertificateCache cache;
+    private String[] headerValues;
+    private String uncachedHeaderValue;
+
+    @Setup
+    public void setUp() throws CertificateException {
+
+        MutualTLSClientCertificateCacheEntry entry =
+                new MutualTLSClientCertificateCacheEntry(CertificateDecoder.decode(BenchmarkFixtures.CERTIFICATE_PEM));
+        cache = new BenchmarkCertificateCache();
+        headerValues = new String[cachedCertificates];
+        for (int i = 0; i < cachedCertificates; i++) {
+            // Distinct header values of the same length as the fixture, as sent for distinct clients.
+            headerValues[i] = String.format("%08d", i) + BenchmarkFixtures.CERTIFICATE_PEM.substring(8);
+            cache.addToCache(headerValues[i], entry);
+        }
+        uncachedHeaderValue = new String(BenchmarkFixtures.CERTIFICATE_PEM.toCharArray());
+    }
+
+    @Benchmark
+    public MutualTLSClientCertificateCacheEntry hit(Counter counter) {
+
+        return cache.getValueFromCache(headerValues[counter.next(cachedCertificates)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MutualTLSClientCertificateCacheEntry hitContended(Counter counter) {
+
+        return cache.getValueFromCache(headerValues[counter.next(cachedCertificates)]);
+    }
+
+    @Benchmark
+    public MutualTLSClientCertificateCacheEntry miss() throws CertificateException {
+
+        MutualTLSClientCertificateCacheEntry entry = cache.getValueFromCache(uncachedHeaderValue);
+        if (entry == null) {
+            entry = new MutualTLSClientCertificateCacheEntry(CertificateDecoder.decode(uncachedHeaderValue));
+        }
+        return entry;
+    }
+
+    /**
+     * Per thread cursor over the cached header values.
+     */
+    @State(Scope.Thread)
+    public static class Counter {
+
+        private int index;
+
+        int next(int bound) {
+
+            index = index + 1 < bound ? index + 1 : 0;
+            return index;
+        }
+    }
+
+    /**
+     * Cache created independently of the shared instance, large enough to hold every benchmarked certificate.
+     */
+    private static class BenchmarkCertificateCache extends MutualTLSClientCertificateCache {
+
+        BenchmarkCertificateCache() {
+
+            super(true, Long.MAX_VALUE);
+        }
+    }
+}
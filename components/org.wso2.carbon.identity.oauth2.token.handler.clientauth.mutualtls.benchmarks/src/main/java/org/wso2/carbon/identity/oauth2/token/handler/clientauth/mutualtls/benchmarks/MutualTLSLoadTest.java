@@ -0,0 +1,469 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.benchmarks;
+
+import org.wso2.carbon.identity.oauth2.bean.OAuthClientAuthnContext;
+import org.wso2.carbon.identity.oauth2.client.authentication.OAuthClientAuthnException;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.MutualTLSClientAuthenticator;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientProfileCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCacheKey;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSConfig;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSFetchRejectedException;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSKeySet;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSKeySetProvider;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSRefreshScheduler;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URL;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Load test of Mutual TLS client authentication against the JWKS of a client, driven by many request threads
+ * against a {@link StubJWKSServer} on the loopback interface, so that it can be run on a single machine without
+ * network access.
+ * <p>
+ * The JWKS cache entry is cleared at a fixed interval to reproduce the expiry of the Carbon cache, and the endpoint
+ * can be taken down for a while to reproduce an outage. For every report interval the test prints the request
+ * outcomes, the p50, p99 and p999 latency, the requests received by the JWKS endpoint, and how many request threads
+ * were blocked, which shows thundering herds on expiry and whether stale key sets were served during an outage.
+ * <p>
+ * Run from the benchmarks module after "mvn clean install -Pbenchmarks", with any of the options below as
+ * name=value arguments:
+ * <pre>
+ * java -cp target/benchmarks.jar \
+ *     org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.benchmarks.MutualTLSLoadTest \
+ *     threads=200 duration=60 keys=100 latency=50 cacheExpiry=20 outageStart=30 outageDuration=15
+ * </pre>
+ * Durations are in seconds, except for latency, queueTimeout and fetchWaitTimeout which are in milliseconds.
+ */
+public final class MutualTLSLoadTest {
+
+    private static final int AUTHENTICATED = 0;
+    private static final int NOT_AUTHENTICATED = 1;
+    private static final int REJECTED = 2;
+    private static final int FAILED = 3;
+    private static final int OUTCOMES = 4;
+
+    private static final long SAMPLE_INTERVAL = 10;
+
+    private static final Map<String, String> DEFAULTS = new HashMap<>();
+
+    static {
+        DEFAULTS.put("threads", "200");
+        DEFAULTS.put("duration", "60");
+        DEFAULTS.put("interval", "5");
+        DEFAULTS.put("keys", "100");
+        DEFAULTS.put("latency", "50");
+        DEFAULTS.put("errorRate", "0");
+        DEFAULTS.put("maxAge", "-1");
+        DEFAULTS.put("serverThreads", "8");
+        DEFAULTS.put("cacheExpiry", "20");
+        DEFAULTS.put("outageStart", "-1");
+        DEFAULTS.put("outageDuration", "0");
+        DEFAULTS.put("softTTL", "10");
+        DEFAULTS.put("hardTTL", "300");
+        DEFAULTS.put("staleWhileRevalidate", "true");
+        DEFAULTS.put("staleIfError", "true");
+        DEFAULTS.put("backgroundRefresh", "false");
+        DEFAULTS.put("maxConcurrentFetches", "50");
+        DEFAULTS.put("maxWaitingRequests", "50");
+        DEFAULTS.put("queueTimeout", "100");
+        DEFAULTS.put("fetchWaitTimeout", "10000");
+    }
+
+    private final Map<String, String> options;
+    private final int threads;
+    private final long intervalNanos;
+    private final int intervals;
+
+    private final LatencyHistogram[] latencies;
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+    private final long[] fetches;
+    private final long[] notModifiedResponses;
+    private final long[] serverErrors;
+    private final int[] serverMaxInFlight;
+    private final int[] serverMaxQueued;
+    private final int[] maxBlockedWorkers;
+    private final long[] blockedWorkerSamples;
+    private final long[] samples;
+    private final StringBuilder[] events;
+
+    private MutualTLSLoadTest(Map<String, String> options) {
+
+        this.options = options;
+        this.threads = getInt("threads");
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(getInt("interval"));
+        this.intervals = (int) Math.ceil((double) getInt("duration") / getInt("interval"));
+        this.latencies = new LatencyHistogram[intervals];
+        this.fetches = new long[intervals];
+        this.notModifiedResponses = new long[intervals];
+        this.serverErrors = new long[intervals];
+        this.serverMaxInFlight = new int[intervals];
+        this.serverMaxQueued = new int[intervals];
+        this.maxBlockedWorkers = new int[intervals];
+        this.blockedWorkerSamples = new long[intervals];
+        this.samples = new long[intervals];
+        this.events = new StringBuilder[intervals];
+        for (int i = 0; i < intervals; i++) {
+            latencies[i] = new LatencyHistogram();
+            events[i] = new StringBuilder();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2 || !DEFAULTS.containsKey(option[0])) {
+                throw new IllegalArgumentException("Unknown option: " + arg + ". Supported options: " +
+                        DEFAULTS.keySet());
+            }
+            options.put(option[0], option[1]);
+        }
+        new MutualTLSLoadTest(options).run(System.out);
+    }
+
+    private void run(PrintStream out) throws Exception {
+
+        BenchmarkFixtures.startTenantFlow();
+        try (StubJWKSServer server = new StubJWKSServer(getInt("keys"), getLong("latency"),
+                Double.parseDouble(options.get("errorRate")), getLong("maxAge"), getInt("serverThreads"))) {
+            server.start();
+            String jwksUri = server.getJwksUri();
+            JWKSKeySetProvider provider = new JWKSKeySetProvider(buildConfig()) {
+            };
+            MutualTLSClientAuthenticator authenticator = new MutualTLSClientAuthenticator() {
+
+                @Override
+                public JWKSKeySet getJWKSKeySet(URL jwksUri) throws IOException, CertificateException {
+
+                    return provider.getKeySet(jwksUri);
+                }
+            };
+            JWKSRefreshScheduler refreshScheduler = new JWKSRefreshScheduler(provider);
+            if (provider.getConfig().isBackgroundRefreshEnabled()) {
+                refreshScheduler.start();
+            }
+            MutualTLSJWKSCacheKey cacheKey = new MutualTLSJWKSCacheKey(jwksUri);
+            MutualTLSJWKSCache.getInstance().clearCacheEntry(cacheKey);
+            MutualTLSClientProfileCache.getInstance().clearCacheEntry(BenchmarkFixtures.CLIENT_ID);
+
+            out.println("Mutual TLS load test against " + jwksUri + " with options " + options);
+            CountDownLatch ready = new CountDownLatch(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            Worker[] workers = new Worker[threads];
+            Thread[] workerThreads = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                workers[i] = new Worker(authenticator, jwksUri, ready, start);
+                workerThreads[i] = new Thread(workers[i], "MutualTLSLoadTestWorker-" + i);
+                workerThreads[i].start();
+            }
+            ready.await();
+
+            long startTime = System.nanoTime();
+            long endTime = startTime + TimeUnit.SECONDS.toNanos(getInt("duration"));
+            for (Worker worker : workers) {
+                worker.setTimes(startTime, endTime);
+            }
+            ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+                Thread thread = new Thread(runnable, "MutualTLSLoadTestScheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            start.countDown();
+            scheduleEvents(scheduler, server, cacheKey, startTime);
+            scheduler.scheduleAtFixedRate(new Sampler(server, workerThreads, startTime), SAMPLE_INTERVAL,
+                    SAMPLE_INTERVAL, TimeUnit.MILLISECONDS);
+
+            for (Thread workerThread : workerThreads) {
+                workerThread.join();
+            }
+            scheduler.shutdown();
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            refreshScheduler.stop();
+            recordServerCounters(server, intervals - 1);
+            report(out, workers);
+        } finally {
+            BenchmarkFixtures.endTenantFlow();
+        }
+    }
+
+    private JWKSConfig buildConfig() {
+
+        JWKSConfig config = new JWKSConfig();
+        config.setSoftTTL(TimeUnit.SECONDS.toMillis(getInt("softTTL")));
+        config.setHardTTL(TimeUnit.SECONDS.toMillis(getInt("hardTTL")));
+        config.setStaleWhileRevalidate(Boolean.parseBoolean(options.get("staleWhileRevalidate")));
+        config.setStaleIfError(Boolean.parseBoolean(options.get("staleIfError")));
+        config.setBackgroundRefreshEnabled(Boolean.parseBoolean(options.get("backgroundRefresh")));
+        config.setMaxConcurrentFetches(getInt("maxConcurrentFetches"));
+        config.setMaxWaitingRequests(getInt("maxWaitingRequests"));
+        config.setQueueTimeout(getLong("queueTimeout"));
+        config.setFetchWaitTimeout(getLong("fetchWaitTimeout"));
+        // Large key sets are served as they are, as the size limit is not what is measured.
+        config.setMaxResponseSize(Integer.MAX_VALUE);
+        return config;
+    }
+
+    /**
+     * Schedule the expiry of the JWKS cache entry and the outage of the JWKS endpoint.
+     */
+    private void scheduleEvents(ScheduledExecutorService scheduler, StubJWKSServer server,
+                                MutualTLSJWKSCacheKey cacheKey, long startTime) {
+
+        long cacheExpiry = getLong("cacheExpiry");
+        if (cacheExpiry > 0) {
+            scheduler.scheduleAtFixedRate(() -> {
+                BenchmarkFixtures.startTenantFlow();
+                try {
+                    MutualTLSJWKSCache.getInstance().clearCacheEntry(cacheKey);
+                } finally {
+                    BenchmarkFixtures.endTenantFlow();
+                }
+                recordEvent(startTime, "expiry");
+            }, cacheExpiry, cacheExpiry, TimeUnit.SECONDS);
+        }
+        long outageStart = getLong("outageStart");
+        if (outageStart >= 0) {
+            scheduler.schedule(() -> {
+                server.setAvailable(false);
+                recordEvent(startTime, "outage start");
+            }, outageStart, TimeUnit.SECONDS);
+            scheduler.schedule(() -> {
+                server.setAvailable(true);
+                recordEvent(startTime, "outage end");
+            }, outageStart + getLong("outageDuration"), TimeUnit.SECONDS);
+        }
+    }
+
+    private synchronized void recordEvent(long startTime, String event) {
+
+        long elapsed = System.nanoTime() - startTime;
+        if (elapsed >= intervals * intervalNanos) {
+            return;
+        }
+        StringBuilder intervalEvents = events[getInterval(System.nanoTime(), startTime)];
+        if (intervalEvents.length() > 0) {
+            intervalEvents.append(", ");
+        }
+        intervalEvents.append(event).append(" at ").append(TimeUnit.NANOSECONDS.toMillis(elapsed)).append("ms");
+    }
+
+    private void recordServerCounters(StubJWKSServer server, int interval) {
+
+        fetches[interval] = server.getRequests();
+        notModifiedResponses[interval] = server.getNotModifiedResponses();
+        serverErrors[interval] = server.getErrorResponses();
+        serverMaxInFlight[interval] = Math.max(serverMaxInFlight[interval], server.getAndResetMaxInFlight());
+    }
+
+    private void report(PrintStream out, Worker[] workers) {
+
+        String format = "%-10s %10s %10s %10s %10s %10s %10s %10s %10s %10s %8s %8s %8s %10s %10s %12s  %s%n";
+        out.printf(format, "Interval", "Requests", "Auth", "NotAuth", "Rejected", "Failed", "p50(us)", "p99(us)",
+                "p999(us)", "max(us)", "Fetches", "304s", "5xx", "SrvInFlt", "SrvQueue", "Blocked", "Events");
+        long[] totalOutcomes = new long[OUTCOMES];
+        long previousFetches = 0;
+        long previousNotModified = 0;
+        long previousErrors = 0;
+        for (int i = 0; i < intervals; i++) {
+            LatencyHistogram histogram = latencies[i];
+            long[] outcomes = new long[OUTCOMES];
+            for (Worker worker : workers) {
+                for (int outcome = 0; outcome < OUTCOMES; outcome++) {
+                    outcomes[outcome] += worker.outcomes[i][outcome];
+                }
+            }
+            for (int outcome = 0; outcome < OUTCOMES; outcome++) {
+                totalOutcomes[outcome] += outcomes[outcome];
+            }
+            // Counters of intervals without a sample carry the value of the previous interval.
+            long intervalFetches = Math.max(fetches[i], previousFetches);
+            long intervalNotModified = Math.max(notModifiedResponses[i], previousNotModified);
+            long intervalErrors = Math.max(serverErrors[i], previousErrors);
+            long averageBlocked = samples[i] > 0 ? blockedWorkerSamples[i] / samples[i] : 0;
+            out.printf(format, i * getInt("interval") + "s", histogram.getCount(), outcomes[AUTHENTICATED],
+                    outcomes[NOT_AUTHENTICATED], outcomes[REJECTED], outcomes[FAILED], histogram.getPercentile(0.5),
+                    histogram.getPercentile(0.99), histogram.getPercentile(0.999), histogram.getMaxTime(),
+                    intervalFetches - previousFetches, intervalNotModified - previousNotModified,
+                    intervalErrors - previousErrors, serverMaxInFlight[i], serverMaxQueued[i],
+                    averageBlocked + "/" + maxBlockedWorkers[i], events[i]);
+            previousFetches = intervalFetches;
+            previousNotModified = intervalNotModified;
+            previousErrors = intervalErrors;
+        }
+        out.printf(format, "Total", totalLatency.getCount(), totalOutcomes[AUTHENTICATED],
+                totalOutcomes[NOT_AUTHENTICATED], totalOutcomes[REJECTED], totalOutcomes[FAILED],
+                totalLatency.getPercentile(0.5), totalLatency.getPercentile(0.99), totalLatency.getPercentile(0.999),
+                totalLatency.getMaxTime(), previousFetches, previousNotModified, previousErrors, "",
+                "", "", "");
+    }
+
+    private int getInterval(long now, long startTime) {
+
+        return (int) Math.min(Math.max(now - startTime, 0) / intervalNanos, intervals - 1);
+    }
+
+    private int getInt(String option) {
+
+        return Integer.parseInt(options.get(option));
+    }
+
+    private long getLong(String option) {
+
+        return Long.parseLong(options.get(option));
+    }
+
+    private static boolean isRejected(Throwable throwable) {
+
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JWKSFetchRejectedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Request thread authenticating the client in a closed loop. Latencies are recorded per report interval in the
+     * histograms shared by every thread, and outcomes in counters owned by the thread, which are only read once the
+     * thread has finished.
+     */
+    private final class Worker implements Runnable {
+
+        private final MutualTLSClientAuthenticator authenticator;
+        private final String jwksUri;
+        private final CountDownLatch ready;
+        private final CountDownLatch start;
+        private final long[][] outcomes = new long[intervals][OUTCOMES];
+        private volatile long startTime;
+        private volatile long endTime;
+
+        Worker(MutualTLSClientAuthenticator authenticator, String jwksUri, CountDownLatch ready,
+               CountDownLatch start) {
+
+            this.authenticator = authenticator;
+            this.jwksUri = jwksUri;
+            this.ready = ready;
+            this.start = start;
+        }
+
+        void setTimes(long startTime, long endTime) {
+
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        @Override
+        public void run() {
+
+            boolean started = false;
+            BenchmarkFixtures.startTenantFlow();
+            try (StaticStandIns ignored = StaticStandIns.forJWKS(jwksUri)) {
+                X509Certificate certificate = BenchmarkFixtures.getCertificate();
+                HttpServletRequest request = BenchmarkFixtures.newRequest(new X509Certificate[]{certificate}, null);
+                Map<String, List> bodyParams = BenchmarkFixtures.getBodyParams();
+                ready.countDown();
+                started = true;
+                start.await();
+
+                long now;
+                while ((now = System.nanoTime()) < endTime) {
+                    int outcome;
+                    try {
+                        outcome = authenticator.authenticateClient(request, bodyParams,
+                                new OAuthClientAuthnContext()) ? AUTHENTICATED : NOT_AUTHENTICATED;
+                    } catch (OAuthClientAuthnException e) {
+                        outcome = isRejected(e) ? REJECTED : FAILED;
+                    }
+                    long latency = System.nanoTime() - now;
+                    int interval = getInterval(now, startTime);
+                    latencies[interval].record(latency);
+                    totalLatency.record(latency);
+                    outcomes[interval][outcome]++;
+                }
+            } catch (CertificateException e) {
+                throw new IllegalStateException("Error while decoding the load test certificate.", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (!started) {
+                    ready.countDown();
+                }
+                BenchmarkFixtures.endTenantFlow();
+            }
+        }
+    }
+
+    /**
+     * Samples how many request threads are blocked, and the load on the JWKS endpoint, at a fixed rate. A request
+     * thread only blocks while it waits for a JWKS fetch or for a permit to wait for one.
+     */
+    private final class Sampler implements Runnable {
+
+        private final StubJWKSServer server;
+        private final Thread[] workerThreads;
+        private final long startTime;
+        private int currentInterval;
+
+        Sampler(StubJWKSServer server, Thread[] workerThreads, long startTime) {
+
+            this.server = server;
+            this.workerThreads = workerThreads;
+            this.startTime = startTime;
+        }
+
+        @Override
+        public void run() {
+
+            int interval = getInterval(System.nanoTime(), startTime);
+            if (interval != currentInterval) {
+                recordServerCounters(server, currentInterval);
+                currentInterval = interval;
+            }
+            int blocked = 0;
+            for (Thread workerThread : workerThreads) {
+                Thread.State state = workerThread.getState();
+                if (state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING ||
+                        state == Thread.State.BLOCKED) {
+                    blocked++;
+                }
+            }
+            maxBlockedWorkers[interval] = Math.max(maxBlockedWorkers[interval], blocked);
+            blockedWorkerSamples[interval] += blocked;
+            samples[interval]++;
+            serverMaxQueued[interval] = Math.max(serverMaxQueued[interval], server.getQueuedRequests());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.benchmarks;
+
+import org.mockito.MockedStatic;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.application.common.model.ServiceProviderProperty;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.security.cert.X509Certificate;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * In-memory stand-ins for the OAuth2Util and IdentityUtil lookups made during Mutual TLS authentication, so that the
+ * benchmarks measure the authenticator instead of the application management and configuration services.
+ * <p>
+ * Static mocks are only visible to the thread that created them, hence states using this must be thread scoped.
+ * The mocks are stub only, so that invocations are not recorded while measuring.
+ */
+final class StaticStandIns implements AutoCloseable {
+
+    private final MockedStatic<OAuth2Util> oAuth2Util;
+    private final MockedStatic<IdentityUtil> identityUtil;
+
+    private StaticStandIns(ServiceProvider serviceProvider, X509Certificate registeredCertificate) {
+
+        oAuth2Util = mockStatic(OAuth2Util.class, withSettings().stubOnly());
+        oAuth2Util.when(() -> OAuth2Util.getTenantDomainOfOauthApp(anyString()))
+                .thenReturn(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        oAuth2Util.when(() -> OAuth2Util.getAppInformationByClientId(anyString(), anyString()))
+                .thenReturn(new OAuthAppDO());
+        oAuth2Util.when(() -> OAuth2Util.getServiceProvider(anyString(), anyString())).thenReturn(serviceProvider);
+        oAuth2Util.when(() -> OAuth2Util.getX509CertOfOAuthApp(anyString(), anyString()))
+                .thenReturn(registeredCertificate);
+
+        identityUtil = mockStatic(IdentityUtil.class, withSettings().stubOnly());
+        identityUtil.when(() -> IdentityUtil.getProperty(CommonConstants.MTLS_AUTH_HEADER))
+                .thenReturn(BenchmarkFixtures.CERTIFICATE_HEADER);
+    }
+
+    /**
+     * Stand-ins for a client authenticated against its registered certificate.
+     *
+     * @param registeredCertificate Certificate registered for the client.
+     */
+    static StaticStandIns forCertificate(X509Certificate registeredCertificate) {
+
+        ServiceProvider serviceProvider = new ServiceProvider();
+        serviceProvider.setSpProperties(new ServiceProviderProperty[0]);
+        return new StaticStandIns(serviceProvider, registeredCertificate);
+    }
+
+    /**
+     * Stand-ins for a client authenticated against the certificates published at its JWKS endpoint.
+     *
+     * @param jwksUri JWKS endpoint registered for the client.
+     */
+    static StaticStandIns forJWKS(String jwksUri) {
+
+        ServiceProviderProperty jwksUriProperty = new ServiceProviderProperty();
+        jwksUriProperty.setName(CommonConstants.JWKS_URI);
+        jwksUriProperty.setValue(jwksUri);
+        ServiceProvider serviceProvider = new ServiceProvider();
+        serviceProvider.setSpProperties(new ServiceProviderProperty[]{jwksUriProperty});
+        return new StaticStandIns(serviceProvider, null);
+    }
+
+    @Override
+    public void close() {
+
+        identityUtil.close();
+        oAuth2Util.close();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JWKS endpoint served from the loopback interface, with a configurable response latency, error rate and key set
+ * size. The endpoint answers conditional requests with 304 when the ETag still matches, and can be taken down to
+ * simulate an outage. It counts the requests it receives and the highest number of requests it had in flight.
+ */
+final class StubJWKSServer implements AutoCloseable {
+
+    private static final String JWKS_PATH = "/jwks";
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final byte[] content;
+    private final String eTag;
+    private final long latency;
+    private final double errorRate;
+    private final long maxAge;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong notModifiedResponses = new AtomicLong();
+    private final AtomicLong errorResponses = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile boolean available = true;
+
+    /**
+     * @param keys      Number of keys in the served JWK set.
+     * @param latency   Time in milliseconds each request is held before it is answered.
+     * @param errorRate Fraction of requests answered with a 500 response.
+     * @param maxAge    max-age in seconds sent in the Cache-Control header, or a negative value to not send it.
+     * @param threads   Number of threads serving requests.
+     * @throws IOException If the server cannot be bound to the loopback interface.
+     */
+    StubJWKSServer(int keys, long latency, double errorRate, long maxAge, int threads) throws IOException {
+
+        this.content = BenchmarkFixtures.getJWKSContent(keys).getBytes(StandardCharsets.UTF_8);
+        this.eTag = "\"" + Integer.toHexString(Arrays.hashCode(content)) + "\"";
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.maxAge = maxAge;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext(JWKS_PATH, this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    void start() {
+
+        server.start();
+    }
+
+    String getJwksUri() {
+
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + JWKS_PATH;
+    }
+
+    /**
+     * @param available false to answer every request with a 503 response, as during an outage of the endpoint.
+     */
+    void setAvailable(boolean available) {
+
+        this.available = available;
+    }
+
+    long getRequests() {
+
+        return requests.get();
+    }
+
+    long getNotModifiedResponses() {
+
+        return notModifiedResponses.get();
+    }
+
+    long getErrorResponses() {
+
+        return errorResponses.get();
+    }
+
+    /**
+     * @return Highest number of requests in flight since the last call.
+     */
+    int getAndResetMaxInFlight() {
+
+        return maxInFlight.getAndSet(inFlight.get());
+    }
+
+    /**
+     * @return Number of requests waiting for a server thread.
+     */
+    int getQueuedRequests() {
+
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        requests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+            if (!available) {
+                errorResponses.incrementAndGet();
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_UNAVAILABLE, -1);
+                return;
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errorResponses.incrementAndGet();
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("ETag", eTag);
+            if (maxAge >= 0) {
+                exchange.getResponseHeaders().set("Cache-Control", "max-age=" + maxAge);
+            }
+            if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModifiedResponses.incrementAndGet();
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, content.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(content);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+}
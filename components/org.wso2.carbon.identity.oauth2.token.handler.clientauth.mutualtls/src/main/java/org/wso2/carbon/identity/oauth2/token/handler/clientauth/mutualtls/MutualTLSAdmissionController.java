@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control of Mutual TLS authentication attempts, so that a client retrying with a wrong certificate in a
+ * tight loop, or a source address sending such attempts, is turned away before the tenant, the application and the
+ * JWK set of the client are looked up.
+ * <p>
+ * Every client id and certificate pair and, optionally, every source address which failed to authenticate has a token
+ * bucket of failures. Each failure takes a token, and tokens are given back at a fixed rate. Attempts are shed while
+ * the bucket is empty, so a key is only shed after a burst of failures, and is then let through at the rate tokens are
+ * given back. Shed attempts do not take tokens. A successful authentication of a client gives back all the tokens of
+ * the client with that certificate, but not of its source address, which may be shared by other clients.
+ * <p>
+ * Client ids are not secret, so failures are tracked per certificate presented for the client: failures of anyone
+ * claiming the client id with another certificate never shed the client presenting its own certificate.
+ * <p>
+ * Buckets are lock free, and only keys which failed to authenticate are tracked. Once the maximum number of keys is
+ * tracked, buckets which are full again are removed, and failures of further keys are not tracked until then.
+ * <p>
+ * The source address is the remote address seen by the servlet container. Unless the container resolves the address
+ * of the client, such as behind a load balancer terminating TLS, every request has the same source address, hence
+ * limiting by source address must only be enabled when it is known to be the address of the client.
+ */
+public class MutualTLSAdmissionController {
+
+    private static final Log log = LogFactory.getLog(MutualTLSAdmissionController.class);
+    private static final String CLIENT = "client";
+    private static final String SOURCE_ADDRESS = "source address";
+    private static final char CERTIFICATE_SEPARATOR = ' ';
+
+    private static final MutualTLSAdmissionController instance = new MutualTLSAdmissionController();
+
+    private final boolean enabled;
+    private final boolean sourceAddressEnabled;
+    private final long refillInterval;
+    private final long burstWindow;
+    private final int maxEntries;
+    private final Map<String, FailureBucket> clientBuckets = new ConcurrentHashMap<>();
+    private final Map<String, FailureBucket> sourceAddressBuckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweepTime = new AtomicLong();
+    private final LongAdder admittedCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder shedClientCount = new LongAdder();
+    private final LongAdder shedSourceAddressCount = new LongAdder();
+    private final LongAdder untrackedCount = new LongAdder();
+
+    private MutualTLSAdmissionController() {
+
+        this(Boolean.parseBoolean(
+                        StringUtils.trim(IdentityUtil.getProperty(CommonConstants.ADMISSION_CONTROL_ENABLE_XPATH))),
+                MutualTLSUtil.readIntConfigValue(CommonConstants.ADMISSION_CONTROL_FAILURE_BURST_XPATH,
+                        CommonConstants.DEFAULT_ADMISSION_CONTROL_FAILURE_BURST, 1),
+                MutualTLSUtil.readIntConfigValue(CommonConstants.ADMISSION_CONTROL_FAILURE_RATE_XPATH,
+                        CommonConstants.DEFAULT_ADMISSION_CONTROL_FAILURE_RATE, 1),
+                Boolean.parseBoolean(StringUtils.trim(
+                        IdentityUtil.getProperty(CommonConstants.ADMISSION_CONTROL_SOURCE_ADDRESS_ENABLE_XPATH))),
+                MutualTLSUtil.readIntConfigValue(CommonConstants.ADMISSION_CONTROL_MAX_ENTRIES_XPATH,
+                        CommonConstants.DEFAULT_ADMISSION_CONTROL_MAX_ENTRIES, 1));
+    }
+
+    /**
+     * @param enabled              Whether attempts are shed after repeated failures.
+     * @param failureBurst         Number of failures after which the attempts of a key are shed.
+     * @param failureRate          Number of failures per minute given back to each key.
+     * @param sourceAddressEnabled Whether attempts are also shed by source address.
+     * @param maxEntries           Maximum number of client ids, and of source addresses, tracked.
+     */
+    protected MutualTLSAdmissionController(boolean enabled, int failureBurst, int failureRate,
+                                           boolean sourceAddressEnabled, int maxEntries) {
+
+        this.enabled = enabled;
+        this.sourceAddressEnabled = enabled && sourceAddressEnabled;
+        this.refillInterval = Math.max(1, TimeUnit.MINUTES.toMillis(1) / failureRate);
+        this.burstWindow = failureBurst * refillInterval;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns MutualTLSAdmissionController instance
+     *
+     * @return instance of MutualTLSAdmissionController
+     */
+    public static MutualTLSAdmissionController getInstance() {
+
+        return instance;
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    public boolean isSourceAddressEnabled() {
+
+        return sourceAddressEnabled;
+    }
+
+    /**
+     * Check whether an authentication attempt of the given client from the given source address is admitted.
+     *
+     * @param clientId          Client ID of the OAuth application, or null if not known.
+     * @param certificateDigest SHA-256 digest of the certificate presented by the client, or null if not known.
+     * @param sourceAddress     Source address of the request, or null if not known.
+     * @return false if the attempt is shed.
+     */
+    public boolean isAdmitted(String clientId, byte[] certificateDigest, String sourceAddress) {
+
+        if (!enabled) {
+            return true;
+        }
+        long now = getCurrentTime();
+        if (isShed(clientBuckets, getClientKey(clientId, certificateDigest), now)) {
+            shedClientCount.increment();
+            return false;
+        }
+        if (sourceAddressEnabled && isShed(sourceAddressBuckets, sourceAddress, now)) {
+            shedSourceAddressCount.increment();
+            return false;
+        }
+        admittedCount.increment();
+        return true;
+    }
+
+    /**
+     * Record a failed authentication attempt of the given client from the given source address.
+     *
+     * @param clientId          Client ID of the OAuth application, or null if not known.
+     * @param certificateDigest SHA-256 digest of the certificate presented by the client, or null if not known.
+     * @param sourceAddress     Source address of the request, or null if not known.
+     */
+    public void recordFailure(String clientId, byte[] certificateDigest, String sourceAddress) {
+
+        if (!enabled) {
+            return;
+        }
+        failureCount.increment();
+        long now = getCurrentTime();
+        recordFailure(clientBuckets, CLIENT, getClientKey(clientId, certificateDigest), now);
+        if (sourceAddressEnabled) {
+            recordFailure(sourceAddressBuckets, SOURCE_ADDRESS, sourceAddress, now);
+        }
+    }
+
+    /**
+     * Record a successful authentication of the given client, giving back all the failures of the client with the
+     * given certificate.
+     *
+     * @param clientId          Client ID of the OAuth application.
+     * @param certificateDigest SHA-256 digest of the certificate presented by the client, or null if not known.
+     */
+    public void recordSuccess(String clientId, byte[] certificateDigest) {
+
+        if (enabled && clientId != null) {
+            clientBuckets.remove(getClientKey(clientId, certificateDigest));
+        }
+    }
+
+    /**
+     * Give back all the failures of the given client with any certificate, such as when the certificate of its
+     * application is updated. This iterates every tracked client.
+     *
+     * @param clientId Client ID of the OAuth application.
+     */
+    public void clearEntries(String clientId) {
+
+        if (enabled && clientId != null) {
+            clientBuckets.keySet().removeIf(key -> clientId.equals(getClientId(key)));
+        }
+    }
+
+    /**
+     * Give back all the failures of every client and source address.
+     */
+    public void clear() {
+
+        clientBuckets.clear();
+        sourceAddressBuckets.clear();
+    }
+
+    /**
+     * @return Client ids whose attempts are being shed, each followed by a space and the hexadecimal SHA-256 digest of
+     * the certificate, if known, along with the number of attempts shed for each.
+     */
+    public Map<String, Long> getShedClients() {
+
+        return getShedKeys(clientBuckets);
+    }
+
+    /**
+     * @return Source addresses whose attempts are being shed, along with the number of attempts shed for each.
+     */
+    public Map<String, Long> getShedSourceAddresses() {
+
+        return getShedKeys(sourceAddressBuckets);
+    }
+
+    /**
+     * @return Number of client id and certificate pairs with recorded failures.
+     */
+    public int getTrackedClientCount() {
+
+        return clientBuckets.size();
+    }
+
+    /**
+     * @return Number of source addresses with recorded failures.
+     */
+    public int getTrackedSourceAddressCount() {
+
+        return sourceAddressBuckets.size();
+    }
+
+    public long getAdmittedCount() {
+
+        return admittedCount.sum();
+    }
+
+    public long getFailureCount() {
+
+        return failureCount.sum();
+    }
+
+    /**
+     * @return Number of attempts shed since the client had too many failures.
+     */
+    public long getShedClientCount() {
+
+        return shedClientCount.sum();
+    }
+
+    /**
+     * @return Number of attempts shed since the source address had too many failures.
+     */
+    public long getShedSourceAddressCount() {
+
+        return shedSourceAddressCount.sum();
+    }
+
+    /**
+     * @return Number of failures not tracked since the maximum number of keys was already tracked.
+     */
+    public long getUntrackedCount() {
+
+        return untrackedCount.sum();
+    }
+
+    /**
+     * @return Current time in milliseconds, against which failures are given back.
+     */
+    protected long getCurrentTime() {
+
+        return System.currentTimeMillis();
+    }
+
+    private static String getClientKey(String clientId, byte[] certificateDigest) {
+
+        if (clientId == null) {
+            return null;
+        }
+        return clientId + CERTIFICATE_SEPARATOR +
+                (certificateDigest != null ? CertificateThumbprint.toHex(certificateDigest) : StringUtils.EMPTY);
+    }
+
+    /**
+     * The hexadecimal digest has no separator, so the client id ends at the last separator of the key.
+     */
+    private static String getClientId(String clientKey) {
+
+        return clientKey.substring(0, clientKey.lastIndexOf(CERTIFICATE_SEPARATOR));
+    }
+
+    private boolean isShed(Map<String, FailureBucket> buckets, String key, long now) {
+
+        if (key == null) {
+            return false;
+        }
+        FailureBucket bucket = buckets.get(key);
+        if (bucket == null || !bucket.isEmpty(now)) {
+            return false;
+        }
+        bucket.shedCount.increment();
+        return true;
+    }
+
+    private void recordFailure(Map<String, FailureBucket> buckets, String keyType, String key, long now) {
+
+        if (key == null) {
+            return;
+        }
+        FailureBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxEntries) {
+                removeFullBuckets(now);
+                if (buckets.size() >= maxEntries) {
+                    untrackedCount.increment();
+                    return;
+                }
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new FailureBucket());
+        }
+        if (bucket.take(now) && bucket.isEmpty(now) && bucket.reported.compareAndSet(false, true)) {
+            log.warn("Shedding Mutual TLS authentication attempts of " + keyType + ": " + key +
+                    " after repeated authentication failures.");
+        }
+    }
+
+    /**
+     * Remove the buckets which are full again, at most once per refill interval since this iterates every bucket.
+     */
+    private void removeFullBuckets(long now) {
+
+        long lastSweep = lastSweepTime.get();
+        if (now - lastSweep < refillInterval || !lastSweepTime.compareAndSet(lastSweep, now)) {
+            return;
+        }
+        clientBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        sourceAddressBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private Map<String, Long> getShedKeys(Map<String, FailureBucket> buckets) {
+
+        long now = getCurrentTime();
+        Map<String, Long> shedKeys = new HashMap<>();
+        for (Map.Entry<String, FailureBucket> entry : buckets.entrySet()) {
+            if (entry.getValue().isEmpty(now)) {
+                shedKeys.put(entry.getKey(), entry.getValue().shedCount.sum());
+            }
+        }
+        return shedKeys;
+    }
+
+    /**
+     * Token bucket of failures, kept as the time at which the bucket is full again. Taking a token moves that time
+     * forward by the refill interval, and the bucket is empty once that time is a whole burst ahead.
+     */
+    private class FailureBucket {
+
+        private final AtomicLong fullTime = new AtomicLong();
+        private final LongAdder shedCount = new LongAdder();
+        private final AtomicBoolean reported = new AtomicBoolean();
+
+        /**
+         * @return false if the bucket was already empty.
+         */
+        boolean take(long now) {
+
+            while (true) {
+                long current = fullTime.get();
+                long next = Math.max(current, now) + refillInterval;
+                if (next - now > burstWindow) {
+                    return false;
+                }
+                if (fullTime.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean isEmpty(long now) {
+
+            return fullTime.get() + refillInterval - now > burstWindow;
+        }
+
+        boolean isFull(long now) {
+
+            return fullTime.get() <= now;
+        }
+    }
+}
@@ -19,11 +19,6 @@
 package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls;
 
 import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.nimbusds.jose.util.DefaultResourceRetriever;
-import com.nimbusds.jose.util.Resource;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -38,37 +33,43 @@ import org.wso2.carbon.identity.oauth2.bean.OAuthClientAuthnContext;
 import org.wso2.carbon.identity.oauth2.client.authentication.AbstractOAuthClientAuthenticator;
 import org.wso2.carbon.identity.oauth2.client.authentication.OAuthClientAuthnException;
 import org.wso2.carbon.identity.oauth2.model.ClientAuthenticationMethodModel;
-import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCache;
-import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCacheEntry;
-import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCacheKey;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSAuthenticationResultCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSAuthenticationResultCacheEntry;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSCertificateFilter;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientCertificateCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientCertificateCacheEntry;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientProfileCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientProfileCacheEntry;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSSessionCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSCertificateMatcher;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSFetchRejectedException;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSKeySet;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSKeySetProvider;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.metrics.MutualTLSMetrics;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateDecoder;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
 import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
 import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
 import java.security.Principal;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
-import java.util.Base64;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import javax.servlet.http.HttpServletRequest;
-import javax.xml.bind.DatatypeConverter;
 
 import static org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil.JAVAX_SERVLET_REQUEST_CERTIFICATE;
+import static org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil.JAVAX_SERVLET_REQUEST_SSL_SESSION_ID;
 import static org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil.isJwksUriConfigured;
 import static org.wso2.carbon.identity.oauth2.util.OAuth2Util.getServiceProvider;
 
@@ -84,6 +85,12 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
     private static final Log log = LogFactory.getLog(MutualTLSClientAuthenticator.class);
     private static final String MTLS_CLIENT_AUTHENTICATOR_AUTH_METHOD = "tls_client_auth";
     private static final String MTLS_CLIENT_AUTHENTICATOR_DISPLAY_NAME = "Mutual TLS";
+    // Failures caused by the certificate the client presented, as opposed to the configuration of the client or an
+    // unavailable JWKS endpoint, which the admission controller does not hold against the client.
+    private static final EnumSet<MutualTLSMetrics.Outcome> CLIENT_FAILURE_OUTCOMES = EnumSet.of(
+            MutualTLSMetrics.Outcome.CERTIFICATE_MISMATCH, MutualTLSMetrics.Outcome.RENEWED_CERTIFICATE,
+            MutualTLSMetrics.Outcome.SUBJECT_DN_MISMATCH, MutualTLSMetrics.Outcome.UNKNOWN_CERTIFICATE,
+            MutualTLSMetrics.Outcome.CACHED_FAILURE);
 
     /**
      * @param request                 HttpServletRequest which is the incoming request.
@@ -97,8 +104,72 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
                                       OAuthClientAuthnContext oAuthClientAuthnContext)
             throws OAuthClientAuthnException {
 
-        X509Certificate registeredCert;
-        URL jwksUri;
+        MutualTLSMetrics metrics = MutualTLSMetrics.getInstance();
+        long startTime = metrics.getStartTime();
+        try {
+            boolean authenticated = admitAndAuthenticateClient(request, bodyParams, oAuthClientAuthnContext);
+            if (authenticated) {
+                metrics.recordOutcome(MutualTLSMetrics.Outcome.AUTHENTICATED);
+            }
+            return authenticated;
+        } catch (OAuthClientAuthnException e) {
+            metrics.recordOutcome(OAuth2ErrorCodes.INVALID_CLIENT.equals(e.getErrorCode()) ?
+                    MutualTLSMetrics.Outcome.INVALID_CLIENT : MutualTLSMetrics.Outcome.ERROR);
+            throw e;
+        } finally {
+            metrics.recordStage(MutualTLSMetrics.Stage.AUTHENTICATE_CLIENT, startTime);
+        }
+    }
+
+    /**
+     * Authenticate the client, unless the attempt is shed by the admission controller, and record the result with
+     * the admission controller. Only failures caused by the client, and unknown clients, count against it.
+     */
+    private boolean admitAndAuthenticateClient(HttpServletRequest request, Map<String, List> bodyParams,
+                                               OAuthClientAuthnContext oAuthClientAuthnContext)
+            throws OAuthClientAuthnException {
+
+        MutualTLSClientAuthnRequestContext requestContext =
+                getRequestContext(request, bodyParams, oAuthClientAuthnContext);
+        MutualTLSAdmissionController admissionController = getAdmissionController();
+        if (!admissionController.isEnabled()) {
+            return authenticateClient(request, bodyParams, oAuthClientAuthnContext, requestContext);
+        }
+
+        String clientId = StringUtils.isNotEmpty(oAuthClientAuthnContext.getClientId()) ?
+                oAuthClientAuthnContext.getClientId() : getBodyParameters(requestContext).get(OAuth.OAUTH_CLIENT_ID);
+        byte[] certificateDigest = getRequestCertificateDigest(request, requestContext);
+        String sourceAddress = request.getRemoteAddr();
+        if (!isAdmitted(clientId, certificateDigest, sourceAddress, requestContext)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Shedding the Mutual TLS authentication attempt of client: " + clientId +
+                        " after repeated authentication failures.");
+            }
+            MutualTLSMetrics.getInstance().recordOutcome(MutualTLSMetrics.Outcome.SHED);
+            return false;
+        }
+        boolean authenticated;
+        try {
+            authenticated = authenticateClient(request, bodyParams, oAuthClientAuthnContext, requestContext);
+        } catch (OAuthClientAuthnException e) {
+            // Unknown clients are failures of the client, unlike errors of the server.
+            if (OAuth2ErrorCodes.INVALID_CLIENT.equals(e.getErrorCode())) {
+                admissionController.recordFailure(clientId, certificateDigest, sourceAddress);
+            }
+            throw e;
+        }
+        if (authenticated) {
+            admissionController.recordSuccess(clientId, certificateDigest);
+        } else if (CLIENT_FAILURE_OUTCOMES.contains(requestContext.getFailureOutcome())) {
+            admissionController.recordFailure(clientId, certificateDigest, sourceAddress);
+        }
+        return authenticated;
+    }
+
+    private boolean authenticateClient(HttpServletRequest request, Map<String, List> bodyParams,
+                                       OAuthClientAuthnContext oAuthClientAuthnContext,
+                                       MutualTLSClientAuthnRequestContext requestContext)
+            throws OAuthClientAuthnException {
 
         // This value is consumed by MTLS token binding to validate whether the client was authenticated using MTLS.
         oAuthClientAuthnContext.addParameter(CommonConstants.AUTHENTICATOR_TYPE_PARAM,
@@ -115,6 +186,7 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
                     log.debug("Mutual TLS authenticator cannot handle this request. Client id is not available " +
                             "in body params or valid certificate not found in request attributes.");
                 }
+                recordFailure(MutualTLSMetrics.Outcome.MISSING_CLIENT_ID, requestContext);
                 return false;
             }
         }
@@ -124,47 +196,79 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
                 log.debug("Authenticating client : " + oAuthClientAuthnContext.getClientId() + " with public " +
                         "certificate.");
             }
+            MutualTLSMetrics metrics = MutualTLSMetrics.getInstance();
+            long startTime = metrics.getStartTime();
             X509Certificate requestCert;
+            // Only a certificate presented to this server stays the same for the lifetime of the TLS session.
+            String sessionId = null;
             Object certObject = request.getAttribute(JAVAX_SERVLET_REQUEST_CERTIFICATE);
-            Optional<X509Certificate> x509certObject = getCertificateFromHeader(request);
 
             if (certObject instanceof X509Certificate[]) {
                 X509Certificate[] cert = (X509Certificate[]) certObject;
                 requestCert = cert[0];
+                sessionId = getTLSSessionId(request);
+                metrics.recordStage(MutualTLSMetrics.Stage.CERTIFICATE_FROM_ATTRIBUTE, startTime);
             } else if (certObject instanceof X509Certificate) {
                 requestCert = (X509Certificate) certObject;
-            } else if (x509certObject.isPresent()) {
-                requestCert = x509certObject.get();
+                sessionId = getTLSSessionId(request);
+                metrics.recordStage(MutualTLSMetrics.Stage.CERTIFICATE_FROM_ATTRIBUTE, startTime);
+            } else if (getCertificateFromHeader(request, requestContext).isPresent()) {
+                requestCert = requestContext.getHeaderCertificate();
+                // Token binding handlers bind the issued token to this certificate, without parsing it again.
+                oAuthClientAuthnContext.addParameter(CommonConstants.MTLS_CLIENT_CERTIFICATE_PARAM,
+                        requestContext.getHeaderCertificateEntry());
             } else {
                 if (log.isDebugEnabled()) {
                     log.debug("Could not find client certificate in required format for client: " +
                             oAuthClientAuthnContext.getClientId());
                 }
+                recordFailure(MutualTLSMetrics.Outcome.MISSING_CERTIFICATE, requestContext);
                 return false;
             }
 
-            String tenantDomain = OAuth2Util.getTenantDomainOfOauthApp(oAuthClientAuthnContext.getClientId());
-            ServiceProvider serviceProvider = getServiceProvider(oAuthClientAuthnContext.getClientId(), tenantDomain);
-            OAuthAppDO oAuthAppdo = OAuth2Util.getAppInformationByClientId(
-                    oAuthClientAuthnContext.getClientId(), tenantDomain);
-            if (isJwksUriConfigured(serviceProvider)) {
+            String clientId = oAuthClientAuthnContext.getClientId();
+            MutualTLSSessionCache sessionCache = MutualTLSSessionCache.getInstance();
+            if (sessionCache.isAuthenticated(sessionId, clientId)) {
                 if (log.isDebugEnabled()) {
-                    log.debug("Public certificate not configured for Service Provider with client_id: "
-                            + oAuthClientAuthnContext.getClientId() + " of tenantDomain: " + tenantDomain + ". "
-                            + "Fetching the jwks endpoint for validating request certificate");
+                    log.debug("Client: " + clientId + " was already authenticated on the TLS session of the request.");
                 }
-                jwksUri = getJWKSEndpointOfSP(serviceProvider, oAuthClientAuthnContext.getClientId());
-                return authenticate(jwksUri, requestCert, oAuthAppdo);
-            } else {
+                return true;
+            }
+            MutualTLSCertificateFilter.Decision filterDecision = checkCertificateFilter(requestCert,
+                    clientId, requestContext);
+            if (filterDecision == MutualTLSCertificateFilter.Decision.REJECTED) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Rejecting client: " + clientId + " since the certificate of the request is not known " +
+                            "to the certificate filter.");
+                }
+                recordFailure(MutualTLSMetrics.Outcome.UNKNOWN_CERTIFICATE, requestContext);
+                return false;
+            }
+
+            MutualTLSAuthenticationResultCache resultCache = MutualTLSAuthenticationResultCache.getInstance();
+            // Results are only cached for clients whose profile is cached, which are known to exist.
+            MutualTLSAuthenticationResultCacheEntry clientResults =
+                    resultCache.isEnabled() && getCachedClientProfile(clientId, requestContext) != null ?
+                            resultCache.getClientResults(clientId) : null;
+            byte[] certificateDigest = clientResults != null ? getCertificateDigest(requestCert, requestContext) : null;
+            Boolean authenticated = resultCache.getResult(clientResults, certificateDigest);
+            if (authenticated != null) {
                 if (log.isDebugEnabled()) {
-                    log.debug("Public certificate configured for Service Provider with client_id: "
-                            + oAuthClientAuthnContext.getClientId() + " of tenantDomain: " + tenantDomain
-                            + ". Using public certificate  for validating request certificate");
+                    log.debug("Using the cached Mutual TLS authentication result of client: " + clientId);
+                }
+                if (!authenticated) {
+                    recordFailure(MutualTLSMetrics.Outcome.CACHED_FAILURE, requestContext);
                 }
-                registeredCert = (X509Certificate) OAuth2Util
-                        .getX509CertOfOAuthApp(oAuthClientAuthnContext.getClientId(), tenantDomain);
-                return authenticate(registeredCert, requestCert, oAuthAppdo);
+            } else {
+                authenticated = authenticateWithClientProfile(clientId, requestCert, requestContext);
+                resultCache.addResult(clientResults, certificateDigest, authenticated);
+            }
+            if (authenticated) {
+                sessionCache.addToCache(sessionId, clientResults);
+                getCertificateFilter().recordAuthenticated(
+                        requestContext.getCertificateDigest(requestCert), filterDecision);
             }
+            return authenticated;
         } catch (IdentityOAuth2Exception e) {
             throw new OAuthClientAuthnException(OAuth2ErrorCodes.SERVER_ERROR, "Error occurred while retrieving " +
                     "public certificate of client ID: " + oAuthClientAuthnContext.getClientId(), e);
@@ -175,6 +279,220 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
 
     }
 
+    /**
+     * Authenticate the client against the registered certificate or the JWKS endpoint of its client profile.
+     *
+     * @param clientId       Client ID of the OAuth application.
+     * @param requestCert    X.509 certificate presented by the client.
+     * @param requestContext Values resolved for the request.
+     * @return Whether the client was successfully authenticated or not.
+     */
+    private boolean authenticateWithClientProfile(String clientId, X509Certificate requestCert,
+                                                  MutualTLSClientAuthnRequestContext requestContext)
+            throws IdentityOAuth2Exception, InvalidOAuthClientException, OAuthClientAuthnException {
+
+        MutualTLSClientProfileCacheEntry clientProfile = getClientProfile(clientId, requestContext);
+        String tenantDomain = clientProfile.getTenantDomain();
+        if (clientProfile.isPublicClient()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Client: " + clientId + " of tenantDomain: "
+                        + tenantDomain + " is a public client, which is not authenticated with Mutual TLS.");
+            }
+            recordFailure(MutualTLSMetrics.Outcome.PUBLIC_CLIENT, requestContext);
+            return false;
+        }
+        byte[] certificateDigest = getCertificateDigest(requestCert, requestContext);
+        if (certificateDigest == null) {
+            throw new OAuthClientAuthnException(OAuth2ErrorCodes.INVALID_GRANT, "Error occurred while " +
+                    "generating certificate thumbprint.");
+        }
+        if (clientProfile.getAuthMode() == MutualTLSClientProfileCacheEntry.AuthMode.JWKS) {
+            if (log.isDebugEnabled()) {
+                log.debug("Public certificate not configured for Service Provider with client_id: "
+                        + clientId + " of tenantDomain: " + tenantDomain + ". "
+                        + "Fetching the jwks endpoint for validating request certificate");
+            }
+            MutualTLSAuthenticationResultCache.getInstance().addJWKSClient(clientId, clientProfile.getJwksUri());
+            return authenticate(clientProfile.getJwksUri(), requestCert, certificateDigest,
+                    clientProfile.getTlsClientAuthSubjectDN(), requestContext);
+        } else {
+            if (log.isDebugEnabled()) {
+                log.debug("Public certificate configured for Service Provider with client_id: "
+                        + clientId + " of tenantDomain: " + tenantDomain
+                        + ". Using public certificate  for validating request certificate");
+            }
+            return isCertificateMatched(clientProfile.getRegisteredCertThumbprint(),
+                    clientProfile.getRegisteredCertPublicKeyHash(), requestCert, certificateDigest,
+                    clientProfile.getTlsClientAuthSubjectDN(), requestContext);
+        }
+    }
+
+    /**
+     * @param request HttpServletRequest which is the incoming request.
+     * @return Id of the TLS session of the request, or null if TLS sessions are not bound to clients or the id is
+     * not available.
+     */
+    private String getTLSSessionId(HttpServletRequest request) {
+
+        if (!MutualTLSSessionCache.getInstance().isEnabled()) {
+            return null;
+        }
+        Object sessionId = request.getAttribute(JAVAX_SERVLET_REQUEST_SSL_SESSION_ID);
+        return sessionId instanceof String && StringUtils.isNotEmpty((String) sessionId) ? (String) sessionId : null;
+    }
+
+    /**
+     * Check whether the authentication attempt is admitted by the admission controller, once per request.
+     *
+     * @param clientId          Client ID of the OAuth application, or null if not known.
+     * @param certificateDigest SHA-256 digest of the certificate of the request, or null if not known.
+     * @param sourceAddress     Source address of the request.
+     * @param requestContext    Values resolved for the request.
+     * @return false if the attempt is shed after repeated failures of the client with the certificate, or of the
+     * source address.
+     */
+    private boolean isAdmitted(String clientId, byte[] certificateDigest, String sourceAddress,
+                               MutualTLSClientAuthnRequestContext requestContext) {
+
+        if (requestContext.getAdmitted() == null) {
+            requestContext.setAdmitted(getAdmissionController()
+                    .isAdmitted(clientId, certificateDigest, sourceAddress));
+        }
+        return requestContext.getAdmitted();
+    }
+
+    /**
+     * Check the certificate presented by the client against the certificate filter, once per request. A certificate
+     * the filter would reject is first compared with the registered certificate of the client, if the profile of the
+     * client is already cached, since the certificate may not have been learnt on this node yet. The profile is not
+     * looked up otherwise, so that rejecting a certificate never reaches the database.
+     *
+     * @param requestCert    X.509 certificate presented by the client.
+     * @param clientId       Client ID of the OAuth application, or null if not known.
+     * @param requestContext Values resolved for the request.
+     * @return Decision of the certificate filter.
+     */
+    private MutualTLSCertificateFilter.Decision checkCertificateFilter(
+            X509Certificate requestCert, String clientId, MutualTLSClientAuthnRequestContext requestContext) {
+
+        MutualTLSCertificateFilter certificateFilter = getCertificateFilter();
+        if (!certificateFilter.isEnabled()) {
+            return MutualTLSCertificateFilter.Decision.KNOWN;
+        }
+        if (requestContext.getCertificateFilterDecision() == null) {
+            requestContext.setCertificateFilterDecision(certificateFilter.check(
+                    getCertificateDigest(requestCert, requestContext), getCachedClientProfile(clientId,
+                            requestContext)));
+        }
+        return requestContext.getCertificateFilterDecision();
+    }
+
+    /**
+     * @param clientId       Client ID of the OAuth application, or null if not known.
+     * @param requestContext Values resolved for the request.
+     * @return Profile of the client if it was already resolved for the request or is cached, without resolving it.
+     */
+    private MutualTLSClientProfileCacheEntry getCachedClientProfile(String clientId,
+                                                                    MutualTLSClientAuthnRequestContext requestContext) {
+
+        if (StringUtils.isBlank(clientId)) {
+            return null;
+        }
+        MutualTLSClientProfileCacheEntry clientProfile = requestContext.getClientProfile();
+        if (clientProfile != null && clientProfile.getClientId().equals(clientId)) {
+            return clientProfile;
+        }
+        return MutualTLSClientProfileCache.getInstance().getValueFromCache(clientId);
+    }
+
+    /**
+     * Check whether the enforced certificate filter rejects the certificate of the request, before the OAuth
+     * application of the client is looked up. The client is only looked up for a certificate the filter would reject.
+     *
+     * @param request        HttpServletRequest which is the incoming request.
+     * @param requestContext Values resolved for the request.
+     * @return true if the certificate of the request is rejected.
+     */
+    private boolean isRejectedByCertificateFilter(HttpServletRequest request,
+                                                  MutualTLSClientAuthnRequestContext requestContext) {
+
+        if (!getCertificateFilter().isEnforced()) {
+            return false;
+        }
+        X509Certificate requestCert = getRequestCertificate(request, requestContext);
+        return requestCert != null && checkCertificateFilter(requestCert,
+                getBodyParameters(requestContext).get(OAuth.OAUTH_CLIENT_ID), requestContext) ==
+                MutualTLSCertificateFilter.Decision.REJECTED;
+    }
+
+    /**
+     * Get the certificate presented by the client, from the request attribute or the request header.
+     *
+     * @param request        HttpServletRequest which is the incoming request.
+     * @param requestContext Values resolved for the request.
+     * @return Certificate of the request, or null if the request has no certificate.
+     */
+    private X509Certificate getRequestCertificate(HttpServletRequest request,
+                                                  MutualTLSClientAuthnRequestContext requestContext) {
+
+        Object certObject = request.getAttribute(JAVAX_SERVLET_REQUEST_CERTIFICATE);
+        if (certObject instanceof X509Certificate[] && ((X509Certificate[]) certObject).length > 0) {
+            return ((X509Certificate[]) certObject)[0];
+        } else if (certObject instanceof X509Certificate) {
+            return (X509Certificate) certObject;
+        } else if (StringUtils.isNotBlank(IdentityUtil.getProperty(CommonConstants.MTLS_AUTH_HEADER))) {
+            return getCertificateFromHeader(request, requestContext).orElse(null);
+        }
+        return null;
+    }
+
+    /**
+     * @param request        HttpServletRequest which is the incoming request.
+     * @param requestContext Values resolved for the request.
+     * @return SHA-256 digest of the certificate of the request, or null if the request has no certificate.
+     */
+    private byte[] getRequestCertificateDigest(HttpServletRequest request,
+                                               MutualTLSClientAuthnRequestContext requestContext) {
+
+        X509Certificate requestCert = getRequestCertificate(request, requestContext);
+        return requestCert != null ? getCertificateDigest(requestCert, requestContext) : null;
+    }
+
+    /**
+     * Get the SHA-256 digest of the certificate presented by the client, once per request, reusing the digest
+     * computed for a certificate taken from the request header.
+     *
+     * @param requestCert    X.509 certificate presented by the client.
+     * @param requestContext Values resolved for the request.
+     * @return SHA-256 digest of the certificate, or null if the certificate cannot be encoded.
+     */
+    private byte[] getCertificateDigest(X509Certificate requestCert,
+                                        MutualTLSClientAuthnRequestContext requestContext) {
+
+        byte[] certificateDigest = requestContext.getCertificateDigest(requestCert);
+        if (certificateDigest != null) {
+            return certificateDigest;
+        }
+        try {
+            MutualTLSClientCertificateCacheEntry headerCertificateEntry = requestContext.getHeaderCertificateEntry();
+            if (headerCertificateEntry != null && headerCertificateEntry.getCertificate() == requestCert) {
+                certificateDigest = headerCertificateEntry.getThumbprint().getSha256();
+            } else {
+                long startTime = MutualTLSMetrics.getInstance().getStartTime();
+                certificateDigest = CertificateThumbprint.sha256(requestCert);
+                MutualTLSMetrics.getInstance().recordStage(MutualTLSMetrics.Stage.THUMBPRINT, startTime);
+            }
+            requestContext.setCertificateDigest(requestCert, certificateDigest);
+            return certificateDigest;
+        } catch (CertificateEncodingException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Could not compute the digest of the client certificate since it could not be encoded.",
+                        e);
+            }
+            return null;
+        }
+    }
+
     /**
      * Returns whether the incoming request can be authenticated or not using the given inputs.
      *
@@ -188,7 +506,8 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
                                    OAuthClientAuthnContext context) {
 
         String headerName = IdentityUtil.getProperty(CommonConstants.MTLS_AUTH_HEADER);
-        if (clientIdExistsAsParam(bodyParams)) {
+        MutualTLSClientAuthnRequestContext requestContext = getRequestContext(request, bodyParams, context);
+        if (clientIdExistsAsParam(requestContext)) {
             // If the Private key JWT authenticator was hit previously, then the MTLS authenticator should
             // not authenticate the client.
             if (CommonConstants.AUTHENTICATOR_TYPE_PK_JWT.equals((String)
@@ -199,7 +518,24 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
                 }
                 return false;
             }
-            if (isPublicClient(bodyParams)) {
+            if (getAdmissionController().isEnabled() && !isAdmitted(
+                    getBodyParameters(requestContext).get(OAuth.OAUTH_CLIENT_ID),
+                    getRequestCertificateDigest(request, requestContext), request.getRemoteAddr(), requestContext)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Mutual TLS authenticator cannot handle this request since the authentication " +
+                            "attempts of the client with the certificate of the request, or of the source address, " +
+                            "are shed after repeated failures.");
+                }
+                return false;
+            }
+            if (isRejectedByCertificateFilter(request, requestContext)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Mutual TLS authenticator cannot handle this request since the certificate of the " +
+                            "request is not known to the certificate filter.");
+                }
+                return false;
+            }
+            if (isPublicClient(requestContext)) {
                 return false;
             }
             if (validCertExistsAsAttribute(request)) {
@@ -208,7 +544,8 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
                 }
                 return true;
             } else {
-                if (StringUtils.isNotBlank(headerName) && getCertificateFromHeader(request).isPresent()) {
+                if (StringUtils.isNotBlank(headerName) &&
+                        getCertificateFromHeader(request, requestContext).isPresent()) {
                     if (log.isDebugEnabled()) {
                         log.debug("A valid certificate was found from the request header hence returning true.");
                     }
@@ -243,13 +580,135 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
     public String getClientId(HttpServletRequest request, Map<String, List> bodyParams, OAuthClientAuthnContext
             oAuthClientAuthnContext) throws OAuthClientAuthnException {
 
-        Map<String, String> stringContent = getBodyParameters(bodyParams);
+        Map<String, String> stringContent =
+                getBodyParameters(getRequestContext(request, bodyParams, oAuthClientAuthnContext));
         oAuthClientAuthnContext.setClientId(stringContent.get(OAuth.OAUTH_CLIENT_ID));
         return oAuthClientAuthnContext.getClientId();
     }
 
-    private Optional<X509Certificate> getCertificateFromHeader(HttpServletRequest request) {
+    /**
+     * Get the values resolved so far for the request, creating them on the first call for the request.
+     *
+     * @param request                 HttpServletRequest which is the incoming request.
+     * @param bodyParams              Body parameter map of the request.
+     * @param oAuthClientAuthnContext OAuth client authentication context.
+     * @return Values resolved for the request.
+     */
+    private MutualTLSClientAuthnRequestContext getRequestContext(HttpServletRequest request,
+                                                                 Map<String, List> bodyParams,
+                                                                 OAuthClientAuthnContext oAuthClientAuthnContext) {
+
+        if (oAuthClientAuthnContext == null) {
+            return new MutualTLSClientAuthnRequestContext(request, bodyParams);
+        }
+        Object requestContext = oAuthClientAuthnContext.getParameter(CommonConstants.MTLS_REQUEST_CONTEXT_PARAM);
+        if (requestContext instanceof MutualTLSClientAuthnRequestContext &&
+                ((MutualTLSClientAuthnRequestContext) requestContext).isFor(request, bodyParams)) {
+            return (MutualTLSClientAuthnRequestContext) requestContext;
+        }
+        MutualTLSClientAuthnRequestContext newRequestContext =
+                new MutualTLSClientAuthnRequestContext(request, bodyParams);
+        oAuthClientAuthnContext.addParameter(CommonConstants.MTLS_REQUEST_CONTEXT_PARAM, newRequestContext);
+        return newRequestContext;
+    }
+
+    private Map<String, String> getBodyParameters(MutualTLSClientAuthnRequestContext requestContext) {
 
+        if (requestContext.getBodyParameters() == null) {
+            requestContext.setBodyParameters(getBodyParameters(requestContext.getBodyParams()));
+        }
+        return requestContext.getBodyParameters();
+    }
+
+    /**
+     * Resolve the tenant domain and the OAuth application of the client, once per request.
+     *
+     * @param clientId       Client ID of the OAuth application.
+     * @param requestContext Values resolved for the request.
+     * @return OAuth application of the client.
+     */
+    private OAuthAppDO getOAuthApp(String clientId, MutualTLSClientAuthnRequestContext requestContext)
+            throws IdentityOAuth2Exception, InvalidOAuthClientException {
+
+        if (!requestContext.isOAuthAppResolved(clientId)) {
+            long startTime = MutualTLSMetrics.getInstance().getStartTime();
+            String tenantDomain = OAuth2Util.getTenantDomainOfOauthApp(clientId);
+            OAuthAppDO oAuthAppDO = OAuth2Util.getAppInformationByClientId(clientId, tenantDomain);
+            requestContext.setOAuthApp(clientId, tenantDomain, oAuthAppDO);
+            MutualTLSMetrics.getInstance().recordStage(MutualTLSMetrics.Stage.APPLICATION_LOOKUP, startTime);
+        }
+        return requestContext.getOAuthAppDO();
+    }
+
+    /**
+     * Get the Mutual TLS client authentication configuration of the client from the client profile cache, resolving
+     * and caching it on a cache miss.
+     *
+     * @param clientId       Client ID of the OAuth application.
+     * @param requestContext Values resolved for the request.
+     * @return Client profile.
+     */
+    private MutualTLSClientProfileCacheEntry getClientProfile(String clientId,
+                                                              MutualTLSClientAuthnRequestContext requestContext)
+            throws IdentityOAuth2Exception, InvalidOAuthClientException, OAuthClientAuthnException {
+
+        MutualTLSClientProfileCacheEntry clientProfile = requestContext.getClientProfile();
+        if (clientProfile != null && clientProfile.getClientId().equals(clientId)) {
+            return clientProfile;
+        }
+        clientProfile = MutualTLSClientProfileCache.getInstance().getValueFromCache(clientId);
+        if (clientProfile == null) {
+            clientProfile = buildClientProfile(clientId, requestContext);
+            MutualTLSClientProfileCache.getInstance().addToCacheOnRead(clientId, clientProfile);
+        }
+        // The profile may have been cached by another node, in which case this is where its certificate is learnt.
+        getCertificateFilter().add(clientProfile.getRegisteredCertThumbprint());
+        requestContext.setClientProfile(clientProfile);
+        return clientProfile;
+    }
+
+    private MutualTLSClientProfileCacheEntry buildClientProfile(String clientId,
+                                                                MutualTLSClientAuthnRequestContext requestContext)
+            throws IdentityOAuth2Exception, InvalidOAuthClientException, OAuthClientAuthnException {
+
+        OAuthAppDO oAuthAppDO = getOAuthApp(clientId, requestContext);
+        String tenantDomain = requestContext.getTenantDomain();
+        if (oAuthAppDO.isBypassClientCredentials()) {
+            return MutualTLSClientProfileCacheEntry.forPublicClient(clientId, tenantDomain);
+        }
+        ServiceProvider serviceProvider = getServiceProvider(clientId, tenantDomain);
+        if (isJwksUriConfigured(serviceProvider)) {
+            return MutualTLSClientProfileCacheEntry.forJWKS(clientId, tenantDomain,
+                    getJWKSEndpointOfSP(serviceProvider, clientId), oAuthAppDO.getTlsClientAuthSubjectDN());
+        }
+        X509Certificate registeredCert = (X509Certificate) OAuth2Util.getX509CertOfOAuthApp(clientId, tenantDomain);
+        if (registeredCert == null) {
+            throw new OAuthClientAuthnException(OAuth2ErrorCodes.SERVER_ERROR,
+                    "Public certificate not configured for client ID: " + clientId);
+        }
+        try {
+            return MutualTLSClientProfileCacheEntry.forCertificate(clientId, tenantDomain,
+                    CertificateThumbprint.sha256(registeredCert), CertificateThumbprint.publicKeySha256(registeredCert),
+                    oAuthAppDO.getTlsClientAuthSubjectDN());
+        } catch (CertificateEncodingException e) {
+            throw new OAuthClientAuthnException(OAuth2ErrorCodes.INVALID_GRANT, "Error occurred while " +
+                    "generating certificate thumbprint. Error: " + e.getMessage(), e);
+        }
+    }
+
+    private Optional<X509Certificate> getCertificateFromHeader(HttpServletRequest request,
+                                                               MutualTLSClientAuthnRequestContext requestContext) {
+
+        if (!requestContext.isHeaderCertificateResolved()) {
+            requestContext.setHeaderCertificateEntry(getCertificateFromHeader(request).orElse(null));
+        }
+        return Optional.ofNullable(requestContext.getHeaderCertificate());
+    }
+
+    private Optional<MutualTLSClientCertificateCacheEntry> getCertificateFromHeader(HttpServletRequest request) {
+
+        MutualTLSMetrics metrics = MutualTLSMetrics.getInstance();
+        long startTime = metrics.getStartTime();
         String headerName = IdentityUtil.getProperty(CommonConstants.MTLS_AUTH_HEADER);
         String headerString = request.getHeader(headerName);
 
@@ -258,9 +717,21 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
                 log.debug(String.format("%s header available in request as %s", headerName, headerString));
             }
 
+            MutualTLSClientCertificateCacheEntry cacheEntry =
+                    MutualTLSClientCertificateCache.getInstance().getValueFromCache(headerString);
+            if (cacheEntry != null) {
+                metrics.recordStage(MutualTLSMetrics.Stage.CERTIFICATE_FROM_HEADER, startTime);
+                return Optional.of(cacheEntry);
+            }
             try {
-                return Optional.of(parseCertificate(headerString));
-            } catch (CertificateException | UnsupportedEncodingException e) {
+                long parseStartTime = metrics.getStartTime();
+                X509Certificate certificate = parseCertificate(headerString);
+                metrics.recordStage(MutualTLSMetrics.Stage.HEADER_CERTIFICATE_PARSE, parseStartTime);
+                cacheEntry = new MutualTLSClientCertificateCacheEntry(certificate);
+                MutualTLSClientCertificateCache.getInstance().addToCache(headerString, cacheEntry);
+                metrics.recordStage(MutualTLSMetrics.Stage.CERTIFICATE_FROM_HEADER, startTime);
+                return Optional.of(cacheEntry);
+            } catch (CertificateException e) {
                 log.error("Unable to parse the certificate sent in header", e);
             }
         }
@@ -275,41 +746,12 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
      * @return X509Certificate X.509 certificate after decoding the certificate content.
      * @throws CertificateException Certificate Exception.
      */
-    private X509Certificate parseCertificate(String content) throws CertificateException, UnsupportedEncodingException {
+    private X509Certificate parseCertificate(String content) throws CertificateException {
 
         if (log.isDebugEnabled()) {
             log.debug("Trying to parse the client certificate: " + content);
         }
-        byte[] decoded;
-        String sanitizedCertificate = sanitizeCertificate(content);
-        // First we try to Base64 decode, if it is not decodable, we try to url decode first and then Base64 decode.
-        try {
-            decoded = Base64.getDecoder().decode(sanitizedCertificate);
-        } catch (IllegalArgumentException e) {
-            log.debug("Error while base64 decoding the certificate. Trying URL decoding first.");
-            String urlDecodedContent = URLDecoder.decode(content, StandardCharsets.UTF_8.name());
-            sanitizedCertificate = sanitizeCertificate(urlDecodedContent);
-            decoded = Base64.getDecoder().decode(sanitizedCertificate);
-        }
-
-        return (java.security.cert.X509Certificate) CertificateFactory.getInstance(CommonConstants.X509)
-                .generateCertificate(new ByteArrayInputStream(decoded));
-    }
-
-    /**
-     * Sanitize the certificate before decoding.
-     *
-     * @param content certificate as a string.
-     * @return sanitized certificate.
-     */
-    private String sanitizeCertificate(String content) {
-
-        String certContent = StringUtils.trim(content);
-        // Remove Certificate Headers.
-        String certBody = certContent.replaceAll(CommonConstants.BEGIN_CERT, StringUtils.EMPTY)
-                .replaceAll(CommonConstants.END_CERT, StringUtils.EMPTY);
-        // Removing all whitespaces and new lines.
-        return certBody.replaceAll("\\s", StringUtils.EMPTY).replace("\\n", StringUtils.EMPTY);
+        return CertificateDecoder.decode(content);
     }
 
     /**
@@ -317,21 +759,27 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
      * Public clients (e.g. Console, My Account) should not be authenticated via Mutual TLS even when a browser
      * client certificate is present in the request.
      *
-     * @param bodyParams Body parameters present in the request.
+     * The client profile is used if it is already cached, but it is not built here: that resolves the service
+     * provider and the registered certificate of the client, which is left to the authentication of the client.
+     *
+     * @param requestContext Values resolved for the request.
      * @return true if the app is a public client, false otherwise. Returns false if the app cannot be resolved
      * to avoid breaking existing flows.
      */
-    private boolean isPublicClient(Map<String, List> bodyParams) {
+    private boolean isPublicClient(MutualTLSClientAuthnRequestContext requestContext) {
 
-        Map<String, String> stringContent = getBodyParameters(bodyParams);
+        Map<String, String> stringContent = getBodyParameters(requestContext);
         String clientId = stringContent.get(OAuth.OAUTH_CLIENT_ID);
         if (StringUtils.isBlank(clientId)) {
             return false;
         }
+        MutualTLSClientProfileCacheEntry clientProfile =
+                MutualTLSClientProfileCache.getInstance().getValueFromCache(clientId);
+        if (clientProfile != null) {
+            return clientProfile.isPublicClient();
+        }
         try {
-            String tenantDomain = OAuth2Util.getTenantDomainOfOauthApp(clientId);
-            OAuthAppDO oAuthAppDO = OAuth2Util.getAppInformationByClientId(clientId, tenantDomain);
-            return oAuthAppDO.isBypassClientCredentials();
+            return getOAuthApp(clientId, requestContext).isBypassClientCredentials();
         } catch (IdentityOAuth2Exception e) {
             if (log.isDebugEnabled()) {
                 log.debug("Could not resolve OAuth application for client_id " + clientId +
@@ -347,9 +795,9 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
         }
     }
 
-    private boolean clientIdExistsAsParam(Map<String, List> contentParam) {
+    private boolean clientIdExistsAsParam(MutualTLSClientAuthnRequestContext requestContext) {
 
-        Map<String, String> stringContent = getBodyParameters(contentParam);
+        Map<String, String> stringContent = getBodyParameters(requestContext);
         return (StringUtils.isNotEmpty(stringContent.get(OAuth.OAUTH_CLIENT_ID)));
     }
 
@@ -378,9 +826,8 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
 
         boolean trustedCert = false;
         try {
-            String publicKeyOfRegisteredCert = MutualTLSUtil.getThumbPrint(registeredCert, null);
-            String publicKeyOfRequestCert = MutualTLSUtil.getThumbPrint(requestCert, null);
-            if (StringUtils.equals(publicKeyOfRegisteredCert, publicKeyOfRequestCert)) {
+            if (CertificateThumbprint.matches(CertificateThumbprint.sha256(registeredCert),
+                    CertificateThumbprint.sha256(requestCert))) {
                 if (log.isDebugEnabled()) {
                     log.debug("Client certificate thumbprint matched with the registered certificate thumbprint.");
                 }
@@ -390,6 +837,7 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
                     log.debug("Client Authentication failed. Client certificate thumbprint did not match with the " +
                             "registered certificate thumbprint.");
                 }
+                MutualTLSMetrics.getInstance().recordOutcome(MutualTLSMetrics.Outcome.CERTIFICATE_MISMATCH);
             }
         } catch (CertificateEncodingException e) {
             throw new OAuthClientAuthnException(OAuth2ErrorCodes.INVALID_GRANT, "Error occurred while " +
@@ -409,37 +857,68 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
     protected boolean authenticate(X509Certificate registeredCert, X509Certificate requestCert, OAuthAppDO oAuthAppDO)
             throws OAuthClientAuthnException {
 
-        boolean trustedCert = false;
         try {
-            String publicKeyOfRegisteredCert = MutualTLSUtil.getThumbPrint(registeredCert, null);
-            String publicKeyOfRequestCert = MutualTLSUtil.getThumbPrint(requestCert, null);
-            if (StringUtils.equals(publicKeyOfRegisteredCert, publicKeyOfRequestCert)) {
-                if (log.isDebugEnabled()) {
-                    log.debug(String.format("Client certificate thumbprint %s matched with the registered " +
-                            "certificate thumbprint %s.", publicKeyOfRequestCert, publicKeyOfRegisteredCert));
-                }
-                Principal requestCertificateSubjectDN = requestCert.getSubjectDN();
-                if (StringUtils.isNotEmpty(oAuthAppDO.getTlsClientAuthSubjectDN())) {
-                    if (requestCertificateSubjectDN != null &&
-                            !oAuthAppDO.getTlsClientAuthSubjectDN().equals(requestCertificateSubjectDN.toString())) {
-                        log.debug(String.format("Client certificate subjectDN %s does not match with the registered " +
-                                        "certificate subjectDN %s.", requestCertificateSubjectDN,
-                                oAuthAppDO.getTlsClientAuthSubjectDN()));
-                        return false;
-                    }
-                }
-                trustedCert = true;
-            } else {
-                if (log.isDebugEnabled()) {
-                    log.debug(String.format("Client Authentication failed. Client certificate thumbprint " +
-                                    "%s did not match with the registered certificate thumbprint %s.",
-                            publicKeyOfRequestCert, publicKeyOfRegisteredCert));
-                }
-            }
+            long startTime = MutualTLSMetrics.getInstance().getStartTime();
+            byte[] requestCertThumbprint = CertificateThumbprint.sha256(requestCert);
+            MutualTLSMetrics.getInstance().recordStage(MutualTLSMetrics.Stage.THUMBPRINT, startTime);
+            return isCertificateMatched(CertificateThumbprint.sha256(registeredCert),
+                    CertificateThumbprint.publicKeySha256(registeredCert), requestCert, requestCertThumbprint,
+                    oAuthAppDO.getTlsClientAuthSubjectDN(), null);
         } catch (CertificateEncodingException e) {
             throw new OAuthClientAuthnException(OAuth2ErrorCodes.INVALID_GRANT, "Error occurred while " +
                     "generating certificate thumbprint. Error: " + e.getMessage(), e);
         }
+    }
+
+    /**
+     * Authenticate the client by comparing the SHA-256 digest of the registered public certificate against the
+     * SHA-256 digest of the certificate presented at TLS hand shake for authentication. When the digests differ, the
+     * public keys are compared as well, only to tell a renewed certificate whose registration was not updated apart
+     * from an unrelated certificate. A certificate with the same public key is not authenticated.
+     *
+     * @param registeredCertThumbprint    SHA-256 digest of the X.509 certificate registered for the client.
+     * @param registeredCertPublicKeyHash SHA-256 digest of the subject public key info of the registered certificate.
+     * @param requestCert                 X.509 certificate presented to server during TLS hand shake.
+     * @param requestCertThumbprint       SHA-256 digest of the request certificate.
+     * @param tlsClientAuthSubjectDN      Subject DN registered for the client, if any.
+     * @param requestContext              Values resolved for the request, or null if not authenticating a request.
+     * @return Whether the client was successfully authenticated or not.
+     */
+    private boolean isCertificateMatched(byte[] registeredCertThumbprint, byte[] registeredCertPublicKeyHash,
+                                         X509Certificate requestCert, byte[] requestCertThumbprint,
+                                         String tlsClientAuthSubjectDN,
+                                         MutualTLSClientAuthnRequestContext requestContext) {
+
+        boolean trustedCert = false;
+        if (CertificateThumbprint.matches(registeredCertThumbprint, requestCertThumbprint)) {
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Client certificate thumbprint %s matched with the registered " +
+                        "certificate thumbprint.", MutualTLSUtil.hexify(requestCertThumbprint)));
+            }
+            if (!isSubjectDNMatched(requestCert, tlsClientAuthSubjectDN, requestContext)) {
+                return false;
+            }
+            trustedCert = true;
+        } else if (CertificateThumbprint.matches(registeredCertPublicKeyHash,
+                CertificateThumbprint.publicKeySha256(requestCert))) {
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Client Authentication failed. Client certificate thumbprint %s did not " +
+                                "match with the registered certificate thumbprint %s, but the client certificate has " +
+                                "the same public key as the registered certificate. The client certificate may " +
+                                "have been renewed without updating the registered certificate.",
+                        MutualTLSUtil.hexify(requestCertThumbprint),
+                        MutualTLSUtil.hexify(registeredCertThumbprint)));
+            }
+            recordFailure(MutualTLSMetrics.Outcome.RENEWED_CERTIFICATE, requestContext);
+        } else {
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Client Authentication failed. Client certificate thumbprint " +
+                                "%s did not match with the registered certificate thumbprint %s.",
+                        MutualTLSUtil.hexify(requestCertThumbprint),
+                        MutualTLSUtil.hexify(registeredCertThumbprint)));
+            }
+            recordFailure(MutualTLSMetrics.Outcome.CERTIFICATE_MISMATCH, requestContext);
+        }
         return trustedCert;
     }
 
@@ -447,15 +926,28 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
      * Authenticate the client by comparing the attributes retrieved from the JWKS endpoint of the registered public
      * certificate against the public key of the certificate presented at TLS hand shake for authentication.
      *
-     * @param jwksUri     JWKS URI registered at service provider configuration.
-     * @param requestCert X.509 certificate presented to server during TLS hand shake.
+     * @param jwksUri                JWKS URI registered at service provider configuration.
+     * @param requestCert            X.509 certificate presented to server during TLS hand shake.
+     * @param certificateDigest      SHA-256 digest of the request certificate.
+     * @param tlsClientAuthSubjectDN Subject DN registered for the client, if any.
+     * @param requestContext         Values resolved for the request.
      * @return Whether the client was successfully authenticated or not.
      */
-    private boolean authenticate(URL jwksUri, X509Certificate requestCert, OAuthAppDO oAuthAppDO)
+    private boolean authenticate(URL jwksUri, X509Certificate requestCert, byte[] certificateDigest,
+                                 String tlsClientAuthSubjectDN, MutualTLSClientAuthnRequestContext requestContext)
             throws OAuthClientAuthnException {
 
         try {
-            return isAuthenticated(getResourceContent(jwksUri), requestCert, oAuthAppDO);
+            JWKSKeySet keySet = getJWKSKeySet(jwksUri);
+            if (keySet == null) {
+                recordFailure(MutualTLSMetrics.Outcome.JWKS_UNAVAILABLE, requestContext);
+                return false;
+            }
+            return isAuthenticated(keySet, new JWKSCertificateMatcher(certificateDigest), requestCert,
+                    tlsClientAuthSubjectDN, requestContext);
+        } catch (JWKSFetchRejectedException e) {
+            throw new OAuthClientAuthnException(OAuth2ErrorCodes.SERVER_ERROR,
+                    "JWKS endpoint is temporarily unavailable. " + e.getMessage(), e);
         } catch (IOException e) {
             throw new OAuthClientAuthnException(OAuth2ErrorCodes.SERVER_ERROR,
                     "Error occurred while opening HTTP connection for the JWKS URL : " + jwksUri, e);
@@ -466,94 +958,143 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
     }
 
     /**
-     * Authenticate the client by iterating through the JSON Array and matching each attribute.
+     * Authenticate the client by looking up the digest of the request certificate in the indexed JWK set.
      *
-     * @param resourceArray Json Array retrieved from JWKS endpoint
-     * @param requestCert   X.509 certificate presented to server during TLS hand shake.
+     * @param keySet      Certificate digest indexed JWK set retrieved from JWKS endpoint.
+     * @param matcher     Matcher holding the precomputed digest of the request certificate.
+     * @param requestCert X.509 certificate presented to server during TLS hand shake.
      * @return Whether the client was successfully authenticated or not.
      */
-    private boolean isAuthenticated(JsonArray resourceArray, X509Certificate requestCert, OAuthAppDO oAuthAppDO)
-            throws CertificateException, OAuthClientAuthnException {
+    private boolean isAuthenticated(JWKSKeySet keySet, JWKSCertificateMatcher matcher, X509Certificate requestCert,
+                                    String tlsClientAuthSubjectDN, MutualTLSClientAuthnRequestContext requestContext) {
 
-        for (JsonElement jsonElement : resourceArray) {
-            JsonElement attributeValue = jsonElement.getAsJsonObject().get(CommonConstants.X5T);
-            if (attributeValue != null && attributeValue.getAsString().equals(MutualTLSUtil.getThumbPrint(requestCert,
-                    null))) {
+        MutualTLSMetrics metrics = MutualTLSMetrics.getInstance();
+        long startTime = metrics.getStartTime();
+        JWKSCertificateMatcher.Match match = matcher.match(keySet);
+        metrics.recordStage(MutualTLSMetrics.Stage.JWKS_MATCH, startTime);
+        if (match == JWKSCertificateMatcher.Match.X5T) {
+            if (log.isDebugEnabled()) {
+                log.debug("Client authentication successful using the attribute: " + CommonConstants.X5T);
+            }
+            return true;
+        }
+        if (match == JWKSCertificateMatcher.Match.X5C) {
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Client certificate thumbprint %s matched with a certificate in the " +
+                        "attribute: %s", MutualTLSUtil.hexify(matcher.getCertificateDigest()), CommonConstants.X5C));
+            }
+            if (isSubjectDNMatched(requestCert, tlsClientAuthSubjectDN, requestContext)) {
                 if (log.isDebugEnabled()) {
-                    log.debug("Client authentication successful using the attribute: " + CommonConstants.X5T);
+                    log.debug("Client authentication successful using the attribute: " + CommonConstants.X5C);
                 }
                 return true;
             }
-            attributeValue = jsonElement.getAsJsonObject().get(CommonConstants.X5C);
-
-            if (attributeValue != null) {
-                CertificateFactory factory = CertificateFactory.getInstance(CommonConstants.X509);
-                X509Certificate cert = (X509Certificate) factory.generateCertificate(
-                        new ByteArrayInputStream(DatatypeConverter.parseBase64Binary(attributeValue.getAsString())));
-                if (authenticate(cert, requestCert, oAuthAppDO)) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Client authentication successful using the attribute: " + CommonConstants.X5C);
-                    }
-                    return true;
+            // As when every key of the set is scanned, a key publishing the thumbprint of the certificate as its x5t
+            // attribute still authenticates the client, since x5t keys are not subject to the subject DN check.
+            if (keySet.containsX5tDigest(matcher.getCertificateDigest())) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Client authentication successful using the attribute: " + CommonConstants.X5T);
                 }
+                return true;
             }
+            return false;
         }
+        recordFailure(MutualTLSMetrics.Outcome.CERTIFICATE_MISMATCH, requestContext);
         return false;
     }
 
     /**
-     * Fetch JWK Set as a String from JWKS endpoint.
+     * Check the subject DN of the request certificate against the subject DN registered for the client, if any.
+     *
+     * @param requestCert            X.509 certificate presented to server during TLS hand shake.
+     * @param tlsClientAuthSubjectDN Subject DN registered for the client, if any.
+     * @param requestContext         Values resolved for the request, or null if not authenticating a request.
+     * @return false only if a subject DN is registered and the request certificate does not match it.
+     */
+    private boolean isSubjectDNMatched(X509Certificate requestCert, String tlsClientAuthSubjectDN,
+                                       MutualTLSClientAuthnRequestContext requestContext) {
+
+        if (StringUtils.isNotEmpty(tlsClientAuthSubjectDN)) {
+            MutualTLSMetrics metrics = MutualTLSMetrics.getInstance();
+            long startTime = metrics.getStartTime();
+            Principal requestCertificateSubjectDN = requestCert.getSubjectDN();
+            boolean matched = requestCertificateSubjectDN == null ||
+                    tlsClientAuthSubjectDN.equals(requestCertificateSubjectDN.toString());
+            metrics.recordStage(MutualTLSMetrics.Stage.SUBJECT_DN_CHECK, startTime);
+            if (!matched) {
+                log.debug(String.format("Client certificate subjectDN %s does not match with the registered " +
+                                "certificate subjectDN %s.", requestCertificateSubjectDN, tlsClientAuthSubjectDN));
+                recordFailure(MutualTLSMetrics.Outcome.SUBJECT_DN_MISMATCH, requestContext);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record the outcome of a failed authentication in the metrics, and in the request context for the admission
+     * controller.
+     *
+     * @param outcome        Outcome of the failed authentication.
+     * @param requestContext Values resolved for the request, or null if not authenticating a request.
+     */
+    private void recordFailure(MutualTLSMetrics.Outcome outcome, MutualTLSClientAuthnRequestContext requestContext) {
+
+        MutualTLSMetrics.getInstance().recordOutcome(outcome);
+        if (requestContext != null) {
+            requestContext.setFailureOutcome(outcome);
+        }
+    }
+
+    /**
+     * Fetch JWK Set from JWKS endpoint. The returned array is shared with the JWKS cache and must not be modified.
      *
      * @param jwksUri JWKS Endpoint URL
      */
     public JsonArray getResourceContent(URL jwksUri) throws IOException {
 
-        if (jwksUri != null) {
-
-            Resource resource = null;
-            MutualTLSJWKSCacheKey mutualTLSJWKSCacheKey = new MutualTLSJWKSCacheKey(jwksUri.toString());
-            MutualTLSJWKSCacheEntry mutualTLSJWKSCacheEntry = MutualTLSJWKSCache.getInstance()
-                    .getValueFromCache(mutualTLSJWKSCacheKey);
-            if (mutualTLSJWKSCacheEntry != null) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Retrieving JWKS for " + jwksUri.toString() + " from cache.");
-                }
-                resource = mutualTLSJWKSCacheEntry.getValue();
-                if (log.isDebugEnabled() && resource != null) {
-                    log.debug("Cache hit for " + jwksUri.toString());
-                }
+        try {
+            JWKSKeySet keySet = getJWKSKeySet(jwksUri);
+            if (keySet != null) {
+                return keySet.getKeys();
             }
-            if (resource == null) {
+        } catch (CertificateException e) {
+            throw new IOException("Error occurred while parsing certificates of the JWKS : " + jwksUri, e);
+        }
+        return null;
+    }
 
-                DefaultResourceRetriever defaultResourceRetriever;
-                defaultResourceRetriever = new DefaultResourceRetriever(
-                        MutualTLSUtil.readHTTPConnectionConfigValue(CommonConstants.HTTP_CONNECTION_TIMEOUT_XPATH),
-                        MutualTLSUtil.readHTTPConnectionConfigValue(CommonConstants.HTTP_READ_TIMEOUT_XPATH));
-                if (log.isDebugEnabled()) {
-                    log.debug("Fetching JWKS from remote endpoint. JWKS URI: " + jwksUri);
-                }
-                resource = defaultResourceRetriever.retrieveResource(jwksUri);
-                MutualTLSJWKSCache.getInstance()
-                        .addToCacheOnRead(mutualTLSJWKSCacheKey, new MutualTLSJWKSCacheEntry(resource));
-            }
-            if (resource != null) {
-                JsonParser jp = new JsonParser();
-                try (InputStream inputStream = new ByteArrayInputStream(
-                        resource.getContent().getBytes(StandardCharsets.UTF_8));
-                     InputStreamReader inputStreamReader = new InputStreamReader(inputStream)) {
-                    JsonElement root = jp.parse(inputStreamReader);
-                    JsonObject rootObj = root.getAsJsonObject();
-                    JsonElement keys = rootObj.get(CommonConstants.KEYS);
-                    if (keys != null) {
-                        return keys.getAsJsonArray();
-                    } else {
-                        return null;
-                    }
-                }
-            }
+    /**
+     * Fetch the JWK set of the given JWKS endpoint, indexed by certificate thumbprint. The JWK set is parsed and
+     * indexed when it is fetched, and the parsed set is what is kept in the JWKS cache.
+     *
+     * @param jwksUri JWKS Endpoint URL
+     * @return Indexed JWK set, or null if it could not be retrieved.
+     * @throws IOException          If the JWKS endpoint cannot be read.
+     * @throws CertificateException If a certificate published in the JWK set cannot be parsed.
+     */
+    public JWKSKeySet getJWKSKeySet(URL jwksUri) throws IOException, CertificateException {
+
+        if (jwksUri == null) {
+            return null;
         }
+        return JWKSKeySetProvider.getInstance().getKeySet(jwksUri);
+    }
 
-        return null;
+    /**
+     * Fetch the JWK set of the given JWKS endpoint without blocking the calling thread while the endpoint is read.
+     *
+     * @param jwksUri JWKS Endpoint URL
+     * @return Future completed with the indexed JWK set, or null if it could not be retrieved. The future completes
+     * exceptionally with an IOException if the JWKS endpoint cannot be read, or with a CertificateException if a
+     * certificate published in the JWK set cannot be parsed.
+     */
+    public CompletableFuture<JWKSKeySet> getJWKSKeySetAsync(URL jwksUri) {
+
+        if (jwksUri == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return JWKSKeySetProvider.getInstance().getKeySetAsync(jwksUri);
     }
 
     /**
@@ -582,6 +1123,22 @@ public class MutualTLSClientAuthenticator extends AbstractOAuthClientAuthenticat
         return url;
     }
 
+    /**
+     * @return Certificate filter against which the certificates presented by clients are checked.
+     */
+    protected MutualTLSCertificateFilter getCertificateFilter() {
+
+        return MutualTLSCertificateFilter.getInstance();
+    }
+
+    /**
+     * @return Admission controller which sheds the authentication attempts of clients after repeated failures.
+     */
+    protected MutualTLSAdmissionController getAdmissionController() {
+
+        return MutualTLSAdmissionController.getInstance();
+    }
+
     @Override
     public String getName() {
 
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls;
+
+import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSCertificateFilter;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientCertificateCacheEntry;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientProfileCacheEntry;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.metrics.MutualTLSMetrics;
+
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Values resolved while a single token request is authenticated with Mutual TLS. The Mutual TLS authenticator keeps
+ * this in the OAuth client authentication context, so that the body parameters, the certificate sent in the request
+ * header and the OAuth application of the client are resolved once, even though both canAuthenticate and
+ * authenticateClient need them.
+ */
+public class MutualTLSClientAuthnRequestContext {
+
+    private final HttpServletRequest request;
+    private final Map<String, List> bodyParams;
+
+    private Map<String, String> bodyParameters;
+    private boolean headerCertificateResolved;
+    private MutualTLSClientCertificateCacheEntry headerCertificateEntry;
+    private String clientId;
+    private String tenantDomain;
+    private OAuthAppDO oAuthAppDO;
+    private MutualTLSClientProfileCacheEntry clientProfile;
+    private X509Certificate digestedCertificate;
+    private byte[] certificateDigest;
+    private MutualTLSCertificateFilter.Decision certificateFilterDecision;
+    private Boolean admitted;
+    private MutualTLSMetrics.Outcome failureOutcome;
+
+    public MutualTLSClientAuthnRequestContext(HttpServletRequest request, Map<String, List> bodyParams) {
+
+        this.request = request;
+        this.bodyParams = bodyParams;
+    }
+
+    /**
+     * Check whether the values were resolved for the given request.
+     *
+     * @param request    HttpServletRequest which is the incoming request.
+     * @param bodyParams Body parameter map of the request.
+     * @return true if the values belong to the given request.
+     */
+    public boolean isFor(HttpServletRequest request, Map<String, List> bodyParams) {
+
+        return this.request == request && this.bodyParams == bodyParams;
+    }
+
+    public Map<String, List> getBodyParams() {
+
+        return bodyParams;
+    }
+
+    /**
+     * @return Body parameters of the request as strings, or null if not resolved yet.
+     */
+    public Map<String, String> getBodyParameters() {
+
+        return bodyParameters;
+    }
+
+    public void setBodyParameters(Map<String, String> bodyParameters) {
+
+        this.bodyParameters = bodyParameters;
+    }
+
+    /**
+     * @return Whether the request header was already checked for a certificate.
+     */
+    public boolean isHeaderCertificateResolved() {
+
+        return headerCertificateResolved;
+    }
+
+    /**
+     * @return Certificate sent in the request header, or null if the header carries no valid certificate.
+     */
+    public X509Certificate getHeaderCertificate() {
+
+        return headerCertificateEntry != null ? headerCertificateEntry.getCertificate() : null;
+    }
+
+    /**
+     * @return Certificate sent in the request header along with its thumbprints, or null if the header carries no
+     * valid certificate.
+     */
+    public MutualTLSClientCertificateCacheEntry getHeaderCertificateEntry() {
+
+        return headerCertificateEntry;
+    }
+
+    public void setHeaderCertificateEntry(MutualTLSClientCertificateCacheEntry headerCertificateEntry) {
+
+        this.headerCertificateEntry = headerCertificateEntry;
+        this.headerCertificateResolved = true;
+    }
+
+    /**
+     * @param clientId Client ID of the OAuth application.
+     * @return Whether the OAuth application of the given client was already resolved.
+     */
+    public boolean isOAuthAppResolved(String clientId) {
+
+        return oAuthAppDO != null && clientId != null && clientId.equals(this.clientId);
+    }
+
+    public String getTenantDomain() {
+
+        return tenantDomain;
+    }
+
+    public OAuthAppDO getOAuthAppDO() {
+
+        return oAuthAppDO;
+    }
+
+    /**
+     * Keep the OAuth application resolved for the given client.
+     *
+     * @param clientId     Client ID of the OAuth application.
+     * @param tenantDomain Tenant domain of the OAuth application.
+     * @param oAuthAppDO   OAuth application.
+     */
+    public void setOAuthApp(String clientId, String tenantDomain, OAuthAppDO oAuthAppDO) {
+
+        this.clientId = clientId;
+        this.tenantDomain = tenantDomain;
+        this.oAuthAppDO = oAuthAppDO;
+    }
+
+    /**
+     * @return Mutual TLS client profile of the client, or null if not resolved yet.
+     */
+    public MutualTLSClientProfileCacheEntry getClientProfile() {
+
+        return clientProfile;
+    }
+
+    public void setClientProfile(MutualTLSClientProfileCacheEntry clientProfile) {
+
+        this.clientProfile = clientProfile;
+    }
+
+    /**
+     * @param certificate Certificate presented by the client.
+     * @return SHA-256 digest of the given certificate, or null if not computed yet.
+     */
+    public byte[] getCertificateDigest(X509Certificate certificate) {
+
+        return certificate == digestedCertificate ? certificateDigest : null;
+    }
+
+    public void setCertificateDigest(X509Certificate certificate, byte[] certificateDigest) {
+
+        this.digestedCertificate = certificate;
+        this.certificateDigest = certificateDigest;
+    }
+
+    /**
+     * @return Decision of the certificate filter for the certificate presented by the client, or null if the
+     * certificate was not checked yet.
+     */
+    public MutualTLSCertificateFilter.Decision getCertificateFilterDecision() {
+
+        return certificateFilterDecision;
+    }
+
+    public void setCertificateFilterDecision(MutualTLSCertificateFilter.Decision certificateFilterDecision) {
+
+        this.certificateFilterDecision = certificateFilterDecision;
+    }
+
+    /**
+     * @return Whether the authentication attempt was admitted by the admission controller, or null if it was not
+     * checked yet.
+     */
+    public Boolean getAdmitted() {
+
+        return admitted;
+    }
+
+    public void setAdmitted(Boolean admitted) {
+
+        this.admitted = admitted;
+    }
+
+    /**
+     * @return Outcome of the failed authentication of the request, or null if the authentication did not fail.
+     */
+    public MutualTLSMetrics.Outcome getFailureOutcome() {
+
+        return failureOutcome;
+    }
+
+    public void setFailureOutcome(MutualTLSMetrics.Outcome failureOutcome) {
+
+        this.failureOutcome = failureOutcome;
+    }
+}
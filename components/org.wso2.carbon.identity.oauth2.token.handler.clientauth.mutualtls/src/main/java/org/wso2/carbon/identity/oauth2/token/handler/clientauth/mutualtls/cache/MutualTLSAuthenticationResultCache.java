@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.application.authentication.framework.cache.AuthenticationBaseCache;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil;
+import org.wso2.carbon.utils.CarbonUtils;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of Mutual TLS authentication results, holding the results of each client against the client ID, keyed by the
+ * SHA-256 digest of the certificate presented by the client. Machine clients request tokens with the same certificate
+ * many times a minute, and a hit skips comparing the certificate against the registered certificate or the JWK set of
+ * the client.
+ * <p>
+ * Successful and failed authentications are kept apart, each with its own time to live and number of certificates per
+ * client, so that a flood of failing requests cannot evict the certificates which authenticate successfully. Failed
+ * authentications are kept for a few seconds only, so that a client which fixes its certificate is not rejected for
+ * long. The number of clients is bounded by the capacity configured for the cache.
+ * <p>
+ * Results of a client are removed on every node of the cluster when its application is updated or deleted, and when
+ * the keys published at the JWKS endpoint of the client change. The clients authenticated against each JWKS
+ * endpoint are tracked for the latter, so that a key rotation only removes the results of the clients of that
+ * endpoint. The results of a client are only cached once its client profile is cached, so that clients which do not
+ * exist do not take up entries.
+ */
+public class MutualTLSAuthenticationResultCache
+        extends AuthenticationBaseCache<String, MutualTLSAuthenticationResultCacheEntry> {
+
+    private static final String AUTHENTICATION_RESULT_CACHE_NAME = "MutualTLSAuthenticationResultCache";
+
+    private static volatile MutualTLSAuthenticationResultCache instance = new MutualTLSAuthenticationResultCache();
+
+    private final long ttl;
+    private final int maxCertificates;
+    private final long negativeTTL;
+    private final int negativeMaxCertificates;
+    // Clients authenticated against each JWKS endpoint since the keys of the endpoint last changed.
+    private final Map<String, Set<String>> jwksClients = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    private MutualTLSAuthenticationResultCache() {
+
+        this(readTTL(), readMaxCertificates(), readNegativeTTL(), readNegativeMaxCertificates());
+    }
+
+    /**
+     * @param ttl                     Time to live in milliseconds of a successful authentication, or 0 to not cache
+     *                                any authentication result.
+     * @param maxCertificates         Maximum number of certificates with a cached successful authentication per
+     *                                client.
+     * @param negativeTTL             Time to live in milliseconds of a failed authentication, or 0 to not cache
+     *                                failed authentications.
+     * @param negativeMaxCertificates Maximum number of certificates with a cached failed authentication per client.
+     */
+    protected MutualTLSAuthenticationResultCache(long ttl, int maxCertificates, long negativeTTL,
+                                                 int negativeMaxCertificates) {
+
+        super(AUTHENTICATION_RESULT_CACHE_NAME);
+        this.ttl = ttl;
+        this.maxCertificates = maxCertificates;
+        this.negativeTTL = ttl > 0 ? negativeTTL : 0;
+        this.negativeMaxCertificates = negativeMaxCertificates;
+    }
+
+    /**
+     * Returns MutualTLSAuthenticationResultCache instance
+     *
+     * @return instance of MutualTLSAuthenticationResultCache
+     */
+    public static MutualTLSAuthenticationResultCache getInstance() {
+
+        CarbonUtils.checkSecurity();
+        return instance;
+    }
+
+    @Override
+    public boolean isEnabled() {
+
+        return ttl > 0 && super.isEnabled();
+    }
+
+    /**
+     * Get the cached results of the given client, adding an empty entry for the client if none is cached. Results
+     * computed after this call are added to the returned entry, so that they are never read if the results of the
+     * client are removed in the meantime.
+     *
+     * @param clientId Client ID of the OAuth application.
+     * @return Cached results of the client, or null if results are not cached.
+     */
+    public MutualTLSAuthenticationResultCacheEntry getClientResults(String clientId) {
+
+        if (!isEnabled() || clientId == null) {
+            return null;
+        }
+        MutualTLSAuthenticationResultCacheEntry clientResults = getValueFromCache(clientId);
+        if (clientResults == null) {
+            addToCacheOnRead(clientId, new MutualTLSAuthenticationResultCacheEntry(clientId));
+            clientResults = getValueFromCache(clientId);
+        }
+        return clientResults;
+    }
+
+    /**
+     * Get the cached result of authenticating the client of the given entry with the given certificate.
+     *
+     * @param clientResults     Cached results of the client.
+     * @param certificateDigest SHA-256 digest of the certificate presented by the client.
+     * @return Whether the client was authenticated, or null if no unexpired result is cached.
+     */
+    public Boolean getResult(MutualTLSAuthenticationResultCacheEntry clientResults, byte[] certificateDigest) {
+
+        if (clientResults == null || certificateDigest == null) {
+            return null;
+        }
+        Boolean authenticated = clientResults.getResult(certificateDigest, getCurrentTime());
+        if (authenticated != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+        }
+        return authenticated;
+    }
+
+    /**
+     * Add the result of authenticating the client of the given entry with the given certificate.
+     *
+     * @param clientResults     Cached results of the client, taken before the authentication started.
+     * @param certificateDigest SHA-256 digest of the certificate presented by the client.
+     * @param authenticated     Whether the client was authenticated.
+     */
+    public void addResult(MutualTLSAuthenticationResultCacheEntry clientResults, byte[] certificateDigest,
+                          boolean authenticated) {
+
+        long entryTTL = authenticated ? ttl : negativeTTL;
+        if (entryTTL <= 0 || clientResults == null || certificateDigest == null) {
+            return;
+        }
+        long now = getCurrentTime();
+        clientResults.addResult(certificateDigest, authenticated, now + entryTTL,
+                authenticated ? maxCertificates : negativeMaxCertificates, now);
+    }
+
+    /**
+     * Record that the given client is authenticated against the given JWKS endpoint, so that its results are removed
+     * when the keys of the endpoint change. This must be called before the JWK set of the endpoint is read.
+     *
+     * @param clientId Client ID of the OAuth application.
+     * @param jwksUri  JWKS endpoint of the client.
+     */
+    public void addJWKSClient(String clientId, URL jwksUri) {
+
+        if (!isEnabled() || clientId == null || jwksUri == null) {
+            return;
+        }
+        jwksClients.compute(jwksUri.toString(), (uri, clientIds) -> {
+            Set<String> jwksClientIds = clientIds != null ? clientIds : ConcurrentHashMap.newKeySet();
+            jwksClientIds.add(clientId);
+            return jwksClientIds;
+        });
+    }
+
+    /**
+     * Remove the cached results of the clients authenticated against the given JWKS endpoint.
+     *
+     * @param jwksUri JWKS endpoint whose keys changed.
+     */
+    public void clearCacheEntries(URL jwksUri) {
+
+        Set<String> clientIds = jwksClients.remove(jwksUri.toString());
+        if (clientIds != null) {
+            clientIds.forEach(this::clearCacheEntry);
+        }
+    }
+
+    public long getHitCount() {
+
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+
+        return missCount.sum();
+    }
+
+    /**
+     * @return Current time in milliseconds, against which the entries expire.
+     */
+    protected long getCurrentTime() {
+
+        return System.currentTimeMillis();
+    }
+
+    private static long readTTL() {
+
+        if (!Boolean.parseBoolean(
+                StringUtils.trim(IdentityUtil.getProperty(CommonConstants.AUTHENTICATION_RESULT_CACHE_ENABLE_XPATH)))) {
+            return 0;
+        }
+        return readSeconds(CommonConstants.AUTHENTICATION_RESULT_CACHE_TTL_XPATH,
+                CommonConstants.DEFAULT_AUTHENTICATION_RESULT_CACHE_TTL);
+    }
+
+    private static int readMaxCertificates() {
+
+        return MutualTLSUtil.readIntConfigValue(CommonConstants.AUTHENTICATION_RESULT_CACHE_MAX_CERTIFICATES_XPATH,
+                CommonConstants.DEFAULT_AUTHENTICATION_RESULT_CACHE_MAX_CERTIFICATES, 1);
+    }
+
+    private static long readNegativeTTL() {
+
+        // Failed authentications are cached unless explicitly disabled.
+        String enabled = IdentityUtil.getProperty(CommonConstants.AUTHENTICATION_RESULT_CACHE_NEGATIVE_ENABLE_XPATH);
+        if ("false".equalsIgnoreCase(StringUtils.trim(enabled))) {
+            return 0;
+        }
+        return readSeconds(CommonConstants.AUTHENTICATION_RESULT_CACHE_NEGATIVE_TTL_XPATH,
+                CommonConstants.DEFAULT_AUTHENTICATION_RESULT_CACHE_NEGATIVE_TTL);
+    }
+
+    private static int readNegativeMaxCertificates() {
+
+        return MutualTLSUtil.readIntConfigValue(
+                CommonConstants.AUTHENTICATION_RESULT_CACHE_NEGATIVE_MAX_CERTIFICATES_XPATH,
+                CommonConstants.DEFAULT_AUTHENTICATION_RESULT_CACHE_NEGATIVE_MAX_CERTIFICATES, 1);
+    }
+
+    private static long readSeconds(String xPath, int defaultValue) {
+
+        return TimeUnit.SECONDS.toMillis(MutualTLSUtil.readIntConfigValue(xPath, defaultValue, 1));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache;
+
+import org.wso2.carbon.identity.core.cache.CacheEntry;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MutualTLSAuthenticationResultCacheEntry holds the cached Mutual TLS authentication results of a client, keyed by
+ * the SHA-256 digest of the certificate presented by the client, along with their expiry times. Successful and failed
+ * authentications are kept apart, each bounded to a number of certificates. This will be used with
+ * MutualTLSAuthenticationResultCache.
+ * <p>
+ * Results are only added to and read from the entry which is in the cache. Once the entry is removed from the cache,
+ * a result still being computed against it is never read.
+ */
+public class MutualTLSAuthenticationResultCacheEntry extends CacheEntry {
+
+    private static final long serialVersionUID = 2810475013528046391L;
+
+    private final String clientId;
+    private final Map<CertificateKey, Long> results = new ConcurrentHashMap<>();
+    private final Map<CertificateKey, Long> failedResults = new ConcurrentHashMap<>();
+
+    public MutualTLSAuthenticationResultCacheEntry(String clientId) {
+
+        this.clientId = clientId;
+    }
+
+    public String getClientId() {
+
+        return clientId;
+    }
+
+    /**
+     * @return Number of certificates with a cached successful authentication, including expired ones.
+     */
+    public int getResultCount() {
+
+        return results.size();
+    }
+
+    /**
+     * @return Number of certificates with a cached failed authentication, including expired ones.
+     */
+    public int getFailedResultCount() {
+
+        return failedResults.size();
+    }
+
+    /**
+     * @param certificateDigest SHA-256 digest of the certificate presented by the client.
+     * @param now               Current time in milliseconds.
+     * @return Whether the client was authenticated with the certificate, or null if no unexpired result is cached.
+     */
+    Boolean getResult(byte[] certificateDigest, long now) {
+
+        CertificateKey key = new CertificateKey(certificateDigest);
+        if (isCached(results, key, now)) {
+            return Boolean.TRUE;
+        }
+        if (isCached(failedResults, key, now)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    /**
+     * @param certificateDigest SHA-256 digest of the certificate presented by the client.
+     * @param authenticated     Whether the client was authenticated with the certificate.
+     * @param expiryTime        Time in milliseconds at which the result expires.
+     * @param maxCertificates   Maximum number of certificates with a result of the same kind.
+     * @param now               Current time in milliseconds.
+     */
+    void addResult(byte[] certificateDigest, boolean authenticated, long expiryTime, int maxCertificates, long now) {
+
+        CertificateKey key = new CertificateKey(certificateDigest.clone());
+        if (authenticated) {
+            failedResults.remove(key);
+            put(results, key, expiryTime, maxCertificates, now);
+        } else {
+            results.remove(key);
+            put(failedResults, key, expiryTime, maxCertificates, now);
+        }
+    }
+
+    private static boolean isCached(Map<CertificateKey, Long> resultMap, CertificateKey key, long now) {
+
+        Long expiryTime = resultMap.get(key);
+        if (expiryTime == null) {
+            return false;
+        }
+        if (expiryTime <= now) {
+            resultMap.remove(key, expiryTime);
+            return false;
+        }
+        return true;
+    }
+
+    private static void put(Map<CertificateKey, Long> resultMap, CertificateKey key, long expiryTime,
+                            int maxCertificates, long now) {
+
+        resultMap.put(key, expiryTime);
+        if (resultMap.size() <= maxCertificates) {
+            return;
+        }
+        // Expired results are evicted first, and then any other result in iteration order.
+        resultMap.values().removeIf(entryExpiryTime -> entryExpiryTime <= now);
+        Iterator<CertificateKey> keys = resultMap.keySet().iterator();
+        while (resultMap.size() > maxCertificates && keys.hasNext()) {
+            if (!key.equals(keys.next())) {
+                keys.remove();
+            }
+        }
+    }
+
+    private static class CertificateKey implements Serializable {
+
+        private static final long serialVersionUID = -6529137780437192854L;
+
+        private final byte[] certificateDigest;
+        private final int hashCode;
+
+        CertificateKey(byte[] certificateDigest) {
+
+            this.certificateDigest = certificateDigest;
+            this.hashCode = Arrays.hashCode(certificateDigest);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CertificateKey)) {
+                return false;
+            }
+            return Arrays.equals(certificateDigest, ((CertificateKey) o).certificateDigest);
+        }
+
+        @Override
+        public int hashCode() {
+
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter of the SHA-256 digests of the certificates that can authenticate a client: registered certificates,
+ * certificates published at JWKS endpoints and certificates that authenticated a client. Clients presenting a
+ * certificate which is definitely not in the filter, such as the random self-signed certificates of bots, can be
+ * rejected before the tenant, the application and the JWK set of the client are looked up.
+ * <p>
+ * The filter is learnt lazily, and is never built up front from every registered certificate and JWK set: it holds the
+ * certificates of the client profiles and JWK sets resolved on this node, and the certificates which authenticated a
+ * client on this node. It can never be known to hold every certificate that can authenticate: certificates of clients
+ * which did not authenticate since the server started, keys newly published at a JWKS endpoint and certificates
+ * updated through another node are all missing from it. Unless the filter is
+ * enforced, unknown certificates are only counted. When it is enforced, unknown certificates are still let through
+ * during a warm-up period after the server starts, and then up to a number of certificates per second, so that such
+ * certificates can authenticate and be learnt while a flood of unknown certificates is rejected. Since that budget is
+ * shared by every client, a certificate is compared with the registered certificate of the client it is presented
+ * for before it is rejected, if the profile of the client is cached, so that a flood of unknown certificates does not
+ * reject a registered certificate which was not learnt yet. Profiles are not looked up for that comparison. Clients
+ * authenticated against a JWKS endpoint are never rejected once their profile is cached, since the endpoint is not
+ * fetched to check a key it may have rotated.
+ * <p>
+ * The bit array is sized for the expected number of certificates and false positive rate, taking about 1.2 MB per
+ * million certificates at a false positive rate of 1%, with 7 bit lookups per check. A false positive only sends a
+ * certificate through the usual authentication. Entries are never removed, so certificates which are no longer
+ * registered only raise the false positive rate until the server is restarted.
+ */
+public class MutualTLSCertificateFilter {
+
+    private static final Log log = LogFactory.getLog(MutualTLSCertificateFilter.class);
+    private static final int WINDOW_COUNT_BITS = 20;
+    private static final long WINDOW_COUNT_MASK = (1L << WINDOW_COUNT_BITS) - 1;
+
+    private static final MutualTLSCertificateFilter instance = new MutualTLSCertificateFilter();
+
+    /**
+     * Decision taken for a certificate presented by a client.
+     */
+    public enum Decision {
+        /**
+         * The certificate may be in the filter, or the filter is disabled.
+         */
+        KNOWN,
+        /**
+         * The certificate is not in the filter, but is let through to be authenticated.
+         */
+        ADMITTED,
+        /**
+         * The certificate is not in the filter, and the client is rejected without being authenticated.
+         */
+        REJECTED
+    }
+
+    private final boolean enabled;
+    private final boolean enforced;
+    private final long numBits;
+    private final int numHashes;
+    private final AtomicLongArray bits;
+    private final long warmUpEndTime;
+    private final int unknownCertificateRate;
+    // Second of the current admission window, and the number of unknown certificates admitted in it.
+    private final AtomicLong admissionWindow = new AtomicLong();
+    private final LongAdder knownCount = new LongAdder();
+    private final LongAdder admittedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder learntCount = new LongAdder();
+
+    private MutualTLSCertificateFilter() {
+
+        this(readBoolean(CommonConstants.CERTIFICATE_FILTER_ENABLE_XPATH),
+                readBoolean(CommonConstants.CERTIFICATE_FILTER_ENFORCE_XPATH),
+                MutualTLSUtil.readIntConfigValue(CommonConstants.CERTIFICATE_FILTER_EXPECTED_ENTRIES_XPATH,
+                        CommonConstants.DEFAULT_CERTIFICATE_FILTER_EXPECTED_ENTRIES, 1),
+                readFalsePositiveRate(),
+                TimeUnit.SECONDS.toMillis(MutualTLSUtil.readIntConfigValue(
+                        CommonConstants.CERTIFICATE_FILTER_WARM_UP_PERIOD_XPATH,
+                        CommonConstants.DEFAULT_CERTIFICATE_FILTER_WARM_UP_PERIOD, 0)),
+                MutualTLSUtil.readIntConfigValue(CommonConstants.CERTIFICATE_FILTER_UNKNOWN_CERTIFICATE_RATE_XPATH,
+                        CommonConstants.DEFAULT_CERTIFICATE_FILTER_UNKNOWN_CERTIFICATE_RATE, 0));
+    }
+
+    /**
+     * @param enabled                Whether certificates are checked against the filter.
+     * @param enforced               Whether clients presenting unknown certificates are rejected.
+     * @param expectedEntries        Number of certificates the filter is sized for.
+     * @param falsePositiveRate      False positive rate of the filter once it holds the expected entries.
+     * @param warmUpPeriod           Time in milliseconds after creation during which unknown certificates are
+     *                               admitted.
+     * @param unknownCertificateRate Number of unknown certificates admitted per second after the warm-up period.
+     */
+    protected MutualTLSCertificateFilter(boolean enabled, boolean enforced, int expectedEntries,
+                                         double falsePositiveRate, long warmUpPeriod, int unknownCertificateRate) {
+
+        this.enabled = enabled;
+        this.enforced = enabled && enforced;
+        // Optimal number of bits and of hash functions for the expected entries and false positive rate.
+        double bitsPerEntry = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        this.numBits = enabled ? Math.max(Long.SIZE, (long) Math.ceil(expectedEntries * bitsPerEntry)) : Long.SIZE;
+        this.numHashes = Math.max(1, (int) Math.round(bitsPerEntry * Math.log(2)));
+        this.bits = new AtomicLongArray((int) ((numBits + Long.SIZE - 1) / Long.SIZE));
+        this.warmUpEndTime = getCurrentTime() + warmUpPeriod;
+        this.unknownCertificateRate = (int) Math.min(unknownCertificateRate, WINDOW_COUNT_MASK);
+    }
+
+    /**
+     * Returns MutualTLSCertificateFilter instance
+     *
+     * @return instance of MutualTLSCertificateFilter
+     */
+    public static MutualTLSCertificateFilter getInstance() {
+
+        return instance;
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    public boolean isEnforced() {
+
+        return enforced;
+    }
+
+    /**
+     * Decide whether a client presenting the given certificate is authenticated.
+     *
+     * @param certificateDigest SHA-256 digest of the certificate presented by the client.
+     * @return Decision for the certificate.
+     */
+    public Decision check(byte[] certificateDigest) {
+
+        return check(certificateDigest, null);
+    }
+
+    /**
+     * Decide whether a client presenting the given certificate is authenticated. A certificate the filter would
+     * reject is first compared with the registered certificate of the cached profile of the client it is presented
+     * for, if any, and added to the filter if it is the registered certificate. Clients whose cached profile
+     * authenticates them against a JWKS endpoint are never rejected. The profile is never looked up here, so that a
+     * flood of unknown certificates presented with unknown client IDs cannot reach the database.
+     *
+     * @param certificateDigest SHA-256 digest of the certificate presented by the client.
+     * @param clientProfile     Cached profile of the client the certificate is presented for, or null if not cached.
+     * @return Decision for the certificate.
+     */
+    public Decision check(byte[] certificateDigest, MutualTLSClientProfileCacheEntry clientProfile) {
+
+        if (!enabled || certificateDigest == null || mightContain(certificateDigest)) {
+            knownCount.increment();
+            return Decision.KNOWN;
+        }
+        if (!enforced || admitUnknownCertificate()) {
+            admittedCount.increment();
+            return Decision.ADMITTED;
+        }
+        if (clientProfile != null && clientProfile.getAuthMode() == MutualTLSClientProfileCacheEntry.AuthMode.JWKS) {
+            // A key rotated at the JWKS endpoint of the client is only learnt once the client authenticates with it.
+            admittedCount.increment();
+            return Decision.ADMITTED;
+        }
+        if (clientProfile != null &&
+                CertificateThumbprint.matches(clientProfile.getRegisteredCertThumbprint(), certificateDigest)) {
+            add(certificateDigest);
+            knownCount.increment();
+            if (log.isDebugEnabled()) {
+                log.debug("A certificate which was not known to the certificate filter is the registered " +
+                        "certificate of client: " + clientProfile.getClientId());
+            }
+            return Decision.KNOWN;
+        }
+        rejectedCount.increment();
+        return Decision.REJECTED;
+    }
+
+    /**
+     * Check whether the given certificate may be in the filter.
+     *
+     * @param certificateDigest SHA-256 digest of a certificate.
+     * @return false if the certificate is definitely not in the filter.
+     */
+    public boolean mightContain(byte[] certificateDigest) {
+
+        long hash = getHash(certificateDigest, 0);
+        long increment = getHash(certificateDigest, Long.BYTES) | 1;
+        for (int i = 0; i < numHashes; i++, hash += increment) {
+            long index = Math.floorMod(hash, numBits);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a certificate to the filter.
+     *
+     * @param certificateDigest SHA-256 digest of the certificate.
+     */
+    public void add(byte[] certificateDigest) {
+
+        if (!enabled || certificateDigest == null) {
+            return;
+        }
+        long hash = getHash(certificateDigest, 0);
+        long increment = getHash(certificateDigest, Long.BYTES) | 1;
+        for (int i = 0; i < numHashes; i++, hash += increment) {
+            long index = Math.floorMod(hash, numBits);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long value = bits.get(word);
+            while ((value & mask) == 0 && !bits.compareAndSet(word, value, value | mask)) {
+                value = bits.get(word);
+            }
+        }
+    }
+
+    /**
+     * Add the certificates of the given digests to the filter.
+     *
+     * @param certificateDigests SHA-256 digests of certificates, such as the certificate digests of a JWK set.
+     */
+    public void addAll(Collection<byte[]> certificateDigests) {
+
+        if (!enabled || certificateDigests == null) {
+            return;
+        }
+        for (byte[] certificateDigest : certificateDigests) {
+            add(certificateDigest);
+        }
+    }
+
+    /**
+     * Record that a client authenticated with the given certificate, adding the certificate to the filter if it was
+     * not known.
+     *
+     * @param certificateDigest SHA-256 digest of the certificate presented by the client.
+     * @param decision          Decision taken for the certificate before the client was authenticated.
+     */
+    public void recordAuthenticated(byte[] certificateDigest, Decision decision) {
+
+        if (!enabled || decision != Decision.ADMITTED) {
+            return;
+        }
+        add(certificateDigest);
+        learntCount.increment();
+        if (log.isDebugEnabled()) {
+            log.debug("A client authenticated with a certificate which was not known to the certificate filter.");
+        }
+    }
+
+    /**
+     * @return Number of bits of the filter.
+     */
+    public long getNumBits() {
+
+        return numBits;
+    }
+
+    /**
+     * @return Number of bits checked for each certificate.
+     */
+    public int getNumHashes() {
+
+        return numHashes;
+    }
+
+    /**
+     * Estimate the false positive rate of the filter from the number of bits set. This reads the whole bit array.
+     *
+     * @return Probability that a certificate which is not in the filter is reported as known.
+     */
+    public double getFalsePositiveRate() {
+
+        long setBits = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            setBits += Long.bitCount(bits.get(i));
+        }
+        return Math.pow((double) setBits / numBits, numHashes);
+    }
+
+    public long getKnownCount() {
+
+        return knownCount.sum();
+    }
+
+    public long getAdmittedCount() {
+
+        return admittedCount.sum();
+    }
+
+    public long getRejectedCount() {
+
+        return rejectedCount.sum();
+    }
+
+    /**
+     * @return Number of clients which authenticated with a certificate not known to the filter. Each of them would
+     * have been rejected by a filter enforced without a warm-up period and an admission rate.
+     */
+    public long getLearntCount() {
+
+        return learntCount.sum();
+    }
+
+    /**
+     * @return Current time in milliseconds, against which the warm-up period and the admission rate are measured.
+     */
+    protected long getCurrentTime() {
+
+        return System.currentTimeMillis();
+    }
+
+    private boolean admitUnknownCertificate() {
+
+        long now = getCurrentTime();
+        if (now < warmUpEndTime) {
+            return true;
+        }
+        long second = now / 1000;
+        while (true) {
+            long window = admissionWindow.get();
+            if (window >>> WINDOW_COUNT_BITS != second) {
+                if (unknownCertificateRate == 0) {
+                    return false;
+                }
+                if (admissionWindow.compareAndSet(window, second << WINDOW_COUNT_BITS | 1)) {
+                    return true;
+                }
+            } else if ((window & WINDOW_COUNT_MASK) >= unknownCertificateRate) {
+                return false;
+            } else if (admissionWindow.compareAndSet(window, window + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * The digest is uniformly distributed, so its bytes are used as the hashes of the filter as they are.
+     */
+    private static long getHash(byte[] digest, int offset) {
+
+        long hash = 0;
+        for (int i = offset; i < offset + Long.BYTES && i < digest.length; i++) {
+            hash = hash << 8 | (digest[i] & 0xff);
+        }
+        return hash;
+    }
+
+    private static boolean readBoolean(String xPath) {
+
+        return Boolean.parseBoolean(StringUtils.trim(IdentityUtil.getProperty(xPath)));
+    }
+
+
+    private static double readFalsePositiveRate() {
+
+        String xPath = CommonConstants.CERTIFICATE_FILTER_FALSE_POSITIVE_RATE_XPATH;
+        String value = StringUtils.trim(IdentityUtil.getProperty(xPath));
+        if (StringUtils.isBlank(value)) {
+            return CommonConstants.DEFAULT_CERTIFICATE_FILTER_FALSE_POSITIVE_RATE;
+        }
+        try {
+            double rate = Double.parseDouble(value);
+            return rate > 0 && rate < 1 ? rate : CommonConstants.DEFAULT_CERTIFICATE_FILTER_FALSE_POSITIVE_RATE;
+        } catch (NumberFormatException e) {
+            log.error("Provided certificate filter config value in " + xPath + " should be a number between 0 " +
+                    "and 1. Value : " + value);
+            return CommonConstants.DEFAULT_CERTIFICATE_FILTER_FALSE_POSITIVE_RATE;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil;
+
+import java.security.cert.CertificateEncodingException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local cache of client certificates parsed from the certificate header, keyed by the raw header value. Behind a TLS
+ * terminating load balancer the same certificates arrive on every request, and a hit skips decoding and parsing them.
+ * <p>
+ * Lookups hash the header value, and compare it in full, so a hash collision never returns the certificate of
+ * another client. The cache is bounded by the approximate memory taken by its entries. Lookups take no lock, and
+ * when the cache grows over its maximum size the least recently used of a small sample of entries is evicted.
+ */
+public class MutualTLSClientCertificateCache {
+
+    private static final Log log = LogFactory.getLog(MutualTLSClientCertificateCache.class);
+    // The parsed form of a certificate takes a few times the size of its encoded form.
+    private static final int PARSED_CERTIFICATE_SIZE_FACTOR = 4;
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    private static final MutualTLSClientCertificateCache instance = new MutualTLSClientCertificateCache();
+
+    private final boolean enabled;
+    private final long maxSize;
+    private final Map<String, CachedCertificate> entries = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    private MutualTLSClientCertificateCache() {
+
+        this(readEnabled(), readMaxSize());
+    }
+
+    /**
+     * @param enabled Whether certificates are cached.
+     * @param maxSize Approximate memory in bytes that the cached certificates may take.
+     */
+    protected MutualTLSClientCertificateCache(boolean enabled, long maxSize) {
+
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns MutualTLSClientCertificateCache instance
+     *
+     * @return instance of MutualTLSClientCertificateCache
+     */
+    public static MutualTLSClientCertificateCache getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Get the certificate parsed from the given certificate header value.
+     *
+     * @param headerValue Raw value of the certificate header.
+     * @return Cache entry, or null if the certificate of the header value is not cached.
+     */
+    public MutualTLSClientCertificateCacheEntry getValueFromCache(String headerValue) {
+
+        if (!enabled || headerValue == null) {
+            return null;
+        }
+        CachedCertificate cachedCertificate = entries.get(headerValue);
+        if (cachedCertificate == null) {
+            missCount.increment();
+            return null;
+        }
+        cachedCertificate.lastAccessTime = getCurrentTime();
+        hitCount.increment();
+        return cachedCertificate.entry;
+    }
+
+    /**
+     * Add the certificate parsed from the given certificate header value, evicting least recently used certificates
+     * if the cache would grow over its maximum size.
+     *
+     * @param headerValue Raw value of the certificate header.
+     * @param entry       Cache entry holding the parsed certificate.
+     */
+    public void addToCache(String headerValue, MutualTLSClientCertificateCacheEntry entry) {
+
+        if (!enabled || headerValue == null || entry == null) {
+            return;
+        }
+        long entrySize;
+        try {
+            entrySize = headerValue.length() +
+                    (long) PARSED_CERTIFICATE_SIZE_FACTOR * entry.getCertificate().getEncoded().length;
+        } catch (CertificateEncodingException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Not caching the client certificate since it could not be encoded.", e);
+            }
+            return;
+        }
+        if (entrySize > maxSize) {
+            return;
+        }
+        CachedCertificate previous = entries.put(headerValue,
+                new CachedCertificate(entry, entrySize, getCurrentTime()));
+        if (size.addAndGet(previous != null ? entrySize - previous.size : entrySize) > maxSize) {
+            evict(headerValue);
+        }
+    }
+
+    /**
+     * Remove all cached certificates.
+     */
+    public void clear() {
+
+        Iterator<Map.Entry<String, CachedCertificate>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CachedCertificate> cachedEntry = iterator.next();
+            if (entries.remove(cachedEntry.getKey(), cachedEntry.getValue())) {
+                size.addAndGet(-cachedEntry.getValue().size);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * @return Number of cached certificates.
+     */
+    public int getEntryCount() {
+
+        return entries.size();
+    }
+
+    /**
+     * @return Approximate memory in bytes taken by the cached certificates.
+     */
+    public long getSize() {
+
+        return size.get();
+    }
+
+    public long getMaxSize() {
+
+        return maxSize;
+    }
+
+    public long getHitCount() {
+
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+
+        return missCount.sum();
+    }
+
+    /**
+     * @return Current time in nanoseconds, used to order the accesses to cached certificates.
+     */
+    protected long getCurrentTime() {
+
+        return System.nanoTime();
+    }
+
+    /**
+     * Evict the least recently used of a sample of cached certificates until the cache is within its maximum size.
+     *
+     * @param addedHeaderValue Header value of the certificate just added, which is never evicted.
+     */
+    private void evict(String addedHeaderValue) {
+
+        while (size.get() > maxSize) {
+            Map.Entry<String, CachedCertificate> leastRecentlyUsed = null;
+            Iterator<Map.Entry<String, CachedCertificate>> iterator = entries.entrySet().iterator();
+            for (int i = 0; i < EVICTION_SAMPLE_SIZE && iterator.hasNext(); i++) {
+                Map.Entry<String, CachedCertificate> cachedEntry = iterator.next();
+                if (!cachedEntry.getKey().equals(addedHeaderValue) && (leastRecentlyUsed == null ||
+                        cachedEntry.getValue().lastAccessTime < leastRecentlyUsed.getValue().lastAccessTime)) {
+                    leastRecentlyUsed = cachedEntry;
+                }
+            }
+            if (leastRecentlyUsed == null) {
+                return;
+            }
+            if (entries.remove(leastRecentlyUsed.getKey(), leastRecentlyUsed.getValue())) {
+                size.addAndGet(-leastRecentlyUsed.getValue().size);
+            }
+        }
+    }
+
+    private static boolean readEnabled() {
+
+        // Enabled unless explicitly disabled.
+        String enabled = IdentityUtil.getProperty(CommonConstants.CLIENT_CERTIFICATE_CACHE_ENABLE_XPATH);
+        return !"false".equalsIgnoreCase(StringUtils.trim(enabled));
+    }
+
+    private static long readMaxSize() {
+
+        return 1024L * MutualTLSUtil.readIntConfigValue(CommonConstants.CLIENT_CERTIFICATE_CACHE_MAX_SIZE_XPATH,
+                CommonConstants.DEFAULT_CLIENT_CERTIFICATE_CACHE_MAX_SIZE, 1);
+    }
+
+    private static class CachedCertificate {
+
+        private final MutualTLSClientCertificateCacheEntry entry;
+        private final long size;
+        private volatile long lastAccessTime;
+
+        CachedCertificate(MutualTLSClientCertificateCacheEntry entry, long size, long lastAccessTime) {
+
+            this.entry = entry;
+            this.size = size;
+            this.lastAccessTime = lastAccessTime;
+        }
+    }
+}
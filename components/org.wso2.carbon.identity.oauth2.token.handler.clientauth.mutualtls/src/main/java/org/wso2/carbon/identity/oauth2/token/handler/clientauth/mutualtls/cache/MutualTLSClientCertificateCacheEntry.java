@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache;
+
+import com.nimbusds.jose.util.Base64URL;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
+
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+
+/**
+ * MutualTLSClientCertificateCacheEntry holds a client certificate parsed from the certificate header, along with the
+ * thumbprints computed from it. This will be used with MutualTLSClientCertificateCache.
+ */
+public class MutualTLSClientCertificateCacheEntry {
+
+    private final X509Certificate certificate;
+    private volatile CertificateThumbprint thumbprint;
+
+    public MutualTLSClientCertificateCacheEntry(X509Certificate certificate) {
+
+        this.certificate = certificate;
+    }
+
+    public X509Certificate getCertificate() {
+
+        return certificate;
+    }
+
+    /**
+     * @return Thumbprints of the certificate, computed on first use.
+     * @throws CertificateEncodingException If the certificate cannot be encoded.
+     */
+    public CertificateThumbprint getThumbprint() throws CertificateEncodingException {
+
+        CertificateThumbprint value = thumbprint;
+        if (value == null) {
+            value = CertificateThumbprint.of(certificate);
+            thumbprint = value;
+        }
+        return value;
+    }
+
+    /**
+     * @return Base64URL encoded SHA-256 thumbprint of the certificate, or null if the certificate cannot be encoded.
+     */
+    public Base64URL getSHA256Thumbprint() {
+
+        try {
+            return getThumbprint().getX5tS256();
+        } catch (CertificateEncodingException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache;
+
+import org.wso2.carbon.identity.application.authentication.framework.cache.AuthenticationBaseCache;
+import org.wso2.carbon.utils.CarbonUtils;
+
+/**
+ * Client profile cache holds the Mutual TLS client authentication configuration of OAuth clients against the
+ * client ID. Entries are cleared when the application of the client is updated or deleted.
+ */
+public class MutualTLSClientProfileCache extends AuthenticationBaseCache<String, MutualTLSClientProfileCacheEntry> {
+
+    private static final String CLIENT_PROFILE_CACHE_NAME = "MutualTLSClientProfileCache";
+
+    private static volatile MutualTLSClientProfileCache instance = new MutualTLSClientProfileCache();
+
+    private MutualTLSClientProfileCache() {
+
+        super(CLIENT_PROFILE_CACHE_NAME);
+    }
+
+    /**
+     * Returns MutualTLSClientProfileCache instance
+     *
+     * @return instance of MutualTLSClientProfileCache
+     */
+    public static MutualTLSClientProfileCache getInstance() {
+
+        CarbonUtils.checkSecurity();
+        return instance;
+    }
+
+    /**
+     * Adds the given cache entry to the cache only if no entry exists for the key.
+     * Use this method when populating the cache as part of read operations to avoid
+     * triggering redundant cache invalidation notifications in clustered deployments.
+     *
+     * @param key   cache key
+     * @param entry cache entry
+     */
+    @Override
+    public void addToCacheOnRead(String key, MutualTLSClientProfileCacheEntry entry) {
+
+        super.addToCacheOnRead(key, entry);
+    }
+}
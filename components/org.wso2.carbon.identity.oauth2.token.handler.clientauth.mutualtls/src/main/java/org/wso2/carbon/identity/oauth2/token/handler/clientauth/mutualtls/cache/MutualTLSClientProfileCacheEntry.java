@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache;
+
+import org.wso2.carbon.identity.core.cache.CacheEntry;
+
+import java.net.URL;
+
+/**
+ * MutualTLSClientProfileCacheEntry holds the configuration of an OAuth client that Mutual TLS client authentication
+ * needs, resolved from the OAuth application and the service provider of the client. This will be used with
+ * MutualTLSClientProfileCache.
+ */
+public class MutualTLSClientProfileCacheEntry extends CacheEntry {
+
+    private static final long serialVersionUID = -3170436785027305286L;
+
+    /**
+     * How the certificate presented by the client is validated.
+     */
+    public enum AuthMode {
+        /**
+         * Against the certificates published at the JWKS endpoint of the client.
+         */
+        JWKS,
+        /**
+         * Against the certificate registered for the client.
+         */
+        CERTIFICATE,
+        /**
+         * Not resolved, as public clients are not authenticated with Mutual TLS.
+         */
+        NONE
+    }
+
+    private final String clientId;
+    private final String tenantDomain;
+    private final AuthMode authMode;
+    private final URL jwksUri;
+    private final byte[] registeredCertThumbprint;
+    private final byte[] registeredCertPublicKeyHash;
+    private final String tlsClientAuthSubjectDN;
+    private final boolean publicClient;
+
+    private MutualTLSClientProfileCacheEntry(String clientId, String tenantDomain, AuthMode authMode, URL jwksUri,
+                                             byte[] registeredCertThumbprint, byte[] registeredCertPublicKeyHash,
+                                             String tlsClientAuthSubjectDN, boolean publicClient) {
+
+        this.clientId = clientId;
+        this.tenantDomain = tenantDomain;
+        this.authMode = authMode;
+        this.jwksUri = jwksUri;
+        this.registeredCertThumbprint = registeredCertThumbprint;
+        this.registeredCertPublicKeyHash = registeredCertPublicKeyHash;
+        this.tlsClientAuthSubjectDN = tlsClientAuthSubjectDN;
+        this.publicClient = publicClient;
+    }
+
+    /**
+     * Profile of a client authenticated against the certificates published at its JWKS endpoint.
+     */
+    public static MutualTLSClientProfileCacheEntry forJWKS(String clientId, String tenantDomain, URL jwksUri,
+                                                           String tlsClientAuthSubjectDN) {
+
+        return new MutualTLSClientProfileCacheEntry(clientId, tenantDomain, AuthMode.JWKS, jwksUri, null, null,
+                tlsClientAuthSubjectDN, false);
+    }
+
+    /**
+     * Profile of a client authenticated against its registered certificate. The digests of the registered
+     * certificate are computed when the profile is loaded, so that requests only digest the presented certificate.
+     */
+    public static MutualTLSClientProfileCacheEntry forCertificate(String clientId, String tenantDomain,
+                                                                  byte[] registeredCertThumbprint,
+                                                                  byte[] registeredCertPublicKeyHash,
+                                                                  String tlsClientAuthSubjectDN) {
+
+        return new MutualTLSClientProfileCacheEntry(clientId, tenantDomain, AuthMode.CERTIFICATE, null,
+                registeredCertThumbprint, registeredCertPublicKeyHash, tlsClientAuthSubjectDN, false);
+    }
+
+    /**
+     * Profile of a public client.
+     */
+    public static MutualTLSClientProfileCacheEntry forPublicClient(String clientId, String tenantDomain) {
+
+        return new MutualTLSClientProfileCacheEntry(clientId, tenantDomain, AuthMode.NONE, null, null, null, null,
+                true);
+    }
+
+    public String getClientId() {
+
+        return clientId;
+    }
+
+    public String getTenantDomain() {
+
+        return tenantDomain;
+    }
+
+    public AuthMode getAuthMode() {
+
+        return authMode;
+    }
+
+    /**
+     * @return JWKS endpoint of the client, if authenticated against the JWKS endpoint.
+     */
+    public URL getJwksUri() {
+
+        return jwksUri;
+    }
+
+    /**
+     * @return SHA-256 digest of the registered certificate, if authenticated against the registered certificate.
+     * The returned array must not be modified.
+     */
+    public byte[] getRegisteredCertThumbprint() {
+
+        return registeredCertThumbprint;
+    }
+
+    /**
+     * @return SHA-256 digest of the subject public key info of the registered certificate, if authenticated against
+     * the registered certificate. It is only compared when the certificate digests differ, to tell a renewed
+     * certificate apart from an unrelated one. The returned array must not be modified.
+     */
+    public byte[] getRegisteredCertPublicKeyHash() {
+
+        return registeredCertPublicKeyHash;
+    }
+
+    /**
+     * @return Subject DN the client certificate is expected to have, or null if any subject DN is accepted.
+     */
+    public String getTlsClientAuthSubjectDN() {
+
+        return tlsClientAuthSubjectDN;
+    }
+
+    public boolean isPublicClient() {
+
+        return publicClient;
+    }
+}
@@ -18,21 +18,30 @@
 
 package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache;
 
-import com.nimbusds.jose.util.Resource;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSKeySet;
 
 /**
- * MutualTLSJWKSCacheEntry wraps Resource cache value to make them serializable.
- * This will be used with MutualTLSJWKSCache.
+ * MutualTLSJWKSCacheEntry wraps the parsed and indexed JWK set of a JWKS endpoint. The key set is kept as a transient
+ * value so that cache hits do not parse the JWKS document again. This will be used with MutualTLSJWKSCache.
  */
 public class MutualTLSJWKSCacheEntry extends org.wso2.carbon.identity.core.cache.CacheEntry {
 
-    private transient Resource resource;
+    private transient JWKSKeySet keySet;
+    private final long fetchedTime;
 
-    public MutualTLSJWKSCacheEntry(Resource resource) {
-        this.resource = resource;
+    public MutualTLSJWKSCacheEntry(JWKSKeySet keySet) {
+        this.keySet = keySet;
+        this.fetchedTime = System.currentTimeMillis();
     }
 
-    public Resource getValue() {
-        return resource;
+    public JWKSKeySet getValue() {
+        return keySet;
+    }
+
+    /**
+     * @return Time in milliseconds at which the key set was fetched from the JWKS endpoint.
+     */
+    public long getFetchedTime() {
+        return fetchedTime;
     }
 }
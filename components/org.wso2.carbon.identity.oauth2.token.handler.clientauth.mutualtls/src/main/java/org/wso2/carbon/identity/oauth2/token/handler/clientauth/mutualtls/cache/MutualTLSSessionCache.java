@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local cache binding TLS sessions to the clients successfully authenticated with the certificate of the session.
+ * When a client connects to the server directly, the certificate it presented stays the same for the lifetime of the
+ * TLS session, so later requests on the session only need to confirm that they are sent for the same client.
+ * <p>
+ * TLS sessions are local to the node which terminates them, but the application of a client may be updated through
+ * any node. A TLS session is therefore bound to the entry of its client in the authentication result cache, which is
+ * removed on every node of the cluster when the application of the client is updated or deleted, or when the keys
+ * published at its JWKS endpoint change, and the binding is only valid while that entry is still cached. TLS sessions
+ * are only bound while the authentication result cache is enabled.
+ * <p>
+ * Entries expire after a bounded time even if the TLS session is still open. Once the cache is full, expired entries
+ * and then a sample of the other entries are evicted.
+ */
+public class MutualTLSSessionCache {
+
+    private static final Log log = LogFactory.getLog(MutualTLSSessionCache.class);
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    private static final MutualTLSSessionCache instance = new MutualTLSSessionCache();
+
+    private final long ttl;
+    private final int maxEntries;
+    private final MutualTLSAuthenticationResultCache resultCache;
+    private final Map<String, SessionEntry> sessions = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    private MutualTLSSessionCache() {
+
+        this(readTTL(), readMaxEntries(), MutualTLSAuthenticationResultCache.getInstance());
+        if (ttl > 0 && !resultCache.isEnabled()) {
+            log.warn("TLS sessions are not bound to clients since the Mutual TLS authentication result cache, " +
+                    "which invalidates them across the cluster, is not enabled.");
+        }
+    }
+
+    /**
+     * @param ttl         Time in milliseconds for which a TLS session stays bound to its client, or 0 to not bind
+     *                    any TLS session.
+     * @param maxEntries  Maximum number of bound TLS sessions.
+     * @param resultCache Authentication result cache whose entries the TLS sessions are bound to.
+     */
+    protected MutualTLSSessionCache(long ttl, int maxEntries, MutualTLSAuthenticationResultCache resultCache) {
+
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Returns MutualTLSSessionCache instance
+     *
+     * @return instance of MutualTLSSessionCache
+     */
+    public static MutualTLSSessionCache getInstance() {
+
+        return instance;
+    }
+
+    public boolean isEnabled() {
+
+        return ttl > 0 && resultCache.isEnabled();
+    }
+
+    /**
+     * Check whether the given TLS session is bound to the given client.
+     *
+     * @param sessionId Id of the TLS session of the request.
+     * @param clientId  Client ID of the OAuth application.
+     * @return true if the client was authenticated on the TLS session, the binding has not expired and the cached
+     * results of the client it is bound to were not removed since.
+     */
+    public boolean isAuthenticated(String sessionId, String clientId) {
+
+        if (!isEnabled() || sessionId == null || clientId == null) {
+            return false;
+        }
+        SessionEntry entry = sessions.get(sessionId);
+        if (entry != null && (entry.expiryTime <= getCurrentTime() ||
+                resultCache.getValueFromCache(entry.clientResults.getClientId()) != entry.clientResults)) {
+            sessions.remove(sessionId, entry);
+            entry = null;
+        }
+        if (entry == null || !entry.clientResults.getClientId().equals(clientId)) {
+            missCount.increment();
+            return false;
+        }
+        hitCount.increment();
+        return true;
+    }
+
+    /**
+     * Bind the given TLS session to the client of the given cached results.
+     *
+     * @param sessionId     Id of the TLS session of the request.
+     * @param clientResults Cached results of the client authenticated on the TLS session, taken before the
+     *                      authentication started.
+     */
+    public void addToCache(String sessionId, MutualTLSAuthenticationResultCacheEntry clientResults) {
+
+        if (!isEnabled() || sessionId == null || clientResults == null) {
+            return;
+        }
+        long now = getCurrentTime();
+        sessions.put(sessionId, new SessionEntry(clientResults, now + ttl));
+        if (sessions.size() > maxEntries) {
+            evict(sessionId, now);
+        }
+    }
+
+    /**
+     * Remove all bound TLS sessions.
+     */
+    public void clear() {
+
+        sessions.clear();
+    }
+
+    /**
+     * @return Number of bound TLS sessions.
+     */
+    public int getEntryCount() {
+
+        return sessions.size();
+    }
+
+    public long getHitCount() {
+
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+
+        return missCount.sum();
+    }
+
+    /**
+     * @return Current time in milliseconds, against which the entries expire.
+     */
+    protected long getCurrentTime() {
+
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Evict the expired sessions among a sample of the bound sessions, or the first sampled session if none of them
+     * expired. Session ids are random, so the sample is random as well.
+     */
+    private void evict(String addedSessionId, long now) {
+
+        String evictedSessionId = null;
+        Iterator<Map.Entry<String, SessionEntry>> entries = sessions.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLE_SIZE && entries.hasNext(); i++) {
+            Map.Entry<String, SessionEntry> entry = entries.next();
+            if (entry.getKey().equals(addedSessionId)) {
+                continue;
+            }
+            if (entry.getValue().expiryTime <= now) {
+                entries.remove();
+            } else if (evictedSessionId == null) {
+                evictedSessionId = entry.getKey();
+            }
+        }
+        if (sessions.size() > maxEntries && evictedSessionId != null) {
+            sessions.remove(evictedSessionId);
+        }
+    }
+
+    private static long readTTL() {
+
+        if (!Boolean.parseBoolean(
+                StringUtils.trim(IdentityUtil.getProperty(CommonConstants.TLS_SESSION_CACHE_ENABLE_XPATH)))) {
+            return 0;
+        }
+        return TimeUnit.SECONDS.toMillis(MutualTLSUtil.readIntConfigValue(CommonConstants.TLS_SESSION_CACHE_TTL_XPATH,
+                CommonConstants.DEFAULT_TLS_SESSION_CACHE_TTL, 1));
+    }
+
+    private static int readMaxEntries() {
+
+        return MutualTLSUtil.readIntConfigValue(CommonConstants.TLS_SESSION_CACHE_MAX_ENTRIES_XPATH,
+                CommonConstants.DEFAULT_TLS_SESSION_CACHE_MAX_ENTRIES, 1);
+    }
+
+    private static class SessionEntry {
+
+        private final MutualTLSAuthenticationResultCacheEntry clientResults;
+        private final long expiryTime;
+
+        SessionEntry(MutualTLSAuthenticationResultCacheEntry clientResults, long expiryTime) {
+
+            this.clientResults = clientResults;
+            this.expiryTime = expiryTime;
+        }
+    }
+}
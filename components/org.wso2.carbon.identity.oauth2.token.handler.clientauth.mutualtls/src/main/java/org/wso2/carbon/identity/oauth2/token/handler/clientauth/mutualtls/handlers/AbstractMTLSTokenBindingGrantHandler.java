@@ -19,25 +19,22 @@
 package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.handlers;
 
 import com.nimbusds.jose.util.Base64URL;
-import com.nimbusds.jose.util.X509CertUtils;
-import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.bean.OAuthClientAuthnContext;
 import org.wso2.carbon.identity.oauth2.model.HttpRequestHeader;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientCertificateCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientCertificateCacheEntry;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateDecoder;
 import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
 
-import java.io.ByteArrayInputStream;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
-import java.security.cert.X509Certificate;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * This class contains the common methods of MTLS Token Binding Grant Handlers.
@@ -57,25 +54,16 @@ public class AbstractMTLSTokenBindingGrantHandler {
     public boolean validateScope(OAuthTokenReqMessageContext tokReqMsgCtx, boolean validateScope)
             throws IdentityOAuth2Exception {
 
-        // Get MTLS certificate from transport headers.
-        HttpRequestHeader[] requestHeaders = tokReqMsgCtx.getOauth2AccessTokenReqDTO().getHttpRequestHeaders();
-        String headerName = IdentityUtil.getProperty(CommonConstants.MTLS_AUTH_HEADER);
-
-        Optional<HttpRequestHeader> certHeader =
-                Arrays.stream(requestHeaders).filter(httpRequestHeader ->
-                        headerName.equals(httpRequestHeader.getName())).findFirst();
-
-        String authenticatorType = (String) tokReqMsgCtx.getOauth2AccessTokenReqDTO().getoAuthClientAuthnContext()
-                .getParameter(CommonConstants.AUTHENTICATOR_TYPE_PARAM);
-        if (certHeader.isPresent() && CommonConstants.AUTHENTICATOR_TYPE_MTLS.equals(authenticatorType)) {
+        OAuthClientAuthnContext clientAuthnContext =
+                tokReqMsgCtx.getOauth2AccessTokenReqDTO().getoAuthClientAuthnContext();
+        String authenticatorType = (String) clientAuthnContext.getParameter(CommonConstants.AUTHENTICATOR_TYPE_PARAM);
+        if (CommonConstants.AUTHENTICATOR_TYPE_MTLS.equals(authenticatorType)) {
             Base64URL certThumbprint = null;
-            if (log.isDebugEnabled()) {
-                log.debug("Client MTLS certificate found: " + certHeader);
-            }
             try {
-                if (certHeader.get().getValue() != null) {
-                    X509Certificate certificate = parseCertificate(certHeader.get().getValue()[0]);
-                    certThumbprint = X509CertUtils.computeSHA256Thumbprint(certificate);
+                MutualTLSClientCertificateCacheEntry certificateEntry = getCertificateEntry(tokReqMsgCtx,
+                        clientAuthnContext);
+                if (certificateEntry != null) {
+                    certThumbprint = certificateEntry.getSHA256Thumbprint();
                 }
             } catch (CertificateException e) {
                 if (log.isDebugEnabled()) {
@@ -102,23 +90,61 @@ public class AbstractMTLSTokenBindingGrantHandler {
     }
 
     /**
-     * Return X509 Certificate for the given Certificate Content.
+     * Return the certificate sent in the certificate header of the token request. The Mutual TLS authenticator
+     * publishes the certificate it parsed from the header on the client authentication context, in which case the
+     * header is neither looked up nor parsed again.
      *
-     * @param content Certificate Content.
-     * @return X509Certificate.
+     * @param tokReqMsgCtx       Message context of token request.
+     * @param clientAuthnContext Client authentication context of the token request.
+     * @return Cache entry holding the parsed certificate, or null if the request has no certificate header.
      * @throws CertificateException Certificate Exception.
      */
-    private static X509Certificate parseCertificate(String content) throws CertificateException {
+    private static MutualTLSClientCertificateCacheEntry getCertificateEntry(
+            OAuthTokenReqMessageContext tokReqMsgCtx, OAuthClientAuthnContext clientAuthnContext)
+            throws CertificateException {
 
-        // Trim extra spaces.
-        String decodedContent = StringUtils.trim(content);
+        Object publishedEntry = clientAuthnContext.getParameter(CommonConstants.MTLS_CLIENT_CERTIFICATE_PARAM);
+        if (publishedEntry instanceof MutualTLSClientCertificateCacheEntry) {
+            if (log.isDebugEnabled()) {
+                log.debug("Using the client MTLS certificate resolved during client authentication.");
+            }
+            return (MutualTLSClientCertificateCacheEntry) publishedEntry;
+        }
 
-        // Remove certificate headers.
-        byte[] decoded = Base64.getDecoder().decode(StringUtils.trim(decodedContent
-                .replaceAll(CommonConstants.BEGIN_CERT, StringUtils.EMPTY)
-                .replaceAll(CommonConstants.END_CERT, StringUtils.EMPTY)));
+        // Get MTLS certificate from transport headers.
+        HttpRequestHeader[] requestHeaders = tokReqMsgCtx.getOauth2AccessTokenReqDTO().getHttpRequestHeaders();
+        String headerName = IdentityUtil.getProperty(CommonConstants.MTLS_AUTH_HEADER);
+        if (requestHeaders == null || headerName == null) {
+            return null;
+        }
+        for (HttpRequestHeader requestHeader : requestHeaders) {
+            if (headerName.equals(requestHeader.getName())) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Client MTLS certificate found: " + requestHeader);
+                }
+                String[] values = requestHeader.getValue();
+                return values != null ? getCertificateEntry(values[0]) : null;
+            }
+        }
+        return null;
+    }
 
-        return (X509Certificate) CertificateFactory.getInstance(CommonConstants.X509)
-                .generateCertificate(new ByteArrayInputStream(decoded));
+    /**
+     * Return the cached certificate parsed from the given certificate header value, parsing it on a cache miss.
+     *
+     * @param content Certificate Content.
+     * @return Cache entry holding the parsed certificate.
+     * @throws CertificateException Certificate Exception.
+     */
+    private static MutualTLSClientCertificateCacheEntry getCertificateEntry(String content)
+            throws CertificateException {
+
+        MutualTLSClientCertificateCacheEntry cacheEntry =
+                MutualTLSClientCertificateCache.getInstance().getValueFromCache(content);
+        if (cacheEntry == null) {
+            cacheEntry = new MutualTLSClientCertificateCacheEntry(CertificateDecoder.decode(content));
+            MutualTLSClientCertificateCache.getInstance().addToCache(content, cacheEntry);
+        }
+        return cacheEntry;
     }
 }
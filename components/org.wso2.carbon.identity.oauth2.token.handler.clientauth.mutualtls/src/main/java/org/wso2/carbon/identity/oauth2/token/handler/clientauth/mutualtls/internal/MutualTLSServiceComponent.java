@@ -24,12 +24,19 @@ import org.osgi.framework.BundleContext;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.wso2.carbon.identity.application.mgt.listener.ApplicationMgtListener;
 import org.wso2.carbon.identity.oauth.event.OAuthEventInterceptor;
 import org.wso2.carbon.identity.oauth2.IntrospectionDataProvider;
 import org.wso2.carbon.identity.oauth2.client.authentication.OAuthClientAuthenticator;
 import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.MutualTLSClientAuthenticator;
 import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.introspection.ISIntrospectionDataProvider;
 import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.introspection.IntrospectionResponseInterceptor;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSKeySetProvider;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSRefreshScheduler;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.listener.MutualTLSApplicationMgtListener;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.listener.MutualTLSOAuthEventInterceptor;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.metrics.MutualTLSMetrics;
 
 /**
  * TLS Mutual Auth osgi Component.
@@ -42,6 +49,8 @@ public class MutualTLSServiceComponent {
 
     private static final Log log = LogFactory.getLog(MutualTLSServiceComponent.class);
 
+    private JWKSRefreshScheduler jwksRefreshScheduler;
+
     @Activate
     protected void activate(ComponentContext context) {
 
@@ -56,6 +65,17 @@ public class MutualTLSServiceComponent {
                     null);
             bundleContext.registerService(IntrospectionDataProvider.class.getName(), isIntrospectionDataProvider,
                     null);
+            // Clear the cached client profiles when applications are updated or deleted.
+            bundleContext.registerService(ApplicationMgtListener.class.getName(),
+                    new MutualTLSApplicationMgtListener(), null);
+            bundleContext.registerService(OAuthEventInterceptor.class.getName(), new MutualTLSOAuthEventInterceptor(),
+                    null);
+            JWKSKeySetProvider jwksKeySetProvider = JWKSKeySetProvider.getInstance();
+            if (jwksKeySetProvider.getConfig().isBackgroundRefreshEnabled()) {
+                jwksRefreshScheduler = new JWKSRefreshScheduler(jwksKeySetProvider);
+                jwksRefreshScheduler.start();
+            }
+            MutualTLSMetrics.getInstance().registerMBeans();
             if (log.isDebugEnabled()) {
                 log.debug("Mutual TLS bundle is activated");
             }
@@ -64,4 +84,17 @@ public class MutualTLSServiceComponent {
             log.error("Error occurred while registering MTLS component.", e);
         }
     }
+
+    @Deactivate
+    protected void deactivate(ComponentContext context) {
+
+        if (jwksRefreshScheduler != null) {
+            jwksRefreshScheduler.stop();
+            jwksRefreshScheduler = null;
+        }
+        MutualTLSMetrics.getInstance().unregisterMBeans();
+        if (log.isDebugEnabled()) {
+            log.debug("Mutual TLS bundle is deactivated");
+        }
+    }
 }
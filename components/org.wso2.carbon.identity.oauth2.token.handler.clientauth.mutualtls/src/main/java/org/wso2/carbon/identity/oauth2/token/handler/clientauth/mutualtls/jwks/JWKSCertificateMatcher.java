@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
+
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+
+/**
+ * Matches the certificate presented by a client against indexed JWK sets. The matcher holds the SHA-256 digest of the
+ * presented certificate, which is computed once per request, so that matching against any number of key sets, of any
+ * size, costs hash lookups on the raw digest only.
+ */
+public class JWKSCertificateMatcher {
+
+    /**
+     * Attribute of the JWK set which matched the presented certificate.
+     */
+    public enum Match {
+        /**
+         * A key publishes the thumbprint of the certificate as its x5t attribute.
+         */
+        X5T,
+        /**
+         * A key carries the certificate in its x5c attribute.
+         */
+        X5C,
+        /**
+         * No key of the set matches the certificate.
+         */
+        NONE
+    }
+
+    private final byte[] certificateDigest;
+
+    /**
+     * @param certificateDigest Precomputed SHA-256 digest of the presented certificate. The array must not be
+     *                          modified afterwards.
+     */
+    public JWKSCertificateMatcher(byte[] certificateDigest) {
+
+        this.certificateDigest = certificateDigest;
+    }
+
+    /**
+     * Create a matcher for the given certificate, computing its digest.
+     *
+     * @param certificate Certificate presented by the client.
+     * @return Matcher for the certificate.
+     * @throws CertificateEncodingException If the certificate cannot be encoded.
+     */
+    public static JWKSCertificateMatcher forCertificate(X509Certificate certificate)
+            throws CertificateEncodingException {
+
+        return new JWKSCertificateMatcher(CertificateThumbprint.sha256(certificate));
+    }
+
+    /**
+     * Match the certificate against the given key set. An x5t match takes precedence over an x5c match.
+     *
+     * @param keySet Indexed JWK set.
+     * @return Attribute of the key set which matched the certificate.
+     */
+    public Match match(JWKSKeySet keySet) {
+
+        if (keySet == null || certificateDigest == null) {
+            return Match.NONE;
+        }
+        if (keySet.containsX5tDigest(certificateDigest)) {
+            return Match.X5T;
+        }
+        if (keySet.containsX5cDigest(certificateDigest)) {
+            return Match.X5C;
+        }
+        return Match.NONE;
+    }
+
+    /**
+     * @return SHA-256 digest of the presented certificate. The returned array must not be modified.
+     */
+    public byte[] getCertificateDigest() {
+
+        return certificateDigest;
+    }
+}
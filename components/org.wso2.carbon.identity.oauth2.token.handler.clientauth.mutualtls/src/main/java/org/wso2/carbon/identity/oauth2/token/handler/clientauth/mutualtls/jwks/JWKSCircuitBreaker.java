@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker guarding the fetches of a single JWKS endpoint. All times are in milliseconds.
+ * <p>
+ * The breaker opens after the configured number of consecutive failed fetches. While it is open, fetches are
+ * rejected without calling the endpoint. Once the backoff has elapsed one trial fetch is let through (half-open).
+ * A successful trial closes the breaker, and a failed one opens it again with the backoff doubled, up to the
+ * configured maximum.
+ */
+public class JWKSCircuitBreaker {
+
+    /**
+     * States of the circuit breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long initialBackoff;
+    private final long maxBackoff;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long backoff;
+    private long retryTime;
+    private long trialStartTime;
+
+    private final LongAdder successCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder openCount = new LongAdder();
+
+    public JWKSCircuitBreaker(JWKSConfig config) {
+
+        this.failureThreshold = config.getCircuitBreakerFailureThreshold();
+        this.initialBackoff = config.getCircuitBreakerInitialBackoff();
+        this.maxBackoff = config.getCircuitBreakerMaxBackoff();
+    }
+
+    /**
+     * Check whether a fetch of the endpoint may be made. A fetch allowed while the breaker is open is the half-open
+     * trial, and its outcome must be recorded.
+     *
+     * @param now Current time.
+     * @return true if the fetch may be made.
+     */
+    public synchronized boolean allowRequest(long now) {
+
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now >= retryTime) {
+                    state = State.HALF_OPEN;
+                    trialStartTime = now;
+                    return true;
+                }
+                break;
+            default:
+                // Let another trial through if the outcome of the previous one was never recorded.
+                if (now - trialStartTime >= maxBackoff) {
+                    trialStartTime = now;
+                    return true;
+                }
+                break;
+        }
+        rejectedCount.increment();
+        return false;
+    }
+
+    /**
+     * Record a successful fetch of the endpoint, which closes the breaker.
+     *
+     * @return true if the breaker was open or half-open.
+     */
+    public synchronized boolean recordSuccess() {
+
+        successCount.increment();
+        boolean closed = state != State.CLOSED;
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        backoff = 0;
+        retryTime = 0;
+        return closed;
+    }
+
+    /**
+     * Record a failed fetch of the endpoint.
+     *
+     * @param now Time of the failure.
+     * @return true if the failure opened the breaker.
+     */
+    public synchronized boolean recordFailure(long now) {
+
+        failureCount.increment();
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            open(Math.min(backoff * 2, maxBackoff), now);
+            return true;
+        }
+        if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            open(Math.min(initialBackoff, maxBackoff), now);
+            return true;
+        }
+        return false;
+    }
+
+    private void open(long openBackoff, long now) {
+
+        state = State.OPEN;
+        backoff = openBackoff;
+        retryTime = now + openBackoff;
+        openCount.increment();
+    }
+
+    public synchronized State getState() {
+
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return Time after which the next trial fetch is allowed, or zero if the breaker has not opened.
+     */
+    public synchronized long getRetryTime() {
+
+        return retryTime;
+    }
+
+    public synchronized long getBackoff() {
+
+        return backoff;
+    }
+
+    public long getSuccessCount() {
+
+        return successCount.sum();
+    }
+
+    public long getFailureCount() {
+
+        return failureCount.sum();
+    }
+
+    /**
+     * @return Number of fetches rejected without calling the endpoint.
+     */
+    public long getRejectedCount() {
+
+        return rejectedCount.sum();
+    }
+
+    /**
+     * @return Number of times the breaker has opened.
+     */
+    public long getOpenCount() {
+
+        return openCount.sum();
+    }
+}
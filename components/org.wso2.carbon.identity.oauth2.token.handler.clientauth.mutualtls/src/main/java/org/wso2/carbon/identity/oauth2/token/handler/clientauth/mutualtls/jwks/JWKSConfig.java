@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration of the retrieval and caching of JWK sets from JWKS endpoints. All time values are in milliseconds.
+ */
+public class JWKSConfig {
+
+    private int connectTimeout;
+    private int readTimeout;
+    private int maxConnectionsPerHost = CommonConstants.DEFAULT_JWKS_MAX_CONNECTIONS_PER_HOST;
+    private int maxResponseSize = CommonConstants.DEFAULT_JWKS_MAX_RESPONSE_SIZE;
+    private int maxConcurrentFetches = CommonConstants.DEFAULT_JWKS_MAX_CONCURRENT_FETCHES;
+    private int maxWaitingRequests = CommonConstants.DEFAULT_JWKS_MAX_WAITING_REQUESTS;
+    private long queueTimeout = CommonConstants.DEFAULT_JWKS_QUEUE_TIMEOUT;
+    private long fetchWaitTimeout;
+    private long softTTL = TimeUnit.SECONDS.toMillis(CommonConstants.DEFAULT_JWKS_CACHE_SOFT_TTL);
+    private long hardTTL = TimeUnit.SECONDS.toMillis(CommonConstants.DEFAULT_JWKS_CACHE_HARD_TTL);
+    private boolean staleWhileRevalidate;
+    private boolean staleIfError;
+    private long idleTimeout = TimeUnit.SECONDS.toMillis(CommonConstants.DEFAULT_JWKS_CACHE_IDLE_TIMEOUT);
+    private boolean backgroundRefreshEnabled;
+    private long minRefreshInterval =
+            TimeUnit.SECONDS.toMillis(CommonConstants.DEFAULT_JWKS_BACKGROUND_REFRESH_MIN_INTERVAL);
+    private long maxRefreshInterval =
+            TimeUnit.SECONDS.toMillis(CommonConstants.DEFAULT_JWKS_BACKGROUND_REFRESH_MAX_INTERVAL);
+    private int circuitBreakerFailureThreshold = CommonConstants.DEFAULT_JWKS_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+    private long circuitBreakerInitialBackoff =
+            TimeUnit.SECONDS.toMillis(CommonConstants.DEFAULT_JWKS_CIRCUIT_BREAKER_INITIAL_BACKOFF);
+    private long circuitBreakerMaxBackoff =
+            TimeUnit.SECONDS.toMillis(CommonConstants.DEFAULT_JWKS_CIRCUIT_BREAKER_MAX_BACKOFF);
+
+    /**
+     * Read the configuration from identity.xml. Values that are not configured keep their defaults.
+     *
+     * @return JWKS configuration.
+     */
+    public static JWKSConfig load() {
+
+        JWKSConfig config = new JWKSConfig();
+        config.setConnectTimeout(
+                MutualTLSUtil.readHTTPConnectionConfigValue(CommonConstants.HTTP_CONNECTION_TIMEOUT_XPATH));
+        config.setReadTimeout(MutualTLSUtil.readHTTPConnectionConfigValue(CommonConstants.HTTP_READ_TIMEOUT_XPATH));
+        int maxConnectionsPerHost =
+                MutualTLSUtil.readIntConfigValue(CommonConstants.JWKS_MAX_CONNECTIONS_PER_HOST_XPATH);
+        if (maxConnectionsPerHost > 0) {
+            config.setMaxConnectionsPerHost(maxConnectionsPerHost);
+        }
+        int maxResponseSize = MutualTLSUtil.readIntConfigValue(CommonConstants.JWKS_MAX_RESPONSE_SIZE_XPATH);
+        if (maxResponseSize > 0) {
+            config.setMaxResponseSize(maxResponseSize);
+        }
+        int maxConcurrentFetches = MutualTLSUtil.readIntConfigValue(CommonConstants.JWKS_MAX_CONCURRENT_FETCHES_XPATH);
+        if (maxConcurrentFetches > 0) {
+            config.setMaxConcurrentFetches(maxConcurrentFetches);
+        }
+        int maxWaitingRequests = MutualTLSUtil.readIntConfigValue(CommonConstants.JWKS_MAX_WAITING_REQUESTS_XPATH);
+        if (maxWaitingRequests > 0) {
+            config.setMaxWaitingRequests(maxWaitingRequests);
+        }
+        int queueTimeout = MutualTLSUtil.readIntConfigValue(CommonConstants.JWKS_QUEUE_TIMEOUT_XPATH);
+        if (queueTimeout > 0) {
+            config.setQueueTimeout(queueTimeout);
+        }
+        int fetchWaitTimeout = MutualTLSUtil.readIntConfigValue(CommonConstants.JWKS_FETCH_WAIT_TIMEOUT_XPATH);
+        if (fetchWaitTimeout > 0) {
+            config.setFetchWaitTimeout(fetchWaitTimeout);
+        }
+        int softTTL = MutualTLSUtil.readIntConfigValue(CommonConstants.JWKS_CACHE_SOFT_TTL_XPATH);
+        if (softTTL > 0) {
+            config.setSoftTTL(TimeUnit.SECONDS.toMillis(softTTL));
+        }
+        int hardTTL = MutualTLSUtil.readIntConfigValue(CommonConstants.JWKS_CACHE_HARD_TTL_XPATH);
+        if (hardTTL > 0) {
+            config.setHardTTL(TimeUnit.SECONDS.toMillis(hardTTL));
+        }
+        config.setStaleWhileRevalidate(Boolean.parseBoolean(
+                IdentityUtil.getProperty(CommonConstants.JWKS_CACHE_STALE_WHILE_REVALIDATE_XPATH)));
+        config.setStaleIfError(Boolean.parseBoolean(
+                IdentityUtil.getProperty(CommonConstants.JWKS_CACHE_STALE_IF_ERROR_XPATH)));
+        int idleTimeout = MutualTLSUtil.readIntConfigValue(CommonConstants.JWKS_CACHE_IDLE_TIMEOUT_XPATH);
+        if (idleTimeout > 0) {
+            config.setIdleTimeout(TimeUnit.SECONDS.toMillis(idleTimeout));
+        }
+        config.setBackgroundRefreshEnabled(Boolean.parseBoolean(
+                IdentityUtil.getProperty(CommonConstants.JWKS_BACKGROUND_REFRESH_ENABLE_XPATH)));
+        int minRefreshInterval =
+                MutualTLSUtil.readIntConfigValue(CommonConstants.JWKS_BACKGROUND_REFRESH_MIN_INTERVAL_XPATH);
+        if (minRefreshInterval > 0) {
+            config.setMinRefreshInterval(TimeUnit.SECONDS.toMillis(minRefreshInterval));
+        }
+        int maxRefreshInterval =
+                MutualTLSUtil.readIntConfigValue(CommonConstants.JWKS_BACKGROUND_REFRESH_MAX_INTERVAL_XPATH);
+        if (maxRefreshInterval > 0) {
+            config.setMaxRefreshInterval(TimeUnit.SECONDS.toMillis(maxRefreshInterval));
+        }
+        int failureThreshold = MutualTLSUtil.readIntConfigValue(
+                CommonConstants.JWKS_CIRCUIT_BREAKER_FAILURE_THRESHOLD_XPATH);
+        if (failureThreshold > 0) {
+            config.setCircuitBreakerFailureThreshold(failureThreshold);
+        }
+        int initialBackoff = MutualTLSUtil.readIntConfigValue(
+                CommonConstants.JWKS_CIRCUIT_BREAKER_INITIAL_BACKOFF_XPATH);
+        if (initialBackoff > 0) {
+            config.setCircuitBreakerInitialBackoff(TimeUnit.SECONDS.toMillis(initialBackoff));
+        }
+        int maxBackoff = MutualTLSUtil.readIntConfigValue(CommonConstants.JWKS_CIRCUIT_BREAKER_MAX_BACKOFF_XPATH);
+        if (maxBackoff > 0) {
+            config.setCircuitBreakerMaxBackoff(TimeUnit.SECONDS.toMillis(maxBackoff));
+        }
+        return config;
+    }
+
+    /**
+     * @return HTTP connection timeout of JWKS fetches. Zero means no timeout.
+     */
+    public int getConnectTimeout() {
+
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @return Time a JWKS fetch waits for the response of the endpoint. Zero means no timeout.
+     */
+    public int getReadTimeout() {
+
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * @return Number of requests that may be made to the same host at a time.
+     */
+    public int getMaxConnectionsPerHost() {
+
+        return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    /**
+     * @return Size in bytes above which a JWKS response is rejected, configured as
+     * MutualTLS.JWKSEndpoint.MaxResponseSize. Defaults to 1 MB.
+     */
+    public int getMaxResponseSize() {
+
+        return maxResponseSize;
+    }
+
+    public void setMaxResponseSize(int maxResponseSize) {
+
+        this.maxResponseSize = maxResponseSize;
+    }
+
+    /**
+     * @return Number of JWKS fetches that may be in flight at a time, across all JWKS endpoints.
+     */
+    public int getMaxConcurrentFetches() {
+
+        return maxConcurrentFetches;
+    }
+
+    public void setMaxConcurrentFetches(int maxConcurrentFetches) {
+
+        this.maxConcurrentFetches = maxConcurrentFetches;
+    }
+
+    /**
+     * @return Number of requests that may wait at a time for the fetch of the same JWKS endpoint, or zero if they are
+     * not limited.
+     */
+    public int getMaxWaitingRequests() {
+
+        return maxWaitingRequests;
+    }
+
+    public void setMaxWaitingRequests(int maxWaitingRequests) {
+
+        this.maxWaitingRequests = maxWaitingRequests;
+    }
+
+    /**
+     * @return Time a request waits for a free slot among the requests waiting for the same JWKS endpoint, when they
+     * are limited. The request then waits up to the fetch wait timeout for the fetch.
+     */
+    public long getQueueTimeout() {
+
+        return queueTimeout;
+    }
+
+    public void setQueueTimeout(long queueTimeout) {
+
+        this.queueTimeout = queueTimeout;
+    }
+
+    /**
+     * Unless configured, the fetch wait timeout is long enough for the endpoint to accept the connection and respond
+     * within the HTTP connect and read timeouts, so that it never cuts a fetch short of them.
+     *
+     * @return Time after which a fetch of a JWKS endpoint fails, and up to which a request waits for the fetch.
+     */
+    public long getFetchWaitTimeout() {
+
+        if (fetchWaitTimeout > 0) {
+            return fetchWaitTimeout;
+        }
+        return Math.max(CommonConstants.DEFAULT_JWKS_FETCH_WAIT_TIMEOUT,
+                (long) Math.max(connectTimeout, 0) + Math.max(readTimeout, 0));
+    }
+
+    public void setFetchWaitTimeout(long fetchWaitTimeout) {
+
+        this.fetchWaitTimeout = fetchWaitTimeout;
+    }
+
+    /**
+     * @return Age after which a cached key set is refreshed in the background when stale-while-revalidate is enabled.
+     */
+    public long getSoftTTL() {
+
+        return softTTL;
+    }
+
+    public void setSoftTTL(long softTTL) {
+
+        this.softTTL = softTTL;
+    }
+
+    /**
+     * @return Age after which a last known good key set is no longer served.
+     */
+    public long getHardTTL() {
+
+        return hardTTL;
+    }
+
+    public void setHardTTL(long hardTTL) {
+
+        this.hardTTL = hardTTL;
+    }
+
+    public boolean isStaleWhileRevalidate() {
+
+        return staleWhileRevalidate;
+    }
+
+    public void setStaleWhileRevalidate(boolean staleWhileRevalidate) {
+
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    public boolean isStaleIfError() {
+
+        return staleIfError;
+    }
+
+    public void setStaleIfError(boolean staleIfError) {
+
+        this.staleIfError = staleIfError;
+    }
+
+    /**
+     * @return Time after its last use at which the state kept for a JWKS endpoint is discarded.
+     */
+    public long getIdleTimeout() {
+
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+
+        this.idleTimeout = idleTimeout;
+    }
+
+    public boolean isBackgroundRefreshEnabled() {
+
+        return backgroundRefreshEnabled;
+    }
+
+    public void setBackgroundRefreshEnabled(boolean backgroundRefreshEnabled) {
+
+        this.backgroundRefreshEnabled = backgroundRefreshEnabled;
+    }
+
+    /**
+     * @return Lower bound of the refresh interval learned for a JWKS endpoint.
+     */
+    public long getMinRefreshInterval() {
+
+        return minRefreshInterval;
+    }
+
+    public void setMinRefreshInterval(long minRefreshInterval) {
+
+        this.minRefreshInterval = minRefreshInterval;
+    }
+
+    /**
+     * @return Upper bound of the refresh interval learned for a JWKS endpoint.
+     */
+    public long getMaxRefreshInterval() {
+
+        return maxRefreshInterval;
+    }
+
+    public void setMaxRefreshInterval(long maxRefreshInterval) {
+
+        this.maxRefreshInterval = maxRefreshInterval;
+    }
+
+    /**
+     * @return Number of consecutive failed fetches after which the circuit breaker of a JWKS endpoint opens.
+     */
+    public int getCircuitBreakerFailureThreshold() {
+
+        return circuitBreakerFailureThreshold;
+    }
+
+    public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * @return Time the circuit breaker of a JWKS endpoint stays open the first time it opens.
+     */
+    public long getCircuitBreakerInitialBackoff() {
+
+        return circuitBreakerInitialBackoff;
+    }
+
+    public void setCircuitBreakerInitialBackoff(long circuitBreakerInitialBackoff) {
+
+        this.circuitBreakerInitialBackoff = circuitBreakerInitialBackoff;
+    }
+
+    /**
+     * @return Upper bound of the time the circuit breaker of a JWKS endpoint stays open.
+     */
+    public long getCircuitBreakerMaxBackoff() {
+
+        return circuitBreakerMaxBackoff;
+    }
+
+    public void setCircuitBreakerMaxBackoff(long circuitBreakerMaxBackoff) {
+
+        this.circuitBreakerMaxBackoff = circuitBreakerMaxBackoff;
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCacheKey;
+
+import java.net.URL;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * State kept for a JWKS endpoint across fetches: the last key set fetched from it, the refresh interval learned
+ * from how often its content changes, and the circuit breaker guarding its fetches. All times are in milliseconds.
+ * <p>
+ * The refresh interval follows the Cache-Control max-age of the endpoint when it sends one. Otherwise it is doubled
+ * every time a fetch returns unchanged content, and shortened to half of the time since the previous change when the
+ * content changes. The interval is always kept within the configured minimum and maximum.
+ * <p>
+ * The state of each endpoint in use, including its circuit breaker, is exposed as an MXBean when metrics are enabled.
+ */
+public class JWKSEndpointState implements JWKSEndpointStateMXBean {
+
+    private final URL jwksUri;
+    private final MutualTLSJWKSCacheKey cacheKey;
+    private final JWKSCircuitBreaker circuitBreaker;
+    private final Semaphore waitingRequestPermits;
+    private final AtomicInteger waitingRequestCount = new AtomicInteger();
+    private volatile JWKSKeySet keySet;
+    private volatile String eTag;
+    private volatile String lastModified;
+    private volatile long lastFetchTime;
+    private volatile long lastChangeTime;
+    private volatile long lastAccessTime;
+    private volatile long refreshInterval;
+    private volatile long nextRefreshTime;
+
+    public JWKSEndpointState(URL jwksUri, long now, JWKSConfig config) {
+
+        this.jwksUri = jwksUri;
+        this.cacheKey = new MutualTLSJWKSCacheKey(jwksUri.toString());
+        this.circuitBreaker = new JWKSCircuitBreaker(config);
+        this.waitingRequestPermits =
+                config.getMaxWaitingRequests() > 0 ? new Semaphore(config.getMaxWaitingRequests()) : null;
+        this.lastAccessTime = now;
+    }
+
+    /**
+     * Record a successful fetch of the JWKS endpoint and compute the time of the next refresh.
+     *
+     * @param fetchedKeySet Key set returned by the endpoint.
+     * @param maxAge        Cache-Control max-age of the response, or -1 if it had none.
+     * @param now           Time of the fetch.
+     * @param config        JWKS configuration.
+     * @return true if the keys differ from the keys of the previous fetch.
+     */
+    public synchronized boolean recordFetch(JWKSKeySet fetchedKeySet, long maxAge, long now, JWKSConfig config) {
+
+        boolean firstFetch = keySet == null;
+        boolean changed = firstFetch || !keySet.hasSameKeys(fetchedKeySet);
+        long interval;
+        if (maxAge >= 0) {
+            interval = maxAge;
+        } else if (firstFetch) {
+            interval = config.getSoftTTL();
+        } else if (changed) {
+            interval = Math.min(refreshInterval, (now - lastChangeTime) / 2);
+        } else {
+            interval = refreshInterval * 2;
+        }
+        refreshInterval = Math.max(config.getMinRefreshInterval(), Math.min(config.getMaxRefreshInterval(), interval));
+        if (changed) {
+            lastChangeTime = now;
+        }
+        keySet = fetchedKeySet;
+        lastFetchTime = now;
+        nextRefreshTime = now + refreshInterval;
+        return !firstFetch && changed;
+    }
+
+    /**
+     * Record the validators of the last fetched key set, to be sent with the next conditional request. Validators
+     * missing from a not modified response keep their previous values.
+     *
+     * @param response Response of the endpoint.
+     */
+    public synchronized void recordValidators(JWKSResponse response) {
+
+        if (!response.isNotModified() || response.getETag() != null) {
+            eTag = response.getETag();
+        }
+        if (!response.isNotModified() || response.getLastModified() != null) {
+            lastModified = response.getLastModified();
+        }
+    }
+
+    /**
+     * Record that the key set of the endpoint was requested.
+     *
+     * @param now Time of the request.
+     */
+    public void recordAccess(long now) {
+
+        lastAccessTime = now;
+    }
+
+    public URL getJwksUri() {
+
+        return jwksUri;
+    }
+
+    public MutualTLSJWKSCacheKey getCacheKey() {
+
+        return cacheKey;
+    }
+
+    public JWKSCircuitBreaker getCircuitBreaker() {
+
+        return circuitBreaker;
+    }
+
+    /**
+     * Start waiting for the fetch of the endpoint. If the waiting requests are limited and the limit is reached, wait
+     * up to the given timeout for one of them to finish.
+     *
+     * @param timeout Time to wait for a waiting request to finish.
+     * @return true if the request may wait for the fetch, in which case {@link #finishWaiting()} must be called.
+     * @throws InterruptedException If interrupted while waiting for a waiting request to finish.
+     */
+    boolean startWaiting(long timeout) throws InterruptedException {
+
+        if (waitingRequestPermits != null && !waitingRequestPermits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        waitingRequestCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Finish waiting for the fetch of the endpoint, after {@link #startWaiting(long)} allowed the request to wait.
+     */
+    void finishWaiting() {
+
+        waitingRequestCount.decrementAndGet();
+        if (waitingRequestPermits != null) {
+            waitingRequestPermits.release();
+        }
+    }
+
+    @Override
+    public int getWaitingRequestCount() {
+
+        return waitingRequestCount.get();
+    }
+
+    /**
+     * @return Last key set fetched from the endpoint, or null if no fetch has succeeded yet.
+     */
+    public JWKSKeySet getKeySet() {
+
+        return keySet;
+    }
+
+    /**
+     * @return ETag of the last fetched key set, or null if the endpoint did not send one.
+     */
+    public String getETag() {
+
+        return eTag;
+    }
+
+    /**
+     * @return Last-Modified value of the last fetched key set, or null if the endpoint did not send one.
+     */
+    public String getLastModified() {
+
+        return lastModified;
+    }
+
+    @Override
+    public long getLastFetchTime() {
+
+        return lastFetchTime;
+    }
+
+    @Override
+    public long getLastChangeTime() {
+
+        return lastChangeTime;
+    }
+
+    @Override
+    public long getLastAccessTime() {
+
+        return lastAccessTime;
+    }
+
+    @Override
+    public long getRefreshInterval() {
+
+        return refreshInterval;
+    }
+
+    @Override
+    public long getNextRefreshTime() {
+
+        return nextRefreshTime;
+    }
+
+    @Override
+    public String getCircuitBreakerState() {
+
+        return circuitBreaker.getState().name();
+    }
+
+    @Override
+    public int getConsecutiveFailures() {
+
+        return circuitBreaker.getConsecutiveFailures();
+    }
+
+    @Override
+    public long getCircuitBreakerRetryTime() {
+
+        return circuitBreaker.getRetryTime();
+    }
+
+    @Override
+    public long getCircuitBreakerOpenCount() {
+
+        return circuitBreaker.getOpenCount();
+    }
+
+    @Override
+    public long getFetchSuccessCount() {
+
+        return circuitBreaker.getSuccessCount();
+    }
+
+    @Override
+    public long getFetchFailureCount() {
+
+        return circuitBreaker.getFailureCount();
+    }
+
+    @Override
+    public long getRejectedFetchCount() {
+
+        return circuitBreaker.getRejectedCount();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+/**
+ * Management interface of the state of a JWKS endpoint. Times are in milliseconds since the epoch, and intervals in
+ * milliseconds.
+ */
+public interface JWKSEndpointStateMXBean {
+
+    /**
+     * @return Time of the last successful fetch, or zero if no fetch has succeeded yet.
+     */
+    long getLastFetchTime();
+
+    /**
+     * @return Time of the fetch that last returned different keys than the fetch before it.
+     */
+    long getLastChangeTime();
+
+    /**
+     * @return Time at which the key set of the endpoint was last requested.
+     */
+    long getLastAccessTime();
+
+    /**
+     * @return Interval between refreshes of the key set, learned from the endpoint.
+     */
+    long getRefreshInterval();
+
+    /**
+     * @return Time at which the key set is due to be refreshed, or zero if no fetch has succeeded yet.
+     */
+    long getNextRefreshTime();
+
+    /**
+     * @return Number of requests currently waiting for the fetch of the endpoint.
+     */
+    int getWaitingRequestCount();
+
+    /**
+     * @return State of the circuit breaker guarding the fetches of the endpoint: CLOSED, OPEN or HALF_OPEN.
+     */
+    String getCircuitBreakerState();
+
+    /**
+     * @return Number of consecutive failed fetches of the endpoint.
+     */
+    int getConsecutiveFailures();
+
+    /**
+     * @return Time after which the next trial fetch is allowed, or zero if the breaker has not opened.
+     */
+    long getCircuitBreakerRetryTime();
+
+    /**
+     * @return Number of times the circuit breaker has opened.
+     */
+    long getCircuitBreakerOpenCount();
+
+    /**
+     * @return Number of successful fetches of the endpoint.
+     */
+    long getFetchSuccessCount();
+
+    /**
+     * @return Number of failed fetches of the endpoint.
+     */
+    long getFetchFailureCount();
+
+    /**
+     * @return Number of fetches rejected by the circuit breaker without calling the endpoint.
+     */
+    long getRejectedFetchCount();
+}
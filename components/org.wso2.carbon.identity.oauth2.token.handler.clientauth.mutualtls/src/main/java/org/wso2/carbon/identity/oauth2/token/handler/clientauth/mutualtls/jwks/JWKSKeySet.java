@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable, pre-parsed view of a JWK set retrieved from a JWKS endpoint, indexed by the SHA-256 digest of the
+ * certificates it publishes. The JWK set is parsed and indexed once when it is fetched, so that matching a client
+ * certificate against the set is a hash lookup on the raw digest instead of a JSON parse and a scan over every key.
+ * An x5t attribute which is not a thumbprint in the format of the OAuth2 component can never match a certificate and
+ * is not indexed. A key whose x5c certificate cannot be parsed is left out of the index and logged, so that it does
+ * not make the other keys of the set unusable. A cached set is read by every request of its clients, so its keys are
+ * handed out without a copy.
+ */
+public class JWKSKeySet {
+
+    private static final Log log = LogFactory.getLog(JWKSKeySet.class);
+
+    private static final JWKSKeySet EMPTY = new JWKSKeySet(new JsonArray(), Collections.emptySet(),
+            Collections.emptySet());
+
+    private final JsonArray keys;
+    private final List<JsonElement> keyList;
+    private final Set<ByteBuffer> x5tDigests;
+    private final Set<ByteBuffer> x5cDigests;
+    private final Collection<byte[]> certificateDigests;
+
+    private JWKSKeySet(JsonArray keys, Set<ByteBuffer> x5tDigests, Set<ByteBuffer> x5cDigests) {
+
+        this.keys = keys;
+        List<JsonElement> keyList = new ArrayList<>(keys.size());
+        for (JsonElement key : keys) {
+            keyList.add(key);
+        }
+        this.keyList = Collections.unmodifiableList(keyList);
+        this.x5tDigests = x5tDigests;
+        this.x5cDigests = x5cDigests;
+        Set<ByteBuffer> digests = new HashSet<>(x5tDigests);
+        digests.addAll(x5cDigests);
+        Collection<byte[]> certificateDigests = new ArrayList<>(digests.size());
+        for (ByteBuffer digest : digests) {
+            certificateDigests.add(digest.array());
+        }
+        this.certificateDigests = Collections.unmodifiableCollection(certificateDigests);
+    }
+
+    /**
+     * Parse and index the content of a JWKS endpoint response.
+     *
+     * @param content JWK set document.
+     * @return Indexed key set.
+     * @throws CertificateException If no X.509 certificate factory is available.
+     */
+    public static JWKSKeySet fromContent(String content) throws CertificateException {
+
+        JsonElement root = JsonParser.parseString(content);
+        if (root == null || !root.isJsonObject()) {
+            return EMPTY;
+        }
+        JsonElement keys = root.getAsJsonObject().get(CommonConstants.KEYS);
+        if (keys == null || !keys.isJsonArray()) {
+            return EMPTY;
+        }
+        // The parsed array is not shared with the caller, so it is indexed without a copy.
+        return index(keys.getAsJsonArray());
+    }
+
+    /**
+     * Build the certificate digest index for the given JWK array.
+     *
+     * @param keys Value of the "keys" attribute of the JWK set.
+     * @return Indexed key set.
+     * @throws CertificateException If no X.509 certificate factory is available.
+     */
+    public static JWKSKeySet fromKeys(JsonArray keys) throws CertificateException {
+
+        if (keys == null || keys.size() == 0) {
+            return EMPTY;
+        }
+        return index(keys.deepCopy());
+    }
+
+    private static JWKSKeySet index(JsonArray keys) throws CertificateException {
+
+        if (keys.size() == 0) {
+            return EMPTY;
+        }
+        Set<ByteBuffer> x5tDigests = new HashSet<>();
+        Set<ByteBuffer> x5cDigests = new HashSet<>();
+        CertificateFactory factory = CertificateFactory.getInstance(CommonConstants.X509);
+        for (JsonElement key : keys) {
+            if (!key.isJsonObject()) {
+                continue;
+            }
+            JsonObject jwk = key.getAsJsonObject();
+            JsonElement x5t = jwk.get(CommonConstants.X5T);
+            if (x5t != null && x5t.isJsonPrimitive()) {
+                byte[] x5tDigest = CertificateThumbprint.fromHexBase64URL(x5t.getAsString());
+                if (x5tDigest != null) {
+                    x5tDigests.add(ByteBuffer.wrap(x5tDigest));
+                }
+            }
+            String x5c = getLeafCertificate(jwk.get(CommonConstants.X5C));
+            if (x5c != null) {
+                try {
+                    X509Certificate cert = (X509Certificate) factory.generateCertificate(
+                            new ByteArrayInputStream(Base64.getMimeDecoder().decode(x5c)));
+                    x5cDigests.add(ByteBuffer.wrap(CertificateThumbprint.sha256(cert)));
+                } catch (CertificateException | IllegalArgumentException e) {
+                    log.warn("Skipping a key of the JWK set with an invalid x5c certificate. Key ID: " +
+                            getKeyId(jwk) + ". Error: " + e.getMessage());
+                }
+            }
+        }
+        return new JWKSKeySet(keys, Collections.unmodifiableSet(x5tDigests),
+                Collections.unmodifiableSet(x5cDigests));
+    }
+
+    /**
+     * Returns the keys of the JWK set, without a copy. The array is shared by every reader of the cached set, so it
+     * must not be modified. Use {@link #getKeyList()} for a read-only view.
+     *
+     * @return Value of the "keys" attribute of the JWK set.
+     */
+    public JsonArray getKeys() {
+
+        return keys;
+    }
+
+    /**
+     * @return Unmodifiable view of the keys of the JWK set.
+     */
+    public List<JsonElement> getKeyList() {
+
+        return keyList;
+    }
+
+    /**
+     * Check whether a key of the set publishes the thumbprint of the certificate with the given digest as its x5t
+     * attribute.
+     *
+     * @param certificateDigest SHA-256 digest of the certificate.
+     * @return true if a matching x5t attribute exists.
+     */
+    public boolean containsX5tDigest(byte[] certificateDigest) {
+
+        return certificateDigest != null && x5tDigests.contains(ByteBuffer.wrap(certificateDigest));
+    }
+
+    /**
+     * Check whether a key of the set carries a certificate with the given digest in its x5c attribute.
+     *
+     * @param certificateDigest SHA-256 digest of the certificate.
+     * @return true if a matching x5c certificate exists.
+     */
+    public boolean containsX5cDigest(byte[] certificateDigest) {
+
+        return certificateDigest != null && x5cDigests.contains(ByteBuffer.wrap(certificateDigest));
+    }
+
+    /**
+     * @return SHA-256 digests of the certificates whose thumbprints are published in the x5t attributes of the set,
+     * along with the digests of the certificates in its x5c attributes, computed when the set is indexed. The returned
+     * arrays must not be modified.
+     */
+    public Collection<byte[]> getCertificateDigests() {
+
+        return certificateDigests;
+    }
+
+    /**
+     * Check whether the given key set publishes exactly the same keys as this one.
+     *
+     * @param other Key set to compare with.
+     * @return true if both key sets have the same keys.
+     */
+    public boolean hasSameKeys(JWKSKeySet other) {
+
+        return other != null && keys.equals(other.keys);
+    }
+
+    /**
+     * @return Number of keys in the JWK set.
+     */
+    public int size() {
+
+        return keys.size();
+    }
+
+    private static String getKeyId(JsonObject jwk) {
+
+        JsonElement kid = jwk.get(CommonConstants.KID);
+        return kid != null && kid.isJsonPrimitive() ? kid.getAsString() : null;
+    }
+
+    /**
+     * The x5c attribute is an array whose first element is the certificate of the key. Older clients publish it
+     * as a plain string, which is accepted as well.
+     */
+    private static String getLeafCertificate(JsonElement x5c) {
+
+        if (x5c == null || x5c.isJsonNull()) {
+            return null;
+        }
+        if (x5c.isJsonArray()) {
+            JsonArray chain = x5c.getAsJsonArray();
+            return chain.size() > 0 ? chain.get(0).getAsString() : null;
+        }
+        return x5c.getAsString();
+    }
+}
@@ -0,0 +1,495 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import com.google.gson.JsonParseException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSAuthenticationResultCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSCertificateFilter;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCacheEntry;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCacheKey;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.metrics.MutualTLSMetrics;
+
+import java.io.IOException;
+import java.net.URL;
+import java.security.cert.CertificateException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Provides the JWK sets of JWKS endpoints through the MutualTLSJWKSCache.
+ * On a cache miss only one fetch per JWKS endpoint is in flight at a time. Concurrent requests for the same endpoint
+ * wait for the result of that fetch instead of calling the endpoint themselves.
+ * <p>
+ * Fetches are asynchronous and do not hold a thread while waiting for the endpoint. A fetch that does not complete
+ * within the fetch wait timeout fails, and {@link #getKeySet(URL)} waits at most that long for the key set.
+ * <p>
+ * When stale-while-revalidate is enabled, a key set older than the soft TTL is still served while it is refreshed in
+ * the background. When stale-if-error is enabled, the last known good key set is served if the endpoint cannot be
+ * read. Neither serves a key set older than the hard TTL.
+ * <p>
+ * A JWKSEndpointState is kept for every endpoint that has been used within the idle timeout. It outlives the cache
+ * entry of the endpoint, and holds the last known good key set and the learned refresh interval of the endpoint.
+ * The state is registered as an MXBean with MutualTLSMetrics while the endpoint is in use.
+ * <p>
+ * To keep a slow endpoint from tying up request threads, the number of fetches in flight across all endpoints is
+ * limited, and so is the number of requests waiting for the fetch of each endpoint if a maximum is configured.
+ * Requests over either limit fail with a JWKSFetchRejectedException.
+ * <p>
+ * Fetches of an endpoint are guarded by its JWKSCircuitBreaker. While the breaker is open, a fetch fails fast with a
+ * JWKSFetchRejectedException instead of waiting for the endpoint to time out, and stale-if-error may still serve the
+ * last known good key set. The breaker opening is logged as a warning, and closing again as info.
+ */
+public class JWKSKeySetProvider {
+
+    private static final Log log = LogFactory.getLog(JWKSKeySetProvider.class);
+    private static final JWKSKeySetProvider instance = new JWKSKeySetProvider();
+
+    private final ConcurrentMap<MutualTLSJWKSCacheKey, CompletableFuture<JWKSKeySet>> inFlightFetches =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<MutualTLSJWKSCacheKey, JWKSEndpointState> endpointStates = new ConcurrentHashMap<>();
+    private final JWKSConfig config;
+    private final JWKSRetriever retriever;
+    private final Semaphore fetchPermits;
+
+    protected JWKSKeySetProvider() {
+
+        this(JWKSConfig.load());
+    }
+
+    protected JWKSKeySetProvider(JWKSConfig config) {
+
+        this.config = config;
+        this.retriever = new JWKSRetriever(config);
+        this.fetchPermits = new Semaphore(config.getMaxConcurrentFetches());
+    }
+
+    public static JWKSKeySetProvider getInstance() {
+
+        return instance;
+    }
+
+    public JWKSConfig getConfig() {
+
+        return config;
+    }
+
+    /**
+     * @return State of every JWKS endpoint used within the idle timeout, for inspection.
+     */
+    public Collection<JWKSEndpointState> getEndpointStates() {
+
+        return Collections.unmodifiableCollection(endpointStates.values());
+    }
+
+    /**
+     * Get the JWK set of the given JWKS endpoint, from the cache if present, and otherwise from the endpoint. Waits at
+     * most the fetch wait timeout for the endpoint. If the requests waiting for the endpoint are limited and the
+     * maximum number is already waiting, the request first waits at most the queue timeout for one of them to finish,
+     * and is rejected if none does. A request can therefore wait up to the queue timeout plus the fetch wait timeout.
+     *
+     * @param jwksUri JWKS Endpoint URL
+     * @return Indexed JWK set, or null if it could not be retrieved.
+     * @throws IOException          If the JWKS endpoint cannot be read, or the fetch does not finish in time.
+     *                              A JWKSFetchRejectedException if the request or the fetch is rejected.
+     * @throws CertificateException If a certificate published in the JWK set cannot be parsed.
+     */
+    public JWKSKeySet getKeySet(URL jwksUri) throws IOException, CertificateException {
+
+        CompletableFuture<JWKSKeySet> keySet = getKeySetAsync(jwksUri);
+        if (keySet.isDone()) {
+            return waitForFetch(keySet, jwksUri);
+        }
+        JWKSEndpointState endpointState = getEndpointState(new MutualTLSJWKSCacheKey(jwksUri.toString()), jwksUri);
+        startWaiting(endpointState, jwksUri);
+        try {
+            return waitForFetch(keySet, jwksUri);
+        } finally {
+            endpointState.finishWaiting();
+        }
+    }
+
+    /**
+     * Get the JWK set of the given JWKS endpoint without blocking the calling thread, from the cache if present, and
+     * otherwise from the endpoint.
+     *
+     * @param jwksUri JWKS Endpoint URL
+     * @return Future completed with the indexed JWK set, or null if it could not be retrieved. The future completes
+     * exceptionally with an IOException if the JWKS endpoint cannot be read, or with a CertificateException if a
+     * certificate published in the JWK set cannot be parsed.
+     */
+    public CompletableFuture<JWKSKeySet> getKeySetAsync(URL jwksUri) {
+
+        MutualTLSJWKSCacheKey cacheKey = new MutualTLSJWKSCacheKey(jwksUri.toString());
+        JWKSEndpointState endpointState = endpointStates.get(cacheKey);
+        if (endpointState != null) {
+            endpointState.recordAccess(System.currentTimeMillis());
+        }
+        MutualTLSMetrics metrics = MutualTLSMetrics.getInstance();
+        long startTime = metrics.getStartTime();
+        MutualTLSJWKSCacheEntry cacheEntry = getFromCache(cacheKey);
+        metrics.recordStage(cacheEntry != null ? MutualTLSMetrics.Stage.JWKS_CACHE_HIT :
+                MutualTLSMetrics.Stage.JWKS_CACHE_MISS, startTime);
+        if (cacheEntry != null) {
+            if (log.isDebugEnabled()) {
+                log.debug("Cache hit for " + jwksUri);
+            }
+            if (config.isStaleWhileRevalidate() && isStale(cacheEntry)) {
+                refreshInBackground(cacheKey, jwksUri);
+            }
+            return CompletableFuture.completedFuture(cacheEntry.getValue());
+        }
+
+        if (config.isStaleWhileRevalidate()) {
+            JWKSEndpointState lastKnownGood = getLastKnownGood(endpointState);
+            if (lastKnownGood != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Serving the last known good JWKS while it is refreshed. JWKS URI: " + jwksUri);
+                }
+                refreshInBackground(cacheKey, jwksUri);
+                return CompletableFuture.completedFuture(lastKnownGood.getKeySet());
+            }
+        }
+
+        return fetchCoalesced(cacheKey, jwksUri).handle((keySet, throwable) -> {
+            if (throwable == null) {
+                return keySet;
+            }
+            Throwable cause = unwrap(throwable);
+            JWKSEndpointState lastKnownGood =
+                    config.isStaleIfError() && (cause instanceof IOException || cause instanceof CertificateException) ?
+                            getLastKnownGood(endpointStates.get(cacheKey)) : null;
+            if (lastKnownGood == null) {
+                throw new CompletionException(cause);
+            }
+            log.warn("Error while fetching JWKS from " + jwksUri + ". Serving the last known good JWKS fetched at "
+                    + lastKnownGood.getLastFetchTime() + ". Error: " + cause.getMessage());
+            return lastKnownGood.getKeySet();
+        });
+    }
+
+    private CompletableFuture<JWKSKeySet> fetchCoalesced(MutualTLSJWKSCacheKey cacheKey, URL jwksUri) {
+
+        CompletableFuture<JWKSKeySet> fetch = new CompletableFuture<>();
+        CompletableFuture<JWKSKeySet> inFlightFetch = inFlightFetches.putIfAbsent(cacheKey, fetch);
+        if (inFlightFetch != null) {
+            if (log.isDebugEnabled()) {
+                log.debug("Waiting for the in-flight fetch of JWKS. JWKS URI: " + jwksUri);
+            }
+            return inFlightFetch;
+        }
+        // A fetch that completed after the cache lookup of this request has already populated the cache.
+        MutualTLSJWKSCacheEntry cacheEntry = getFromCache(cacheKey);
+        if (cacheEntry != null) {
+            inFlightFetches.remove(cacheKey, fetch);
+            fetch.complete(cacheEntry.getValue());
+            return fetch;
+        }
+        runFetch(cacheKey, jwksUri, fetch);
+        return fetch;
+    }
+
+    private void runFetch(MutualTLSJWKSCacheKey cacheKey, URL jwksUri, CompletableFuture<JWKSKeySet> fetch) {
+
+        JWKSEndpointState endpointState = getEndpointState(cacheKey, jwksUri);
+        if (!fetchPermits.tryAcquire()) {
+            completeFetch(cacheKey, fetch, null, new JWKSFetchRejectedException("Too many concurrent JWKS fetches. " +
+                    "JWKS URI: " + jwksUri));
+            return;
+        }
+        JWKSCircuitBreaker circuitBreaker = endpointState.getCircuitBreaker();
+        if (!circuitBreaker.allowRequest(System.currentTimeMillis())) {
+            fetchPermits.release();
+            completeFetch(cacheKey, fetch, null, new JWKSFetchRejectedException("JWKS endpoint is unavailable after " +
+                    "repeated failures. Not retrying before " + circuitBreaker.getRetryTime() + ". JWKS URI: " +
+                    jwksUri));
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Fetching JWKS from remote endpoint. JWKS URI: " + jwksUri);
+        }
+        JWKSKeySet previousKeySet = endpointState.getKeySet();
+        long startTime = MutualTLSMetrics.getInstance().getStartTime();
+        CompletableFuture<JWKSResponse> response;
+        try {
+            response = previousKeySet != null ?
+                    retrieveAsync(jwksUri, endpointState.getETag(), endpointState.getLastModified()) :
+                    retrieveAsync(jwksUri, null, null);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        // The retriever bounds the wait for a connection to the host and the request separately, rejecting the
+        // fetch if the wait times out so that it is not counted as a failure of the endpoint. This only bounds a
+        // fetch that never completes.
+        response.orTimeout(2 * config.getFetchWaitTimeout(), TimeUnit.MILLISECONDS)
+                .thenApply(jwksResponse -> updateKeySet(cacheKey, jwksUri, endpointState, previousKeySet,
+                        jwksResponse))
+                .whenComplete((keySet, throwable) -> {
+                    MutualTLSMetrics.getInstance().recordStage(MutualTLSMetrics.Stage.JWKS_FETCH, startTime);
+                    fetchPermits.release();
+                    Throwable cause = null;
+                    if (throwable != null) {
+                        cause = unwrap(throwable);
+                        if (cause instanceof TimeoutException) {
+                            cause = new IOException("Timed out after " + config.getFetchWaitTimeout() +
+                                    "ms while fetching JWKS : " + jwksUri, cause);
+                        }
+                        // A fetch rejected before reaching the endpoint says nothing about its health.
+                        if (!(cause instanceof JWKSFetchRejectedException) &&
+                                circuitBreaker.recordFailure(System.currentTimeMillis())) {
+                            log.warn("Opened the circuit breaker of the JWKS endpoint after " +
+                                    circuitBreaker.getConsecutiveFailures() + " consecutive failed fetches. Not " +
+                                    "retrying before " + circuitBreaker.getRetryTime() + ". JWKS URI: " + jwksUri);
+                        }
+                    } else if (circuitBreaker.recordSuccess()) {
+                        log.info("Closed the circuit breaker of the JWKS endpoint after a successful fetch. JWKS URI: "
+                                + jwksUri);
+                    }
+                    completeFetch(cacheKey, fetch, keySet, cause);
+                });
+    }
+
+    private JWKSKeySet updateKeySet(MutualTLSJWKSCacheKey cacheKey, URL jwksUri, JWKSEndpointState endpointState,
+                                   JWKSKeySet previousKeySet, JWKSResponse response) {
+
+        JWKSKeySet keySet;
+        try {
+            keySet = readKeySet(response, previousKeySet, jwksUri);
+        } catch (IOException | CertificateException e) {
+            throw new CompletionException(e);
+        }
+        if (keySet != null) {
+            long now = System.currentTimeMillis();
+            putInCache(cacheKey, new MutualTLSJWKSCacheEntry(keySet));
+            endpointState.recordValidators(response);
+            MutualTLSCertificateFilter.getInstance().addAll(keySet.getCertificateDigests());
+            if (endpointState.recordFetch(keySet, response.getMaxAge(), now, config)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Keys of the JWKS endpoint changed. Clearing the cached Mutual TLS authentication " +
+                            "results and TLS sessions of its clients : " + jwksUri);
+                }
+                // The TLS sessions bound to the cleared results are no longer valid either.
+                MutualTLSAuthenticationResultCache.getInstance().clearCacheEntries(jwksUri);
+            }
+            removeIdleEndpoints(now);
+        }
+        return keySet;
+    }
+
+    private void completeFetch(MutualTLSJWKSCacheKey cacheKey, CompletableFuture<JWKSKeySet> fetch, JWKSKeySet keySet,
+                               Throwable cause) {
+
+        // Removed before completion, so that a request woken by the fetch does not join it again.
+        inFlightFetches.remove(cacheKey, fetch);
+        if (cause != null) {
+            fetch.completeExceptionally(cause);
+        } else {
+            fetch.complete(keySet);
+        }
+    }
+
+    private JWKSKeySet readKeySet(JWKSResponse response, JWKSKeySet previousKeySet, URL jwksUri)
+            throws IOException, CertificateException {
+
+        if (response != null && response.isNotModified()) {
+            if (previousKeySet == null) {
+                throw new IOException("JWKS endpoint responded with not modified to an unconditional request : "
+                        + jwksUri);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("JWKS has not been modified. Reusing the fetched key set. JWKS URI: " + jwksUri);
+            }
+            return previousKeySet;
+        }
+        if (response != null && response.getContent() != null) {
+            return parseKeySet(response, jwksUri);
+        }
+        return null;
+    }
+
+    /**
+     * Refresh the key set of the given endpoint in the background, unless a fetch for it is already in flight.
+     *
+     * @param endpointState State of the JWKS endpoint.
+     */
+    void refresh(JWKSEndpointState endpointState) {
+
+        refreshInBackground(endpointState.getCacheKey(), endpointState.getJwksUri());
+    }
+
+    private void refreshInBackground(MutualTLSJWKSCacheKey cacheKey, URL jwksUri) {
+
+        CompletableFuture<JWKSKeySet> fetch = new CompletableFuture<>();
+        if (inFlightFetches.putIfAbsent(cacheKey, fetch) != null) {
+            return;
+        }
+        fetch.whenComplete((keySet, throwable) -> {
+            if (throwable != null) {
+                log.warn("Error while refreshing JWKS in the background. JWKS URI: " + jwksUri, throwable);
+            }
+        });
+        runFetch(cacheKey, jwksUri, fetch);
+    }
+
+    /**
+     * Retrieve the JWK set from the JWKS endpoint, conditionally on the validators of the last fetched key set if
+     * there is one.
+     *
+     * @param jwksUri      JWKS Endpoint URL
+     * @param eTag         ETag of the last fetched key set, or null.
+     * @param lastModified Last-Modified value of the last fetched key set, or null.
+     * @return Future completed with the response of the endpoint, or exceptionally with an IOException if the JWKS
+     * endpoint cannot be read.
+     */
+    protected CompletableFuture<JWKSResponse> retrieveAsync(URL jwksUri, String eTag, String lastModified) {
+
+        return retriever.retrieveAsync(jwksUri, eTag, lastModified);
+    }
+
+    private JWKSKeySet parseKeySet(JWKSResponse response, URL jwksUri) throws IOException, CertificateException {
+
+        try {
+            return JWKSKeySet.fromContent(response.getContent());
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Invalid JWKS content received from " + jwksUri, e);
+        }
+    }
+
+    /**
+     * Cache the key set of a fetch. A refresh or a revalidation replaces the entry still in the cache, which
+     * addToCacheOnRead would keep, so that the fetched time moves forward and rotated keys are served.
+     */
+    private void putInCache(MutualTLSJWKSCacheKey cacheKey, MutualTLSJWKSCacheEntry cacheEntry) {
+
+        MutualTLSJWKSCache jwksCache = MutualTLSJWKSCache.getInstance();
+        if (jwksCache.getValueFromCache(cacheKey) != null) {
+            jwksCache.addToCache(cacheKey, cacheEntry);
+        } else {
+            jwksCache.addToCacheOnRead(cacheKey, cacheEntry);
+        }
+    }
+
+    private MutualTLSJWKSCacheEntry getFromCache(MutualTLSJWKSCacheKey cacheKey) {
+
+        MutualTLSJWKSCacheEntry cacheEntry = MutualTLSJWKSCache.getInstance().getValueFromCache(cacheKey);
+        return cacheEntry != null && cacheEntry.getValue() != null ? cacheEntry : null;
+    }
+
+    private JWKSEndpointState getLastKnownGood(JWKSEndpointState endpointState) {
+
+        if (endpointState == null || endpointState.getKeySet() == null ||
+                System.currentTimeMillis() - endpointState.getLastFetchTime() > config.getHardTTL()) {
+            return null;
+        }
+        return endpointState;
+    }
+
+    /**
+     * Get the state of the given endpoint, creating it and registering its MXBean if the endpoint is not in use.
+     */
+    private JWKSEndpointState getEndpointState(MutualTLSJWKSCacheKey cacheKey, URL jwksUri) {
+
+        JWKSEndpointState endpointState = endpointStates.get(cacheKey);
+        if (endpointState != null) {
+            return endpointState;
+        }
+        JWKSEndpointState newEndpointState = new JWKSEndpointState(jwksUri, System.currentTimeMillis(), config);
+        endpointState = endpointStates.putIfAbsent(cacheKey, newEndpointState);
+        if (endpointState != null) {
+            return endpointState;
+        }
+        MutualTLSMetrics.getInstance().registerJWKSEndpoint(jwksUri.toString(), newEndpointState);
+        return newEndpointState;
+    }
+
+    private void removeIdleEndpoints(long now) {
+
+        for (JWKSEndpointState endpointState : endpointStates.values()) {
+            if (now - endpointState.getLastAccessTime() > config.getIdleTimeout() &&
+                    endpointStates.remove(endpointState.getCacheKey(), endpointState)) {
+                MutualTLSMetrics.getInstance().unregisterJWKSEndpoint(endpointState.getJwksUri().toString());
+            }
+        }
+    }
+
+    private boolean isStale(MutualTLSJWKSCacheEntry cacheEntry) {
+
+        return getAge(cacheEntry) >= config.getSoftTTL();
+    }
+
+    private long getAge(MutualTLSJWKSCacheEntry cacheEntry) {
+
+        return System.currentTimeMillis() - cacheEntry.getFetchedTime();
+    }
+
+    private void startWaiting(JWKSEndpointState endpointState, URL jwksUri) throws IOException {
+
+        try {
+            if (!endpointState.startWaiting(config.getQueueTimeout())) {
+                throw new JWKSFetchRejectedException("Too many requests waiting for the fetch of JWKS : " + jwksUri);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the fetch of JWKS : " + jwksUri, e);
+        }
+    }
+
+    private Throwable unwrap(Throwable throwable) {
+
+        return throwable instanceof CompletionException && throwable.getCause() != null ?
+                throwable.getCause() : throwable;
+    }
+
+    private JWKSKeySet waitForFetch(CompletableFuture<JWKSKeySet> fetch, URL jwksUri)
+            throws IOException, CertificateException {
+
+        try {
+            return fetch.get(config.getFetchWaitTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out after " + config.getFetchWaitTimeout() + "ms while waiting for the " +
+                    "fetch of JWKS : " + jwksUri, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the fetch of JWKS : " + jwksUri, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof JWKSFetchRejectedException) {
+                throw new JWKSFetchRejectedException(cause.getMessage());
+            }
+            if (cause instanceof CertificateException) {
+                throw new CertificateException("Error occurred while parsing certificates of the JWKS : " + jwksUri,
+                        cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Error occurred while fetching JWKS : " + jwksUri, cause);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the JWK sets of recently used JWKS endpoints before they expire, so that token requests of active clients
+ * do not wait on a JWKS fetch. Each endpoint is refreshed at the interval learned in its JWKSEndpointState. Endpoints
+ * that have not been used within the idle timeout are left to expire.
+ */
+public class JWKSRefreshScheduler {
+
+    private static final Log log = LogFactory.getLog(JWKSRefreshScheduler.class);
+    private static final long CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+    private final JWKSKeySetProvider provider;
+    private final JWKSConfig config;
+    private ScheduledExecutorService scheduler;
+
+    public JWKSRefreshScheduler(JWKSKeySetProvider provider) {
+
+        this.provider = provider;
+        this.config = provider.getConfig();
+    }
+
+    /**
+     * Start checking the known JWKS endpoints for due refreshes.
+     */
+    public synchronized void start() {
+
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MutualTLSJWKSRefreshScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshDueEndpoints, CHECK_INTERVAL, CHECK_INTERVAL,
+                TimeUnit.MILLISECONDS);
+        if (log.isDebugEnabled()) {
+            log.debug("Started the JWKS refresh scheduler.");
+        }
+    }
+
+    /**
+     * Stop refreshing JWKS endpoints. Refreshes that are already running are not interrupted.
+     */
+    public synchronized void stop() {
+
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+        if (log.isDebugEnabled()) {
+            log.debug("Stopped the JWKS refresh scheduler.");
+        }
+    }
+
+    /**
+     * Trigger the refresh of every recently used JWKS endpoint whose refresh time has passed.
+     */
+    void refreshDueEndpoints() {
+
+        try {
+            long now = System.currentTimeMillis();
+            for (JWKSEndpointState state : provider.getEndpointStates()) {
+                if (now - state.getLastAccessTime() > config.getIdleTimeout()) {
+                    continue;
+                }
+                if (state.getNextRefreshTime() > 0 && state.getNextRefreshTime() <= now) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Refreshing JWKS ahead of expiry. JWKS URI: " + state.getJwksUri());
+                    }
+                    provider.refresh(state);
+                }
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the scheduled task.
+            log.error("Error occurred while refreshing JWKS endpoints.", e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+/**
+ * Response of a JWKS endpoint along with the caching information it was served with. A response to a conditional
+ * request for content that has not changed is marked as not modified and carries no content.
+ */
+public class JWKSResponse {
+
+    private final String content;
+    private final long maxAge;
+    private final String eTag;
+    private final String lastModified;
+    private final boolean notModified;
+
+    /**
+     * @param content JWK set document.
+     * @param maxAge  Value of the Cache-Control max-age directive in milliseconds, or -1 if it was not present.
+     */
+    public JWKSResponse(String content, long maxAge) {
+
+        this(content, maxAge, null, null);
+    }
+
+    /**
+     * @param content      JWK set document.
+     * @param maxAge       Value of the Cache-Control max-age directive in milliseconds, or -1 if it was not present.
+     * @param eTag         Value of the ETag header, or null if it was not present.
+     * @param lastModified Value of the Last-Modified header, or null if it was not present.
+     */
+    public JWKSResponse(String content, long maxAge, String eTag, String lastModified) {
+
+        this(content, maxAge, eTag, lastModified, false);
+    }
+
+    private JWKSResponse(String content, long maxAge, String eTag, String lastModified, boolean notModified) {
+
+        this.content = content;
+        this.maxAge = maxAge;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.notModified = notModified;
+    }
+
+    /**
+     * Create the response to a conditional request for a JWK set that has not changed.
+     *
+     * @param maxAge       Value of the Cache-Control max-age directive in milliseconds, or -1 if it was not present.
+     * @param eTag         Value of the ETag header, or null if it was not present.
+     * @param lastModified Value of the Last-Modified header, or null if it was not present.
+     * @return Not modified response.
+     */
+    public static JWKSResponse notModified(long maxAge, String eTag, String lastModified) {
+
+        return new JWKSResponse(null, maxAge, eTag, lastModified, true);
+    }
+
+    /**
+     * @return JWK set document, or null if the response is not modified.
+     */
+    public String getContent() {
+
+        return content;
+    }
+
+    /**
+     * @return Value of the Cache-Control max-age directive in milliseconds, or -1 if it was not present.
+     */
+    public long getMaxAge() {
+
+        return maxAge;
+    }
+
+    public String getETag() {
+
+        return eTag;
+    }
+
+    public String getLastModified() {
+
+        return lastModified;
+    }
+
+    /**
+     * @return true if the endpoint responded that the JWK set has not changed since it was last fetched.
+     */
+    public boolean isNotModified() {
+
+        return notModified;
+    }
+}
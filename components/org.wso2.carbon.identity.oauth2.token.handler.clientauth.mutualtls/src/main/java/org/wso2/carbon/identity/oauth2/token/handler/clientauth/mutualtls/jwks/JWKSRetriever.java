@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retrieves JWK sets from JWKS endpoints over HTTP, along with the caching headers of the response.
+ * <p>
+ * All fetches share one HTTP client, which keeps connections to JWKS endpoints alive between fetches. The number of
+ * requests made to the same host at a time, and the size of a response, are limited by the JWKS configuration.
+ * Asynchronous fetches do not block any thread. When the host already has the maximum number of requests in flight,
+ * they wait in a queue of the host until a request completes, and are rejected only if that takes longer than the
+ * fetch wait timeout.
+ */
+public class JWKSRetriever {
+
+    private static final String CACHE_CONTROL_HEADER = "Cache-Control";
+    private static final String CONTENT_LENGTH_HEADER = "Content-Length";
+    private static final String ETAG_HEADER = "ETag";
+    private static final String LAST_MODIFIED_HEADER = "Last-Modified";
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE_HEADER = "If-Modified-Since";
+    private static final String MAX_AGE_DIRECTIVE = "max-age=";
+    private static final String NO_CACHE_DIRECTIVE = "no-cache";
+    private static final String NO_STORE_DIRECTIVE = "no-store";
+
+    private final HttpClient httpClient;
+    private final JWKSConfig config;
+    private final ConcurrentMap<String, HostPermits> hostPermits = new ConcurrentHashMap<>();
+
+    public JWKSRetriever(JWKSConfig config) {
+
+        this.config = config;
+        HttpClient.Builder builder = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL);
+        if (config.getConnectTimeout() > 0) {
+            builder.connectTimeout(Duration.ofMillis(config.getConnectTimeout()));
+        }
+        this.httpClient = builder.build();
+    }
+
+    /**
+     * Retrieve the JWK set of the given JWKS endpoint.
+     *
+     * @param jwksUri JWKS Endpoint URL
+     * @return Response of the JWKS endpoint.
+     * @throws IOException If the endpoint cannot be read or does not respond with a 2xx status.
+     */
+    public JWKSResponse retrieve(URL jwksUri) throws IOException {
+
+        return retrieve(jwksUri, null, null);
+    }
+
+    /**
+     * Retrieve the JWK set of the given JWKS endpoint. If validators of a previously fetched JWK set are given, the
+     * request is made conditional on them, and the endpoint may respond that the JWK set has not been modified.
+     *
+     * @param jwksUri      JWKS Endpoint URL
+     * @param eTag         ETag of the previously fetched JWK set, or null.
+     * @param lastModified Last-Modified value of the previously fetched JWK set, or null.
+     * @return Response of the JWKS endpoint.
+     * @throws IOException If the endpoint cannot be read or does not respond with a 2xx or expected 304 status.
+     */
+    public JWKSResponse retrieve(URL jwksUri, String eTag, String lastModified) throws IOException {
+
+        HttpRequest request = buildRequest(jwksUri, eTag, lastModified);
+        HostPermits permits = getHostPermits(jwksUri);
+        acquire(permits, jwksUri);
+        try {
+            return toJWKSResponse(httpClient.send(request, getBodyHandler(jwksUri)), isConditional(eTag, lastModified),
+                    jwksUri);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching JWKS : " + jwksUri);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Retrieve the JWK set of the given JWKS endpoint without blocking the calling thread. The request is conditional
+     * in the same way as {@link #retrieve(URL, String, String)}.
+     *
+     * @param jwksUri      JWKS Endpoint URL
+     * @param eTag         ETag of the previously fetched JWK set, or null.
+     * @param lastModified Last-Modified value of the previously fetched JWK set, or null.
+     * @return Future completed with the response of the JWKS endpoint, or exceptionally with an IOException if the
+     * endpoint cannot be read or does not respond with a 2xx or expected 304 status, with a TimeoutException if the
+     * endpoint does not respond within the fetch wait timeout, or with a JWKSFetchRejectedException if the request
+     * waited for the host for longer than the fetch wait timeout.
+     */
+    public CompletableFuture<JWKSResponse> retrieveAsync(URL jwksUri, String eTag, String lastModified) {
+
+        HttpRequest request;
+        try {
+            request = buildRequest(jwksUri, eTag, lastModified);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HostPermits permits = getHostPermits(jwksUri);
+        boolean conditional = isConditional(eTag, lastModified);
+        return permits.acquireAsync(config.getFetchWaitTimeout(), jwksUri)
+                .thenCompose(acquired -> sendAsync(request, permits, jwksUri))
+                .thenApply(httpResponse -> {
+                    try {
+                        return toJWKSResponse(httpResponse, conditional, jwksUri);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    /**
+     * Send the request holding a permit of the host, which is released once the endpoint responds. Only the time
+     * taken by the endpoint counts towards the fetch wait timeout, not the time spent waiting for the permit.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> sendAsync(HttpRequest request, HostPermits permits,
+                                                              URL jwksUri) {
+
+        CompletableFuture<HttpResponse<byte[]>> response;
+        try {
+            response = httpClient.sendAsync(request, getBodyHandler(jwksUri));
+        } catch (RuntimeException e) {
+            permits.release();
+            return CompletableFuture.failedFuture(e);
+        }
+        return response.whenComplete((httpResponse, e) -> permits.release())
+                .orTimeout(config.getFetchWaitTimeout(), TimeUnit.MILLISECONDS);
+    }
+
+    private JWKSResponse toJWKSResponse(HttpResponse<byte[]> response, boolean conditional, URL jwksUri)
+            throws IOException {
+
+        int statusCode = response.statusCode();
+        long maxAge = parseMaxAge(getHeader(response, CACHE_CONTROL_HEADER));
+        if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED && conditional) {
+            return JWKSResponse.notModified(maxAge, getHeader(response, ETAG_HEADER),
+                    getHeader(response, LAST_MODIFIED_HEADER));
+        }
+        if (!isSuccessful(statusCode)) {
+            throw new IOException("HTTP " + statusCode + " response from JWKS endpoint : " + jwksUri);
+        }
+        return new JWKSResponse(new String(response.body(), StandardCharsets.UTF_8), maxAge,
+                getHeader(response, ETAG_HEADER), getHeader(response, LAST_MODIFIED_HEADER));
+    }
+
+    /**
+     * Body handler reading the body of successful responses up to the size limit, and discarding any other body.
+     */
+    private HttpResponse.BodyHandler<byte[]> getBodyHandler(URL jwksUri) {
+
+        return responseInfo -> {
+            if (!isSuccessful(responseInfo.statusCode())) {
+                return HttpResponse.BodySubscribers.replacing(null);
+            }
+            long contentLength = responseInfo.headers().firstValueAsLong(CONTENT_LENGTH_HEADER).orElse(-1);
+            return new SizeLimitedBodySubscriber(config.getMaxResponseSize(), contentLength, jwksUri);
+        };
+    }
+
+    private HttpRequest buildRequest(URL jwksUri, String eTag, String lastModified) throws IOException {
+
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(jwksUri.toURI()).GET();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new IOException("Unsupported JWKS URI : " + jwksUri, e);
+        }
+        if (config.getReadTimeout() > 0) {
+            builder.timeout(Duration.ofMillis(config.getReadTimeout()));
+        }
+        if (StringUtils.isNotBlank(eTag)) {
+            builder.header(IF_NONE_MATCH_HEADER, eTag);
+        }
+        if (StringUtils.isNotBlank(lastModified)) {
+            builder.header(IF_MODIFIED_SINCE_HEADER, lastModified);
+        }
+        return builder.build();
+    }
+
+    private void acquire(HostPermits permits, URL jwksUri) throws IOException {
+
+        try {
+            if (!permits.acquire(config.getFetchWaitTimeout())) {
+                throw new JWKSFetchRejectedException("Too many concurrent requests to the host of JWKS endpoint : "
+                        + jwksUri);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to fetch JWKS : " + jwksUri);
+        }
+    }
+
+    private HostPermits getHostPermits(URL jwksUri) {
+
+        return hostPermits.computeIfAbsent(getHostKey(jwksUri),
+                key -> new HostPermits(config.getMaxConnectionsPerHost()));
+    }
+
+    private String getHostKey(URL jwksUri) {
+
+        int port = jwksUri.getPort() != -1 ? jwksUri.getPort() : jwksUri.getDefaultPort();
+        return jwksUri.getProtocol() + "://" + jwksUri.getHost().toLowerCase(Locale.ROOT) + ":" + port;
+    }
+
+    private String getHeader(HttpResponse<?> response, String name) {
+
+        return response.headers().firstValue(name).orElse(null);
+    }
+
+    private boolean isConditional(String eTag, String lastModified) {
+
+        return StringUtils.isNotBlank(eTag) || StringUtils.isNotBlank(lastModified);
+    }
+
+    private boolean isSuccessful(int statusCode) {
+
+        return statusCode >= HttpURLConnection.HTTP_OK && statusCode < HttpURLConnection.HTTP_MULT_CHOICE;
+    }
+
+    /**
+     * Read the max-age directive of a Cache-Control header. The no-cache and no-store directives are read as a max-age
+     * of zero.
+     *
+     * @param cacheControl Value of the Cache-Control header.
+     * @return max-age in milliseconds, or -1 if the header does not carry one.
+     */
+    static long parseMaxAge(String cacheControl) {
+
+        if (StringUtils.isBlank(cacheControl)) {
+            return -1;
+        }
+        for (String directive : cacheControl.split(",")) {
+            String value = directive.trim().toLowerCase();
+            if (value.equals(NO_CACHE_DIRECTIVE) || value.equals(NO_STORE_DIRECTIVE)) {
+                return 0;
+            }
+            if (value.startsWith(MAX_AGE_DIRECTIVE)) {
+                try {
+                    return TimeUnit.SECONDS.toMillis(
+                            Long.parseLong(StringUtils.strip(value.substring(MAX_AGE_DIRECTIVE.length()), "\"")));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Collects a response body, failing as soon as it exceeds the size limit.
+     */
+    private static class SizeLimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        private final int maxSize;
+        private final long contentLength;
+        private final URL jwksUri;
+        private Flow.Subscription subscription;
+
+        SizeLimitedBodySubscriber(int maxSize, long contentLength, URL jwksUri) {
+
+            this.maxSize = maxSize;
+            this.contentLength = contentLength;
+            this.jwksUri = jwksUri;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            if (contentLength > maxSize) {
+                fail();
+                return;
+            }
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+
+            if (body.isDone()) {
+                return;
+            }
+            for (ByteBuffer buffer : buffers) {
+                int length = buffer.remaining();
+                if (outputStream.size() + length > maxSize) {
+                    fail();
+                    return;
+                }
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                outputStream.write(bytes, 0, length);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+
+            body.complete(outputStream.toByteArray());
+        }
+
+        private void fail() {
+
+            subscription.cancel();
+            body.completeExceptionally(new IOException("JWKS response exceeds the size limit of " + maxSize +
+                    " bytes : " + jwksUri));
+        }
+    }
+
+    /**
+     * Permits of the requests made to a host. Synchronous requests block on the permits, while asynchronous requests
+     * wait in a queue and are handed a permit when one is released.
+     */
+    private static class HostPermits {
+
+        private final Semaphore permits;
+        private final Queue<CompletableFuture<Void>> waiting = new ConcurrentLinkedQueue<>();
+
+        HostPermits(int maxPermits) {
+
+            this.permits = new Semaphore(maxPermits);
+        }
+
+        boolean acquire(long timeout) throws InterruptedException {
+
+            return permits.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * @return Future completed once a permit is acquired, or exceptionally with a JWKSFetchRejectedException if
+         * none is acquired within the timeout.
+         */
+        CompletableFuture<Void> acquireAsync(long timeout, URL jwksUri) {
+
+            if (waiting.isEmpty() && permits.tryAcquire()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiting.add(waiter);
+            CompletableFuture.delayedExecutor(timeout, TimeUnit.MILLISECONDS).execute(() -> {
+                if (waiter.completeExceptionally(new JWKSFetchRejectedException("Timed out after " + timeout +
+                        "ms while waiting for a request to the host of JWKS endpoint to complete : " + jwksUri))) {
+                    waiting.remove(waiter);
+                }
+            });
+            // A permit released before the waiter was queued is handed to it here.
+            handOver();
+            return waiter;
+        }
+
+        void release() {
+
+            permits.release();
+            handOver();
+        }
+
+        /**
+         * Hand the available permits over to the queued requests, skipping those that have timed out.
+         */
+        private void handOver() {
+
+            while (!waiting.isEmpty() && permits.tryAcquire()) {
+                CompletableFuture<Void> waiter = waiting.poll();
+                while (waiter != null && !waiter.complete(null)) {
+                    waiter = waiting.poll();
+                }
+                if (waiter == null) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.listener;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.common.IdentityApplicationManagementException;
+import org.wso2.carbon.identity.application.common.model.InboundAuthenticationConfig;
+import org.wso2.carbon.identity.application.common.model.InboundAuthenticationRequestConfig;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.application.mgt.listener.AbstractApplicationMgtListener;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.MutualTLSAdmissionController;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSAuthenticationResultCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSCertificateFilter;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientProfileCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateDecoder;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
+
+import java.security.cert.CertificateException;
+
+/**
+ * Application management listener which clears the cached Mutual TLS client profiles, authentication results and
+ * TLS sessions of the OAuth clients of an application, and gives back their authentication failures, when the
+ * application is updated or deleted.
+ */
+public class MutualTLSApplicationMgtListener extends AbstractApplicationMgtListener {
+
+    private static final Log log = LogFactory.getLog(MutualTLSApplicationMgtListener.class);
+    private static final int DEFAULT_ORDER_ID = 905;
+
+    @Override
+    public int getDefaultOrderId() {
+
+        return DEFAULT_ORDER_ID;
+    }
+
+    @Override
+    public boolean doPostUpdateApplication(ServiceProvider serviceProvider, String tenantDomain, String userName)
+            throws IdentityApplicationManagementException {
+
+        clearClientProfiles(serviceProvider);
+        addCertificateToFilter(serviceProvider);
+        return true;
+    }
+
+    @Override
+    public boolean doPostDeleteApplication(ServiceProvider serviceProvider, String tenantDomain, String userName)
+            throws IdentityApplicationManagementException {
+
+        clearClientProfiles(serviceProvider);
+        return true;
+    }
+
+    /**
+     * Add the certificate registered for the application to the certificate filter, so that its clients are not
+     * rejected by the filter once the certificate is updated.
+     */
+    private void addCertificateToFilter(ServiceProvider serviceProvider) {
+
+        MutualTLSCertificateFilter certificateFilter = MutualTLSCertificateFilter.getInstance();
+        if (serviceProvider == null || !certificateFilter.isEnabled() ||
+                StringUtils.isBlank(serviceProvider.getCertificateContent())) {
+            return;
+        }
+        try {
+            certificateFilter.add(CertificateThumbprint.sha256(
+                    CertificateDecoder.decode(serviceProvider.getCertificateContent())));
+        } catch (CertificateException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Could not add the certificate of the application: " + serviceProvider.getApplicationName()
+                        + " to the certificate filter.", e);
+            }
+        }
+    }
+
+    private void clearClientProfiles(ServiceProvider serviceProvider) {
+
+        if (serviceProvider == null) {
+            return;
+        }
+        InboundAuthenticationConfig inboundAuthenticationConfig = serviceProvider.getInboundAuthenticationConfig();
+        if (inboundAuthenticationConfig == null ||
+                inboundAuthenticationConfig.getInboundAuthenticationRequestConfigs() == null) {
+            return;
+        }
+        for (InboundAuthenticationRequestConfig requestConfig :
+                inboundAuthenticationConfig.getInboundAuthenticationRequestConfigs()) {
+            if (CommonConstants.OAUTH2_INBOUND_AUTH_TYPE.equals(requestConfig.getInboundAuthType()) &&
+                    StringUtils.isNotBlank(requestConfig.getInboundAuthKey())) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Clearing the cached Mutual TLS client profile of client ID: " +
+                            requestConfig.getInboundAuthKey());
+                }
+                MutualTLSClientProfileCache.getInstance().clearCacheEntry(requestConfig.getInboundAuthKey());
+                MutualTLSAuthenticationResultCache.getInstance().clearCacheEntry(requestConfig.getInboundAuthKey());
+                MutualTLSAdmissionController.getInstance().clearEntries(requestConfig.getInboundAuthKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.listener;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.oauth.dto.OAuthConsumerAppDTO;
+import org.wso2.carbon.identity.oauth.event.AbstractOAuthEventInterceptor;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.MutualTLSAdmissionController;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSAuthenticationResultCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientProfileCache;
+
+/**
+ * OAuth event interceptor which clears the cached Mutual TLS client profile, authentication results and TLS sessions
+ * of an OAuth client, and gives back its authentication failures, when the OAuth application of the client is
+ * updated.
+ */
+public class MutualTLSOAuthEventInterceptor extends AbstractOAuthEventInterceptor {
+
+    private static final Log log = LogFactory.getLog(MutualTLSOAuthEventInterceptor.class);
+
+    @Override
+    public void onPostUpdateConsumerApplication(OAuthConsumerAppDTO consumerAppDTO) throws IdentityOAuth2Exception {
+
+        if (consumerAppDTO != null) {
+            clearClientProfile(consumerAppDTO.getOauthConsumerKey());
+        }
+    }
+
+    @Override
+    public void onPostUpdateConsumerApplication(String consumerKey, String newState) throws IdentityOAuth2Exception {
+
+        clearClientProfile(consumerKey);
+    }
+
+    private void clearClientProfile(String clientId) {
+
+        if (StringUtils.isBlank(clientId)) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Clearing the cached Mutual TLS client profile of client ID: " + clientId);
+        }
+        MutualTLSClientProfileCache.getInstance().clearCacheEntry(clientId);
+        MutualTLSAuthenticationResultCache.getInstance().clearCacheEntry(clientId);
+        MutualTLSAdmissionController.getInstance().clearEntries(clientId);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed buckets, from 1 microsecond to 10 seconds. Recording a time only increments striped
+ * counters, so it neither allocates nor contends between threads. Percentiles are read from the buckets, so they are
+ * the upper bound of the bucket holding the percentile.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+
+    private static final long[] BUCKET_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000,
+            50000, 100000, 200000, 500000, 1000000, 2000000, 5000000, 10000000};
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalTime = new LongAdder();
+    private final AtomicLong maxTime = new AtomicLong();
+
+    public LatencyHistogram() {
+
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record a time.
+     *
+     * @param nanos Time in nanoseconds.
+     */
+    public void record(long nanos) {
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+        int index = Arrays.binarySearch(BUCKET_BOUNDS, micros);
+        buckets[index >= 0 ? index : -index - 1].increment();
+        count.increment();
+        totalTime.add(micros);
+        long max = maxTime.get();
+        while (micros > max && !maxTime.compareAndSet(max, micros)) {
+            max = maxTime.get();
+        }
+    }
+
+    @Override
+    public long getCount() {
+
+        return count.sum();
+    }
+
+    @Override
+    public long getTotalTime() {
+
+        return totalTime.sum();
+    }
+
+    @Override
+    public double getMeanTime() {
+
+        long count = getCount();
+        return count > 0 ? (double) getTotalTime() / count : 0;
+    }
+
+    @Override
+    public long getMaxTime() {
+
+        return maxTime.get();
+    }
+
+    @Override
+    public long getP50Time() {
+
+        return getPercentile(0.5);
+    }
+
+    @Override
+    public long getP90Time() {
+
+        return getPercentile(0.9);
+    }
+
+    @Override
+    public long getP99Time() {
+
+        return getPercentile(0.99);
+    }
+
+    @Override
+    public long[] getBucketBounds() {
+
+        return BUCKET_BOUNDS.clone();
+    }
+
+    @Override
+    public long[] getBucketCounts() {
+
+        long[] bucketCounts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            bucketCounts[i] = buckets[i].sum();
+        }
+        return bucketCounts;
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 1.
+     * @return Upper bound of the bucket holding the percentile, the longest time if it is in the last bucket, or 0
+     * if no time was recorded.
+     */
+    public long getPercentile(double percentile) {
+
+        long[] bucketCounts = getBucketCounts();
+        long total = 0;
+        for (long bucketCount : bucketCounts) {
+            total += bucketCount;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length && total > 0; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                return i < BUCKET_BOUNDS.length ? Math.min(BUCKET_BOUNDS[i], getMaxTime()) : getMaxTime();
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.metrics;
+
+/**
+ * Management interface of the latency histogram of a Mutual TLS authentication stage. Times are in microseconds.
+ */
+public interface LatencyHistogramMXBean {
+
+    /**
+     * @return Number of times the stage was recorded.
+     */
+    long getCount();
+
+    /**
+     * @return Total time spent in the stage.
+     */
+    long getTotalTime();
+
+    /**
+     * @return Mean time spent in the stage.
+     */
+    double getMeanTime();
+
+    /**
+     * @return Longest time spent in the stage.
+     */
+    long getMaxTime();
+
+    /**
+     * @return Upper bound of the bucket holding the median time.
+     */
+    long getP50Time();
+
+    /**
+     * @return Upper bound of the bucket holding the 90th percentile time.
+     */
+    long getP90Time();
+
+    /**
+     * @return Upper bound of the bucket holding the 99th percentile time.
+     */
+    long getP99Time();
+
+    /**
+     * @return Upper bounds of the buckets. The last bucket, which has no upper bound, is not included.
+     */
+    long[] getBucketBounds();
+
+    /**
+     * @return Number of times recorded in each bucket, including the last bucket.
+     */
+    long[] getBucketCounts();
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.metrics;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms of the stages of Mutual TLS client authentication, and counters of its outcomes by
+ * reason. Recording only reads the clock and increments striped counters, so it neither allocates nor contends
+ * between threads, and does nothing unless metrics are enabled.
+ * <p>
+ * The histogram of each stage, and the outcome counters, are exposed as MXBeans under the
+ * {@value #DOMAIN} domain once {@link #registerMBeans()} is called. The state of each JWKS endpoint in use is
+ * registered under the same domain by {@link #registerJWKSEndpoint(String, Object)}.
+ */
+public class MutualTLSMetrics implements MutualTLSMetricsMXBean {
+
+    public static final String DOMAIN = "org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls";
+
+    private static final Log log = LogFactory.getLog(MutualTLSMetrics.class);
+    private static final String OUTCOMES_OBJECT_NAME = DOMAIN + ":type=AuthenticationOutcomes";
+    private static final String STAGE_OBJECT_NAME = DOMAIN + ":type=AuthenticationStage,name=";
+    private static final String JWKS_ENDPOINT_OBJECT_NAME = DOMAIN + ":type=JWKSEndpoint,name=";
+
+    private static final MutualTLSMetrics instance = new MutualTLSMetrics();
+
+    /**
+     * Stage of Mutual TLS client authentication.
+     */
+    public enum Stage {
+        /**
+         * The whole of authenticateClient.
+         */
+        AUTHENTICATE_CLIENT,
+        /**
+         * Taking the certificate from the request attribute set by the servlet container.
+         */
+        CERTIFICATE_FROM_ATTRIBUTE,
+        /**
+         * Taking the certificate from the request header, including parsing it if it is not cached.
+         */
+        CERTIFICATE_FROM_HEADER,
+        /**
+         * Decoding and parsing a certificate sent in the request header.
+         */
+        HEADER_CERTIFICATE_PARSE,
+        /**
+         * Looking up the tenant and the OAuth application of the client.
+         */
+        APPLICATION_LOOKUP,
+        /**
+         * Computing the thumbprint of the certificate presented by the client.
+         */
+        THUMBPRINT,
+        /**
+         * Looking up a JWK set which is in the JWKS cache.
+         */
+        JWKS_CACHE_HIT,
+        /**
+         * Looking up a JWK set which is not in the JWKS cache.
+         */
+        JWKS_CACHE_MISS,
+        /**
+         * Fetching a JWK set from its JWKS endpoint, until it is parsed or the fetch fails.
+         */
+        JWKS_FETCH,
+        /**
+         * Matching the certificate presented by the client against a JWK set.
+         */
+        JWKS_MATCH,
+        /**
+         * Checking the subject DN of the certificate against the subject DN registered for the client.
+         */
+        SUBJECT_DN_CHECK
+    }
+
+    /**
+     * Outcome of the authentication of a client.
+     */
+    public enum Outcome {
+        AUTHENTICATED,
+        SHED,
+        MISSING_CLIENT_ID,
+        MISSING_CERTIFICATE,
+        UNKNOWN_CERTIFICATE,
+        CACHED_FAILURE,
+        PUBLIC_CLIENT,
+        CERTIFICATE_MISMATCH,
+        /**
+         * The certificate does not match the registered certificate, but carries the same public key, as a renewed
+         * certificate whose registration was not updated does.
+         */
+        RENEWED_CERTIFICATE,
+        SUBJECT_DN_MISMATCH,
+        JWKS_UNAVAILABLE,
+        INVALID_CLIENT,
+        ERROR
+    }
+
+    private final boolean enabled;
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+    private final Set<ObjectName> jwksEndpointNames = ConcurrentHashMap.newKeySet();
+
+    private MutualTLSMetrics() {
+
+        this(Boolean.parseBoolean(StringUtils.trim(IdentityUtil.getProperty(CommonConstants.METRICS_ENABLE_XPATH))));
+    }
+
+    /**
+     * @param enabled Whether stages and outcomes are recorded.
+     */
+    protected MutualTLSMetrics(boolean enabled) {
+
+        this.enabled = enabled;
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns MutualTLSMetrics instance
+     *
+     * @return instance of MutualTLSMetrics
+     */
+    public static MutualTLSMetrics getInstance() {
+
+        return instance;
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * @return Start time of a stage, to be passed to {@link #recordStage}, or 0 if metrics are disabled.
+     */
+    public long getStartTime() {
+
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record a stage which started at the given time and ends now.
+     *
+     * @param stage     Stage.
+     * @param startTime Start time returned by {@link #getStartTime()}.
+     */
+    public void recordStage(Stage stage, long startTime) {
+
+        if (enabled) {
+            stages[stage.ordinal()].record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Record the outcome of the authentication of a client.
+     *
+     * @param outcome Outcome.
+     */
+    public void recordOutcome(Outcome outcome) {
+
+        if (enabled) {
+            outcomes[outcome.ordinal()].increment();
+        }
+    }
+
+    /**
+     * @param stage Stage.
+     * @return Latency histogram of the stage.
+     */
+    public LatencyHistogram getStage(Stage stage) {
+
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * @param outcome Outcome.
+     * @return Number of client authentications with the outcome.
+     */
+    public long getOutcomeCount(Outcome outcome) {
+
+        return outcomes[outcome.ordinal()].sum();
+    }
+
+    @Override
+    public Map<String, Long> getOutcomeCounts() {
+
+        Map<String, Long> outcomeCounts = new LinkedHashMap<>();
+        for (Outcome outcome : Outcome.values()) {
+            outcomeCounts.put(outcome.name(), getOutcomeCount(outcome));
+        }
+        return outcomeCounts;
+    }
+
+    @Override
+    public long getAuthenticatedCount() {
+
+        return getOutcomeCount(Outcome.AUTHENTICATED);
+    }
+
+    @Override
+    public long getFailedCount() {
+
+        long failedCount = 0;
+        for (Outcome outcome : Outcome.values()) {
+            if (outcome != Outcome.AUTHENTICATED) {
+                failedCount += getOutcomeCount(outcome);
+            }
+        }
+        return failedCount;
+    }
+
+    /**
+     * Register the MXBeans of the outcomes and of every stage in the platform MBean server, replacing any registered
+     * by an earlier activation of the bundle. Nothing is registered unless metrics are enabled.
+     */
+    public void registerMBeans() {
+
+        if (!enabled) {
+            return;
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(mBeanServer, new ObjectName(OUTCOMES_OBJECT_NAME), this);
+            for (Stage stage : Stage.values()) {
+                register(mBeanServer, new ObjectName(STAGE_OBJECT_NAME + stage.name()), getStage(stage));
+            }
+        } catch (JMException e) {
+            log.error("Error occurred while registering the Mutual TLS authentication metrics MBeans.", e);
+        }
+    }
+
+    /**
+     * Unregister the MXBeans registered by {@link #registerMBeans()}, and those of the JWKS endpoints.
+     */
+    public void unregisterMBeans() {
+
+        if (!enabled) {
+            return;
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            unregister(mBeanServer, new ObjectName(OUTCOMES_OBJECT_NAME));
+            for (Stage stage : Stage.values()) {
+                unregister(mBeanServer, new ObjectName(STAGE_OBJECT_NAME + stage.name()));
+            }
+            for (ObjectName jwksEndpointName : jwksEndpointNames) {
+                unregister(mBeanServer, jwksEndpointName);
+            }
+            jwksEndpointNames.clear();
+        } catch (JMException e) {
+            log.error("Error occurred while unregistering the Mutual TLS authentication metrics MBeans.", e);
+        }
+    }
+
+    /**
+     * Register the MXBean of the state of a JWKS endpoint in the platform MBean server, replacing any registered for
+     * the same endpoint. Nothing is registered unless metrics are enabled.
+     *
+     * @param jwksUri JWKS endpoint URL.
+     * @param mBean   MXBean of the state of the endpoint.
+     */
+    public void registerJWKSEndpoint(String jwksUri, Object mBean) {
+
+        if (!enabled) {
+            return;
+        }
+        try {
+            ObjectName objectName = new ObjectName(JWKS_ENDPOINT_OBJECT_NAME + ObjectName.quote(jwksUri));
+            register(ManagementFactory.getPlatformMBeanServer(), objectName, mBean);
+            jwksEndpointNames.add(objectName);
+        } catch (JMException e) {
+            log.error("Error occurred while registering the MBean of the JWKS endpoint: " + jwksUri, e);
+        }
+    }
+
+    /**
+     * Unregister the MXBean of the state of a JWKS endpoint, once the endpoint is no longer in use.
+     *
+     * @param jwksUri JWKS endpoint URL.
+     */
+    public void unregisterJWKSEndpoint(String jwksUri) {
+
+        if (!enabled) {
+            return;
+        }
+        try {
+            ObjectName objectName = new ObjectName(JWKS_ENDPOINT_OBJECT_NAME + ObjectName.quote(jwksUri));
+            unregister(ManagementFactory.getPlatformMBeanServer(), objectName);
+            jwksEndpointNames.remove(objectName);
+        } catch (JMException e) {
+            log.error("Error occurred while unregistering the MBean of the JWKS endpoint: " + jwksUri, e);
+        }
+    }
+
+    private static void register(MBeanServer mBeanServer, ObjectName objectName, Object mBean) throws JMException {
+
+        unregister(mBeanServer, objectName);
+        mBeanServer.registerMBean(mBean, objectName);
+    }
+
+    private static void unregister(MBeanServer mBeanServer, ObjectName objectName) throws JMException {
+
+        if (mBeanServer.isRegistered(objectName)) {
+            mBeanServer.unregisterMBean(objectName);
+        }
+    }
+}
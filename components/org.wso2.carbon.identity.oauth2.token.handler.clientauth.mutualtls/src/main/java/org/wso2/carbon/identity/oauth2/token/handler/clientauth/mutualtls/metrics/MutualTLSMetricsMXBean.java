@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the outcomes of Mutual TLS client authentication.
+ */
+public interface MutualTLSMetricsMXBean {
+
+    /**
+     * @return Number of client authentications by outcome.
+     */
+    Map<String, Long> getOutcomeCounts();
+
+    /**
+     * @return Number of clients authenticated.
+     */
+    long getAuthenticatedCount();
+
+    /**
+     * @return Number of clients which failed to authenticate, for any reason.
+     */
+    long getFailedCount();
+}
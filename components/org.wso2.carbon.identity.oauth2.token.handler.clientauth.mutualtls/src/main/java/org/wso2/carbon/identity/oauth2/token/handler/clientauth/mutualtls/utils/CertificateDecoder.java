@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+
+/**
+ * Decoder of the X.509 certificates sent in request headers.
+ * <p>
+ * The certificate content is read in a single pass. PEM armor lines, whitespace and escaped new lines are skipped,
+ * URL encoded characters are decoded as they are read, and the Base64 content is decoded straight into a per thread
+ * buffer from which the DER encoded certificate is parsed.
+ */
+public final class CertificateDecoder {
+
+    private static final int MAX_REUSED_BUFFER_SIZE = 16 * 1024;
+    private static final int[] BASE64_VALUES = new int[128];
+
+    private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<>();
+    private static final ThreadLocal<CertificateFactory> CERTIFICATE_FACTORY = new ThreadLocal<>();
+
+    static {
+        Arrays.fill(BASE64_VALUES, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private CertificateDecoder() {
+
+    }
+
+    /**
+     * Decode the X.509 certificate in the given content. The content is the Base64 encoded DER certificate,
+     * optionally with the PEM armor, and optionally URL encoded.
+     *
+     * @param content Certificate content.
+     * @return X.509 certificate.
+     * @throws CertificateException If the content is not a valid certificate.
+     */
+    public static X509Certificate decode(String content) throws CertificateException {
+
+        if (content == null) {
+            throw new CertificateException("Certificate content is not available.");
+        }
+        byte[] buffer = getBuffer(content.length() / 4 * 3 + 3);
+        boolean urlEncoded = content.indexOf('%') >= 0;
+        int length = decodeBase64(content, urlEncoded, buffer);
+        if (length < 0 && !urlEncoded && content.indexOf('+') >= 0) {
+            // A '+' is a Base64 character, unless the content is URL encoded with spaces encoded as '+'.
+            length = decodeBase64(content, true, buffer);
+        }
+        if (length <= 0) {
+            throw new CertificateException("Certificate content is not valid Base64.");
+        }
+        return (X509Certificate) getCertificateFactory()
+                .generateCertificate(new ByteArrayInputStream(buffer, 0, length));
+    }
+
+    /**
+     * Decode the Base64 content of the certificate into the given buffer.
+     *
+     * @param content    Certificate content.
+     * @param urlEncoded Whether the content is URL encoded.
+     * @param buffer     Buffer large enough for the decoded content.
+     * @return Number of bytes decoded into the buffer, or -1 if the content is not valid.
+     */
+    private static int decodeBase64(String content, boolean urlEncoded, byte[] buffer) {
+
+        int contentLength = content.length();
+        int length = 0;
+        int bits = 0;
+        int bitCount = 0;
+        int armorDashRuns = 0;
+        boolean inArmor = false;
+        boolean previousDash = false;
+        boolean padded = false;
+        boolean escaped = false;
+
+        int i = 0;
+        while (i < contentLength) {
+            char c = content.charAt(i++);
+            if (urlEncoded) {
+                if (c == '%') {
+                    if (i + 2 > contentLength) {
+                        return -1;
+                    }
+                    int high = Character.digit(content.charAt(i), 16);
+                    int low = Character.digit(content.charAt(i + 1), 16);
+                    if (high < 0 || low < 0) {
+                        return -1;
+                    }
+                    c = (char) ((high << 4) | low);
+                    i += 2;
+                } else if (c == '+') {
+                    c = ' ';
+                }
+            }
+
+            if (escaped) {
+                // Only an escaped new line ("\n") is allowed in the content.
+                if (c != 'n') {
+                    return -1;
+                }
+                escaped = false;
+                continue;
+            }
+            if (c == '-') {
+                // Armor lines such as "-----BEGIN CERTIFICATE-----" are dashes, a label and dashes again.
+                if (!inArmor) {
+                    inArmor = true;
+                    armorDashRuns = 1;
+                } else if (!previousDash) {
+                    armorDashRuns = 2;
+                }
+                previousDash = true;
+                continue;
+            }
+            previousDash = false;
+            if (inArmor) {
+                if (armorDashRuns == 2) {
+                    inArmor = false;
+                } else {
+                    // Part of the label of the armor line.
+                    continue;
+                }
+            }
+            if (c == '\\') {
+                escaped = true;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            if (c == '=') {
+                padded = true;
+                continue;
+            }
+            int value = c < BASE64_VALUES.length ? BASE64_VALUES[c] : -1;
+            if (value < 0 || padded) {
+                return -1;
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                buffer[length++] = (byte) (bits >> bitCount);
+                bits &= (1 << bitCount) - 1;
+            }
+        }
+        if (escaped || (inArmor && armorDashRuns == 1) || bitCount >= 6) {
+            return -1;
+        }
+        return length;
+    }
+
+    private static byte[] getBuffer(int size) {
+
+        byte[] buffer = BUFFER.get();
+        if (buffer == null || buffer.length < size) {
+            buffer = new byte[size];
+            if (size <= MAX_REUSED_BUFFER_SIZE) {
+                BUFFER.set(buffer);
+            }
+        }
+        return buffer;
+    }
+
+    private static CertificateFactory getCertificateFactory() throws CertificateException {
+
+        CertificateFactory certificateFactory = CERTIFICATE_FACTORY.get();
+        if (certificateFactory == null) {
+            certificateFactory = CertificateFactory.getInstance(CommonConstants.X509);
+            CERTIFICATE_FACTORY.set(certificateFactory);
+        }
+        return certificateFactory;
+    }
+}
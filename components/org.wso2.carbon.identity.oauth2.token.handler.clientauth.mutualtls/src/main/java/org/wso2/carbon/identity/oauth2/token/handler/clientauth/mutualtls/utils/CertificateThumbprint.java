@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils;
+
+import com.nimbusds.jose.util.Base64URL;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+
+/**
+ * SHA-1 and SHA-256 thumbprints of an X.509 certificate, kept as raw digests. Both digests are computed from a single
+ * DER encoding of the certificate, with message digests reused per thread, and are compared in time independent of
+ * where they differ. The string forms used for logs, JWKS lookups and the cnf claim are only built when asked for.
+ */
+public final class CertificateThumbprint {
+
+    private static final String SHA1 = "SHA-1";
+    private static final String SHA256 = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> SHA1_DIGEST = new ThreadLocal<>();
+    private static final ThreadLocal<MessageDigest> SHA256_DIGEST = new ThreadLocal<>();
+
+    private final byte[] sha1;
+    private final byte[] sha256;
+    private volatile String thumbprint;
+    private volatile String sha1Thumbprint;
+    private volatile Base64URL x5tS256;
+
+    private CertificateThumbprint(byte[] sha1, byte[] sha256) {
+
+        this.sha1 = sha1;
+        this.sha256 = sha256;
+    }
+
+    /**
+     * Compute the SHA-1 and SHA-256 thumbprints of a certificate.
+     *
+     * @param certificate X.509 certificate.
+     * @return Thumbprints of the certificate.
+     * @throws CertificateEncodingException If the certificate cannot be encoded.
+     */
+    public static CertificateThumbprint of(X509Certificate certificate) throws CertificateEncodingException {
+
+        byte[] encoded = certificate.getEncoded();
+        return new CertificateThumbprint(getDigest(SHA1_DIGEST, SHA1).digest(encoded),
+                getDigest(SHA256_DIGEST, SHA256).digest(encoded));
+    }
+
+    /**
+     * @param certificate X.509 certificate.
+     * @return SHA-1 digest of the DER encoded certificate.
+     * @throws CertificateEncodingException If the certificate cannot be encoded.
+     */
+    public static byte[] sha1(X509Certificate certificate) throws CertificateEncodingException {
+
+        return getDigest(SHA1_DIGEST, SHA1).digest(certificate.getEncoded());
+    }
+
+    /**
+     * @param certificate X.509 certificate.
+     * @return SHA-256 digest of the DER encoded certificate.
+     * @throws CertificateEncodingException If the certificate cannot be encoded.
+     */
+    public static byte[] sha256(X509Certificate certificate) throws CertificateEncodingException {
+
+        return getDigest(SHA256_DIGEST, SHA256).digest(certificate.getEncoded());
+    }
+
+    /**
+     * @param certificate X.509 certificate.
+     * @return SHA-256 digest of the DER encoded subject public key info of the certificate.
+     */
+    public static byte[] publicKeySha256(X509Certificate certificate) {
+
+        return getDigest(SHA256_DIGEST, SHA256).digest(certificate.getPublicKey().getEncoded());
+    }
+
+    /**
+     * Compare two digests in time independent of where they differ.
+     *
+     * @return true if both digests are present and equal.
+     */
+    public static boolean matches(byte[] digest, byte[] otherDigest) {
+
+        return digest != null && otherDigest != null && MessageDigest.isEqual(digest, otherDigest);
+    }
+
+    /**
+     * @param bytes Bytes of a message digest.
+     * @return Lower case hexadecimal representation of the bytes.
+     */
+    public static String toHex(byte[] bytes) {
+
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] & 0xf0) >> 4];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * @param digest Bytes of a message digest.
+     * @return Base64URL encoded lower case hexadecimal representation of the digest, which is the thumbprint format
+     * of the OAuth2 component.
+     */
+    public static String toHexBase64URL(byte[] digest) {
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                toHex(digest).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decode a thumbprint in the format of the OAuth2 component back into its digest.
+     *
+     * @param thumbprint Base64URL encoded lower case hexadecimal representation of a digest.
+     * @return Bytes of the digest, or null if the thumbprint is not in the format of the OAuth2 component.
+     */
+    public static byte[] fromHexBase64URL(String thumbprint) {
+
+        if (thumbprint == null) {
+            return null;
+        }
+        byte[] hex;
+        try {
+            hex = Base64.getUrlDecoder().decode(thumbprint);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (hex.length % 2 != 0) {
+            return null;
+        }
+        byte[] digest = new byte[hex.length / 2];
+        for (int i = 0; i < digest.length; i++) {
+            int high = Character.digit(hex[2 * i], 16);
+            int low = Character.digit(hex[2 * i + 1], 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            digest[i] = (byte) (high << 4 | low);
+        }
+        return digest;
+    }
+
+    /**
+     * @return SHA-1 digest of the certificate. The returned array must not be modified.
+     */
+    public byte[] getSha1() {
+
+        return sha1;
+    }
+
+    /**
+     * @return SHA-256 digest of the certificate. The returned array must not be modified.
+     */
+    public byte[] getSha256() {
+
+        return sha256;
+    }
+
+    /**
+     * @param digest SHA-256 digest of a certificate.
+     * @return true if the digest is the SHA-256 digest of this certificate.
+     */
+    public boolean matchesSha256(byte[] digest) {
+
+        return matches(sha256, digest);
+    }
+
+    /**
+     * @return Base64URL encoded hexadecimal SHA-256 digest, which is the thumbprint format of the OAuth2 component.
+     */
+    public String getThumbprint() {
+
+        String value = thumbprint;
+        if (value == null) {
+            value = toHexBase64URL(sha256);
+            thumbprint = value;
+        }
+        return value;
+    }
+
+    /**
+     * @return Base64URL encoded hexadecimal SHA-1 digest, which is the legacy thumbprint format of this component.
+     */
+    public String getSha1Thumbprint() {
+
+        String value = sha1Thumbprint;
+        if (value == null) {
+            value = toHexBase64URL(sha1);
+            sha1Thumbprint = value;
+        }
+        return value;
+    }
+
+    /**
+     * @return Base64URL encoded SHA-256 digest, as used in the x5t#S256 confirmation of certificate bound tokens.
+     */
+    public Base64URL getX5tS256() {
+
+        Base64URL value = x5tS256;
+        if (value == null) {
+            value = Base64URL.encode(sha256);
+            x5tS256 = value;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        return o instanceof CertificateThumbprint && matchesSha256(((CertificateThumbprint) o).sha256);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return (sha256[0] & 0xff) << 24 | (sha256[1] & 0xff) << 16 | (sha256[2] & 0xff) << 8 | (sha256[3] & 0xff);
+    }
+
+    /**
+     * @return Hexadecimal SHA-256 digest of the certificate, for logging.
+     */
+    @Override
+    public String toString() {
+
+        return toHex(sha256);
+    }
+
+    private static MessageDigest getDigest(ThreadLocal<MessageDigest> digests, String algorithm) {
+
+        MessageDigest digest = digests.get();
+        if (digest == null) {
+            try {
+                digest = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                // Every Java platform is required to support SHA-1 and SHA-256.
+                throw new IllegalStateException(algorithm + " message digest is not available.", e);
+            }
+            digests.set(digest);
+        }
+        return digest;
+    }
+}
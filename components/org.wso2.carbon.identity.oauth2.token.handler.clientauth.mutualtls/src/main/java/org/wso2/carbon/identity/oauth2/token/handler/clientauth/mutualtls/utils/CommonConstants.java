@@ -32,17 +32,105 @@ public class CommonConstants {
     public static final String SHA256_DIGEST_ALGORITHM = "SHA256";
     public static final String AUTHENTICATOR_TYPE_PARAM = "authenticatorType";
     public static final String AUTHENTICATOR_TYPE_MTLS = "mtls";
+    public static final String MTLS_REQUEST_CONTEXT_PARAM = "mtlsRequestContext";
+    public static final String MTLS_CLIENT_CERTIFICATE_PARAM = "mtlsClientCertificate";
+    public static final String OAUTH2_INBOUND_AUTH_TYPE = "oauth2";
     public static final String BEGIN_CERT = "-----BEGIN CERTIFICATE-----";
     public static final String END_CERT = "-----END CERTIFICATE-----";
     public static final String MTLS_AUTH_HEADER = "MutualTLS.ClientCertificateHeader";
     public static final String X5T = "x5t";
     public static final String X5C = "x5c";
+    public static final String KID = "kid";
     public static final String X509 = "X.509";
     public static final String HTTP_CONNECTION_TIMEOUT_XPATH = "JWTValidatorConfigs.JWKSEndpoint" +
             ".HTTPConnectionTimeout";
     public static final String HTTP_READ_TIMEOUT_XPATH = "JWTValidatorConfigs.JWKSEndpoint" +
             ".HTTPReadTimeout";
     public static final String KEYS = "keys";
+    public static final String JWKS_FETCH_WAIT_TIMEOUT_XPATH = "MutualTLS.JWKSFetchWaitTimeout";
+    public static final int DEFAULT_JWKS_FETCH_WAIT_TIMEOUT = 10000;
+    public static final String JWKS_CACHE_SOFT_TTL_XPATH = "MutualTLS.JWKSCache.SoftTTL";
+    public static final String JWKS_CACHE_HARD_TTL_XPATH = "MutualTLS.JWKSCache.HardTTL";
+    public static final String JWKS_CACHE_STALE_WHILE_REVALIDATE_XPATH = "MutualTLS.JWKSCache.StaleWhileRevalidate";
+    public static final String JWKS_CACHE_STALE_IF_ERROR_XPATH = "MutualTLS.JWKSCache.StaleIfError";
+    public static final int DEFAULT_JWKS_CACHE_SOFT_TTL = 300;
+    public static final int DEFAULT_JWKS_CACHE_HARD_TTL = 3600;
+    public static final String JWKS_CACHE_IDLE_TIMEOUT_XPATH = "MutualTLS.JWKSCache.IdleTimeout";
+    public static final String JWKS_BACKGROUND_REFRESH_ENABLE_XPATH = "MutualTLS.JWKSCache.BackgroundRefresh.Enable";
+    public static final String JWKS_BACKGROUND_REFRESH_MIN_INTERVAL_XPATH =
+            "MutualTLS.JWKSCache.BackgroundRefresh.MinInterval";
+    public static final String JWKS_BACKGROUND_REFRESH_MAX_INTERVAL_XPATH =
+            "MutualTLS.JWKSCache.BackgroundRefresh.MaxInterval";
+    public static final int DEFAULT_JWKS_CACHE_IDLE_TIMEOUT = 3600;
+    public static final int DEFAULT_JWKS_BACKGROUND_REFRESH_MIN_INTERVAL = 60;
+    public static final int DEFAULT_JWKS_BACKGROUND_REFRESH_MAX_INTERVAL = 600;
+    public static final String JWKS_CIRCUIT_BREAKER_FAILURE_THRESHOLD_XPATH =
+            "MutualTLS.JWKSCache.CircuitBreaker.FailureThreshold";
+    public static final String JWKS_CIRCUIT_BREAKER_INITIAL_BACKOFF_XPATH =
+            "MutualTLS.JWKSCache.CircuitBreaker.InitialBackoff";
+    public static final String JWKS_CIRCUIT_BREAKER_MAX_BACKOFF_XPATH = "MutualTLS.JWKSCache.CircuitBreaker.MaxBackoff";
+    public static final int DEFAULT_JWKS_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 3;
+    public static final int DEFAULT_JWKS_CIRCUIT_BREAKER_INITIAL_BACKOFF = 5;
+    public static final int DEFAULT_JWKS_CIRCUIT_BREAKER_MAX_BACKOFF = 300;
+    public static final String JWKS_MAX_CONNECTIONS_PER_HOST_XPATH = "MutualTLS.JWKSEndpoint.MaxConnectionsPerHost";
+    public static final String JWKS_MAX_RESPONSE_SIZE_XPATH = "MutualTLS.JWKSEndpoint.MaxResponseSize";
+    public static final int DEFAULT_JWKS_MAX_CONNECTIONS_PER_HOST = 10;
+    // Size in bytes above which a JWKS response is rejected. JWK sets carrying x5c certificate chains for many keys
+    // can reach hundreds of kilobytes, so only a response far larger than any JWK set is rejected by default.
+    public static final int DEFAULT_JWKS_MAX_RESPONSE_SIZE = 1048576;
+    public static final String JWKS_MAX_CONCURRENT_FETCHES_XPATH = "MutualTLS.JWKSEndpoint.MaxConcurrentFetches";
+    public static final String JWKS_MAX_WAITING_REQUESTS_XPATH = "MutualTLS.JWKSEndpoint.MaxWaitingRequests";
+    public static final String JWKS_QUEUE_TIMEOUT_XPATH = "MutualTLS.JWKSEndpoint.QueueTimeout";
+    public static final int DEFAULT_JWKS_MAX_CONCURRENT_FETCHES = 50;
+    // Requests waiting for the fetch of a JWKS endpoint are not limited unless a maximum is configured.
+    public static final int DEFAULT_JWKS_MAX_WAITING_REQUESTS = 0;
+    public static final int DEFAULT_JWKS_QUEUE_TIMEOUT = 100;
+    public static final String CLIENT_CERTIFICATE_CACHE_ENABLE_XPATH = "MutualTLS.ClientCertificateCache.Enable";
+    public static final String CLIENT_CERTIFICATE_CACHE_MAX_SIZE_XPATH = "MutualTLS.ClientCertificateCache.MaxSize";
+    // Maximum size of the client certificate cache in kilobytes.
+    public static final int DEFAULT_CLIENT_CERTIFICATE_CACHE_MAX_SIZE = 16384;
+    public static final String AUTHENTICATION_RESULT_CACHE_ENABLE_XPATH = "MutualTLS.AuthenticationResultCache.Enable";
+    public static final String AUTHENTICATION_RESULT_CACHE_TTL_XPATH = "MutualTLS.AuthenticationResultCache.TTL";
+    public static final String AUTHENTICATION_RESULT_CACHE_MAX_CERTIFICATES_XPATH =
+            "MutualTLS.AuthenticationResultCache.MaxCertificatesPerClient";
+    public static final String AUTHENTICATION_RESULT_CACHE_NEGATIVE_ENABLE_XPATH =
+            "MutualTLS.AuthenticationResultCache.NegativeCache.Enable";
+    public static final String AUTHENTICATION_RESULT_CACHE_NEGATIVE_TTL_XPATH =
+            "MutualTLS.AuthenticationResultCache.NegativeCache.TTL";
+    public static final String AUTHENTICATION_RESULT_CACHE_NEGATIVE_MAX_CERTIFICATES_XPATH =
+            "MutualTLS.AuthenticationResultCache.NegativeCache.MaxCertificatesPerClient";
+    public static final int DEFAULT_AUTHENTICATION_RESULT_CACHE_TTL = 60;
+    public static final int DEFAULT_AUTHENTICATION_RESULT_CACHE_MAX_CERTIFICATES = 10;
+    public static final int DEFAULT_AUTHENTICATION_RESULT_CACHE_NEGATIVE_TTL = 5;
+    public static final int DEFAULT_AUTHENTICATION_RESULT_CACHE_NEGATIVE_MAX_CERTIFICATES = 100;
+    public static final String TLS_SESSION_CACHE_ENABLE_XPATH = "MutualTLS.TLSSessionCache.Enable";
+    public static final String TLS_SESSION_CACHE_TTL_XPATH = "MutualTLS.TLSSessionCache.TTL";
+    public static final String TLS_SESSION_CACHE_MAX_ENTRIES_XPATH = "MutualTLS.TLSSessionCache.MaxEntries";
+    public static final int DEFAULT_TLS_SESSION_CACHE_TTL = 300;
+    public static final int DEFAULT_TLS_SESSION_CACHE_MAX_ENTRIES = 10000;
+    public static final String CERTIFICATE_FILTER_ENABLE_XPATH = "MutualTLS.CertificateFilter.Enable";
+    public static final String CERTIFICATE_FILTER_ENFORCE_XPATH = "MutualTLS.CertificateFilter.Enforce";
+    public static final String CERTIFICATE_FILTER_EXPECTED_ENTRIES_XPATH =
+            "MutualTLS.CertificateFilter.ExpectedEntries";
+    public static final String CERTIFICATE_FILTER_FALSE_POSITIVE_RATE_XPATH =
+            "MutualTLS.CertificateFilter.FalsePositiveRate";
+    public static final String CERTIFICATE_FILTER_WARM_UP_PERIOD_XPATH = "MutualTLS.CertificateFilter.WarmUpPeriod";
+    public static final String CERTIFICATE_FILTER_UNKNOWN_CERTIFICATE_RATE_XPATH =
+            "MutualTLS.CertificateFilter.UnknownCertificateRate";
+    public static final int DEFAULT_CERTIFICATE_FILTER_EXPECTED_ENTRIES = 100000;
+    public static final double DEFAULT_CERTIFICATE_FILTER_FALSE_POSITIVE_RATE = 0.01;
+    public static final int DEFAULT_CERTIFICATE_FILTER_WARM_UP_PERIOD = 3600;
+    public static final int DEFAULT_CERTIFICATE_FILTER_UNKNOWN_CERTIFICATE_RATE = 10;
+    public static final String ADMISSION_CONTROL_ENABLE_XPATH = "MutualTLS.AdmissionControl.Enable";
+    public static final String ADMISSION_CONTROL_FAILURE_BURST_XPATH = "MutualTLS.AdmissionControl.FailureBurst";
+    public static final String ADMISSION_CONTROL_FAILURE_RATE_XPATH = "MutualTLS.AdmissionControl.FailureRate";
+    public static final String ADMISSION_CONTROL_SOURCE_ADDRESS_ENABLE_XPATH =
+            "MutualTLS.AdmissionControl.SourceAddress.Enable";
+    public static final String ADMISSION_CONTROL_MAX_ENTRIES_XPATH = "MutualTLS.AdmissionControl.MaxEntries";
+    public static final int DEFAULT_ADMISSION_CONTROL_FAILURE_BURST = 10;
+    public static final int DEFAULT_ADMISSION_CONTROL_FAILURE_RATE = 10;
+    public static final int DEFAULT_ADMISSION_CONTROL_MAX_ENTRIES = 10000;
+    public static final String METRICS_ENABLE_XPATH = "MutualTLS.Metrics.Enable";
     public static final String OAUTH_JWT_BEARER_GRANT_TYPE = "urn:ietf:params:oauth:client-assertion-type:jwt-bearer";
     public static final String AUTHENTICATOR_TYPE_PK_JWT = "pkJWT";
 
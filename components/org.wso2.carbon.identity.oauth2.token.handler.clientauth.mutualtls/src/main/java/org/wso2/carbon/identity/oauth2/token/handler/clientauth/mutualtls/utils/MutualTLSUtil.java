@@ -18,8 +18,6 @@
 
 package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils;
 
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.io.Charsets;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -27,10 +25,7 @@ import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.identity.application.common.model.ServiceProvider;
 import org.wso2.carbon.identity.application.common.model.ServiceProviderProperty;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
-import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
-import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
@@ -47,6 +42,11 @@ public class MutualTLSUtil {
      */
     public static final String JAVAX_SERVLET_REQUEST_CERTIFICATE = "javax.servlet.request.X509Certificate";
 
+    /**
+     * Attribute name for reading the id of the TLS session of the request.
+     */
+    public static final String JAVAX_SERVLET_REQUEST_SSL_SESSION_ID = "javax.servlet.request.ssl_session_id";
+
     /**
      * Helper method to retrieve the thumbprint of a X509 certificate.
      *
@@ -59,31 +59,19 @@ public class MutualTLSUtil {
     public static String getThumbPrint(X509Certificate cert) throws NoSuchAlgorithmException,
             CertificateEncodingException {
 
-        MessageDigest md = MessageDigest.getInstance("SHA-1");
-        byte[] certEncoded = cert.getEncoded();
-        md.update(certEncoded);
-        return new String(new Base64(0, null, true).encode(
-                hexify(md.digest()).getBytes(Charsets.UTF_8)), Charsets.UTF_8);
+        return CertificateThumbprint.toHexBase64URL(CertificateThumbprint.sha1(cert));
     }
 
     /**
-     * Helper method to retrieve the thumbprint of a X509 certificate.
+     * Helper method to retrieve the thumbprint of a X509 certificate, in the same format as the OAuth2 component.
      *
      * @param cert X509 certificate
      * @return Thumbprint of the X509 certificate
-     * @throws NoSuchAlgorithmException
      * @throws CertificateEncodingException
      */
     public static String getThumbPrint(X509Certificate cert, String alias) throws CertificateEncodingException {
 
-        try {
-            return OAuth2Util.getThumbPrint(cert, alias);
-        } catch (IdentityOAuth2Exception e) {
-            if (log.isDebugEnabled()) {
-                log.debug("An error occurred while getting the thumbprint of the certificate: " + cert.toString());
-            }
-            throw new CertificateEncodingException("Error occurred while getting certificate thumbprint", e);
-        }
+        return CertificateThumbprint.toHexBase64URL(CertificateThumbprint.sha256(cert));
     }
 
     /**
@@ -94,13 +82,7 @@ public class MutualTLSUtil {
      */
     public static String hexify(byte bytes[]) {
 
-        StringBuilder builder = new StringBuilder(bytes.length * 2);
-        char[] hexDigits = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
-
-        for (byte byteValue : bytes) {
-            builder.append(hexDigits[(byteValue & 0xf0) >> 4]).append(hexDigits[byteValue & 0x0f]);
-        }
-        return builder.toString();
+        return CertificateThumbprint.toHex(bytes);
     }
 
 
@@ -125,6 +107,50 @@ public class MutualTLSUtil {
         return configValue;
     }
 
+    /**
+     * Read an integer config of the Mutual TLS client authentication from identity.xml file.
+     *
+     * @param xPath xpath of the config property.
+     * @return Config property value, or 0 if it is not configured or is not an integer.
+     */
+    public static int readIntConfigValue(String xPath) {
+
+        int configValue = 0;
+        String config = StringUtils.trim(IdentityUtil.getProperty(xPath));
+        if (StringUtils.isNotBlank(config)) {
+            try {
+                configValue = Integer.parseInt(config);
+            } catch (NumberFormatException e) {
+                log.error("Provided config value in " + xPath + " should be an integer type. Value : " + config);
+            }
+        }
+        return configValue;
+    }
+
+    /**
+     * Read an integer config of the Mutual TLS client authentication from identity.xml file.
+     *
+     * @param xPath        xpath of the config property.
+     * @param defaultValue Value used if the config property is not configured, is not an integer, or is below the
+     *                     minimum value.
+     * @param minValue     Minimum value of the config property.
+     * @return Config property value, or the default value.
+     */
+    public static int readIntConfigValue(String xPath, int defaultValue, int minValue) {
+
+        String config = StringUtils.trim(IdentityUtil.getProperty(xPath));
+        if (StringUtils.isBlank(config)) {
+            return defaultValue;
+        }
+        try {
+            int configValue = Integer.parseInt(config);
+            return configValue >= minValue ? configValue : defaultValue;
+        } catch (NumberFormatException e) {
+            log.error("Provided config value in " + xPath + " should be an integer type. Value : " + config);
+            return defaultValue;
+        }
+    }
+
     /**
      * Checking Whether JWKS URI configured in the UI or not.
      *
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for MutualTLSAdmissionController class.
+ */
+public class MutualTLSAdmissionControllerTest {
+
+    private static final String CLIENT_ID = "client";
+    private static final String OTHER_CLIENT_ID = "other-client";
+    private static final byte[] CERTIFICATE = new byte[]{1, 2};
+    private static final byte[] OTHER_CERTIFICATE = new byte[]{3, 4};
+    private static final String SOURCE_ADDRESS = "192.0.2.10";
+    private static final String OTHER_SOURCE_ADDRESS = "192.0.2.20";
+
+    private TestAdmissionController controller;
+
+    @BeforeMethod
+    public void setUp() {
+
+        // A burst of 3 failures, with a failure given back every second.
+        controller = new TestAdmissionController(true, 3, 60, false, 100);
+    }
+
+    @Test
+    public void testClientIsShedAfterRepeatedFailures() {
+
+        controller.recordFailure(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS);
+        controller.recordFailure(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS);
+        assertTrue(controller.isAdmitted(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+
+        controller.recordFailure(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS);
+        assertFalse(controller.isAdmitted(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+        assertFalse(controller.isAdmitted(CLIENT_ID, CERTIFICATE, OTHER_SOURCE_ADDRESS));
+        assertTrue(controller.isAdmitted(OTHER_CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+
+        assertEquals(controller.getShedClients(), Collections.singletonMap(CLIENT_ID + " 0102", 2L));
+        assertEquals(controller.getShedClientCount(), 2);
+        assertEquals(controller.getAdmittedCount(), 2);
+        assertEquals(controller.getFailureCount(), 3);
+        assertEquals(controller.getTrackedClientCount(), 1);
+        assertEquals(controller.getTrackedSourceAddressCount(), 0);
+    }
+
+    @Test
+    public void testFailuresAreGivenBackOverTime() {
+
+        for (int i = 0; i < 5; i++) {
+            controller.recordFailure(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS);
+        }
+        controller.now = 999;
+        assertFalse(controller.isAdmitted(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+
+        // Failures recorded while the client was shed are not counted, so a single attempt is let through.
+        controller.now = 1000;
+        assertTrue(controller.isAdmitted(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+        controller.recordFailure(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS);
+        assertFalse(controller.isAdmitted(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+
+        controller.now = 4000;
+        assertTrue(controller.isAdmitted(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+        assertTrue(controller.getShedClients().isEmpty());
+    }
+
+    @Test
+    public void testSuccessGivesBackFailures() {
+
+        for (int i = 0; i < 3; i++) {
+            controller.recordFailure(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS);
+        }
+        assertFalse(controller.isAdmitted(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+
+        controller.recordSuccess(CLIENT_ID, CERTIFICATE);
+        assertTrue(controller.isAdmitted(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+        assertEquals(controller.getTrackedClientCount(), 0);
+
+        for (int i = 0; i < 3; i++) {
+            controller.recordFailure(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS);
+        }
+        controller.clearEntries(CLIENT_ID);
+        assertTrue(controller.isAdmitted(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+    }
+
+    @Test
+    public void testFailuresAreTrackedPerCertificate() {
+
+        for (int i = 0; i < 3; i++) {
+            controller.recordFailure(CLIENT_ID, OTHER_CERTIFICATE, SOURCE_ADDRESS);
+        }
+        assertFalse(controller.isAdmitted(CLIENT_ID, OTHER_CERTIFICATE, SOURCE_ADDRESS));
+        // Failures of anyone claiming the client id with another certificate do not shed the certificate of the client.
+        assertTrue(controller.isAdmitted(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+
+        for (int i = 0; i < 3; i++) {
+            controller.recordFailure(CLIENT_ID, null, SOURCE_ADDRESS);
+        }
+        assertFalse(controller.isAdmitted(CLIENT_ID, null, SOURCE_ADDRESS));
+        assertTrue(controller.isAdmitted(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+        assertEquals(controller.getTrackedClientCount(), 2);
+
+        controller.clearEntries(CLIENT_ID);
+        assertTrue(controller.isAdmitted(CLIENT_ID, OTHER_CERTIFICATE, SOURCE_ADDRESS));
+        assertTrue(controller.isAdmitted(CLIENT_ID, null, SOURCE_ADDRESS));
+        assertEquals(controller.getTrackedClientCount(), 0);
+    }
+
+    @Test
+    public void testSourceAddressIsShedAfterRepeatedFailures() {
+
+        controller = new TestAdmissionController(true, 3, 60, true, 100);
+        controller.recordFailure("client-1", CERTIFICATE, SOURCE_ADDRESS);
+        controller.recordFailure("client-2", CERTIFICATE, SOURCE_ADDRESS);
+        controller.recordFailure("client-3", CERTIFICATE, SOURCE_ADDRESS);
+
+        assertFalse(controller.isAdmitted(OTHER_CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+        assertTrue(controller.isAdmitted(OTHER_CLIENT_ID, CERTIFICATE, OTHER_SOURCE_ADDRESS));
+        assertTrue(controller.isAdmitted(OTHER_CLIENT_ID, CERTIFICATE, null));
+        assertEquals(controller.getShedSourceAddresses(), Collections.singletonMap(SOURCE_ADDRESS, 1L));
+        assertEquals(controller.getShedSourceAddressCount(), 1);
+
+        // A success of a client does not give back the failures of its source address.
+        controller.recordSuccess("client-1", CERTIFICATE);
+        assertFalse(controller.isAdmitted("client-1", CERTIFICATE, SOURCE_ADDRESS));
+    }
+
+    @Test
+    public void testSourceAddressIsNotShedUnlessEnabled() {
+
+        controller.recordFailure("client-1", CERTIFICATE, SOURCE_ADDRESS);
+        controller.recordFailure("client-2", CERTIFICATE, SOURCE_ADDRESS);
+        controller.recordFailure("client-3", CERTIFICATE, SOURCE_ADDRESS);
+
+        assertFalse(controller.isSourceAddressEnabled());
+        assertTrue(controller.isAdmitted(OTHER_CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+    }
+
+    @Test
+    public void testFullBucketsAreRemovedOnceMaxEntriesAreTracked() {
+
+        controller = new TestAdmissionController(true, 3, 60, false, 1);
+        controller.recordFailure(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS);
+        controller.recordFailure(OTHER_CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS);
+        assertEquals(controller.getTrackedClientCount(), 1);
+        assertEquals(controller.getUntrackedCount(), 1);
+
+        controller.now = 1000;
+        controller.recordFailure(OTHER_CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS);
+        assertEquals(controller.getTrackedClientCount(), 1);
+        assertEquals(controller.getUntrackedCount(), 1);
+    }
+
+    @Test
+    public void testDisabledControllerAdmitsEveryAttempt() {
+
+        controller = new TestAdmissionController(false, 3, 60, true, 100);
+        for (int i = 0; i < 10; i++) {
+            controller.recordFailure(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS);
+        }
+
+        assertFalse(controller.isEnabled());
+        assertTrue(controller.isAdmitted(CLIENT_ID, CERTIFICATE, SOURCE_ADDRESS));
+        assertEquals(controller.getTrackedClientCount(), 0);
+        assertEquals(controller.getFailureCount(), 0);
+    }
+
+    private static class TestAdmissionController extends MutualTLSAdmissionController {
+
+        private long now;
+
+        TestAdmissionController(boolean enabled, int failureBurst, int failureRate, boolean sourceAddressEnabled,
+                                int maxEntries) {
+
+            super(enabled, failureBurst, failureRate, sourceAddressEnabled, maxEntries);
+        }
+
+        @Override
+        protected long getCurrentTime() {
+
+            return now;
+        }
+    }
+}
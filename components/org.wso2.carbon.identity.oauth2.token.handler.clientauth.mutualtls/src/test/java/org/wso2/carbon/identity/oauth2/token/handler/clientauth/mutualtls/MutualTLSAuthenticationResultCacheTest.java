@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.common.testng.WithRealmService;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSAuthenticationResultCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSAuthenticationResultCacheEntry;
+
+import java.net.URL;
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for MutualTLSAuthenticationResultCache class.
+ */
+@WithCarbonHome
+@WithRealmService
+public class MutualTLSAuthenticationResultCacheTest {
+
+    private static final String CLIENT_ID = "client";
+    private static final String OTHER_CLIENT_ID = "other-client";
+
+    private TestResultCache cache;
+    private byte[] digest;
+
+    @BeforeMethod
+    public void setUp() {
+
+        cache = new TestResultCache(60000, 2, 5000, 1);
+        cache.clear();
+        digest = new byte[32];
+        Arrays.fill(digest, (byte) 1);
+    }
+
+    @Test
+    public void testCachePut() {
+
+        MutualTLSAuthenticationResultCacheEntry clientResults = cache.getClientResults(CLIENT_ID);
+        assertSame(cache.getClientResults(CLIENT_ID), clientResults);
+        assertNull(cache.getResult(clientResults, digest));
+        cache.addResult(clientResults, digest, true);
+
+        // A different array with the same digest hits the same entry.
+        assertEquals(cache.getResult(cache.getClientResults(CLIENT_ID), digest.clone()), Boolean.TRUE);
+        assertNull(cache.getResult(cache.getClientResults(OTHER_CLIENT_ID), digest));
+        assertNull(cache.getResult(clientResults, new byte[32]));
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 3);
+    }
+
+    @Test
+    public void testFailedAuthenticationsAreKeptApart() {
+
+        byte[] otherDigest = new byte[32];
+        MutualTLSAuthenticationResultCacheEntry clientResults = cache.getClientResults(CLIENT_ID);
+        MutualTLSAuthenticationResultCacheEntry otherClientResults = cache.getClientResults(OTHER_CLIENT_ID);
+        cache.addResult(clientResults, digest, true);
+        cache.addResult(clientResults, otherDigest, false);
+        cache.addResult(otherClientResults, otherDigest, false);
+
+        assertEquals(clientResults.getResultCount(), 1);
+        assertEquals(clientResults.getFailedResultCount(), 1);
+        assertEquals(cache.getResult(clientResults, digest), Boolean.TRUE);
+        assertEquals(cache.getResult(clientResults, otherDigest), Boolean.FALSE);
+        assertNull(cache.getResult(otherClientResults, digest));
+        assertEquals(cache.getResult(otherClientResults, otherDigest), Boolean.FALSE);
+
+        // A later result of the same client and certificate replaces the earlier one.
+        cache.addResult(otherClientResults, otherDigest, true);
+        assertEquals(cache.getResult(otherClientResults, otherDigest), Boolean.TRUE);
+        assertEquals(otherClientResults.getFailedResultCount(), 0);
+    }
+
+    @Test
+    public void testEntriesExpire() {
+
+        MutualTLSAuthenticationResultCacheEntry clientResults = cache.getClientResults(CLIENT_ID);
+        MutualTLSAuthenticationResultCacheEntry otherClientResults = cache.getClientResults(OTHER_CLIENT_ID);
+        cache.addResult(clientResults, digest, true);
+        cache.addResult(otherClientResults, digest, false);
+
+        cache.now = 4999;
+        assertEquals(cache.getResult(clientResults, digest), Boolean.TRUE);
+        assertEquals(cache.getResult(otherClientResults, digest), Boolean.FALSE);
+
+        cache.now = 5000;
+        assertEquals(cache.getResult(clientResults, digest), Boolean.TRUE);
+        assertNull(cache.getResult(otherClientResults, digest));
+
+        cache.now = 60000;
+        assertNull(cache.getResult(clientResults, digest));
+        assertEquals(clientResults.getResultCount(), 0);
+    }
+
+    @Test
+    public void testCertificatesOfAClientAreBounded() {
+
+        MutualTLSAuthenticationResultCacheEntry clientResults = cache.getClientResults(CLIENT_ID);
+        for (int i = 0; i < 10; i++) {
+            byte[] failedDigest = new byte[32];
+            failedDigest[0] = (byte) i;
+            cache.addResult(clientResults, failedDigest, false);
+            cache.addResult(clientResults, digest, true);
+        }
+        assertEquals(clientResults.getResultCount(), 1);
+        assertEquals(clientResults.getFailedResultCount(), 1);
+
+        // The latest result is kept, and a flood of failures does not evict the successful certificate.
+        byte[] lastDigest = new byte[32];
+        lastDigest[0] = 9;
+        assertEquals(cache.getResult(clientResults, lastDigest), Boolean.FALSE);
+        assertEquals(cache.getResult(clientResults, digest), Boolean.TRUE);
+    }
+
+    @Test
+    public void testClearCacheEntry() {
+
+        cache.addResult(cache.getClientResults(CLIENT_ID), digest, true);
+        cache.addResult(cache.getClientResults(OTHER_CLIENT_ID), digest, true);
+        cache.clearCacheEntry(CLIENT_ID);
+
+        assertNull(cache.getResult(cache.getClientResults(CLIENT_ID), digest));
+        assertEquals(cache.getResult(cache.getClientResults(OTHER_CLIENT_ID), digest), Boolean.TRUE);
+
+        cache.clear();
+        assertNull(cache.getResult(cache.getClientResults(OTHER_CLIENT_ID), digest));
+    }
+
+    @Test
+    public void testClearCacheEntriesOfJWKSEndpoint() throws Exception {
+
+        URL jwksUri = new URL("https://localhost/jwks");
+        cache.addJWKSClient(CLIENT_ID, jwksUri);
+        cache.addJWKSClient(OTHER_CLIENT_ID, new URL("https://localhost/other-jwks"));
+        cache.addResult(cache.getClientResults(CLIENT_ID), digest, true);
+        cache.addResult(cache.getClientResults(OTHER_CLIENT_ID), digest, true);
+        cache.clearCacheEntries(jwksUri);
+
+        assertNull(cache.getResult(cache.getClientResults(CLIENT_ID), digest));
+        assertEquals(cache.getResult(cache.getClientResults(OTHER_CLIENT_ID), digest), Boolean.TRUE);
+
+        // A client is no longer tracked once its results are removed, until it is authenticated against the endpoint
+        // again.
+        cache.addResult(cache.getClientResults(CLIENT_ID), digest, true);
+        cache.clearCacheEntries(jwksUri);
+        assertEquals(cache.getResult(cache.getClientResults(CLIENT_ID), digest), Boolean.TRUE);
+    }
+
+    @Test
+    public void testResultComputedBeforeClearIsNotCached() {
+
+        MutualTLSAuthenticationResultCacheEntry clientResults = cache.getClientResults(CLIENT_ID);
+        cache.clearCacheEntry(CLIENT_ID);
+        cache.addResult(clientResults, digest, true);
+        assertNotSame(cache.getClientResults(CLIENT_ID), clientResults);
+        assertNull(cache.getResult(cache.getClientResults(CLIENT_ID), digest));
+
+        cache.addResult(cache.getClientResults(CLIENT_ID), digest, true);
+        assertEquals(cache.getResult(cache.getClientResults(CLIENT_ID), digest), Boolean.TRUE);
+    }
+
+    @Test
+    public void testDisabledCache() {
+
+        TestResultCache disabledCache = new TestResultCache(0, 2, 5000, 1);
+        assertFalse(disabledCache.isEnabled());
+        assertNull(disabledCache.getClientResults(CLIENT_ID));
+        assertNull(disabledCache.getResult(null, digest));
+
+        TestResultCache positiveOnlyCache = new TestResultCache(60000, 2, 0, 1);
+        assertTrue(positiveOnlyCache.isEnabled());
+        MutualTLSAuthenticationResultCacheEntry clientResults = positiveOnlyCache.getClientResults(CLIENT_ID);
+        positiveOnlyCache.addResult(clientResults, digest, false);
+        assertEquals(clientResults.getFailedResultCount(), 0);
+    }
+
+    /**
+     * Cache instance with a controllable clock, backed by the same cache as the shared instance.
+     */
+    private static class TestResultCache extends MutualTLSAuthenticationResultCache {
+
+        private long now;
+
+        TestResultCache(long ttl, int maxCertificates, long negativeTTL, int negativeMaxCertificates) {
+
+            super(ttl, maxCertificates, negativeTTL, negativeMaxCertificates);
+        }
+
+        @Override
+        protected long getCurrentTime() {
+
+            return now;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSCertificateFilter;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientProfileCacheEntry;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for MutualTLSCertificateFilter class.
+ */
+public class MutualTLSCertificateFilterTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void testAddedCertificatesAreKnown() {
+
+        TestCertificateFilter filter = new TestCertificateFilter(true, true, 1000, 0.01, 0, 0);
+        byte[][] digests = new byte[1000][];
+        for (int i = 0; i < digests.length; i++) {
+            digests[i] = newDigest();
+            filter.add(digests[i]);
+        }
+        for (byte[] digest : digests) {
+            assertTrue(filter.mightContain(digest));
+            assertEquals(filter.check(digest), MutualTLSCertificateFilter.Decision.KNOWN);
+        }
+        assertEquals(filter.getNumHashes(), 7);
+        assertEquals(filter.getKnownCount(), digests.length);
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+
+        TestCertificateFilter filter = new TestCertificateFilter(true, true, 10000, 0.01, 0, 0);
+        for (int i = 0; i < 10000; i++) {
+            filter.add(newDigest());
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain(newDigest())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1500, "False positives: " + falsePositives);
+        assertTrue(Math.abs(filter.getFalsePositiveRate() - 0.01) < 0.002,
+                "Estimated false positive rate: " + filter.getFalsePositiveRate());
+    }
+
+    @Test
+    public void testUnknownCertificatesAreLearntUnlessEnforced() {
+
+        TestCertificateFilter filter = new TestCertificateFilter(true, false, 1000, 0.01, 0, 0);
+        byte[] digest = newDigest();
+        MutualTLSCertificateFilter.Decision decision = filter.check(digest);
+        assertEquals(decision, MutualTLSCertificateFilter.Decision.ADMITTED);
+
+        filter.recordAuthenticated(digest, decision);
+        assertEquals(filter.check(digest), MutualTLSCertificateFilter.Decision.KNOWN);
+        assertEquals(filter.getAdmittedCount(), 1);
+        assertEquals(filter.getLearntCount(), 1);
+        assertEquals(filter.getRejectedCount(), 0);
+    }
+
+    @Test
+    public void testEnforcedFilterAdmitsUnknownCertificatesDuringWarmUpAndUpToRate() {
+
+        TestCertificateFilter filter = new TestCertificateFilter(true, true, 1000, 0.01, 1000, 2);
+        filter.now = 999;
+        assertEquals(filter.check(newDigest()), MutualTLSCertificateFilter.Decision.ADMITTED);
+        assertEquals(filter.check(newDigest()), MutualTLSCertificateFilter.Decision.ADMITTED);
+        assertEquals(filter.check(newDigest()), MutualTLSCertificateFilter.Decision.ADMITTED);
+
+        filter.now = 1000;
+        assertEquals(filter.check(newDigest()), MutualTLSCertificateFilter.Decision.ADMITTED);
+        assertEquals(filter.check(newDigest()), MutualTLSCertificateFilter.Decision.ADMITTED);
+        assertEquals(filter.check(newDigest()), MutualTLSCertificateFilter.Decision.REJECTED);
+
+        filter.now = 2000;
+        assertEquals(filter.check(newDigest()), MutualTLSCertificateFilter.Decision.ADMITTED);
+        assertEquals(filter.getAdmittedCount(), 6);
+        assertEquals(filter.getRejectedCount(), 1);
+    }
+
+    @Test
+    public void testStrictFilterRejectsUnknownCertificates() {
+
+        TestCertificateFilter filter = new TestCertificateFilter(true, true, 1000, 0.01, 0, 0);
+        byte[] digest = newDigest();
+        assertEquals(filter.check(digest), MutualTLSCertificateFilter.Decision.REJECTED);
+
+        // Rejected certificates are never learnt.
+        filter.recordAuthenticated(digest, MutualTLSCertificateFilter.Decision.REJECTED);
+        assertEquals(filter.check(digest), MutualTLSCertificateFilter.Decision.REJECTED);
+    }
+
+    @Test
+    public void testRegisteredCertificatesAreLearntWhenRejected() {
+
+        TestCertificateFilter filter = new TestCertificateFilter(true, true, 1000, 0.01, 0, 0);
+        byte[] digest = newDigest();
+        assertEquals(filter.check(digest), MutualTLSCertificateFilter.Decision.REJECTED);
+
+        assertEquals(filter.check(digest, MutualTLSClientProfileCacheEntry.forCertificate("client", "carbon.super",
+                newDigest(), newDigest(), null)), MutualTLSCertificateFilter.Decision.REJECTED);
+        assertEquals(filter.check(digest, MutualTLSClientProfileCacheEntry.forCertificate("client", "carbon.super",
+                digest, newDigest(), null)), MutualTLSCertificateFilter.Decision.KNOWN);
+        assertEquals(filter.check(digest), MutualTLSCertificateFilter.Decision.KNOWN);
+        assertEquals(filter.getRejectedCount(), 2);
+        assertEquals(filter.getKnownCount(), 2);
+    }
+
+    @Test
+    public void testCertificatesOfJWKSClientsAreNotRejected() throws Exception {
+
+        TestCertificateFilter filter = new TestCertificateFilter(true, true, 1000, 0.01, 0, 0);
+        byte[] digest = newDigest();
+        MutualTLSClientProfileCacheEntry clientProfile = MutualTLSClientProfileCacheEntry.forJWKS("client",
+                "carbon.super", new URL("https://localhost/jwks"), null);
+        MutualTLSCertificateFilter.Decision decision = filter.check(digest, clientProfile);
+        assertEquals(decision, MutualTLSCertificateFilter.Decision.ADMITTED);
+
+        filter.recordAuthenticated(digest, decision);
+        assertEquals(filter.check(digest), MutualTLSCertificateFilter.Decision.KNOWN);
+        assertEquals(filter.getRejectedCount(), 0);
+    }
+
+    @Test
+    public void testAddAllCertificateDigests() {
+
+        TestCertificateFilter filter = new TestCertificateFilter(true, true, 1000, 0.01, 0, 0);
+        byte[] digest = newDigest();
+        byte[] otherDigest = newDigest();
+        filter.addAll(Arrays.asList(digest, otherDigest));
+        assertTrue(filter.mightContain(digest));
+        assertTrue(filter.mightContain(otherDigest));
+    }
+
+    @Test
+    public void testDisabledFilter() {
+
+        TestCertificateFilter filter = new TestCertificateFilter(false, true, 1000, 0.01, 0, 0);
+        assertFalse(filter.isEnforced());
+        byte[] digest = newDigest();
+        filter.add(digest);
+        assertFalse(filter.mightContain(digest));
+        assertEquals(filter.check(newDigest()), MutualTLSCertificateFilter.Decision.KNOWN);
+    }
+
+    private byte[] newDigest() {
+
+        byte[] digest = new byte[32];
+        random.nextBytes(digest);
+        return digest;
+    }
+
+    /**
+     * Filter created independently of the shared instance, with a controllable clock.
+     */
+    private static class TestCertificateFilter extends MutualTLSCertificateFilter {
+
+        private long now;
+
+        TestCertificateFilter(boolean enabled, boolean enforced, int expectedEntries, double falsePositiveRate,
+                              long warmUpPeriod, int unknownCertificateRate) {
+
+            super(enabled, enforced, expectedEntries, falsePositiveRate, warmUpPeriod, unknownCertificateRate);
+        }
+
+        @Override
+        protected long getCurrentTime() {
+
+            return now;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.apache.oltu.oauth2.common.OAuth;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import org.wso2.carbon.identity.application.common.model.ServiceProvider;
@@ -35,6 +36,10 @@ import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
 import org.wso2.carbon.identity.oauth2.bean.OAuthClientAuthnContext;
 import org.wso2.carbon.identity.oauth2.model.ClientAuthenticationMethodModel;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSCertificateFilter;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientProfileCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSKeySet;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateDecoder;
 import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
 import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
@@ -60,10 +65,14 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.MutualTLSUtil.JAVAX_SERVLET_REQUEST_CERTIFICATE;
 import static org.wso2.carbon.utils.multitenancy.MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
@@ -158,7 +167,8 @@ public class MutualTLSClientAuthenticatorTest {
             "70RR7GThgLwmWNWAWKA-63zmjr1OAI2IDx5R6krlY6dPQ57euwhMS8TWpuo27CHUirKAoBzPywcssPcpfRaT0dNv_83AkxRtsOUM" +
             "izAWVh8MGhUUe2bHpQdRxKD_0X7U_5V3Y0aPFUikICTW2_Je8jbQ\",\n" +
             "    \"use\" : \"sig\",\n" +
-            "    \"x5t\" : \"da39a3ee5e6b4b0d3255bfef95601890afd80709\",\n" +
+            "    \"x5t\" : \"YTJkZTg5OGQ3NWUwMTQ2N2UwYTcwMGE1ZTFmMTcyMjE5ZGUwMDBiMDE2ZWVhOWI0NjY1OWQ4YTZl" +
+            "ZjQ3YzJmMQ\",\n" +
             "    \"x5u\" : \"https://keystore.abc.org.lk/M2maFm3VYlMBOn3GetVWGXkrKrk.pem\",\n" +
             "    \"x5t#S256\" : \"M2maFm3VYlMBOn3GetVWGXkrKrk\"\n" +
             "  } ]\n" +
@@ -381,6 +391,12 @@ public class MutualTLSClientAuthenticatorTest {
         };
     }
 
+    @BeforeMethod
+    public void clearClientProfileCache() {
+
+        MutualTLSClientProfileCache.getInstance().clear();
+    }
+
     @Test(dataProvider = "testClientAuthnData")
     public void testAuthenticateClient(Object certificate, HashMap<String, List> bodyContent,
                                        Object oAuthClientAuthnContextObj, boolean authenticationResult,
@@ -458,6 +474,129 @@ public class MutualTLSClientAuthenticatorTest {
         }
     }
 
+    @Test
+    public void testLookupsAreDoneOncePerRequest() throws Exception {
+
+        try (MockedStatic<IdentityUtil> identityUtil = Mockito.mockStatic(IdentityUtil.class);
+             MockedStatic<OAuth2Util> oAuth2Util = Mockito.mockStatic(OAuth2Util.class);
+             MockedStatic<MutualTLSUtil> mutualTLSUtil = Mockito.mockStatic(MutualTLSUtil.class)) {
+            OAuthAppDO appDO = new OAuthAppDO();
+            oAuth2Util.when(() -> OAuth2Util.getTenantDomainOfOauthApp(anyString()))
+                    .thenReturn(SUPER_TENANT_DOMAIN_NAME);
+            oAuth2Util.when(() -> OAuth2Util.getAppInformationByClientId(anyString(), anyString())).thenReturn(appDO);
+            oAuth2Util.when(() -> OAuth2Util.getX509CertOfOAuthApp(clientId, SUPER_TENANT_DOMAIN_NAME))
+                    .thenReturn(CertificateDecoder.decode(certificateContent3));
+            mutualTLSUtil.when(() -> MutualTLSUtil.isJwksUriConfigured(any())).thenReturn(false);
+            identityUtil.when(() -> IdentityUtil.getProperty(CommonConstants.MTLS_AUTH_HEADER))
+                    .thenReturn("x-wso2-mtls-cert");
+
+            HttpServletRequest httpServletRequest = mock(HttpServletRequest.class);
+            when(httpServletRequest.getHeader("x-wso2-mtls-cert")).thenReturn(certificateContent3);
+            Map<String, List> bodyContent = (Map) getBodyContentWithClientId(clientId);
+            OAuthClientAuthnContext oAuthClientAuthnContext = new OAuthClientAuthnContext();
+
+            assertTrue(mutualTLSClientAuthenticator.canAuthenticate(httpServletRequest, bodyContent,
+                    oAuthClientAuthnContext));
+            oAuthClientAuthnContext.setClientId(mutualTLSClientAuthenticator.getClientId(httpServletRequest,
+                    bodyContent, oAuthClientAuthnContext));
+            assertTrue(mutualTLSClientAuthenticator.authenticateClient(httpServletRequest, bodyContent,
+                    oAuthClientAuthnContext));
+
+            oAuth2Util.verify(() -> OAuth2Util.getTenantDomainOfOauthApp(anyString()), times(1));
+            oAuth2Util.verify(() -> OAuth2Util.getAppInformationByClientId(anyString(), anyString()), times(1));
+            verify(httpServletRequest, times(1)).getHeader("x-wso2-mtls-cert");
+        }
+    }
+
+    @Test
+    public void testCanAuthenticateDoesNotResolveClientProfile() throws Exception {
+
+        try (MockedStatic<OAuth2Util> oAuth2Util = Mockito.mockStatic(OAuth2Util.class)) {
+            oAuth2Util.when(() -> OAuth2Util.getTenantDomainOfOauthApp(anyString()))
+                    .thenReturn(SUPER_TENANT_DOMAIN_NAME);
+            oAuth2Util.when(() -> OAuth2Util.getAppInformationByClientId(anyString(), anyString()))
+                    .thenReturn(new OAuthAppDO());
+
+            HttpServletRequest httpServletRequest = mock(HttpServletRequest.class);
+            when(httpServletRequest.getAttribute(JAVAX_SERVLET_REQUEST_CERTIFICATE))
+                    .thenReturn(getCertificate(certificateContent));
+            assertTrue(mutualTLSClientAuthenticator.canAuthenticate(httpServletRequest,
+                    (Map) getBodyContentWithClientId(clientId), new OAuthClientAuthnContext()));
+
+            oAuth2Util.verify(() -> OAuth2Util.getServiceProvider(anyString(), anyString()), never());
+            oAuth2Util.verify(() -> OAuth2Util.getX509CertOfOAuthApp(anyString(), anyString()), never());
+            assertNull(MutualTLSClientProfileCache.getInstance().getValueFromCache(clientId));
+        }
+    }
+
+    @Test
+    public void testUnknownCertificateWithUnknownClientIdIsRejectedWithoutLookups() throws Exception {
+
+        MutualTLSClientAuthenticator authenticator = new MutualTLSClientAuthenticator() {
+
+            private final MutualTLSCertificateFilter certificateFilter =
+                    new MutualTLSCertificateFilter(true, true, 1000, 0.01, 0, 0) { };
+
+            @Override
+            protected MutualTLSCertificateFilter getCertificateFilter() {
+
+                return certificateFilter;
+            }
+        };
+        try (MockedStatic<OAuth2Util> oAuth2Util = Mockito.mockStatic(OAuth2Util.class)) {
+            HttpServletRequest httpServletRequest = mock(HttpServletRequest.class);
+            when(httpServletRequest.getAttribute(JAVAX_SERVLET_REQUEST_CERTIFICATE))
+                    .thenReturn(getCertificate(certificateContent));
+            Map<String, List> bodyContent = (Map) getBodyContentWithClientId("unknownclientid");
+
+            assertFalse(authenticator.canAuthenticate(httpServletRequest, bodyContent,
+                    new OAuthClientAuthnContext()));
+            assertFalse(authenticator.authenticateClient(httpServletRequest, bodyContent,
+                    buildOAuthClientAuthnContext("unknownclientid")));
+
+            oAuth2Util.verifyNoInteractions();
+        }
+    }
+
+    @Test
+    public void testOnlyClientFailuresAreRecordedWithTheAdmissionController() throws Exception {
+
+        MutualTLSAdmissionController admissionController =
+                new MutualTLSAdmissionController(true, 3, 60, false, 100) { };
+        MutualTLSClientAuthenticator authenticator = new MutualTLSClientAuthenticator() {
+
+            private final MutualTLSCertificateFilter certificateFilter =
+                    new MutualTLSCertificateFilter(true, true, 1000, 0.01, 0, 0) { };
+
+            @Override
+            protected MutualTLSCertificateFilter getCertificateFilter() {
+
+                return certificateFilter;
+            }
+
+            @Override
+            protected MutualTLSAdmissionController getAdmissionController() {
+
+                return admissionController;
+            }
+        };
+        try (MockedStatic<OAuth2Util> oAuth2Util = Mockito.mockStatic(OAuth2Util.class)) {
+            // A request without a certificate is not a failure of the certificate presented by the client.
+            Map<String, List> bodyContent = (Map) getBodyContentWithClientId("unknownclientid");
+            assertFalse(authenticator.authenticateClient(mock(HttpServletRequest.class), bodyContent,
+                    buildOAuthClientAuthnContext("unknownclientid")));
+            assertEquals(admissionController.getFailureCount(), 0);
+
+            HttpServletRequest httpServletRequest = mock(HttpServletRequest.class);
+            when(httpServletRequest.getAttribute(JAVAX_SERVLET_REQUEST_CERTIFICATE))
+                    .thenReturn(getCertificate(certificateContent));
+            bodyContent = (Map) getBodyContentWithClientId("unknownclientid");
+            assertFalse(authenticator.authenticateClient(httpServletRequest, bodyContent,
+                    buildOAuthClientAuthnContext("unknownclientid")));
+            assertEquals(admissionController.getFailureCount(), 1);
+        }
+    }
+
     @Test
     public void testGetName() throws Exception {
 
@@ -538,11 +677,10 @@ public class MutualTLSClientAuthenticatorTest {
                     thenReturn(SUPER_TENANT_DOMAIN_NAME);
             oAuth2Util.when(() -> OAuth2Util.getX509CertOfOAuthApp(oAuthClientAuthnContext.getClientId(),
                             SUPER_TENANT_DOMAIN_NAME)).thenReturn(null);
-            doReturn(getJsonArray(testJson)).when(mutualTLSClientAuthenticator1).getResourceContent(any());
             doReturn(new URL("https://wso2is.com/.well-known/jwks.json"))
                     .when(mutualTLSClientAuthenticator1).getJWKSEndpointOfSP(any(), any());
-            mutualTLSUtil.when(() -> MutualTLSUtil.getThumbPrint(any(), any())).thenReturn(
-                    "da39a3ee5e6b4b0d3255bfef95601890afd80709");
+            doReturn(JWKSKeySet.fromKeys(getJsonArray(testJson))).when(mutualTLSClientAuthenticator1)
+                    .getJWKSKeySet(any());
             when(httpServletRequest.getAttribute(JAVAX_SERVLET_REQUEST_CERTIFICATE)).thenReturn(certificate);
             OAuthAppDO appDO = new OAuthAppDO();
             oAuth2Util.when(() -> OAuth2Util.getAppInformationByClientId(anyString(), anyString())).thenReturn(appDO);
@@ -553,6 +691,50 @@ public class MutualTLSClientAuthenticatorTest {
         }
     }
 
+    @DataProvider(name = "testSubjectDNMismatchWhenJWKSEndPointGiven")
+    public Object[][] testSubjectDNMismatchWhenJWKSEndPointGiven() {
+
+        JsonArray x5cKeys = getJsonArray(testJsonWithX5C);
+        JsonArray x5cAndX5tKeys = getJsonArray(testJsonWithX5C);
+        x5cAndX5tKeys.add(getJsonArray(testJsonWithX5T).get(1));
+
+        return new Object[][]{
+                // Only an x5c key matches the certificate, so the subject DN check applies.
+                {x5cKeys, false},
+                // An x5t key also matches the certificate, so the subject DN mismatch of the x5c key is not final.
+                {x5cAndX5tKeys, true},
+        };
+    }
+
+    @Test(dataProvider = "testSubjectDNMismatchWhenJWKSEndPointGiven")
+    public void testAuthenticateClientWithSubjectDNMismatchWhenJWKSEndPointGiven(JsonArray keys,
+                                                                                 boolean authenticationResult)
+            throws Exception {
+
+        try (MockedStatic<OAuth2Util> oAuth2Util = Mockito.mockStatic(OAuth2Util.class);
+             MockedStatic<MutualTLSUtil> mutualTLSUtil = Mockito.mockStatic(MutualTLSUtil.class)) {
+            MutualTLSClientAuthenticator mutualTLSClientAuthenticator1 = Mockito.spy(mutualTLSClientAuthenticator);
+            OAuthClientAuthnContext oAuthClientAuthnContext = buildOAuthClientAuthnContext(clientId);
+            HttpServletRequest httpServletRequest = mock(HttpServletRequest.class);
+            mutualTLSUtil.when(() -> MutualTLSUtil.isJwksUriConfigured(any())).thenReturn(true);
+            oAuth2Util.when(() -> OAuth2Util.getTenantDomainOfOauthApp(anyString())).
+                    thenReturn(SUPER_TENANT_DOMAIN_NAME);
+            oAuth2Util.when(() -> OAuth2Util.getX509CertOfOAuthApp(clientId, SUPER_TENANT_DOMAIN_NAME))
+                    .thenReturn(null);
+            doReturn(new URL("https://wso2is.com/.well-known/jwks.json"))
+                    .when(mutualTLSClientAuthenticator1).getJWKSEndpointOfSP(any(), any());
+            doReturn(JWKSKeySet.fromKeys(keys)).when(mutualTLSClientAuthenticator1).getJWKSKeySet(any());
+            when(httpServletRequest.getAttribute(JAVAX_SERVLET_REQUEST_CERTIFICATE))
+                    .thenReturn(getCertificate(certificateContent));
+            OAuthAppDO appDO = new OAuthAppDO();
+            appDO.setTlsClientAuthSubjectDN("CN=app.com, OU=wso2, O=wso2, L=Colombo, ST=WP, C=SL");
+            oAuth2Util.when(() -> OAuth2Util.getAppInformationByClientId(anyString(), anyString())).thenReturn(appDO);
+            assertEquals(mutualTLSClientAuthenticator1.authenticateClient(httpServletRequest, new HashMap<>(),
+                    oAuthClientAuthnContext), authenticationResult,
+                    "Expected client authentication with JWKS expected result was not received");
+        }
+    }
+
     public static JsonArray getJsonArray(String resource) {
 
         JsonParser jp = new JsonParser();
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls;
+
+import com.nimbusds.jose.util.X509CertUtils;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientCertificateCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientCertificateCacheEntry;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for MutualTLSClientCertificateCache class.
+ */
+public class MutualTLSClientCertificateCacheTest {
+
+    private static final String CERTIFICATE_CONTENT = "MIIDmzCCAoOgAwIBAgIJAJuzH6NrV5s5MA0GCSqGSIb3DQEBCwUAMGQxCzAJBgNV"
+            + "BAYTAlNMMQswCQYDVQQIDAJXUDEQMA4GA1UEBwwHQ29sb21ibzENMAsGA1UECgwE\n"
+            + "d3NvMjENMAsGA1UECwwEd3NvMjEYMBYGA1UEAwwPdHJhdmVsb2NpdHkuY29tMB4X\n"
+            + "DTE4MDIwNjEwNTk1N1oXDTE5MDIwNjEwNTk1N1owZDELMAkGA1UEBhMCU0wxCzAJ\n"
+            + "BgNVBAgMAldQMRAwDgYDVQQHDAdDb2xvbWJvMQ0wCwYDVQQKDAR3c28yMQ0wCwYD\n"
+            + "VQQLDAR3c28yMRgwFgYDVQQDDA90cmF2ZWxvY2l0eS5jb20wggEiMA0GCSqGSIb3\n"
+            + "DQEBAQUAA4IBDwAwggEKAoIBAQDlKn3dmaLW7iBOKdlWY8Go8Q7kR6HNY/8j0arv\n"
+            + "EcZYqMrihcSX5i5Mz57t6Z3xpaGay2jPWND7dDA/RocircleBKQk0X2OxoEYba3W\n"
+            + "t477EpN9RWGAZuuANUSVKjC8FsNYhEp9y59IuxK+IgDAEfR8O2RNLYA6O3UjBC/R\n"
+            + "f443CwOE4jFm3eVAeLIBudn/viC56rPBozVX4DxPaHIzxocfK6EpDljEG4lJ7otS\n"
+            + "SbIpPlmAO/0f8F1Q6syv+sCkPRGn/OjTXWtUg6QXAclguOCl3MI+pLMThQUATcKb\n"
+            + "2QkPl8r8/b/S8qMRKzSVYyjNP+CsDRO/MdlC50QZSJBaNYqdAgMBAAGjUDBOMB0G\n"
+            + "A1UdDgQWBBSIXyhWV6Ac+FiqdXEeQwqzJfFLhDAfBgNVHSMEGDAWgBSIXyhWV6Ac\n"
+            + "+FiqdXEeQwqzJfFLhDAMBgNVHRMEBTADAQH/MA0GCSqGSIb3DQEBCwUAA4IBAQBQ\n"
+            + "S2jmfzF8x1iwmRqXILZ6qkF5ABAlNa3Z3bMFB7uErw2BxASMOLWfjZdEcyICDGIf\n"
+            + "ZeYchqEPTvv/RIqDlu8xda3N2kRp1un5Hfffavm6ZWR3J8LdsnSjrehZ/afxuy8a\n"
+            + "OFKiRtj9tqpG3C/s/NBJ9Gl4u5YhihOSJG9ELihJSxWDYI641AOalWnUQ/SxfeCO\n"
+            + "TY75aViCAD6QDmBxe/opQYExBdgNOCQ6HdP5WWBT6EEggBe/mqOM/dchj57rpPtw\n"
+            + "IOQjy9UCaY7tq4SmhAJyab0mxjcFoRBpzOJIDh+N8ozSDK+MepyFSwtW5zVacOiG\n"
+            + "OQUrBTGXQFZOGKje8sbS";
+
+    @Test
+    public void testCachePut() throws Exception {
+
+        MutualTLSClientCertificateCache cache = new TestCertificateCache(true, 1024 * 1024);
+        MutualTLSClientCertificateCacheEntry entry = new MutualTLSClientCertificateCacheEntry(getCertificate());
+        assertNull(cache.getValueFromCache(CERTIFICATE_CONTENT));
+
+        cache.addToCache(CERTIFICATE_CONTENT, entry);
+        // A different string with the same value hits the same entry.
+        assertSame(cache.getValueFromCache(new String(CERTIFICATE_CONTENT.toCharArray())), entry);
+        assertNull(cache.getValueFromCache(CERTIFICATE_CONTENT + " "));
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 2);
+        assertEquals(cache.getEntryCount(), 1);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+
+        X509Certificate certificate = getCertificate();
+        long entrySize = CERTIFICATE_CONTENT.length() + 4L * certificate.getEncoded().length;
+        MutualTLSClientCertificateCache cache = new TestCertificateCache(true, 2 * entrySize + 10);
+        MutualTLSClientCertificateCacheEntry entry = new MutualTLSClientCertificateCacheEntry(certificate);
+
+        cache.addToCache(CERTIFICATE_CONTENT, entry);
+        cache.addToCache(CERTIFICATE_CONTENT + "\n", entry);
+        cache.getValueFromCache(CERTIFICATE_CONTENT);
+        cache.addToCache(CERTIFICATE_CONTENT + "\n\n", entry);
+
+        assertEquals(cache.getEntryCount(), 2);
+        assertEquals(cache.getSize(), 2 * entrySize + 2);
+        assertSame(cache.getValueFromCache(CERTIFICATE_CONTENT), entry);
+        assertNull(cache.getValueFromCache(CERTIFICATE_CONTENT + "\n"));
+    }
+
+    @Test
+    public void testConcurrentlyAddedEntriesStayWithinMaxSize() throws Exception {
+
+        X509Certificate certificate = getCertificate();
+        long entrySize = CERTIFICATE_CONTENT.length() + 4L * certificate.getEncoded().length;
+        MutualTLSClientCertificateCache cache = new TestCertificateCache(true, 10 * entrySize);
+        MutualTLSClientCertificateCacheEntry entry = new MutualTLSClientCertificateCacheEntry(certificate);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                String prefix = "thread-" + i + "-";
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        cache.addToCache(prefix + j + CERTIFICATE_CONTENT, entry);
+                        cache.getValueFromCache(prefix + (j / 2) + CERTIFICATE_CONTENT);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(cache.getSize() <= 10 * entrySize, "Size: " + cache.getSize());
+        assertTrue(cache.getEntryCount() > 0 && cache.getEntryCount() <= 10);
+        cache.clear();
+        assertEquals(cache.getSize(), 0);
+        assertEquals(cache.getEntryCount(), 0);
+    }
+
+    @Test
+    public void testDisabledCache() throws Exception {
+
+        MutualTLSClientCertificateCache cache = new TestCertificateCache(false, 1024 * 1024);
+        cache.addToCache(CERTIFICATE_CONTENT, new MutualTLSClientCertificateCacheEntry(getCertificate()));
+        assertNull(cache.getValueFromCache(CERTIFICATE_CONTENT));
+        assertEquals(cache.getEntryCount(), 0);
+    }
+
+    @Test
+    public void testSHA256Thumbprint() throws Exception {
+
+        X509Certificate certificate = getCertificate();
+        MutualTLSClientCertificateCacheEntry entry = new MutualTLSClientCertificateCacheEntry(certificate);
+        assertEquals(entry.getSHA256Thumbprint(), X509CertUtils.computeSHA256Thumbprint(certificate));
+        assertSame(entry.getSHA256Thumbprint(), entry.getSHA256Thumbprint());
+    }
+
+    private X509Certificate getCertificate() throws Exception {
+
+        return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(
+                new ByteArrayInputStream(Base64.getMimeDecoder().decode(CERTIFICATE_CONTENT)));
+    }
+
+    /**
+     * Cache instance created independently of the shared instance, with a clock that ticks on every access.
+     */
+    private static class TestCertificateCache extends MutualTLSClientCertificateCache {
+
+        private final AtomicLong now = new AtomicLong();
+
+        TestCertificateCache(boolean enabled, long maxSize) {
+
+            super(enabled, maxSize);
+        }
+
+        @Override
+        protected long getCurrentTime() {
+
+            return now.incrementAndGet();
+        }
+    }
+}
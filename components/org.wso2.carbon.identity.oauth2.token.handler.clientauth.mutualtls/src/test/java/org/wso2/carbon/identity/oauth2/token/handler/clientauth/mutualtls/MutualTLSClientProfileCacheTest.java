@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.common.testng.WithRealmService;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientProfileCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientProfileCacheEntry;
+
+import java.net.URL;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for MutualTLSClientProfileCache class.
+ */
+@WithCarbonHome
+@WithRealmService
+public class MutualTLSClientProfileCacheTest {
+
+    @Test
+    public void testCachePut() throws Exception {
+
+        URL jwksUri = new URL("https://localhost/jwks");
+        MutualTLSClientProfileCacheEntry clientProfile = MutualTLSClientProfileCacheEntry.forJWKS("jwksClient",
+                "carbon.super", jwksUri, "CN=client");
+        MutualTLSClientProfileCache.getInstance().addToCache("jwksClient", clientProfile);
+
+        MutualTLSClientProfileCacheEntry cachedProfile =
+                MutualTLSClientProfileCache.getInstance().getValueFromCache("jwksClient");
+        assertSame(cachedProfile, clientProfile);
+        assertEquals(cachedProfile.getAuthMode(), MutualTLSClientProfileCacheEntry.AuthMode.JWKS);
+        assertEquals(cachedProfile.getJwksUri(), jwksUri);
+        assertEquals(cachedProfile.getTlsClientAuthSubjectDN(), "CN=client");
+        assertNull(cachedProfile.getRegisteredCertThumbprint());
+        assertFalse(cachedProfile.isPublicClient());
+
+        MutualTLSClientProfileCache.getInstance().clearCacheEntry("jwksClient");
+        assertNull(MutualTLSClientProfileCache.getInstance().getValueFromCache("jwksClient"));
+    }
+
+    @Test
+    public void testProfiles() {
+
+        byte[] thumbprint = new byte[]{1, 2, 3};
+        byte[] publicKeyHash = new byte[]{4, 5, 6};
+        MutualTLSClientProfileCacheEntry certificateProfile = MutualTLSClientProfileCacheEntry.forCertificate(
+                "certClient", "carbon.super", thumbprint, publicKeyHash, null);
+        assertEquals(certificateProfile.getAuthMode(), MutualTLSClientProfileCacheEntry.AuthMode.CERTIFICATE);
+        assertEquals(certificateProfile.getRegisteredCertThumbprint(), thumbprint);
+        assertEquals(certificateProfile.getRegisteredCertPublicKeyHash(), publicKeyHash);
+        assertNull(certificateProfile.getJwksUri());
+
+        MutualTLSClientProfileCacheEntry publicClientProfile =
+                MutualTLSClientProfileCacheEntry.forPublicClient("publicClient", "carbon.super");
+        assertEquals(publicClientProfile.getAuthMode(), MutualTLSClientProfileCacheEntry.AuthMode.NONE);
+        assertTrue(publicClientProfile.isPublicClient());
+        assertEquals(publicClientProfile.getTenantDomain(), "carbon.super");
+    }
+}
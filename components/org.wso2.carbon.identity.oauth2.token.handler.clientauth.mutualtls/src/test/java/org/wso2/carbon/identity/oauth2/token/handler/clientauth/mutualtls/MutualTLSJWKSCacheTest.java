@@ -18,15 +18,18 @@
 
 package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls;
 
-import com.nimbusds.jose.util.Resource;
 import org.testng.annotations.Test;
 import org.wso2.carbon.identity.common.testng.WithCarbonHome;
 import org.wso2.carbon.identity.common.testng.WithRealmService;
 import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCache;
 import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCacheEntry;
 import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCacheKey;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSKeySet;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
 /**
  * Test class for MutualTLSJWKSCache class.
@@ -38,12 +41,16 @@ public class MutualTLSJWKSCacheTest {
     @Test
     public void testCachePut() throws Exception {
 
-        Resource testResource = new Resource("content", "type");
+        byte[] digest = {1, 2, 3, 4};
+        JWKSKeySet testKeySet = JWKSKeySet.fromContent("{\"keys\":[{\"kty\":\"RSA\",\"x5t\":\"" +
+                CertificateThumbprint.toHexBase64URL(digest) + "\"}]}");
         MutualTLSJWKSCacheKey mutualTLSJWKSCacheKey = new MutualTLSJWKSCacheKey("jwksUri");
-        MutualTLSJWKSCache.getInstance().addToCache(mutualTLSJWKSCacheKey, new MutualTLSJWKSCacheEntry(testResource));
+        MutualTLSJWKSCache.getInstance().addToCache(mutualTLSJWKSCacheKey, new MutualTLSJWKSCacheEntry(testKeySet));
         MutualTLSJWKSCacheEntry mutualTLSJWKSCacheEntry = MutualTLSJWKSCache.getInstance()
                 .getValueFromCache(mutualTLSJWKSCacheKey);
-        Resource fetchedResource = mutualTLSJWKSCacheEntry.getValue();
-        assertEquals(fetchedResource.getContent(), testResource.getContent());
+        JWKSKeySet fetchedKeySet = mutualTLSJWKSCacheEntry.getValue();
+        assertSame(fetchedKeySet, testKeySet);
+        assertEquals(fetchedKeySet.size(), 1);
+        assertTrue(fetchedKeySet.containsX5tDigest(digest));
     }
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.common.testng.WithRealmService;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSAuthenticationResultCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSAuthenticationResultCacheEntry;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSSessionCache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for MutualTLSSessionCache class.
+ */
+@WithCarbonHome
+@WithRealmService
+public class MutualTLSSessionCacheTest {
+
+    private static final String SESSION_ID = "5f2b1c";
+    private static final String OTHER_SESSION_ID = "9a8e4d";
+    private static final String CLIENT_ID = "client";
+    private static final String OTHER_CLIENT_ID = "other-client";
+
+    private MutualTLSAuthenticationResultCache resultCache;
+    private TestSessionCache cache;
+
+    @BeforeMethod
+    public void setUp() {
+
+        resultCache = new MutualTLSAuthenticationResultCache(60000, 10, 5000, 10) { };
+        resultCache.clear();
+        cache = new TestSessionCache(60000, 2, resultCache);
+    }
+
+    @Test
+    public void testSessionIsBoundToClient() {
+
+        assertFalse(cache.isAuthenticated(SESSION_ID, CLIENT_ID));
+        cache.addToCache(SESSION_ID, resultCache.getClientResults(CLIENT_ID));
+
+        assertTrue(cache.isAuthenticated(SESSION_ID, CLIENT_ID));
+        assertFalse(cache.isAuthenticated(SESSION_ID, OTHER_CLIENT_ID));
+        assertFalse(cache.isAuthenticated(OTHER_SESSION_ID, CLIENT_ID));
+        assertFalse(cache.isAuthenticated(null, CLIENT_ID));
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 3);
+    }
+
+    @Test
+    public void testBindingExpires() {
+
+        cache.addToCache(SESSION_ID, resultCache.getClientResults(CLIENT_ID));
+        cache.now = 59999;
+        assertTrue(cache.isAuthenticated(SESSION_ID, CLIENT_ID));
+
+        cache.now = 60000;
+        assertFalse(cache.isAuthenticated(SESSION_ID, CLIENT_ID));
+        assertEquals(cache.getEntryCount(), 0);
+    }
+
+    @Test
+    public void testSessionsAreEvictedOnceFull() {
+
+        cache.addToCache("session-1", resultCache.getClientResults(CLIENT_ID));
+        cache.addToCache("session-2", resultCache.getClientResults(CLIENT_ID));
+        cache.addToCache("session-3", resultCache.getClientResults(CLIENT_ID));
+
+        assertEquals(cache.getEntryCount(), 2);
+        assertTrue(cache.isAuthenticated("session-3", CLIENT_ID));
+    }
+
+    @Test
+    public void testExpiredSessionsAreEvictedFirst() {
+
+        TestSessionCache shortLivedCache = new TestSessionCache(10, 2, resultCache);
+        shortLivedCache.addToCache("session-1", resultCache.getClientResults(CLIENT_ID));
+        shortLivedCache.now = 5;
+        shortLivedCache.addToCache("session-2", resultCache.getClientResults(CLIENT_ID));
+        shortLivedCache.now = 10;
+        shortLivedCache.addToCache("session-3", resultCache.getClientResults(CLIENT_ID));
+
+        assertEquals(shortLivedCache.getEntryCount(), 2);
+        assertTrue(shortLivedCache.isAuthenticated("session-2", CLIENT_ID));
+        assertTrue(shortLivedCache.isAuthenticated("session-3", CLIENT_ID));
+    }
+
+    @Test
+    public void testSessionsAreUnboundWithTheResultsOfTheirClient() {
+
+        cache.addToCache(SESSION_ID, resultCache.getClientResults(CLIENT_ID));
+        cache.addToCache(OTHER_SESSION_ID, resultCache.getClientResults(OTHER_CLIENT_ID));
+        resultCache.clearCacheEntry(CLIENT_ID);
+
+        assertFalse(cache.isAuthenticated(SESSION_ID, CLIENT_ID));
+        assertTrue(cache.isAuthenticated(OTHER_SESSION_ID, OTHER_CLIENT_ID));
+
+        resultCache.clear();
+        assertFalse(cache.isAuthenticated(OTHER_SESSION_ID, OTHER_CLIENT_ID));
+        assertEquals(cache.getEntryCount(), 0);
+    }
+
+    @Test
+    public void testSessionAuthenticatedBeforeClearIsNotBound() {
+
+        MutualTLSAuthenticationResultCacheEntry clientResults = resultCache.getClientResults(CLIENT_ID);
+        resultCache.clearCacheEntry(CLIENT_ID);
+        cache.addToCache(SESSION_ID, clientResults);
+        assertFalse(cache.isAuthenticated(SESSION_ID, CLIENT_ID));
+    }
+
+    @Test
+    public void testDisabledCache() {
+
+        TestSessionCache disabledCache = new TestSessionCache(0, 2, resultCache);
+        assertFalse(disabledCache.isEnabled());
+        disabledCache.addToCache(SESSION_ID, resultCache.getClientResults(CLIENT_ID));
+        assertFalse(disabledCache.isAuthenticated(SESSION_ID, CLIENT_ID));
+        assertEquals(disabledCache.getEntryCount(), 0);
+
+        // Sessions cannot be unbound across the cluster without the authentication result cache.
+        TestSessionCache cacheWithoutResults = new TestSessionCache(60000, 2,
+                new MutualTLSAuthenticationResultCache(0, 10, 5000, 10) { });
+        assertFalse(cacheWithoutResults.isEnabled());
+    }
+
+    /**
+     * Cache instance created independently of the shared instance, with a controllable clock.
+     */
+    private static class TestSessionCache extends MutualTLSSessionCache {
+
+        private long now;
+
+        TestSessionCache(long ttl, int maxEntries, MutualTLSAuthenticationResultCache resultCache) {
+
+            super(ttl, maxEntries, resultCache);
+        }
+
+        @Override
+        protected long getCurrentTime() {
+
+            return now;
+        }
+    }
+}
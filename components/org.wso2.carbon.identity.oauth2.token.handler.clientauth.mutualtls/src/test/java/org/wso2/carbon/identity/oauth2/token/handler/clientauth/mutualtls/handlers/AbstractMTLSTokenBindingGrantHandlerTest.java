@@ -29,14 +29,18 @@ import org.wso2.carbon.identity.oauth2.bean.OAuthClientAuthnContext;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenReqDTO;
 import org.wso2.carbon.identity.oauth2.model.HttpRequestHeader;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientCertificateCacheEntry;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateDecoder;
 import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
 import org.wso2.carbon.identity.oauth2.util.Oauth2ScopeUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mockStatic;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 /**
  * Test class for AbstractMTLSTokenBindingGrantHandlerTest class.
@@ -116,4 +120,37 @@ public class AbstractMTLSTokenBindingGrantHandlerTest {
             assertFalse(validateScope);
         }
     }
+
+    @Test
+    public void testValidateScopeWithPublishedCertificate() throws Exception {
+
+        try (MockedStatic<IdentityUtil> identityUtil = mockStatic(IdentityUtil.class);
+             MockedStatic<Oauth2ScopeUtils> oauth2ScopeUtil = mockStatic(Oauth2ScopeUtils.class)) {
+
+            identityUtil.when(() -> IdentityUtil.getProperty((CommonConstants.MTLS_AUTH_HEADER)))
+                    .thenReturn("x-wso2-mutual-auth-cert");
+            identityUtil.when(() -> IdentityUtil.getIdentityConfigDirPath()).thenReturn(System.
+                    getProperty("user.dir") + "/src/test/resources/repository/conf/identity");
+            mtlsTokenBindingAuthorizationCodeGrantHandler = new MTLSTokenBindingAuthorizationCodeGrantHandler();
+
+            oauth2ScopeUtil.when(() ->
+                    Oauth2ScopeUtils.validateByApplicationScopeValidator(any(OAuthTokenReqMessageContext.class),
+                    any(OAuthAuthzReqMessageContext.class))).thenReturn(true);
+            // The certificate header is not looked up when the authenticator published the certificate.
+            OAuth2AccessTokenReqDTO oauth2AccessTokenReqDTO = oauth2AccessTokenReqDTOObject();
+            oauth2AccessTokenReqDTO.setHttpRequestHeaders(new HttpRequestHeader[0]);
+            MutualTLSClientCertificateCacheEntry certificateEntry =
+                    new MutualTLSClientCertificateCacheEntry(CertificateDecoder.decode(certificateContent));
+            oauth2AccessTokenReqDTO.getoAuthClientAuthnContext()
+                    .addParameter(CommonConstants.MTLS_CLIENT_CERTIFICATE_PARAM, certificateEntry);
+            OAuthTokenReqMessageContext oAuthTokenReqMessageContext =
+                    new OAuthTokenReqMessageContext(oauth2AccessTokenReqDTO);
+            oAuthTokenReqMessageContext.setScope(new String[]{"openid"});
+
+            mtlsTokenBindingAuthorizationCodeGrantHandler.validateScope(oAuthTokenReqMessageContext);
+            assertTrue(Arrays.asList(oAuthTokenReqMessageContext.getScope()).contains(CommonConstants.CERT_THUMBPRINT
+                    + CommonConstants.SEPARATOR + CommonConstants.SHA256_DIGEST_ALGORITHM
+                    + CommonConstants.CERT_THUMBPRINT_SEPARATOR + certificateEntry.getSHA256Thumbprint()));
+        }
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Test class for JWKSCertificateMatcher class.
+ */
+@WithCarbonHome
+public class JWKSCertificateMatcherTest {
+
+    @Test
+    public void testMatch() throws Exception {
+
+        X509Certificate certificate = getCertificate();
+        JWKSCertificateMatcher matcher = JWKSCertificateMatcher.forCertificate(certificate);
+        assertEquals(matcher.getCertificateDigest(), CertificateThumbprint.sha256(certificate));
+
+        JsonArray x5tKeys = new JsonArray();
+        x5tKeys.add(getX5tKey(matcher.getCertificateDigest()));
+        JsonArray x5cKeys = new JsonArray();
+        x5cKeys.add(getX5cKey());
+        JsonArray bothKeys = new JsonArray();
+        bothKeys.add(getX5cKey());
+        bothKeys.add(getX5tKey(matcher.getCertificateDigest()));
+        JsonArray otherKeys = new JsonArray();
+        otherKeys.add(getX5tKey(new byte[]{1, 2, 3, 4}));
+
+        assertEquals(matcher.match(JWKSKeySet.fromKeys(x5tKeys)), JWKSCertificateMatcher.Match.X5T);
+        assertEquals(matcher.match(JWKSKeySet.fromKeys(x5cKeys)), JWKSCertificateMatcher.Match.X5C);
+        assertEquals(matcher.match(JWKSKeySet.fromKeys(bothKeys)), JWKSCertificateMatcher.Match.X5T);
+        assertEquals(matcher.match(JWKSKeySet.fromKeys(otherKeys)), JWKSCertificateMatcher.Match.NONE);
+        assertEquals(matcher.match(JWKSKeySet.fromKeys(null)), JWKSCertificateMatcher.Match.NONE);
+        assertEquals(matcher.match(null), JWKSCertificateMatcher.Match.NONE);
+        assertEquals(new JWKSCertificateMatcher(null).match(JWKSKeySet.fromKeys(x5tKeys)),
+                JWKSCertificateMatcher.Match.NONE);
+    }
+
+    @Test
+    public void testMatchLargeKeySets() throws Exception {
+
+        JWKSCertificateMatcher matcher = JWKSCertificateMatcher.forCertificate(getCertificate());
+        for (int size : new int[]{1, 10, 100, 1000}) {
+            JsonArray keys = new JsonArray();
+            for (int i = 1; i < size; i++) {
+                keys.add(getX5tKey(ByteBuffer.allocate(Integer.BYTES).putInt(i).array()));
+            }
+            JWKSKeySet withoutCertificate = JWKSKeySet.fromKeys(keys);
+            keys.add(getX5tKey(matcher.getCertificateDigest()));
+            JWKSKeySet withCertificate = JWKSKeySet.fromKeys(keys);
+
+            assertEquals(withCertificate.size(), size);
+            assertEquals(matcher.match(withCertificate), JWKSCertificateMatcher.Match.X5T);
+            assertEquals(matcher.match(withoutCertificate), JWKSCertificateMatcher.Match.NONE);
+        }
+    }
+
+    private JsonObject getX5tKey(byte[] certificateDigest) {
+
+        JsonObject key = new JsonObject();
+        key.addProperty("kty", "RSA");
+        key.addProperty("x5t", CertificateThumbprint.toHexBase64URL(certificateDigest));
+        return key;
+    }
+
+    private JsonObject getX5cKey() {
+
+        JsonObject key = new JsonObject();
+        key.addProperty("kty", "RSA");
+        JsonArray chain = new JsonArray();
+        chain.add(new JsonPrimitive(JWKSKeySetTest.CERTIFICATE_CONTENT));
+        key.add("x5c", chain);
+        return key;
+    }
+
+    private X509Certificate getCertificate() throws Exception {
+
+        return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(
+                new ByteArrayInputStream(Base64.getMimeDecoder().decode(JWKSKeySetTest.CERTIFICATE_CONTENT)));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for JWKSCircuitBreaker class.
+ */
+public class JWKSCircuitBreakerTest {
+
+    private JWKSConfig config;
+
+    @BeforeMethod
+    public void setUp() {
+
+        config = new JWKSConfig();
+        config.setCircuitBreakerFailureThreshold(3);
+        config.setCircuitBreakerInitialBackoff(100);
+        config.setCircuitBreakerMaxBackoff(300);
+    }
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+
+        JWKSCircuitBreaker circuitBreaker = new JWKSCircuitBreaker(config);
+        circuitBreaker.recordFailure(0);
+        circuitBreaker.recordFailure(0);
+        assertFalse(circuitBreaker.recordSuccess());
+        circuitBreaker.recordFailure(0);
+        assertFalse(circuitBreaker.recordFailure(0));
+        assertEquals(circuitBreaker.getState(), JWKSCircuitBreaker.State.CLOSED);
+        assertTrue(circuitBreaker.allowRequest(0));
+
+        assertTrue(circuitBreaker.recordFailure(10));
+        assertEquals(circuitBreaker.getState(), JWKSCircuitBreaker.State.OPEN);
+        assertEquals(circuitBreaker.getRetryTime(), 110);
+        assertFalse(circuitBreaker.allowRequest(50));
+        assertEquals(circuitBreaker.getRejectedCount(), 1);
+        assertEquals(circuitBreaker.getFailureCount(), 5);
+        assertEquals(circuitBreaker.getSuccessCount(), 1);
+    }
+
+    @Test
+    public void testHalfOpenTrial() {
+
+        JWKSCircuitBreaker circuitBreaker = openCircuitBreaker();
+        assertTrue(circuitBreaker.allowRequest(100));
+        assertEquals(circuitBreaker.getState(), JWKSCircuitBreaker.State.HALF_OPEN);
+        // Only one trial fetch is let through at a time.
+        assertFalse(circuitBreaker.allowRequest(100));
+
+        assertTrue(circuitBreaker.recordSuccess());
+        assertEquals(circuitBreaker.getState(), JWKSCircuitBreaker.State.CLOSED);
+        assertEquals(circuitBreaker.getConsecutiveFailures(), 0);
+        assertTrue(circuitBreaker.allowRequest(100));
+    }
+
+    @Test
+    public void testBackoffDoublesUpToMaximum() {
+
+        JWKSCircuitBreaker circuitBreaker = openCircuitBreaker();
+        assertTrue(circuitBreaker.allowRequest(100));
+        assertTrue(circuitBreaker.recordFailure(100));
+        assertEquals(circuitBreaker.getState(), JWKSCircuitBreaker.State.OPEN);
+        assertEquals(circuitBreaker.getBackoff(), 200);
+        assertEquals(circuitBreaker.getRetryTime(), 300);
+
+        assertTrue(circuitBreaker.allowRequest(300));
+        circuitBreaker.recordFailure(300);
+        assertEquals(circuitBreaker.getBackoff(), 300);
+        assertEquals(circuitBreaker.getRetryTime(), 600);
+        assertEquals(circuitBreaker.getOpenCount(), 3);
+    }
+
+    @Test
+    public void testUnfinishedTrialIsRetried() {
+
+        JWKSCircuitBreaker circuitBreaker = openCircuitBreaker();
+        assertTrue(circuitBreaker.allowRequest(100));
+        assertFalse(circuitBreaker.allowRequest(399));
+        assertTrue(circuitBreaker.allowRequest(400));
+    }
+
+    private JWKSCircuitBreaker openCircuitBreaker() {
+
+        JWKSCircuitBreaker circuitBreaker = new JWKSCircuitBreaker(config);
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.recordFailure(0);
+        }
+        assertEquals(circuitBreaker.getState(), JWKSCircuitBreaker.State.OPEN);
+        return circuitBreaker;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CommonConstants;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Test class for JWKSConfig class.
+ */
+public class JWKSConfigTest {
+
+    @Test
+    public void testDefaultFetchWaitTimeout() {
+
+        JWKSConfig config = new JWKSConfig();
+        assertEquals(config.getFetchWaitTimeout(), CommonConstants.DEFAULT_JWKS_FETCH_WAIT_TIMEOUT);
+
+        config.setConnectTimeout(1000);
+        config.setReadTimeout(2000);
+        assertEquals(config.getFetchWaitTimeout(), CommonConstants.DEFAULT_JWKS_FETCH_WAIT_TIMEOUT);
+    }
+
+    @Test
+    public void testDefaultFetchWaitTimeoutCoversHTTPTimeouts() {
+
+        JWKSConfig config = new JWKSConfig();
+        config.setConnectTimeout(5000);
+        config.setReadTimeout(30000);
+        assertEquals(config.getFetchWaitTimeout(), 35000);
+    }
+
+    @Test
+    public void testConfiguredFetchWaitTimeout() {
+
+        JWKSConfig config = new JWKSConfig();
+        config.setConnectTimeout(5000);
+        config.setReadTimeout(30000);
+        config.setFetchWaitTimeout(2000);
+        assertEquals(config.getFetchWaitTimeout(), 2000);
+    }
+}
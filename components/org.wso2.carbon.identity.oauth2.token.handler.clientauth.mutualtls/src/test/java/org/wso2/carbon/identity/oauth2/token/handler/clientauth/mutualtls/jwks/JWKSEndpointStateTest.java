@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URL;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for JWKSEndpointState class.
+ */
+public class JWKSEndpointStateTest {
+
+    private static final String JWKS_URI = "https://localhost:9443/oauth2/jwks";
+
+    private JWKSConfig config;
+    private JWKSKeySet keySet;
+    private JWKSKeySet rotatedKeySet;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        config = new JWKSConfig();
+        config.setSoftTTL(100);
+        config.setMinRefreshInterval(50);
+        config.setMaxRefreshInterval(1000);
+        keySet = JWKSKeySet.fromContent("{\"keys\":[{\"kty\":\"RSA\",\"x5t\":\"thumbprint\"}]}");
+        rotatedKeySet = JWKSKeySet.fromContent("{\"keys\":[{\"kty\":\"RSA\",\"x5t\":\"rotated\"}]}");
+    }
+
+    @Test
+    public void testIntervalGrowsWhileContentIsUnchanged() throws Exception {
+
+        JWKSEndpointState state = new JWKSEndpointState(new URL(JWKS_URI), 0, config);
+        assertFalse(state.recordFetch(keySet, -1, 0, config));
+        assertEquals(state.getRefreshInterval(), 100);
+        assertEquals(state.getNextRefreshTime(), 100);
+        assertEquals(state.getLastChangeTime(), 0);
+
+        assertFalse(state.recordFetch(
+                JWKSKeySet.fromContent("{\"keys\":[{\"kty\":\"RSA\",\"x5t\":\"thumbprint\"}]}"), -1, 100, config));
+        assertEquals(state.getRefreshInterval(), 200);
+        assertEquals(state.getNextRefreshTime(), 300);
+        assertEquals(state.getLastChangeTime(), 0);
+
+        for (long now = 300; now < 5000; now += state.getRefreshInterval()) {
+            state.recordFetch(keySet, -1, now, config);
+        }
+        assertEquals(state.getRefreshInterval(), 1000);
+    }
+
+    @Test
+    public void testIntervalShrinksWhenContentChanges() throws Exception {
+
+        JWKSEndpointState state = new JWKSEndpointState(new URL(JWKS_URI), 0, config);
+        state.recordFetch(keySet, -1, 0, config);
+        state.recordFetch(keySet, -1, 100, config);
+        state.recordFetch(keySet, -1, 300, config);
+        assertEquals(state.getRefreshInterval(), 400);
+
+        assertTrue(state.recordFetch(rotatedKeySet, -1, 700, config));
+        assertEquals(state.getRefreshInterval(), 350);
+        assertEquals(state.getLastChangeTime(), 700);
+        assertEquals(state.getLastFetchTime(), 700);
+        assertEquals(state.getKeySet(), rotatedKeySet);
+
+        state.recordFetch(keySet, -1, 720, config);
+        assertEquals(state.getRefreshInterval(), 50);
+    }
+
+    @Test
+    public void testIntervalFollowsMaxAge() throws Exception {
+
+        JWKSEndpointState state = new JWKSEndpointState(new URL(JWKS_URI), 0, config);
+        state.recordFetch(keySet, 300, 0, config);
+        assertEquals(state.getRefreshInterval(), 300);
+
+        state.recordFetch(keySet, 10, 300, config);
+        assertEquals(state.getRefreshInterval(), 50);
+
+        state.recordFetch(keySet, 5000, 350, config);
+        assertEquals(state.getRefreshInterval(), 1000);
+        assertEquals(state.getNextRefreshTime(), 1350);
+    }
+}
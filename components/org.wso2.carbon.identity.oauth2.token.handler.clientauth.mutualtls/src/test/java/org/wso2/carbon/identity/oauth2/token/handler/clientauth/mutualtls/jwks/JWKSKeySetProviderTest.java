@@ -0,0 +1,609 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.common.testng.WithRealmService;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCacheEntry;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCacheKey;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Test class for JWKSKeySetProvider class.
+ */
+@WithCarbonHome
+@WithRealmService
+public class JWKSKeySetProviderTest {
+
+    private static final String JWKS_URI = "https://localhost:9443/oauth2/jwks";
+    private static final byte[] DIGEST = {1, 2, 3, 4};
+    private static final byte[] ROTATED_DIGEST = {5, 6, 7, 8};
+    private static final String JWKS_CONTENT = getJWKSContent(DIGEST);
+    private static final int CONCURRENT_REQUESTS = 20;
+
+    @AfterMethod
+    public void tearDown() {
+
+        MutualTLSJWKSCache.getInstance().clearCacheEntry(new MutualTLSJWKSCacheKey(JWKS_URI));
+    }
+
+    @Test
+    public void testConcurrentFetchesAreCoalesced() throws Exception {
+
+        BlockingProvider provider = new BlockingProvider(0, null);
+        List<Object> results = runConcurrently(provider);
+
+        assertEquals(provider.fetchCount.get(), 1);
+        JWKSKeySet keySet = (JWKSKeySet) results.get(0);
+        assertTrue(keySet.containsX5tDigest(DIGEST));
+        for (Object result : results) {
+            assertSame(result, keySet);
+        }
+    }
+
+    @Test
+    public void testFetchFailureIsSharedWithWaiters() throws Exception {
+
+        BlockingProvider provider = new BlockingProvider(0, new IOException("Connection refused"));
+        List<Object> results = runConcurrently(provider);
+
+        assertEquals(provider.fetchCount.get(), 1);
+        for (Object result : results) {
+            assertTrue(result instanceof IOException);
+        }
+
+        // A failed fetch is not remembered, the next request fetches again.
+        provider.failure = null;
+        assertTrue(provider.getKeySet(new URL(JWKS_URI)).containsX5tDigest(DIGEST));
+        assertEquals(provider.fetchCount.get(), 2);
+    }
+
+    @Test
+    public void testWaiterTimesOut() throws Exception {
+
+        BlockingProvider provider = new BlockingProvider(100, null);
+        Thread leader = new Thread(() -> {
+            try {
+                provider.getKeySet(new URL(JWKS_URI));
+            } catch (Exception e) {
+                // Outcome of the leading request is not verified here.
+            }
+        });
+        leader.start();
+        assertTrue(provider.fetchStarted.await(5, TimeUnit.SECONDS));
+        try {
+            provider.getKeySet(new URL(JWKS_URI));
+            fail("Expected the waiting request to time out.");
+        } catch (IOException e) {
+            // The fetch has the same timeout, and may time out before the waiter does.
+            assertTrue(e.getMessage().contains("Timed out") ||
+                    (e.getCause() != null && e.getCause().getMessage().contains("Timed out")));
+        } finally {
+            provider.release.countDown();
+            leader.join();
+        }
+        assertEquals(provider.fetchCount.get(), 1);
+    }
+
+    @Test
+    public void testGetKeySetAsyncDoesNotBlock() throws Exception {
+
+        BlockingProvider provider = new BlockingProvider(0, null);
+        CompletableFuture<JWKSKeySet> keySet = provider.getKeySetAsync(new URL(JWKS_URI));
+        CompletableFuture<JWKSKeySet> coalescedKeySet = provider.getKeySetAsync(new URL(JWKS_URI));
+        assertFalse(keySet.isDone());
+
+        provider.release.countDown();
+        assertTrue(keySet.get(5, TimeUnit.SECONDS).containsX5tDigest(DIGEST));
+        assertSame(coalescedKeySet.get(5, TimeUnit.SECONDS), keySet.get());
+        assertEquals(provider.fetchCount.get(), 1);
+    }
+
+    @Test
+    public void testFetchTimesOut() throws Exception {
+
+        BlockingProvider provider = new BlockingProvider(50, null);
+        CompletableFuture<JWKSKeySet> keySet = provider.getKeySetAsync(new URL(JWKS_URI));
+        try {
+            keySet.get(5, TimeUnit.SECONDS);
+            fail("Expected the fetch to time out.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertTrue(e.getCause().getMessage().contains("Timed out"));
+        } finally {
+            provider.release.countDown();
+        }
+    }
+
+    @Test
+    public void testEmptyResponseIsNotCached() throws Exception {
+
+        BlockingProvider provider = new BlockingProvider(0, null);
+        provider.content = null;
+        provider.release.countDown();
+
+        assertNull(provider.getKeySet(new URL(JWKS_URI)));
+        assertNull(provider.getKeySet(new URL(JWKS_URI)));
+        assertEquals(provider.fetchCount.get(), 2);
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+
+        JWKSConfig config = createConfig(0);
+        config.setStaleWhileRevalidate(true);
+        config.setSoftTTL(1);
+        BlockingProvider provider = new BlockingProvider(config, null);
+        provider.release.countDown();
+        URL jwksUri = new URL(JWKS_URI);
+
+        JWKSKeySet keySet = provider.getKeySet(jwksUri);
+        assertTrue(keySet.containsX5tDigest(DIGEST));
+        provider.content = getJWKSContent(ROTATED_DIGEST);
+        Thread.sleep(10);
+
+        // The stale key set is served while the refresh runs in the background.
+        assertSame(provider.getKeySet(jwksUri), keySet);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!provider.getKeySet(jwksUri).containsX5tDigest(ROTATED_DIGEST)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(provider.getKeySet(jwksUri).containsX5tDigest(ROTATED_DIGEST));
+        assertTrue(provider.fetchCount.get() >= 2);
+    }
+
+    @Test
+    public void testRefreshReplacesCacheEntry() throws Exception {
+
+        JWKSConfig config = createConfig(0);
+        config.setStaleWhileRevalidate(true);
+        config.setSoftTTL(1);
+        BlockingProvider provider = new BlockingProvider(config, null);
+        provider.release.countDown();
+        URL jwksUri = new URL(JWKS_URI);
+        MutualTLSJWKSCacheKey cacheKey = new MutualTLSJWKSCacheKey(JWKS_URI);
+
+        provider.getKeySet(jwksUri);
+        MutualTLSJWKSCacheEntry staleEntry = MutualTLSJWKSCache.getInstance().getValueFromCache(cacheKey);
+        provider.content = getJWKSContent(ROTATED_DIGEST);
+        Thread.sleep(10);
+        provider.getKeySet(jwksUri);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (MutualTLSJWKSCache.getInstance().getValueFromCache(cacheKey) == staleEntry
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        MutualTLSJWKSCacheEntry refreshedEntry = MutualTLSJWKSCache.getInstance().getValueFromCache(cacheKey);
+        assertTrue(refreshedEntry != staleEntry);
+        assertTrue(refreshedEntry.getValue().containsX5tDigest(ROTATED_DIGEST));
+        assertTrue(refreshedEntry.getFetchedTime() > staleEntry.getFetchedTime());
+    }
+
+    @Test
+    public void testStaleIfError() throws Exception {
+
+        JWKSConfig config = createConfig(0);
+        config.setStaleIfError(true);
+        BlockingProvider provider = new BlockingProvider(config, null);
+        provider.release.countDown();
+        URL jwksUri = new URL(JWKS_URI);
+
+        JWKSKeySet keySet = provider.getKeySet(jwksUri);
+        MutualTLSJWKSCache.getInstance().clearCacheEntry(new MutualTLSJWKSCacheKey(JWKS_URI));
+        provider.failure = new IOException("Connection refused");
+
+        assertSame(provider.getKeySet(jwksUri), keySet);
+        assertEquals(provider.fetchCount.get(), 2);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testStaleIfErrorAfterHardTTL() throws Exception {
+
+        JWKSConfig config = createConfig(0);
+        config.setStaleIfError(true);
+        config.setHardTTL(1);
+        BlockingProvider provider = new BlockingProvider(config, null);
+        provider.release.countDown();
+        URL jwksUri = new URL(JWKS_URI);
+
+        provider.getKeySet(jwksUri);
+        MutualTLSJWKSCache.getInstance().clearCacheEntry(new MutualTLSJWKSCacheKey(JWKS_URI));
+        provider.failure = new IOException("Connection refused");
+        Thread.sleep(10);
+
+        provider.getKeySet(jwksUri);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testErrorWithoutStaleIfError() throws Exception {
+
+        BlockingProvider provider = new BlockingProvider(0, null);
+        provider.release.countDown();
+        URL jwksUri = new URL(JWKS_URI);
+
+        provider.getKeySet(jwksUri);
+        MutualTLSJWKSCache.getInstance().clearCacheEntry(new MutualTLSJWKSCacheKey(JWKS_URI));
+        provider.failure = new IOException("Connection refused");
+
+        provider.getKeySet(jwksUri);
+    }
+
+    @Test
+    public void testOpenCircuitBreakerFailsFast() throws Exception {
+
+        JWKSConfig config = createConfig(0);
+        config.setCircuitBreakerFailureThreshold(2);
+        config.setCircuitBreakerInitialBackoff(TimeUnit.MINUTES.toMillis(1));
+        BlockingProvider provider = new BlockingProvider(config, new IOException("Connection refused"));
+        provider.release.countDown();
+        URL jwksUri = new URL(JWKS_URI);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                provider.getKeySet(jwksUri);
+                fail("Expected the fetch to fail.");
+            } catch (IOException e) {
+                assertFalse(e instanceof JWKSFetchRejectedException);
+            }
+        }
+        try {
+            provider.getKeySet(jwksUri);
+            fail("Expected the fetch to be rejected.");
+        } catch (JWKSFetchRejectedException e) {
+            assertEquals(provider.fetchCount.get(), 2);
+        }
+
+        JWKSCircuitBreaker circuitBreaker = provider.getEndpointStates().iterator().next().getCircuitBreaker();
+        assertEquals(circuitBreaker.getState(), JWKSCircuitBreaker.State.OPEN);
+        assertEquals(circuitBreaker.getFailureCount(), 2);
+        assertEquals(circuitBreaker.getRejectedCount(), 1);
+        assertEquals(circuitBreaker.getOpenCount(), 1);
+    }
+
+    @Test
+    public void testStaleIfErrorWhileCircuitBreakerIsOpen() throws Exception {
+
+        JWKSConfig config = createConfig(0);
+        config.setStaleIfError(true);
+        config.setCircuitBreakerFailureThreshold(1);
+        config.setCircuitBreakerInitialBackoff(TimeUnit.MINUTES.toMillis(1));
+        BlockingProvider provider = new BlockingProvider(config, null);
+        provider.release.countDown();
+        URL jwksUri = new URL(JWKS_URI);
+
+        JWKSKeySet keySet = provider.getKeySet(jwksUri);
+        MutualTLSJWKSCache.getInstance().clearCacheEntry(new MutualTLSJWKSCacheKey(JWKS_URI));
+        provider.failure = new IOException("Connection refused");
+
+        assertSame(provider.getKeySet(jwksUri), keySet);
+        assertSame(provider.getKeySet(jwksUri), keySet);
+        assertEquals(provider.fetchCount.get(), 2);
+    }
+
+    @Test
+    public void testWaitingRequestsAreNotLimitedByDefault() throws Exception {
+
+        assertEquals(new JWKSConfig().getMaxWaitingRequests(), 0);
+        BlockingProvider provider = new BlockingProvider(0, null);
+        List<Object> results = runConcurrently(provider, 100);
+
+        for (Object result : results) {
+            assertTrue(result instanceof JWKSKeySet);
+        }
+        assertEquals(provider.fetchCount.get(), 1);
+        assertEquals(getWaitingRequestCount(provider), 0);
+    }
+
+    @Test
+    public void testWaitingRequestsAreLimited() throws Exception {
+
+        JWKSConfig config = createConfig(0);
+        config.setMaxWaitingRequests(1);
+        config.setQueueTimeout(50);
+        BlockingProvider provider = new BlockingProvider(config, null);
+        AtomicReference<Object> waitingResult = new AtomicReference<>();
+        Thread waitingRequest = new Thread(() -> {
+            try {
+                waitingResult.set(provider.getKeySet(new URL(JWKS_URI)));
+            } catch (Exception e) {
+                waitingResult.set(e);
+            }
+        });
+        waitingRequest.start();
+        assertTrue(provider.fetchStarted.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (getWaitingRequestCount(provider) < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        try {
+            provider.getKeySet(new URL(JWKS_URI));
+            fail("Expected the request to be rejected.");
+        } catch (JWKSFetchRejectedException e) {
+            assertTrue(e.getMessage().contains("Too many requests waiting"));
+        } finally {
+            provider.release.countDown();
+            waitingRequest.join(5000);
+        }
+        assertTrue(waitingResult.get() instanceof JWKSKeySet);
+        assertEquals(provider.fetchCount.get(), 1);
+        assertEquals(getWaitingRequestCount(provider), 0);
+    }
+
+    @Test
+    public void testConcurrentFetchesAreLimited() throws Exception {
+
+        String otherJwksUri = "https://localhost:9443/t/other/oauth2/jwks";
+        JWKSConfig config = createConfig(0);
+        config.setMaxConcurrentFetches(1);
+        BlockingProvider provider = new BlockingProvider(config, null);
+        try {
+            CompletableFuture<JWKSKeySet> keySet = provider.getKeySetAsync(new URL(JWKS_URI));
+            CompletableFuture<JWKSKeySet> otherKeySet = provider.getKeySetAsync(new URL(otherJwksUri));
+            try {
+                otherKeySet.get(5, TimeUnit.SECONDS);
+                fail("Expected the fetch to be rejected.");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof JWKSFetchRejectedException);
+            }
+
+            provider.release.countDown();
+            assertTrue(keySet.get(5, TimeUnit.SECONDS).containsX5tDigest(DIGEST));
+            assertTrue(provider.getKeySet(new URL(otherJwksUri)).containsX5tDigest(DIGEST));
+            assertEquals(provider.fetchCount.get(), 2);
+        } finally {
+            MutualTLSJWKSCache.getInstance().clearCacheEntry(new MutualTLSJWKSCacheKey(otherJwksUri));
+        }
+    }
+
+    @Test
+    public void testNotModifiedResponseReusesKeySet() throws Exception {
+
+        byte[] body = JWKS_CONTENT.getBytes(StandardCharsets.UTF_8);
+        AtomicInteger requestCount = new AtomicInteger();
+        AtomicLong bytesServed = new AtomicLong();
+        HttpServer server = startETagServer(body, requestCount, bytesServed);
+        String jwksUri = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() +
+                "/jwks";
+        try {
+            JWKSKeySetProvider provider = new JWKSKeySetProvider(new JWKSConfig());
+            JWKSKeySet keySet = provider.getKeySet(new URL(jwksUri));
+            assertTrue(keySet.containsX5tDigest(DIGEST));
+
+            // Expire the cache entry, the key set is revalidated instead of downloaded again.
+            MutualTLSJWKSCache.getInstance().clearCacheEntry(new MutualTLSJWKSCacheKey(jwksUri));
+            assertSame(provider.getKeySet(new URL(jwksUri)), keySet);
+            assertEquals(requestCount.get(), 2);
+            assertEquals(bytesServed.get(), body.length);
+        } finally {
+            MutualTLSJWKSCache.getInstance().clearCacheEntry(new MutualTLSJWKSCacheKey(jwksUri));
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testNotModifiedResponseReplacesCacheEntry() throws Exception {
+
+        byte[] body = JWKS_CONTENT.getBytes(StandardCharsets.UTF_8);
+        AtomicInteger requestCount = new AtomicInteger();
+        AtomicLong bytesServed = new AtomicLong();
+        HttpServer server = startETagServer(body, requestCount, bytesServed);
+        String jwksUri = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() +
+                "/jwks";
+        MutualTLSJWKSCacheKey cacheKey = new MutualTLSJWKSCacheKey(jwksUri);
+        try {
+            JWKSConfig config = new JWKSConfig();
+            config.setStaleWhileRevalidate(true);
+            config.setSoftTTL(1);
+            JWKSKeySetProvider provider = new JWKSKeySetProvider(config);
+            JWKSKeySet keySet = provider.getKeySet(new URL(jwksUri));
+            MutualTLSJWKSCacheEntry staleEntry = MutualTLSJWKSCache.getInstance().getValueFromCache(cacheKey);
+
+            // The stale entry is revalidated in the background while it is still cached.
+            Thread.sleep(10);
+            assertSame(provider.getKeySet(new URL(jwksUri)), keySet);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (MutualTLSJWKSCache.getInstance().getValueFromCache(cacheKey) == staleEntry
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            MutualTLSJWKSCacheEntry revalidatedEntry = MutualTLSJWKSCache.getInstance().getValueFromCache(cacheKey);
+            assertTrue(revalidatedEntry != staleEntry);
+            assertSame(revalidatedEntry.getValue(), keySet);
+            assertTrue(revalidatedEntry.getFetchedTime() > staleEntry.getFetchedTime());
+            assertEquals(requestCount.get(), 2);
+            assertEquals(bytesServed.get(), body.length);
+        } finally {
+            MutualTLSJWKSCache.getInstance().clearCacheEntry(cacheKey);
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Start a JWKS endpoint which serves the given body with an ETag, and responds with not modified to a request
+     * conditional on it.
+     */
+    private static HttpServer startETagServer(byte[] body, AtomicInteger requestCount, AtomicLong bytesServed)
+            throws IOException {
+
+        String eTag = "\"v1\"";
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/jwks", exchange -> {
+            requestCount.incrementAndGet();
+            exchange.getResponseHeaders().add("ETag", eTag);
+            if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            bytesServed.addAndGet(body.length);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static JWKSConfig createConfig(long fetchWaitTimeout) {
+
+        JWKSConfig config = new JWKSConfig();
+        if (fetchWaitTimeout > 0) {
+            config.setFetchWaitTimeout(fetchWaitTimeout);
+        }
+        return config;
+    }
+
+    private List<Object> runConcurrently(BlockingProvider provider) throws Exception {
+
+        return runConcurrently(provider, CONCURRENT_REQUESTS);
+    }
+
+    private List<Object> runConcurrently(BlockingProvider provider, int requestCount) throws Exception {
+
+        List<Object> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < requestCount; i++) {
+            Thread thread = new Thread(() -> {
+                Object result;
+                try {
+                    result = provider.getKeySet(new URL(JWKS_URI));
+                } catch (Exception e) {
+                    result = e;
+                }
+                synchronized (results) {
+                    results.add(result);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        // Hold the fetch until every other request is waiting on it.
+        assertTrue(provider.fetchStarted.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (countWaiting(threads) < requestCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        provider.release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        assertEquals(results.size(), requestCount);
+        return results;
+    }
+
+    private int getWaitingRequestCount(JWKSKeySetProvider provider) {
+
+        int waiting = 0;
+        for (JWKSEndpointState state : provider.getEndpointStates()) {
+            waiting += state.getWaitingRequestCount();
+        }
+        return waiting;
+    }
+
+    private int countWaiting(List<Thread> threads) {
+
+        int waiting = 0;
+        for (Thread thread : threads) {
+            Thread.State state = thread.getState();
+            if (state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING) {
+                waiting++;
+            }
+        }
+        return waiting;
+    }
+
+    private static String getJWKSContent(byte[] digest) {
+
+        return "{\"keys\":[{\"kty\":\"RSA\",\"x5t\":\"" + CertificateThumbprint.toHexBase64URL(digest) + "\"}]}";
+    }
+
+    /**
+     * Provider whose remote fetch is counted and does not complete until released by the test.
+     */
+    private static class BlockingProvider extends JWKSKeySetProvider {
+
+        private final AtomicInteger fetchCount = new AtomicInteger();
+        private final CountDownLatch fetchStarted = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile IOException failure;
+        private volatile String content = JWKS_CONTENT;
+
+        BlockingProvider(long fetchWaitTimeout, IOException failure) {
+
+            this(createConfig(fetchWaitTimeout), failure);
+        }
+
+        BlockingProvider(JWKSConfig config, IOException failure) {
+
+            super(config);
+            this.failure = failure;
+        }
+
+        @Override
+        protected CompletableFuture<JWKSResponse> retrieveAsync(URL jwksUri, String eTag, String lastModified) {
+
+            fetchCount.incrementAndGet();
+            fetchStarted.countDown();
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (failure != null) {
+                    throw new CompletionException(failure);
+                }
+                return content == null ? null : new JWKSResponse(content, -1);
+            });
+        }
+    }
+}
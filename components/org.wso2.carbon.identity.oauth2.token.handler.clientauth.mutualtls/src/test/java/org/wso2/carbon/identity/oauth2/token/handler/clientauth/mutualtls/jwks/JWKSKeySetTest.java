@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils.CertificateThumbprint;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@WithCarbonHome
+public class JWKSKeySetTest {
+
+    private static final byte[] PUBLISHED_DIGEST = {1, 2, 3, 4};
+
+    static final String CERTIFICATE_CONTENT = "MIIDmzCCAoOgAwIBAgIJAJuzH6NrV5s5MA0GCSqGSIb3DQEBCwUAMGQxCzAJBgNV"
+            + "BAYTAlNMMQswCQYDVQQIDAJXUDEQMA4GA1UEBwwHQ29sb21ibzENMAsGA1UECgwE\n"
+            + "d3NvMjENMAsGA1UECwwEd3NvMjEYMBYGA1UEAwwPdHJhdmVsb2NpdHkuY29tMB4X\n"
+            + "DTE4MDIwNjEwNTk1N1oXDTE5MDIwNjEwNTk1N1owZDELMAkGA1UEBhMCU0wxCzAJ\n"
+            + "BgNVBAgMAldQMRAwDgYDVQQHDAdDb2xvbWJvMQ0wCwYDVQQKDAR3c28yMQ0wCwYD\n"
+            + "VQQLDAR3c28yMRgwFgYDVQQDDA90cmF2ZWxvY2l0eS5jb20wggEiMA0GCSqGSIb3\n"
+            + "DQEBAQUAA4IBDwAwggEKAoIBAQDlKn3dmaLW7iBOKdlWY8Go8Q7kR6HNY/8j0arv\n"
+            + "EcZYqMrihcSX5i5Mz57t6Z3xpaGay2jPWND7dDA/RocircleBKQk0X2OxoEYba3W\n"
+            + "t477EpN9RWGAZuuANUSVKjC8FsNYhEp9y59IuxK+IgDAEfR8O2RNLYA6O3UjBC/R\n"
+            + "f443CwOE4jFm3eVAeLIBudn/viC56rPBozVX4DxPaHIzxocfK6EpDljEG4lJ7otS\n"
+            + "SbIpPlmAO/0f8F1Q6syv+sCkPRGn/OjTXWtUg6QXAclguOCl3MI+pLMThQUATcKb\n"
+            + "2QkPl8r8/b/S8qMRKzSVYyjNP+CsDRO/MdlC50QZSJBaNYqdAgMBAAGjUDBOMB0G\n"
+            + "A1UdDgQWBBSIXyhWV6Ac+FiqdXEeQwqzJfFLhDAfBgNVHSMEGDAWgBSIXyhWV6Ac\n"
+            + "+FiqdXEeQwqzJfFLhDAMBgNVHRMEBTADAQH/MA0GCSqGSIb3DQEBCwUAA4IBAQBQ\n"
+            + "S2jmfzF8x1iwmRqXILZ6qkF5ABAlNa3Z3bMFB7uErw2BxASMOLWfjZdEcyICDGIf\n"
+            + "ZeYchqEPTvv/RIqDlu8xda3N2kRp1un5Hfffavm6ZWR3J8LdsnSjrehZ/afxuy8a\n"
+            + "OFKiRtj9tqpG3C/s/NBJ9Gl4u5YhihOSJG9ELihJSxWDYI641AOalWnUQ/SxfeCO\n"
+            + "TY75aViCAD6QDmBxe/opQYExBdgNOCQ6HdP5WWBT6EEggBe/mqOM/dchj57rpPtw\n"
+            + "IOQjy9UCaY7tq4SmhAJyab0mxjcFoRBpzOJIDh+N8ozSDK+MepyFSwtW5zVacOiG\n"
+            + "OQUrBTGXQFZOGKje8sbS";
+
+    @Test
+    public void testFromKeys() throws Exception {
+
+        JsonArray keys = new JsonArray();
+        JsonObject x5tKey = new JsonObject();
+        x5tKey.addProperty("kty", "RSA");
+        x5tKey.addProperty("x5t", CertificateThumbprint.toHexBase64URL(PUBLISHED_DIGEST));
+        keys.add(x5tKey);
+        JsonObject x5cKey = new JsonObject();
+        x5cKey.addProperty("kty", "RSA");
+        JsonArray chain = new JsonArray();
+        chain.add(new JsonPrimitive(CERTIFICATE_CONTENT));
+        x5cKey.add("x5c", chain);
+        keys.add(x5cKey);
+
+        JWKSKeySet keySet = JWKSKeySet.fromKeys(keys);
+        byte[] certDigest = CertificateThumbprint.sha256(getCertificate());
+
+        assertEquals(keySet.size(), 2);
+        assertTrue(keySet.containsX5tDigest(PUBLISHED_DIGEST));
+        assertFalse(keySet.containsX5tDigest(certDigest));
+        assertTrue(keySet.containsX5cDigest(certDigest));
+        assertFalse(keySet.containsX5cDigest(PUBLISHED_DIGEST));
+        assertEquals(toSet(keySet.getCertificateDigests()), toSet(Arrays.asList(PUBLISHED_DIGEST, certDigest)));
+    }
+
+    @Test
+    public void testFromKeysWithStringX5c() throws Exception {
+
+        JsonArray keys = new JsonArray();
+        JsonObject x5cKey = new JsonObject();
+        x5cKey.addProperty("x5c", CERTIFICATE_CONTENT);
+        keys.add(x5cKey);
+
+        JWKSKeySet keySet = JWKSKeySet.fromKeys(keys);
+        assertTrue(keySet.containsX5cDigest(CertificateThumbprint.sha256(getCertificate())));
+    }
+
+    @Test
+    public void testFromKeysSkipsInvalidX5c() throws Exception {
+
+        JsonArray keys = new JsonArray();
+        JsonObject invalidKey = new JsonObject();
+        invalidKey.addProperty("kid", "invalid");
+        invalidKey.addProperty("x5c", "bm90IGEgY2VydGlmaWNhdGU=");
+        keys.add(invalidKey);
+        JsonObject undecodableKey = new JsonObject();
+        undecodableKey.addProperty("x5c", "not base64!");
+        keys.add(undecodableKey);
+        JsonObject x5cKey = new JsonObject();
+        x5cKey.addProperty("x5c", CERTIFICATE_CONTENT);
+        keys.add(x5cKey);
+        JsonObject x5tKey = new JsonObject();
+        x5tKey.addProperty("x5t", CertificateThumbprint.toHexBase64URL(PUBLISHED_DIGEST));
+        keys.add(x5tKey);
+        JsonObject foreignX5tKey = new JsonObject();
+        foreignX5tKey.addProperty("x5t", "published-thumbprint");
+        keys.add(foreignX5tKey);
+
+        JWKSKeySet keySet = JWKSKeySet.fromKeys(keys);
+        assertTrue(keySet.containsX5cDigest(CertificateThumbprint.sha256(getCertificate())));
+        assertTrue(keySet.containsX5tDigest(PUBLISHED_DIGEST));
+        assertEquals(keySet.getCertificateDigests().size(), 2);
+    }
+
+    @Test
+    public void testKeysAreNotCopiedOnRead() throws Exception {
+
+        JsonArray keys = new JsonArray();
+        JsonObject x5cKey = new JsonObject();
+        x5cKey.addProperty("x5c", CERTIFICATE_CONTENT);
+        keys.add(x5cKey);
+
+        JWKSKeySet keySet = JWKSKeySet.fromKeys(keys);
+        // The keys of the caller are copied once, when the set is indexed.
+        keys.add(new JsonObject());
+        assertEquals(keySet.size(), 1);
+        assertSame(keySet.getKeys(), keySet.getKeys());
+        assertSame(keySet.getCertificateDigests(), keySet.getCertificateDigests());
+        assertEquals(keySet.getKeyList().size(), 1);
+        assertSame(keySet.getKeyList().get(0), keySet.getKeys().get(0));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testKeyListIsUnmodifiable() throws Exception {
+
+        JWKSKeySet.fromContent("{\"keys\":[{\"kty\":\"RSA\"}]}").getKeyList().clear();
+    }
+
+    @Test
+    public void testFromEmptyKeys() throws Exception {
+
+        JWKSKeySet keySet = JWKSKeySet.fromKeys(null);
+        assertEquals(keySet.size(), 0);
+        assertFalse(keySet.containsX5tDigest(PUBLISHED_DIGEST));
+        assertFalse(keySet.containsX5cDigest(null));
+    }
+
+    private Set<ByteBuffer> toSet(Collection<byte[]> digests) {
+
+        Set<ByteBuffer> set = new HashSet<>();
+        for (byte[] digest : digests) {
+            set.add(ByteBuffer.wrap(digest));
+        }
+        return set;
+    }
+
+    private X509Certificate getCertificate() throws Exception {
+
+        return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(
+                new ByteArrayInputStream(Base64.getMimeDecoder().decode(CERTIFICATE_CONTENT)));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.common.testng.WithRealmService;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSJWKSCacheKey;
+
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for JWKSRefreshScheduler class.
+ */
+@WithCarbonHome
+@WithRealmService
+public class JWKSRefreshSchedulerTest {
+
+    private static final String JWKS_URI = "https://localhost:9443/oauth2/jwks";
+    private static final String JWKS_CONTENT = "{\"keys\":[{\"kty\":\"RSA\",\"x5t\":\"thumbprint\"}]}";
+
+    @AfterMethod
+    public void tearDown() {
+
+        MutualTLSJWKSCache.getInstance().clearCacheEntry(new MutualTLSJWKSCacheKey(JWKS_URI));
+    }
+
+    @Test
+    public void testDueEndpointIsRefreshed() throws Exception {
+
+        JWKSConfig config = new JWKSConfig();
+        config.setMinRefreshInterval(1);
+        config.setMaxRefreshInterval(1);
+        CountingProvider provider = new CountingProvider(config);
+        JWKSRefreshScheduler scheduler = new JWKSRefreshScheduler(provider);
+
+        provider.getKeySet(new URL(JWKS_URI));
+        assertEquals(provider.getEndpointStates().size(), 1);
+        JWKSEndpointState state = provider.getEndpointStates().iterator().next();
+        assertEquals(state.getJwksUri().toString(), JWKS_URI);
+        assertEquals(state.getRefreshInterval(), 1);
+        Thread.sleep(10);
+
+        scheduler.refreshDueEndpoints();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (state.getLastFetchTime() == state.getLastChangeTime() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(provider.fetchCount.get(), 2);
+        assertTrue(state.getLastFetchTime() > state.getLastChangeTime());
+    }
+
+    @Test
+    public void testEndpointIsNotRefreshedBeforeDue() throws Exception {
+
+        CountingProvider provider = new CountingProvider(new JWKSConfig());
+        JWKSRefreshScheduler scheduler = new JWKSRefreshScheduler(provider);
+
+        provider.getKeySet(new URL(JWKS_URI));
+        scheduler.refreshDueEndpoints();
+        Thread.sleep(50);
+        assertEquals(provider.fetchCount.get(), 1);
+    }
+
+    @Test
+    public void testIdleEndpointIsNotRefreshed() throws Exception {
+
+        JWKSConfig config = new JWKSConfig();
+        config.setMinRefreshInterval(1);
+        config.setMaxRefreshInterval(1);
+        config.setIdleTimeout(1);
+        CountingProvider provider = new CountingProvider(config);
+        JWKSRefreshScheduler scheduler = new JWKSRefreshScheduler(provider);
+
+        provider.getKeySet(new URL(JWKS_URI));
+        Thread.sleep(10);
+        scheduler.refreshDueEndpoints();
+        Thread.sleep(50);
+        assertEquals(provider.fetchCount.get(), 1);
+    }
+
+    @Test
+    public void testStartAndStop() {
+
+        JWKSRefreshScheduler scheduler = new JWKSRefreshScheduler(new CountingProvider(new JWKSConfig()));
+        scheduler.start();
+        scheduler.start();
+        scheduler.stop();
+        scheduler.stop();
+    }
+
+    /**
+     * Provider whose remote fetches are counted.
+     */
+    private static class CountingProvider extends JWKSKeySetProvider {
+
+        private final AtomicInteger fetchCount = new AtomicInteger();
+
+        CountingProvider(JWKSConfig config) {
+
+            super(config);
+        }
+
+        @Override
+        protected CompletableFuture<JWKSResponse> retrieveAsync(URL jwksUri, String eTag, String lastModified) {
+
+            fetchCount.incrementAndGet();
+            return CompletableFuture.completedFuture(new JWKSResponse(JWKS_CONTENT, -1));
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks;
+
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Test class for JWKSRetriever class.
+ */
+public class JWKSRetrieverTest {
+
+    private static final String JWKS_CONTENT = "{\"keys\":[{\"kty\":\"RSA\",\"x5t\":\"thumbprint\"}]}";
+    private static final String ETAG = "\"v1\"";
+    private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final CountDownLatch slowResponseStarted = new CountDownLatch(1);
+    private final CountDownLatch slowResponseRelease = new CountDownLatch(1);
+    private final CountDownLatch heldResponseStarted = new CountDownLatch(1);
+    private final CountDownLatch heldResponseRelease = new CountDownLatch(1);
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private String baseUrl;
+    private JWKSConfig config;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+
+        config = new JWKSConfig();
+        config.setConnectTimeout(1000);
+        config.setReadTimeout(1000);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/jwks", exchange -> {
+            byte[] body = JWKS_CONTENT.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Cache-Control", "public, max-age=120");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.createContext("/conditional", exchange -> {
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            exchange.getResponseHeaders().add("Last-Modified", LAST_MODIFIED);
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+            if (ETAG.equals(ifNoneMatch) || (ifNoneMatch == null && LAST_MODIFIED.equals(ifModifiedSince))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = JWKS_CONTENT.getBytes(StandardCharsets.UTF_8);
+            bytesServed.addAndGet(body.length);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.createContext("/large", exchange -> {
+            byte[] body = new byte[4096];
+            Arrays.fill(body, (byte) ' ');
+            // Chunked, so that the size is only known while reading the body.
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            } catch (IOException e) {
+                // The client stops reading once the size limit is exceeded.
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            slowResponseStarted.countDown();
+            try {
+                slowResponseRelease.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = JWKS_CONTENT.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.createContext("/held", exchange -> {
+            heldResponseStarted.countDown();
+            try {
+                heldResponseRelease.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = JWKS_CONTENT.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.createContext("/error", exchange -> {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    @AfterClass
+    public void tearDown() {
+
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testRetrieve() throws Exception {
+
+        JWKSResponse response = new JWKSRetriever(config).retrieve(new URL(baseUrl + "/jwks"));
+        assertEquals(response.getContent(), JWKS_CONTENT);
+        assertEquals(response.getMaxAge(), 120000);
+    }
+
+    @Test
+    public void testConditionalRetrieveWithETag() throws Exception {
+
+        JWKSRetriever retriever = new JWKSRetriever(config);
+        URL jwksUri = new URL(baseUrl + "/conditional");
+        long bytesBefore = bytesServed.get();
+
+        JWKSResponse response = retriever.retrieve(jwksUri);
+        assertFalse(response.isNotModified());
+        assertEquals(response.getContent(), JWKS_CONTENT);
+        assertEquals(response.getETag(), ETAG);
+        assertEquals(response.getLastModified(), LAST_MODIFIED);
+
+        JWKSResponse conditionalResponse = retriever.retrieve(jwksUri, response.getETag(), null);
+        assertTrue(conditionalResponse.isNotModified());
+        assertNull(conditionalResponse.getContent());
+        assertEquals(conditionalResponse.getETag(), ETAG);
+        assertEquals(bytesServed.get() - bytesBefore, JWKS_CONTENT.length());
+    }
+
+    @Test
+    public void testConditionalRetrieveWithLastModified() throws Exception {
+
+        long bytesBefore = bytesServed.get();
+        JWKSResponse response = new JWKSRetriever(config).retrieve(new URL(baseUrl + "/conditional"), null,
+                LAST_MODIFIED);
+        assertTrue(response.isNotModified());
+        assertEquals(bytesServed.get(), bytesBefore);
+    }
+
+    @Test
+    public void testConditionalRetrieveWithChangedETag() throws Exception {
+
+        JWKSResponse response = new JWKSRetriever(config).retrieve(new URL(baseUrl + "/conditional"),
+                "\"v0\"", null);
+        assertFalse(response.isNotModified());
+        assertEquals(response.getContent(), JWKS_CONTENT);
+        assertEquals(response.getETag(), ETAG);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testRetrieveWithErrorStatus() throws Exception {
+
+        new JWKSRetriever(config).retrieve(new URL(baseUrl + "/error"));
+    }
+
+    @Test
+    public void testRetrieveAsync() throws Exception {
+
+        JWKSResponse response = new JWKSRetriever(config).retrieveAsync(new URL(baseUrl + "/jwks"), null, null)
+                .get(5, TimeUnit.SECONDS);
+        assertEquals(response.getContent(), JWKS_CONTENT);
+        assertEquals(response.getMaxAge(), 120000);
+    }
+
+    @Test
+    public void testRetrieveAsyncWithErrorStatus() throws Exception {
+
+        try {
+            new JWKSRetriever(config).retrieveAsync(new URL(baseUrl + "/error"), null, null).get(5, TimeUnit.SECONDS);
+            fail("Expected the fetch to fail.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertTrue(e.getCause().getMessage().contains("HTTP 503"));
+        }
+    }
+
+    @Test
+    public void testRetrieverIsReused() throws Exception {
+
+        JWKSRetriever retriever = new JWKSRetriever(config);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(retriever.retrieve(new URL(baseUrl + "/jwks")).getContent(), JWKS_CONTENT);
+        }
+    }
+
+    @Test
+    public void testResponseSizeLimit() throws Exception {
+
+        JWKSConfig sizeLimitedConfig = new JWKSConfig();
+        sizeLimitedConfig.setMaxResponseSize(1024);
+        try {
+            new JWKSRetriever(sizeLimitedConfig).retrieve(new URL(baseUrl + "/large"));
+            fail("Expected the response to exceed the size limit.");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("size limit"));
+        }
+    }
+
+    @Test
+    public void testConnectionLimitPerHost() throws Exception {
+
+        JWKSConfig limitedConfig = new JWKSConfig();
+        limitedConfig.setMaxConnectionsPerHost(1);
+        limitedConfig.setFetchWaitTimeout(100);
+        JWKSRetriever retriever = new JWKSRetriever(limitedConfig);
+        AtomicReference<Object> slowResult = new AtomicReference<>();
+        Thread slowRequest = new Thread(() -> {
+            try {
+                slowResult.set(retriever.retrieve(new URL(baseUrl + "/slow")));
+            } catch (IOException e) {
+                slowResult.set(e);
+            }
+        });
+        slowRequest.start();
+        assertTrue(slowResponseStarted.await(5, TimeUnit.SECONDS));
+        try {
+            retriever.retrieve(new URL(baseUrl + "/jwks"));
+            fail("Expected the request to be rejected while the host is busy.");
+        } catch (JWKSFetchRejectedException e) {
+            assertTrue(e.getMessage().contains("Too many concurrent requests"));
+        } finally {
+            slowResponseRelease.countDown();
+            slowRequest.join(5000);
+        }
+        assertTrue(slowResult.get() instanceof JWKSResponse);
+        assertEquals(retriever.retrieve(new URL(baseUrl + "/jwks")).getContent(), JWKS_CONTENT);
+    }
+
+    @Test
+    public void testAsyncRequestsWaitForTheHost() throws Exception {
+
+        JWKSConfig limitedConfig = new JWKSConfig();
+        limitedConfig.setMaxConnectionsPerHost(1);
+        limitedConfig.setFetchWaitTimeout(5000);
+        JWKSRetriever retriever = new JWKSRetriever(limitedConfig);
+        CompletableFuture<JWKSResponse> heldResponse = retriever.retrieveAsync(new URL(baseUrl + "/held"), null, null);
+        assertTrue(heldResponseStarted.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<JWKSResponse> waitingResponse =
+                retriever.retrieveAsync(new URL(baseUrl + "/jwks"), null, null);
+        Thread.sleep(100);
+        assertFalse(waitingResponse.isDone());
+
+        heldResponseRelease.countDown();
+        assertEquals(heldResponse.get(5, TimeUnit.SECONDS).getContent(), JWKS_CONTENT);
+        assertEquals(waitingResponse.get(5, TimeUnit.SECONDS).getContent(), JWKS_CONTENT);
+    }
+
+    @Test
+    public void testAsyncRequestWaitingForTheHostIsRejected() throws Exception {
+
+        JWKSConfig limitedConfig = new JWKSConfig();
+        limitedConfig.setMaxConnectionsPerHost(0);
+        limitedConfig.setFetchWaitTimeout(50);
+        try {
+            new JWKSRetriever(limitedConfig).retrieveAsync(new URL(baseUrl + "/jwks"), null, null)
+                    .get(5, TimeUnit.SECONDS);
+            fail("Expected the request to be rejected after waiting for the host.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof JWKSFetchRejectedException);
+        }
+    }
+
+    @DataProvider(name = "cacheControlProvider")
+    public Object[][] cacheControlProvider() {
+
+        return new Object[][]{
+                {null, -1},
+                {"", -1},
+                {"public", -1},
+                {"max-age=60", 60000},
+                {"public, Max-Age=\"30\"", 30000},
+                {"max-age=abc", -1},
+                {"no-cache", 0},
+                {"no-store, max-age=60", 0}
+        };
+    }
+
+    @Test(dataProvider = "cacheControlProvider")
+    public void testParseMaxAge(String cacheControl, long expectedMaxAge) {
+
+        assertEquals(JWKSRetriever.parseMaxAge(cacheControl), expectedMaxAge);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.listener;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.common.model.InboundAuthenticationConfig;
+import org.wso2.carbon.identity.application.common.model.InboundAuthenticationRequestConfig;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.common.testng.WithRealmService;
+import org.wso2.carbon.identity.oauth.dto.OAuthConsumerAppDTO;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientProfileCache;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.cache.MutualTLSClientProfileCacheEntry;
+
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for MutualTLSApplicationMgtListener and MutualTLSOAuthEventInterceptor classes.
+ */
+@WithCarbonHome
+@WithRealmService
+public class MutualTLSApplicationMgtListenerTest {
+
+    private static final String CLIENT_ID = "listenerClient";
+    private static final String OTHER_CLIENT_ID = "otherListenerClient";
+
+    @BeforeMethod
+    public void setUp() {
+
+        for (String clientId : new String[]{CLIENT_ID, OTHER_CLIENT_ID}) {
+            MutualTLSClientProfileCache.getInstance().addToCache(clientId, MutualTLSClientProfileCacheEntry
+                    .forCertificate(clientId, "carbon.super", new byte[32], new byte[32], null));
+        }
+    }
+
+    @Test
+    public void testDoPostUpdateApplication() throws Exception {
+
+        assertTrue(new MutualTLSApplicationMgtListener().doPostUpdateApplication(getServiceProvider(),
+                "carbon.super", "admin"));
+        assertNull(MutualTLSClientProfileCache.getInstance().getValueFromCache(CLIENT_ID));
+        assertNotNull(MutualTLSClientProfileCache.getInstance().getValueFromCache(OTHER_CLIENT_ID));
+    }
+
+    @Test
+    public void testDoPostDeleteApplication() throws Exception {
+
+        assertTrue(new MutualTLSApplicationMgtListener().doPostDeleteApplication(getServiceProvider(),
+                "carbon.super", "admin"));
+        assertNull(MutualTLSClientProfileCache.getInstance().getValueFromCache(CLIENT_ID));
+        assertNotNull(MutualTLSClientProfileCache.getInstance().getValueFromCache(OTHER_CLIENT_ID));
+    }
+
+    @Test
+    public void testOnPostUpdateConsumerApplication() throws Exception {
+
+        OAuthConsumerAppDTO consumerAppDTO = new OAuthConsumerAppDTO();
+        consumerAppDTO.setOauthConsumerKey(CLIENT_ID);
+        new MutualTLSOAuthEventInterceptor().onPostUpdateConsumerApplication(consumerAppDTO);
+        assertNull(MutualTLSClientProfileCache.getInstance().getValueFromCache(CLIENT_ID));
+
+        new MutualTLSOAuthEventInterceptor().onPostUpdateConsumerApplication(OTHER_CLIENT_ID, "REVOKED");
+        assertNull(MutualTLSClientProfileCache.getInstance().getValueFromCache(OTHER_CLIENT_ID));
+    }
+
+    private ServiceProvider getServiceProvider() {
+
+        InboundAuthenticationRequestConfig oauthConfig = new InboundAuthenticationRequestConfig();
+        oauthConfig.setInboundAuthType("oauth2");
+        oauthConfig.setInboundAuthKey(CLIENT_ID);
+        InboundAuthenticationRequestConfig samlConfig = new InboundAuthenticationRequestConfig();
+        samlConfig.setInboundAuthType("samlsso");
+        samlConfig.setInboundAuthKey(OTHER_CLIENT_ID);
+        InboundAuthenticationConfig inboundAuthenticationConfig = new InboundAuthenticationConfig();
+        inboundAuthenticationConfig.setInboundAuthenticationRequestConfigs(
+                new InboundAuthenticationRequestConfig[]{oauthConfig, samlConfig});
+        ServiceProvider serviceProvider = new ServiceProvider();
+        serviceProvider.setInboundAuthenticationConfig(inboundAuthenticationConfig);
+        return serviceProvider;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.metrics;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Test class for LatencyHistogram class.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testTimesAreRecordedInBuckets() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(1));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(5));
+        histogram.record(TimeUnit.SECONDS.toNanos(30));
+
+        long[] bucketCounts = histogram.getBucketCounts();
+        assertEquals(bucketCounts.length, histogram.getBucketBounds().length + 1);
+        assertEquals(bucketCounts[0], 1);
+        assertEquals(bucketCounts[2], 2);
+        assertEquals(bucketCounts[bucketCounts.length - 1], 1);
+        assertEquals(histogram.getCount(), 4);
+        assertEquals(histogram.getTotalTime(), 30000009);
+        assertEquals(histogram.getMaxTime(), 30000000);
+    }
+
+    @Test
+    public void testPercentiles() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(histogram.getP50Time(), 0);
+        assertEquals(histogram.getMeanTime(), 0.0);
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(40));
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(150));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+
+        assertEquals(histogram.getP50Time(), 50);
+        assertEquals(histogram.getP90Time(), 50);
+        assertEquals(histogram.getP99Time(), 200);
+        assertEquals(histogram.getPercentile(1), 3000);
+        assertEquals(histogram.getMeanTime(), (90 * 40 + 9 * 150 + 3000) / 100.0);
+    }
+
+    @Test
+    public void testNegativeTimeIsRecordedAsZero() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1);
+
+        assertEquals(histogram.getBucketCounts()[0], 1);
+        assertEquals(histogram.getTotalTime(), 0);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.metrics;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSConfig;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSEndpointState;
+import org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.jwks.JWKSKeySet;
+
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for MutualTLSMetrics class.
+ */
+public class MutualTLSMetricsTest {
+
+    @Test
+    public void testStagesAndOutcomesAreRecorded() {
+
+        MutualTLSMetrics metrics = new MutualTLSMetrics(true);
+        metrics.recordStage(MutualTLSMetrics.Stage.THUMBPRINT, metrics.getStartTime());
+        metrics.recordStage(MutualTLSMetrics.Stage.THUMBPRINT, metrics.getStartTime());
+        metrics.recordOutcome(MutualTLSMetrics.Outcome.AUTHENTICATED);
+        metrics.recordOutcome(MutualTLSMetrics.Outcome.CERTIFICATE_MISMATCH);
+        metrics.recordOutcome(MutualTLSMetrics.Outcome.SHED);
+
+        assertEquals(metrics.getStage(MutualTLSMetrics.Stage.THUMBPRINT).getCount(), 2);
+        assertEquals(metrics.getStage(MutualTLSMetrics.Stage.JWKS_MATCH).getCount(), 0);
+        assertEquals(metrics.getAuthenticatedCount(), 1);
+        assertEquals(metrics.getFailedCount(), 2);
+        assertEquals(metrics.getOutcomeCounts().size(), MutualTLSMetrics.Outcome.values().length);
+        assertEquals(metrics.getOutcomeCounts().get(MutualTLSMetrics.Outcome.SHED.name()), Long.valueOf(1));
+    }
+
+    @Test
+    public void testNothingIsRecordedUnlessEnabled() {
+
+        MutualTLSMetrics metrics = new MutualTLSMetrics(false);
+        assertFalse(metrics.isEnabled());
+        assertEquals(metrics.getStartTime(), 0);
+
+        metrics.recordStage(MutualTLSMetrics.Stage.THUMBPRINT, metrics.getStartTime());
+        metrics.recordOutcome(MutualTLSMetrics.Outcome.AUTHENTICATED);
+        assertEquals(metrics.getStage(MutualTLSMetrics.Stage.THUMBPRINT).getCount(), 0);
+        assertEquals(metrics.getAuthenticatedCount(), 0);
+    }
+
+    @Test
+    public void testMBeansAreRegistered() throws Exception {
+
+        MutualTLSMetrics metrics = new MutualTLSMetrics(true);
+        metrics.recordStage(MutualTLSMetrics.Stage.JWKS_FETCH, metrics.getStartTime());
+        metrics.recordOutcome(MutualTLSMetrics.Outcome.JWKS_UNAVAILABLE);
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName outcomesName = new ObjectName(MutualTLSMetrics.DOMAIN + ":type=AuthenticationOutcomes");
+        ObjectName stageName = new ObjectName(MutualTLSMetrics.DOMAIN + ":type=AuthenticationStage,name=JWKS_FETCH");
+
+        metrics.registerMBeans();
+        // Registering again, as on a restart of the bundle, replaces the registered MBeans.
+        metrics.registerMBeans();
+        try {
+            assertEquals(mBeanServer.getAttribute(stageName, "Count"), 1L);
+            assertEquals(mBeanServer.getAttribute(outcomesName, "FailedCount"), 1L);
+            TabularData outcomeCounts = (TabularData) mBeanServer.getAttribute(outcomesName, "OutcomeCounts");
+            CompositeData jwksUnavailable =
+                    outcomeCounts.get(new Object[]{MutualTLSMetrics.Outcome.JWKS_UNAVAILABLE.name()});
+            assertEquals(jwksUnavailable.get("value"), 1L);
+        } finally {
+            metrics.unregisterMBeans();
+        }
+        assertFalse(mBeanServer.isRegistered(outcomesName));
+        assertFalse(mBeanServer.isRegistered(stageName));
+    }
+
+    @Test
+    public void testJWKSEndpointMBeanIsRegistered() throws Exception {
+
+        String jwksUri = "https://localhost:9443/oauth2/jwks?tenant=carbon.super";
+        JWKSConfig config = new JWKSConfig();
+        JWKSEndpointState endpointState = new JWKSEndpointState(new URL(jwksUri), 1000, config);
+        endpointState.recordFetch(JWKSKeySet.fromContent("{\"keys\":[]}"), -1, 2000, config);
+        MutualTLSMetrics metrics = new MutualTLSMetrics(true);
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName endpointName =
+                new ObjectName(MutualTLSMetrics.DOMAIN + ":type=JWKSEndpoint,name=" + ObjectName.quote(jwksUri));
+
+        metrics.registerJWKSEndpoint(jwksUri, endpointState);
+        try {
+            assertEquals(mBeanServer.getAttribute(endpointName, "LastFetchTime"), 2000L);
+            assertEquals(mBeanServer.getAttribute(endpointName, "LastChangeTime"), 2000L);
+            assertEquals(mBeanServer.getAttribute(endpointName, "NextRefreshTime"),
+                    endpointState.getNextRefreshTime());
+
+            endpointState.getCircuitBreaker().recordFailure(3000);
+            assertEquals(mBeanServer.getAttribute(endpointName, "CircuitBreakerState"), "CLOSED");
+            assertEquals(mBeanServer.getAttribute(endpointName, "ConsecutiveFailures"), 1);
+            assertEquals(mBeanServer.getAttribute(endpointName, "FetchFailureCount"), 1L);
+        } finally {
+            metrics.unregisterJWKSEndpoint(jwksUri);
+        }
+        assertFalse(mBeanServer.isRegistered(endpointName));
+
+        // Endpoints still in use are unregistered along with the metrics.
+        metrics.registerJWKSEndpoint(jwksUri, endpointState);
+        metrics.unregisterMBeans();
+        assertFalse(mBeanServer.isRegistered(endpointName));
+    }
+
+    @Test
+    public void testMBeansAreNotRegisteredUnlessEnabled() throws Exception {
+
+        new MutualTLSMetrics(false).registerMBeans();
+
+        assertTrue(ManagementFactory.getPlatformMBeanServer().queryNames(
+                new ObjectName(MutualTLSMetrics.DOMAIN + ":*"), null).isEmpty());
+    }
+}
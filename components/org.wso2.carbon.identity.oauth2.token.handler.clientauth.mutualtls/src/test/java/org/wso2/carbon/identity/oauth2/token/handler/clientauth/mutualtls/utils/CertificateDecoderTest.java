@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+/**
+ * Test class for CertificateDecoder class.
+ */
+public class CertificateDecoderTest {
+
+    static final String CERTIFICATE_CONTENT =
+            "MIIDmzCCAoOgAwIBAgIJAJuzH6NrV5s5MA0GCSqGSIb3DQEBCwUAMGQxCzAJBgNV\n" +
+                    "BAYTAlNMMQswCQYDVQQIDAJXUDEQMA4GA1UEBwwHQ29sb21ibzENMAsGA1UECgwE\n" +
+                    "d3NvMjENMAsGA1UECwwEd3NvMjEYMBYGA1UEAwwPdHJhdmVsb2NpdHkuY29tMB4X\n" +
+                    "DTE4MDIwNjEwNTk1N1oXDTE5MDIwNjEwNTk1N1owZDELMAkGA1UEBhMCU0wxCzAJ\n" +
+                    "BgNVBAgMAldQMRAwDgYDVQQHDAdDb2xvbWJvMQ0wCwYDVQQKDAR3c28yMQ0wCwYD\n" +
+                    "VQQLDAR3c28yMRgwFgYDVQQDDA90cmF2ZWxvY2l0eS5jb20wggEiMA0GCSqGSIb3\n" +
+                    "DQEBAQUAA4IBDwAwggEKAoIBAQDlKn3dmaLW7iBOKdlWY8Go8Q7kR6HNY/8j0arv\n" +
+                    "EcZYqMrihcSX5i5Mz57t6Z3xpaGay2jPWND7dDA/RocircleBKQk0X2OxoEYba3W\n" +
+                    "t477EpN9RWGAZuuANUSVKjC8FsNYhEp9y59IuxK+IgDAEfR8O2RNLYA6O3UjBC/R\n" +
+                    "f443CwOE4jFm3eVAeLIBudn/viC56rPBozVX4DxPaHIzxocfK6EpDljEG4lJ7otS\n" +
+                    "SbIpPlmAO/0f8F1Q6syv+sCkPRGn/OjTXWtUg6QXAclguOCl3MI+pLMThQUATcKb\n" +
+                    "2QkPl8r8/b/S8qMRKzSVYyjNP+CsDRO/MdlC50QZSJBaNYqdAgMBAAGjUDBOMB0G\n" +
+                    "A1UdDgQWBBSIXyhWV6Ac+FiqdXEeQwqzJfFLhDAfBgNVHSMEGDAWgBSIXyhWV6Ac\n" +
+                    "+FiqdXEeQwqzJfFLhDAMBgNVHRMEBTADAQH/MA0GCSqGSIb3DQEBCwUAA4IBAQBQ\n" +
+                    "S2jmfzF8x1iwmRqXILZ6qkF5ABAlNa3Z3bMFB7uErw2BxASMOLWfjZdEcyICDGIf\n" +
+                    "ZeYchqEPTvv/RIqDlu8xda3N2kRp1un5Hfffavm6ZWR3J8LdsnSjrehZ/afxuy8a\n" +
+                    "OFKiRtj9tqpG3C/s/NBJ9Gl4u5YhihOSJG9ELihJSxWDYI641AOalWnUQ/SxfeCO\n" +
+                    "TY75aViCAD6QDmBxe/opQYExBdgNOCQ6HdP5WWBT6EEggBe/mqOM/dchj57rpPtw\n" +
+                    "IOQjy9UCaY7tq4SmhAJyab0mxjcFoRBpzOJIDh+N8ozSDK+MepyFSwtW5zVacOiG\n" +
+                    "OQUrBTGXQFZOGKje8sbS";
+
+    @DataProvider(name = "certificateContentProvider")
+    public Object[][] certificateContentProvider() {
+
+        String pem = CommonConstants.BEGIN_CERT + "\n" + CERTIFICATE_CONTENT + "\n" + CommonConstants.END_CERT;
+        return new Object[][]{
+                // Base64 content with new lines.
+                {CERTIFICATE_CONTENT},
+                // Base64 content in a single line.
+                {CERTIFICATE_CONTENT.replace("\n", "")},
+                // PEM content.
+                {pem},
+                // PEM content in a single line.
+                {pem.replace("\n", "")},
+                // PEM content with escaped new lines.
+                {"  " + pem.replace("\n", "\\n") + "  "},
+                // URL encoded PEM content.
+                {URLEncoder.encode(pem, StandardCharsets.UTF_8)},
+                // URL encoded PEM content with spaces encoded as '+'.
+                {pem.replace("\n", "").replace(" ", "+")}
+        };
+    }
+
+    @Test(dataProvider = "certificateContentProvider")
+    public void testDecode(String content) throws Exception {
+
+        X509Certificate expected = (X509Certificate) CertificateFactory.getInstance(CommonConstants.X509)
+                .generateCertificate(new ByteArrayInputStream(Base64.getMimeDecoder().decode(CERTIFICATE_CONTENT)));
+        assertEquals(CertificateDecoder.decode(content), expected);
+    }
+
+    @Test
+    public void testDecodeInvalidContent() {
+
+        String[] invalidContents = {"", "not a certificate", "%zz", CommonConstants.BEGIN_CERT,
+                CERTIFICATE_CONTENT.substring(0, 100)};
+        for (String content : invalidContents) {
+            try {
+                CertificateDecoder.decode(content);
+                fail("Expected the content to be rejected : " + content);
+            } catch (CertificateException e) {
+                // Expected.
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handler.clientauth.mutualtls.utils;
+
+import org.testng.annotations.Test;
+
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for CertificateThumbprint class.
+ */
+public class CertificateThumbprintTest {
+
+    @Test
+    public void testSha256() throws Exception {
+
+        X509Certificate certificate = CertificateDecoder.decode(CertificateDecoderTest.CERTIFICATE_CONTENT);
+        assertEquals(CertificateThumbprint.sha256(certificate),
+                MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded()));
+        assertEquals(CertificateThumbprint.publicKeySha256(certificate),
+                MessageDigest.getInstance("SHA-256").digest(certificate.getPublicKey().getEncoded()));
+    }
+
+    @Test
+    public void testMatches() throws Exception {
+
+        X509Certificate certificate = CertificateDecoder.decode(CertificateDecoderTest.CERTIFICATE_CONTENT);
+        byte[] thumbprint = CertificateThumbprint.sha256(certificate);
+        assertTrue(CertificateThumbprint.matches(thumbprint, CertificateThumbprint.sha256(certificate)));
+        assertFalse(CertificateThumbprint.matches(thumbprint, CertificateThumbprint.publicKeySha256(certificate)));
+        assertFalse(CertificateThumbprint.matches(thumbprint, null));
+        assertFalse(CertificateThumbprint.matches(null, null));
+    }
+
+    @Test
+    public void testOf() throws Exception {
+
+        X509Certificate certificate = CertificateDecoder.decode(CertificateDecoderTest.CERTIFICATE_CONTENT);
+        CertificateThumbprint thumbprint = CertificateThumbprint.of(certificate);
+
+        assertEquals(thumbprint.getSha1(), MessageDigest.getInstance("SHA-1").digest(certificate.getEncoded()));
+        assertEquals(thumbprint.getSha1(), CertificateThumbprint.sha1(certificate));
+        assertEquals(thumbprint.getSha256(), CertificateThumbprint.sha256(certificate));
+        assertTrue(thumbprint.matchesSha256(CertificateThumbprint.sha256(certificate)));
+        assertFalse(thumbprint.matchesSha256(thumbprint.getSha1()));
+        assertEquals(thumbprint.getThumbprint(),
+                "YTJkZTg5OGQ3NWUwMTQ2N2UwYTcwMGE1ZTFmMTcyMjE5ZGUwMDBiMDE2ZWVhOWI0NjY1OWQ4YTZlZjQ3YzJmMQ");
+        assertSame(thumbprint.getThumbprint(), thumbprint.getThumbprint());
+        assertEquals(thumbprint.getSha1Thumbprint(), CertificateThumbprint.toHexBase64URL(thumbprint.getSha1()));
+        assertEquals(thumbprint.getX5tS256().decode(), thumbprint.getSha256());
+        assertEquals(thumbprint.toString(), CertificateThumbprint.toHex(thumbprint.getSha256()));
+    }
+
+    @Test
+    public void testEquals() throws Exception {
+
+        X509Certificate certificate = CertificateDecoder.decode(CertificateDecoderTest.CERTIFICATE_CONTENT);
+        CertificateThumbprint thumbprint = CertificateThumbprint.of(certificate);
+        CertificateThumbprint otherThumbprint = CertificateThumbprint.of(certificate);
+
+        assertEquals(thumbprint, otherThumbprint);
+        assertEquals(thumbprint.hashCode(), otherThumbprint.hashCode());
+        assertFalse(thumbprint.equals(thumbprint.getThumbprint()));
+    }
+
+    @Test
+    public void testToHex() {
+
+        assertEquals(CertificateThumbprint.toHex(new byte[]{0, 1, 15, 16, (byte) 0xab, (byte) 0xff}), "00010f10abff");
+        assertEquals(CertificateThumbprint.toHex(new byte[0]), "");
+    }
+
+    @Test
+    public void testFromHexBase64URL() throws Exception {
+
+        X509Certificate certificate = CertificateDecoder.decode(CertificateDecoderTest.CERTIFICATE_CONTENT);
+        byte[] digest = CertificateThumbprint.sha256(certificate);
+        assertEquals(CertificateThumbprint.fromHexBase64URL(CertificateThumbprint.toHexBase64URL(digest)), digest);
+        assertNull(CertificateThumbprint.fromHexBase64URL("published-thumbprint"));
+        assertNull(CertificateThumbprint.fromHexBase64URL("not base64"));
+        assertNull(CertificateThumbprint.fromHexBase64URL(null));
+    }
+}
@@ -115,4 +115,33 @@ public class MutualTLSUtilTest {
             assertEquals(MutualTLSUtil.readHTTPConnectionConfigValue("path"), 123);
         }
     }
+
+    @Test
+    public void testReadIntConfigValue() {
+
+        try (MockedStatic<IdentityUtil> identityUtil = mockStatic(IdentityUtil.class)) {
+            identityUtil.when(() -> IdentityUtil.getProperty("path")).thenReturn("xPath");
+            assertEquals(MutualTLSUtil.readIntConfigValue("path"), 0);
+            identityUtil.when(() -> IdentityUtil.getProperty("path")).thenReturn(" 123 ");
+            assertEquals(MutualTLSUtil.readIntConfigValue("path"), 123);
+            identityUtil.when(() -> IdentityUtil.getProperty("path")).thenReturn(null);
+            assertEquals(MutualTLSUtil.readIntConfigValue("path"), 0);
+        }
+    }
+
+    @Test
+    public void testReadIntConfigValueWithDefault() {
+
+        try (MockedStatic<IdentityUtil> identityUtil = mockStatic(IdentityUtil.class)) {
+            identityUtil.when(() -> IdentityUtil.getProperty("path")).thenReturn(null);
+            assertEquals(MutualTLSUtil.readIntConfigValue("path", 10, 1), 10);
+            identityUtil.when(() -> IdentityUtil.getProperty("path")).thenReturn("xPath");
+            assertEquals(MutualTLSUtil.readIntConfigValue("path", 10, 1), 10);
+            identityUtil.when(() -> IdentityUtil.getProperty("path")).thenReturn(" 0 ");
+            assertEquals(MutualTLSUtil.readIntConfigValue("path", 10, 1), 10);
+            assertEquals(MutualTLSUtil.readIntConfigValue("path", 10, 0), 0);
+            identityUtil.when(() -> IdentityUtil.getProperty("path")).thenReturn("123");
+            assertEquals(MutualTLSUtil.readIntConfigValue("path", 10, 1), 123);
+        }
+    }
 }